@@ -0,0 +1,83 @@
+package com.door43.translationstudio.core;
+
+import android.test.InstrumentationTestCase;
+
+import com.door43.translationstudio.App;
+import com.door43.util.FileUtilities;
+
+import org.unfoldingword.door43client.models.TargetLanguage;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+
+/**
+ * Measures the size of an exported archive and how long it takes to export
+ * with and without packing the git history first.
+ * Each commit simulates a day of work so the history resembles a project that has been edited for several years.
+ * The results are written to the log so they can be compared between builds.
+ */
+public class ExportBenchmarkTest extends InstrumentationTestCase {
+
+    public static final String TAG = ExportBenchmarkTest.class.getSimpleName();
+    private static final int NUM_COMMITS = 1000;
+    private static final int NUM_CHUNKS = 10;
+    private File mTempDir;
+    private Translator mTranslator;
+    private TargetTranslation mTargetTranslation;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        if(!App.isLibraryDeployed()) {
+            App.deployDefaultLibrary();
+        }
+        if(App.getProfile() == null) {
+            App.setProfile(new Profile("testing"));
+        }
+        mTempDir = new File(App.context().getCacheDir(), "export_benchmark");
+        FileUtilities.deleteQuietly(mTempDir);
+        mTranslator = new Translator(App.context(), App.getProfile(), new File(mTempDir, "translations"));
+        TargetLanguage targetLanguage = App.getLibrary().index().getTargetLanguage("aae");
+        mTargetTranslation = mTranslator.createTargetTranslation(App.getProfile().getNativeSpeaker(), targetLanguage, "gen", ResourceType.TEXT, "reg", TranslationFormat.USFM);
+        assertNotNull(mTargetTranslation);
+
+        for(int i = 0; i < NUM_COMMITS; i ++) {
+            String chunk = String.format("%02d", i % NUM_CHUNKS + 1);
+            FrameTranslation frame = mTargetTranslation.getFrameTranslation("01", chunk, TranslationFormat.USFM);
+            mTargetTranslation.applyFrameTranslation(frame, "\\v " + (i % NUM_CHUNKS + 1) + " In the beginning, revision " + i);
+            mTargetTranslation.commitSync();
+        }
+    }
+
+    public void test01ExportHistory() throws Exception {
+        Translator.setPackHistoryOnExport(false);
+        File loose = new File(mTempDir, "loose." + Translator.ARCHIVE_EXTENSION);
+        long start = System.currentTimeMillis();
+        mTranslator.exportArchive(mTargetTranslation, loose);
+        long looseTime = System.currentTimeMillis() - start;
+
+        Translator.setPackHistoryOnExport(true);
+        File packed = new File(mTempDir, "packed." + Translator.ARCHIVE_EXTENSION);
+        start = System.currentTimeMillis();
+        mTranslator.exportArchive(mTargetTranslation, packed);
+        long packedTime = System.currentTimeMillis() - start;
+
+        // once packed the history stays packed
+        File repacked = new File(mTempDir, "repacked." + Translator.ARCHIVE_EXTENSION);
+        start = System.currentTimeMillis();
+        mTranslator.exportArchive(mTargetTranslation, repacked);
+        long repackedTime = System.currentTimeMillis() - start;
+
+        assertTrue(packed.length() < loose.length());
+        Logger.i(TAG, NUM_COMMITS + " commits: loose " + loose.length() / 1024 + "KB in " + looseTime + "ms, "
+                + "packed " + packed.length() / 1024 + "KB in " + packedTime + "ms, "
+                + "already packed " + repacked.length() / 1024 + "KB in " + repackedTime + "ms");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Translator.setPackHistoryOnExport(true);
+        FileUtilities.deleteQuietly(mTempDir);
+        super.tearDown();
+    }
+}
@@ -0,0 +1,45 @@
+package com.door43.translationstudio.rendering;
+
+import android.test.InstrumentationTestCase;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+
+public class IncrementalRenderTest extends InstrumentationTestCase {
+
+    public void test01SplicesPlainText() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("1 In the beginning");
+        rendered.setSpan(new SpannedString("\\v 1"), 0, 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        SpannableStringBuilder edited = new SpannableStringBuilder(rendered);
+        edited.insert(8, "very ");
+
+        CharSequence out = IncrementalRender.applyEdit(rendered, edited, 8, 0, 5);
+        assertNotNull(out);
+        assertEquals("1 In the very beginning", out.toString());
+        assertEquals(1, ((Spanned) out).getSpans(0, out.length(), SpannedString.class).length);
+    }
+
+    public void test02RejectsMarkup() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("In the beginning");
+        SpannableStringBuilder edited = new SpannableStringBuilder(rendered);
+        edited.insert(7, "\\v 2 ");
+
+        assertNull(IncrementalRender.applyEdit(rendered, edited, 7, 0, 5));
+    }
+
+    public void test03RejectsEditsToMarkers() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("a 1 In the beginning");
+        rendered.setSpan(new SpannedString("\\v 1"), 2, 3, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        SpannableStringBuilder edited = new SpannableStringBuilder(rendered);
+        edited.delete(2, 3);
+
+        assertNull(IncrementalRender.applyEdit(rendered, edited, 2, 1, 0));
+    }
+
+    public void test04RejectsOutOfSyncRender() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("In the beginning");
+        SpannableStringBuilder edited = new SpannableStringBuilder("In the very beginning God");
+
+        assertNull(IncrementalRender.applyEdit(rendered, edited, 7, 0, 5));
+    }
+}
@@ -0,0 +1,230 @@
+package com.door43.translationstudio.rendering;
+
+import android.test.InstrumentationTestCase;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextUtils;
+
+import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
+import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+import com.door43.util.FileUtilities;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how long it takes to render a long chapter.
+ * Psalm 119 has 176 verses which makes it the worst case for the rendering engines.
+ * The output of the renderer is checked against the assets in rendering/ which were
+ * rendered by the USFMRenderer that rebuilt the text with TextUtils.concat on each pass.
+ * The timings are written to the log so they can be compared between builds.
+ */
+public class RenderBenchmarkTest extends InstrumentationTestCase {
+
+    public static final String TAG = RenderBenchmarkTest.class.getSimpleName();
+    private static final int NUM_VERSES = 176;
+    private static final int ITERATIONS = 5;
+    private static final String VERSE_TEXT = "Blessed are those whose ways are blameless, who walk according to the law of the LORD.";
+
+    public void test01RenderUsfmChapter() throws Exception {
+        String usfm = buildUsfmChapter();
+
+        assertExpectedOutput("usfm_chapter", new USFMRenderer().render(usfm));
+
+        long original = time(new USFMRenderer(), usfm);
+        long streaming = time(new StreamingUSFMRenderer(), usfm);
+
+        Logger.i(TAG, "USFM Psalm 119: USFMRenderer " + original + "ms, StreamingUSFMRenderer " + streaming + "ms");
+    }
+
+    public void test02RenderUsxChapter() throws Exception {
+        String usx = buildUsxChapter();
+
+        long original = time(new USXRenderer(), usx);
+
+        Logger.i(TAG, "USX Psalm 119: USXRenderer " + original + "ms");
+    }
+
+    public void test03AssembleVerses() throws Exception {
+        // compares the old concat assembly with the append only assembly used by the renderers
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < ITERATIONS; i ++) {
+            CharSequence out = "";
+            for (int v = 1; v <= NUM_VERSES; v++) {
+                out = TextUtils.concat(out, new USFMVerseSpan(v).toCharSequence(), VERSE_TEXT, " ");
+            }
+            assertTrue(out.length() > 0);
+        }
+        long concat = (System.currentTimeMillis() - start) / ITERATIONS;
+
+        start = System.currentTimeMillis();
+        for(int i = 0; i < ITERATIONS; i ++) {
+            SpannableStringBuilder out = new SpannableStringBuilder();
+            for (int v = 1; v <= NUM_VERSES; v++) {
+                out.append(new USFMVerseSpan(v).toCharSequence()).append(VERSE_TEXT).append(" ");
+            }
+            assertTrue(out.length() > 0);
+        }
+        long append = (System.currentTimeMillis() - start) / ITERATIONS;
+
+        Logger.i(TAG, "Assembling " + NUM_VERSES + " verses: concat " + concat + "ms, append " + append + "ms");
+    }
+
+    public void test04MatchPatterns() throws Exception {
+        // compares matching a chunk with freshly compiled patterns (as each render used to) against the shared patterns
+        String[] styles = {"ms", "s", "p", "q(\\d+)", "qr", "cl"};
+        String chunk = buildUsfmChunk();
+
+        long start = System.nanoTime();
+        int compiledMatches = 0;
+        for(int i = 0; i < NUM_VERSES; i ++) {
+            compiledMatches = countMatches(Pattern.compile("(^\\s*|\\s*$)"), chunk)
+                    + countMatches(Pattern.compile("(\\s+)"), chunk)
+                    + countMatches(Pattern.compile("(\\s*\\n+\\s*)"), chunk)
+                    + countMatches(Pattern.compile(USFMVerseSpan.PATTERN), chunk)
+                    + countMatches(Pattern.compile(USFMNoteSpan.PATTERN), chunk);
+            for(String style:styles) {
+                compiledMatches += countMatches(Pattern.compile("<para\\s+style=\""+style+"\"\\s*>\\s*(((?!</para>).)*)</para>", Pattern.DOTALL), chunk);
+            }
+        }
+        long compiled = (System.nanoTime() - start) / NUM_VERSES;
+
+        start = System.nanoTime();
+        int sharedMatches = 0;
+        for(int i = 0; i < NUM_VERSES; i ++) {
+            sharedMatches = countMatches(RenderingPatterns.SURROUNDING_WHITESPACE, chunk)
+                    + countMatches(RenderingPatterns.WHITESPACE, chunk)
+                    + countMatches(RenderingPatterns.LINE_BREAKS, chunk)
+                    + countMatches(RenderingPatterns.USFM_VERSE, chunk)
+                    + countMatches(RenderingPatterns.USFM_NOTE, chunk);
+            for(String style:styles) {
+                sharedMatches += countMatches(RenderingPatterns.para(style), chunk);
+            }
+        }
+        long shared = (System.nanoTime() - start) / NUM_VERSES;
+
+        assertEquals(compiledMatches, sharedMatches);
+        Logger.i(TAG, "Patterns per chunk: compiled " + compiled + "ns, shared " + shared + "ns");
+    }
+
+    public void test05SameOutputWithOptions() throws Exception {
+        String usfm = buildUsfmChapter();
+
+        USFMRenderer renderer = new USFMRenderer();
+        renderer.setSearchString("blameless", 0xffffff00);
+        assertExpectedOutput("usfm_chapter_search", renderer.render(usfm));
+
+        renderer = new USFMRenderer();
+        renderer.setLinebreaksEnabled(true);
+        renderer.setSuppressLeadingMajorSectionHeadings(true);
+        assertExpectedOutput("usfm_chapter_linebreaks", renderer.render(usfm));
+
+        renderer = new USFMRenderer();
+        renderer.setPopulateVerseMarkers(new int[]{1, NUM_VERSES + 2});
+        assertExpectedOutput("usfm_chapter_missing_verses", renderer.render(usfm));
+    }
+
+    /**
+     * Checks that the rendered output has the same text and the same spans over the same ranges as the expected output.
+     * The text is stored in rendering/[name].txt and the spans in rendering/[name].spans
+     * @param name the name of the expected output
+     * @param actual
+     */
+    private void assertExpectedOutput(String name, CharSequence actual) throws IOException {
+        // TRICKY: the assets are read line by line so each line ends with a line break
+        assertEquals(name, readAsset("rendering/" + name + ".txt"), actual.toString() + "\n");
+        StringBuilder spans = new StringBuilder();
+        for(String span:describeSpans(actual)) {
+            spans.append(span).append("\n");
+        }
+        assertEquals(name, readAsset("rendering/" + name + ".spans"), spans.toString());
+    }
+
+    private String readAsset(String path) throws IOException {
+        return FileUtilities.readStreamToString(getInstrumentation().getContext().getAssets().open(path));
+    }
+
+    /**
+     * Lists the type and range of each span in the text in a stable order
+     * @param text
+     * @return
+     */
+    private static List<String> describeSpans(CharSequence text) {
+        List<String> spans = new ArrayList<>();
+        if(text instanceof Spanned) {
+            Spanned spanned = (Spanned)text;
+            for(Object span:spanned.getSpans(0, spanned.length(), Object.class)) {
+                spans.add(span.getClass().getName() + " " + spanned.getSpanStart(span) + "-" + spanned.getSpanEnd(span));
+            }
+        }
+        Collections.sort(spans);
+        return spans;
+    }
+
+    private static int countMatches(Pattern pattern, CharSequence input) {
+        Matcher matcher = pattern.matcher(input);
+        int count = 0;
+        while(matcher.find()) {
+            count ++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the average time in milliseconds it takes the engine to render the input
+     * @param engine
+     * @param input
+     * @return
+     */
+    private static long time(RenderingEngine engine, String input) {
+        engine.render(input); // warm up
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < ITERATIONS; i ++) {
+            CharSequence out = engine.render(input);
+            assertNotNull(out);
+            assertTrue(out.length() > 0);
+        }
+        return (System.currentTimeMillis() - start) / ITERATIONS;
+    }
+
+    private static String buildUsfmChapter() {
+        StringBuilder usfm = new StringBuilder("<para style=\"ms\">Book five</para>\n\\c 119\n");
+        for(int v = 1; v <= NUM_VERSES; v ++) {
+            if(v % 8 == 1) {
+                usfm.append("<para style=\"s\">Section ").append(v / 8 + 1).append("</para>\n");
+            }
+            usfm.append("\\v ").append(v).append(" ").append(VERSE_TEXT);
+            if(v % 20 == 0) {
+                usfm.append(" \\f + \\ft Or instruction \\f*");
+            }
+            usfm.append("\n");
+        }
+        return usfm.toString();
+    }
+
+    private static String buildUsfmChunk() {
+        StringBuilder usfm = new StringBuilder("<para style=\"s\">Aleph</para>\n");
+        for(int v = 1; v <= 8; v ++) {
+            usfm.append("\\v ").append(v).append(" ").append(VERSE_TEXT).append(" \\f + \\ft note \\f*\n");
+        }
+        return usfm.toString();
+    }
+
+    private static String buildUsxChapter() {
+        StringBuilder usx = new StringBuilder();
+        for(int v = 1; v <= NUM_VERSES; v ++) {
+            if(v % 8 == 1) {
+                usx.append("<para style=\"s\">Section ").append(v / 8 + 1).append("</para>\n");
+            }
+            usx.append("<para style=\"q1\"><verse number=\"").append(v).append("\" style=\"v\" />")
+                    .append(VERSE_TEXT).append("</para>\n");
+        }
+        return usx.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.door43.translationstudio.rendering;
+
+import android.graphics.Typeface;
+import android.test.InstrumentationTestCase;
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.AlignmentSpan;
+import android.text.style.StyleSpan;
+
+import com.door43.translationstudio.core.TranslationCompiler;
+import com.door43.translationstudio.ui.spannables.Span;
+import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
+import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class SpanCodecTest extends InstrumentationTestCase {
+
+    public void test01RoundTrip() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("Title\n");
+        rendered.setSpan(new StyleSpan(Typeface.BOLD), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        rendered.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_CENTER), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        rendered.append(new USFMVerseSpan("1").toCharSequence());
+        rendered.append(" In the beginning ");
+        rendered.append(USFMNoteSpan.generateFootnote("a note").toCharSequence());
+
+        CharSequence decoded = roundTrip(rendered);
+        assertNotNull(decoded);
+        assertEquals(rendered.toString(), decoded.toString());
+
+        Spanned spanned = (Spanned) decoded;
+        assertEquals(1, spanned.getSpans(0, 5, StyleSpan.class).length);
+        assertEquals(1, spanned.getSpans(0, 5, AlignmentSpan.class).length);
+        assertEquals(2, spanned.getSpans(0, spanned.length(), Span.ClickSpan.class).length);
+        assertEquals(TranslationCompiler.compile(rendered), TranslationCompiler.compile(spanned));
+    }
+
+    public void test02PlainText() throws Exception {
+        CharSequence decoded = roundTrip("plain text");
+        assertNotNull(decoded);
+        assertEquals("plain text", decoded.toString());
+    }
+
+    public void test03RejectsUnknownSpans() throws Exception {
+        SpannableStringBuilder rendered = new SpannableStringBuilder("text");
+        rendered.setSpan(new Object(), 0, 2, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream());
+        assertFalse(SpanCodec.encode(rendered, out));
+    }
+
+    public void test04RejectsCorruptLengths() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        assertTrue(SpanCodec.encode("plain text", out));
+        out.flush();
+        byte[] data = bytes.toByteArray();
+        for(int length:new int[]{-1, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+            new DataOutputStream(corrupt).writeInt(length);
+            System.arraycopy(corrupt.toByteArray(), 0, data, 0, 4);
+            try {
+                SpanCodec.decode(new DataInputStream(new ByteArrayInputStream(data)), null, null);
+                fail("Accepted string length " + length);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static CharSequence roundTrip(CharSequence rendered) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        assertTrue(SpanCodec.encode(rendered, out));
+        out.flush();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return SpanCodec.decode(in, null, null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.door43.util;
+
+import android.test.InstrumentationTestCase;
+
+import com.door43.translationstudio.App;
+import com.door43.translationstudio.core.Util;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+
+/**
+ * Measures how long it takes to extract the bundled resource containers.
+ * This is the bulk of the work when the library is deployed for the first time.
+ * The timings are written to the log so they can be compared between builds.
+ */
+public class UnzipBenchmarkTest extends InstrumentationTestCase {
+
+    public static final String TAG = UnzipBenchmarkTest.class.getSimpleName();
+    private File mTempDir;
+    private File mArchive;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mTempDir = new File(App.context().getCacheDir(), "unzip_benchmark");
+        FileUtilities.deleteQuietly(mTempDir);
+        mTempDir.mkdirs();
+        mArchive = new File(mTempDir, "containers.zip");
+        Util.writeStream(App.context().getAssets().open("containers.zip"), mArchive);
+    }
+
+    public void test01ExtractContainers() throws Exception {
+        File streamDir = new File(mTempDir, "stream");
+        long start = System.currentTimeMillis();
+        Zip.unzipFromStream(App.context().getAssets().open("containers.zip"), streamDir);
+        long stream = System.currentTimeMillis() - start;
+
+        File parallelDir = new File(mTempDir, "parallel");
+        start = System.currentTimeMillis();
+        Zip.unzip(mArchive, parallelDir);
+        long parallel = System.currentTimeMillis() - start;
+
+        assertEquals(ZipStreamWriter.sizeOf(streamDir), ZipStreamWriter.sizeOf(parallelDir));
+        assertEquals(streamDir.list().length, parallelDir.list().length);
+
+        Logger.i(TAG, "containers.zip (" + mArchive.length() / 1024 + "KB): stream " + stream + "ms, parallel "
+                + parallel + "ms with " + Runtime.getRuntime().availableProcessors() + " processors");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        FileUtilities.deleteQuietly(mTempDir);
+        super.tearDown();
+    }
+}
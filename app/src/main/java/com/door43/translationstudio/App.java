@@ -5,6 +5,7 @@ import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
@@ -28,6 +29,9 @@ import org.unfoldingword.tools.foreground.Foreground;
 import org.unfoldingword.tools.logger.LogLevel;
 import org.unfoldingword.tools.logger.Logger;
 import com.door43.translationstudio.core.ArchiveDetails;
+import com.door43.translationstudio.core.BackupLedger;
+import com.door43.translationstudio.core.CommitScheduler;
+import com.door43.translationstudio.core.ContainerCache;
 import com.door43.translationstudio.core.Migration;
 import com.door43.translationstudio.core.NewLanguageRequest;
 import com.door43.translationstudio.core.Profile;
@@ -35,8 +39,10 @@ import com.door43.translationstudio.core.TargetTranslation;
 import com.door43.translationstudio.core.TranslationViewMode;
 import com.door43.translationstudio.core.Translator;
 import com.door43.translationstudio.core.Util;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.services.BackupService;
 import com.door43.translationstudio.ui.SettingsActivity;
+import com.door43.util.FanOutOutputStream;
 import com.door43.util.SdUtils;
 import com.door43.util.FileUtilities;
 import com.door43.util.StorageUtils;
@@ -59,6 +65,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class provides global access to the application context as well as other important tools
@@ -91,6 +98,12 @@ public class App extends Application {
     public final static long minimumRequiredRAM = 96 * 1024 * 1024; // 96 MB, Minimum RAM needed for reliable operation
     public final static long minimumNumberOfProcessors = 2; // Minimum number of processors needed for reliable operationB
     private static boolean mBackupsRunning = false;
+    private static final Object sLibraryLock = new Object();
+    private static Door43Client sLibrary = null;
+    private static final AtomicInteger sLibraryOpensAvoided = new AtomicInteger(0);
+    private static final Object sDeployLock = new Object();
+    private static final Object sBackupLedgerLock = new Object();
+    private static BackupLedger sBackupLedger = null;
 
     public static File getImagesDir() {
         return imagesDir;
@@ -117,6 +130,13 @@ public class App extends Application {
         }
         Logger.registerGlobalExceptionHandler(dir);
 
+        // commits from before an update are not trusted to have tracked every change
+        try {
+            CommitScheduler.setTrustedSince(getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            Logger.w(TAG, "Failed to read the package info", e);
+        }
+
         // initialize default settings
         // NOTE: make sure to add any new preference files here in order to have their default values properly loaded.
         PreferenceManager.setDefaultValues(this, R.xml.general_preferences, false);
@@ -125,6 +145,23 @@ public class App extends Application {
         PreferenceManager.setDefaultValues(this, R.xml.advanced_preferences, false);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // TRICKY: TRIM_MEMORY_UI_HIDDEN is sent whenever the user leaves the app so the caches are kept for when they return
+        if(level >= TRIM_MEMORY_MODERATE) {
+            ContainerCache.empty();
+            RenderCache.getInstance().clear();
+        } else if(level >= TRIM_MEMORY_BACKGROUND
+                || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            // release the least recently used source containers and renders
+            ContainerCache.trim(ContainerCache.size() / 2);
+            RenderCache cache = RenderCache.getInstance();
+            cache.trim(cache.getCharacterCount() / 2);
+        }
+    }
+
     /**
      * Starts the backup service if it is not already running.
      */
@@ -342,17 +379,50 @@ public class App extends Application {
     }
 
     /**
-     * Returns an instance of the door43 client
+     * Returns the shared instance of the door43 client.
+     * The client is created the first time this is called and reused until the library is
+     * redeployed or deleted. See {@link #invalidateLibrary()}
      * @return
      */
     @Nullable
     public static Door43Client getLibrary() {
-        try {
-            return new Door43Client(sInstance, dbFile(), containersDir());
-        } catch (IOException e) {
-            Logger.e(TAG, "Failed to initialize the door43 client", e);
+        synchronized (sLibraryLock) {
+            if(sLibrary != null) {
+                sLibraryOpensAvoided.incrementAndGet();
+                return sLibrary;
+            }
+            try {
+                sLibrary = new Door43Client(sInstance, dbFile(), containersDir());
+            } catch (IOException e) {
+                Logger.e(TAG, "Failed to initialize the door43 client", e);
+            }
+            return sLibrary;
         }
-        return null;
+    }
+
+    /**
+     * Closes the shared door43 client so the next call to {@link #getLibrary()} opens the index again.
+     * This must be called whenever the index or resource containers are replaced on the disk.
+     */
+    public static void invalidateLibrary() {
+        synchronized (sLibraryLock) {
+            if(sLibrary != null) {
+                try {
+                    sLibrary.tearDown();
+                } catch (Exception e) {
+                    Logger.w(TAG, "Failed to close the door43 client", e);
+                }
+            }
+            sLibrary = null;
+        }
+    }
+
+    /**
+     * Returns the number of times the shared door43 client was reused instead of opening the index again
+     * @return
+     */
+    public static int getLibraryOpensAvoided() {
+        return sLibraryOpensAvoided.get();
     }
 
     /**
@@ -389,19 +459,74 @@ public class App extends Application {
         return new File(publicDir(), "resource_containers");
     }
 
+    /**
+     * Returns where a resource container is installed.
+     * This does not check if the container exists
+     * @param resourceContainerSlug
+     * @return
+     */
+    public static File getResourceContainerDir(String resourceContainerSlug) {
+        return new File(containersDir(), resourceContainerSlug);
+    }
+
     /**
      * Deploys the default index and resource containers.
+     * The library is prepared beside the current one and only swapped in once it is complete
+     * so callers of {@link #getLibrary()} are not blocked while the assets are extracted.
      *
      * @throws Exception
      */
     public static void deployDefaultLibrary() throws Exception {
         Logger.i(TAG, "deploying the default library to " + containersDir().getParentFile());
-        // copy index
-        Util.writeStream(sInstance.getAssets().open("index.sqlite"), dbFile());
-        // extract resource containers
-        File dir = containersDir();
-        dir.mkdirs();
-        Zip.unzipFromStream(sInstance.getAssets().open("containers.zip"), dir);
+        synchronized (sDeployLock) {
+            File stagedDb = new File(databaseDir(), dbFile().getName() + ".deploying");
+            File stagedContainers = new File(publicDir(), containersDir().getName() + ".deploying");
+            File retiredContainers = new File(publicDir(), containersDir().getName() + ".retired");
+            FileUtilities.deleteQuietly(stagedDb);
+            FileUtilities.deleteQuietly(stagedContainers);
+            FileUtilities.deleteQuietly(retiredContainers);
+            try {
+                // copy index
+                Util.writeStream(sInstance.getAssets().open("index.sqlite"), stagedDb);
+                // extract resource containers
+                stagedContainers.mkdirs();
+                // TRICKY: assets are not files so the archive is copied out to be extracted in parallel
+                File containersZip = new File(sInstance.getCacheDir(), "containers.zip");
+                try {
+                    Util.writeStream(sInstance.getAssets().open("containers.zip"), containersZip);
+                    Zip.unzip(containersZip, stagedContainers);
+                } catch (IOException e) {
+                    Logger.w(TAG, "Failed to extract the resource containers in parallel", e);
+                    FileUtilities.deleteQuietly(stagedContainers);
+                    Zip.unzipFromStream(sInstance.getAssets().open("containers.zip"), stagedContainers);
+                } finally {
+                    FileUtilities.deleteQuietly(containersZip);
+                }
+
+                synchronized (sLibraryLock) {
+                    invalidateLibrary();
+                    File dir = containersDir();
+                    if(dir.exists() && !dir.renameTo(retiredContainers)) {
+                        throw new IOException("Failed to replace the resource containers in " + dir);
+                    }
+                    if(!stagedContainers.renameTo(dir)) {
+                        retiredContainers.renameTo(dir);
+                        throw new IOException("Failed to deploy the resource containers to " + dir);
+                    }
+                    // TRICKY: some file systems will not rename over an existing file
+                    if(!stagedDb.renameTo(dbFile())) {
+                        FileUtilities.deleteQuietly(dbFile());
+                        if(!stagedDb.renameTo(dbFile())) {
+                            throw new IOException("Failed to deploy the index to " + dbFile());
+                        }
+                    }
+                }
+            } finally {
+                FileUtilities.deleteQuietly(stagedDb);
+                FileUtilities.deleteQuietly(stagedContainers);
+                FileUtilities.deleteQuietly(retiredContainers);
+            }
+        }
     }
 
     /**
@@ -420,14 +545,11 @@ public class App extends Application {
      * ... or just the source content
      */
     public static void deleteLibrary() {
-        try {
-            Door43Client client = getLibrary();
-            if(client != null) client.tearDown();
-        } catch (Exception e) {
-            e.printStackTrace();
+        synchronized (sLibraryLock) {
+            invalidateLibrary();
+            FileUtilities.deleteQuietly(dbFile());
+            FileUtilities.deleteQuietly(containersDir());
         }
-        FileUtilities.deleteQuietly(dbFile());
-        FileUtilities.deleteQuietly(containersDir());
     }
 
     /**
@@ -544,38 +666,59 @@ public class App extends Application {
             File publicBackup = new File(publicDir(), "backups/" + name + "." + Translator.ARCHIVE_EXTENSION);
 
             // check if we need to backup
+            String commitHash = targetTranslation.getCommitHash();
+            BackupLedger ledger = getBackupLedger();
             if(!orphaned) {
-                ArchiveDetails downloadsDetails = ArchiveDetails.newInstance(downloadsBackup, "en", getLibrary());
-                ArchiveDetails publicDetails = ArchiveDetails.newInstance(publicBackup, "en", getLibrary());
-                // TRICKY: we only generate backups with a single target translation inside.
-                if( getCommitHash(downloadsDetails).equals(targetTranslation.getCommitHash())
-                        && getCommitHash(publicDetails).equals(targetTranslation.getCommitHash())) {
+                if(ledger.isBackedUp(targetTranslation.getId(), commitHash, downloadsBackup, publicBackup)) {
                     return false;
                 }
+                if(!ledger.contains(targetTranslation.getId())) {
+                    // TRICKY: backups made before the ledger existed must be opened to check them
+                    ArchiveDetails downloadsDetails = ArchiveDetails.newInstance(downloadsBackup, "en", getLibrary());
+                    ArchiveDetails publicDetails = ArchiveDetails.newInstance(publicBackup, "en", getLibrary());
+                    // TRICKY: we only generate backups with a single target translation inside.
+                    if (getCommitHash(downloadsDetails).equals(commitHash)
+                            && getCommitHash(publicDetails).equals(commitHash)) {
+                        if (downloadsBackup.length() == publicBackup.length()) {
+                            ledger.record(targetTranslation.getId(), commitHash, downloadsBackup.length(), downloadsBackup, publicBackup);
+                        }
+                        return false;
+                    }
+                }
             }
 
             // run backup
-            File temp = null;
+            // TRICKY: the archive is exported once and streamed into both backup locations at the same time
+            FanOutOutputStream out = new FanOutOutputStream(downloadsBackup, publicBackup);
             try {
-                temp = File.createTempFile(name, "." + Translator.ARCHIVE_EXTENSION);
                 targetTranslation.setDefaultContributor(getProfile().getNativeSpeaker());
-                getTranslator().exportArchive(targetTranslation, temp);
-                if (temp.exists() && temp.isFile()) {
-                    // copy into backup locations
-                    downloadsBackup.getParentFile().mkdirs();
-                    publicBackup.getParentFile().mkdirs();
-
-                    FileUtilities.copyFile(temp, downloadsBackup);
-                    FileUtilities.copyFile(temp, publicBackup);
-                    return true;
-                }
+                getTranslator().exportArchive(targetTranslation, out, downloadsBackup.getName());
+                out.commit();
             } finally {
-                FileUtilities.deleteQuietly(temp);
+                out.discard();
+            }
+            if(!orphaned) {
+                // TRICKY: exporting commits pending changes so the hash is read again
+                ledger.record(targetTranslation.getId(), targetTranslation.getCommitHash(), out.getSize(), downloadsBackup, publicBackup);
             }
+            return true;
         }
         return false;
     }
 
+    /**
+     * Returns the record of the last backup of each target translation
+     * @return
+     */
+    public static BackupLedger getBackupLedger() {
+        synchronized (sBackupLedgerLock) {
+            if(sBackupLedger == null) {
+                sBackupLedger = new BackupLedger(new File(sInstance.getFilesDir(), "backup_ledger.json"));
+            }
+            return sBackupLedger;
+        }
+    }
+
     /**
      * safe fetch of commit hash
      * @param details
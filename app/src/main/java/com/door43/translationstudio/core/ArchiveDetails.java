@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 /**
  * Holds details about the translation archive
@@ -50,47 +52,47 @@ public class ArchiveDetails {
     public static ArchiveDetails newInstance(InputStream archiveStream, String preferredLocale, Door43Client library) throws Exception {
         if(archiveStream != null) {
             File tempFile = File.createTempFile("targettranslation", "." + Translator.ARCHIVE_EXTENSION);
-            FileUtilities.copyInputStreamToFile(archiveStream, tempFile);
-
-            String rawManifest = Zip.read(tempFile, MANIFEST_JSON);
-            if (rawManifest != null) {
-                JSONObject json = new JSONObject(rawManifest);
-                if (json.has(PACKAGE_VERSION)) {
-                    int manifestVersion = json.getInt(PACKAGE_VERSION);
-                    switch (manifestVersion) {
-                        case 1:
-                            return parseV1Manifest(json);
-                        case 2:
-                            return parseV2Manifest(new FileInputStream(tempFile), json, preferredLocale, library);
-                    }
-                }
+            try {
+                FileUtilities.copyInputStreamToFile(archiveStream, tempFile);
+                return newInstance(tempFile, preferredLocale, library);
+            } finally {
+                FileUtilities.deleteQuietly(tempFile);
             }
         }
         return null;
     }
 
     /**
-     * Reads the details from a translationStudio archive
+     * Reads the details from a translationStudio archive.
+     * The manifests are looked up in the central directory of the archive so the rest of it is not read
      * @param archive
      * @return
      * @throws IOException
      */
-    public static ArchiveDetails newInstance(File archive, String preferredLocale, Door43Client library) throws Exception {
+    public static ArchiveDetails newInstance(final File archive, String preferredLocale, Door43Client library) throws Exception {
         if(archive != null && archive.exists()) {
-            String rawManifest = Zip.read(archive, MANIFEST_JSON);
-            if(rawManifest != null) {
-                JSONObject json = new JSONObject(rawManifest);
-                if(json.has(PACKAGE_VERSION)) {
-                    int manifestVersion = json.getInt(PACKAGE_VERSION);
-                    switch (manifestVersion) {
-                        case 1:
-                            return parseV1Manifest(json);
-                        case 2:
-                            return parseV2Manifest(new FileInputStream(archive), json, preferredLocale, library);
+            final ZipFile zip;
+            try {
+                zip = new ZipFile(archive);
+            } catch (ZipException e) {
+                // TRICKY: the central directory is missing from truncated archives so we fall back to reading the entries in order
+                return parse(new EntryReader() {
+                    @Override
+                    public String read(String path) throws IOException {
+                        return Zip.readInputStream(new FileInputStream(archive), path);
                     }
-                }
+                }, preferredLocale, library);
+            }
+            try {
+                return parse(new EntryReader() {
+                    @Override
+                    public String read(String path) throws IOException {
+                        return Zip.read(zip, path);
+                    }
+                }, preferredLocale, library);
+            } finally {
+                zip.close();
             }
-            return null;
         } else {
             return null;
         }
@@ -102,40 +104,56 @@ public class ArchiveDetails {
      * @return
      * @throws IOException
      */
-    public static ArchiveDetails newInstance(Context context, DocumentFile archive, String preferredLocale, Door43Client library) throws Exception {
+    public static ArchiveDetails newInstance(final Context context, final DocumentFile archive, String preferredLocale, Door43Client library) throws Exception {
         if(archive != null && archive.exists()) {
-            InputStream ais = context.getContentResolver().openInputStream(archive.getUri());
-            String rawManifest = Zip.readInputStream(ais, MANIFEST_JSON);
-            if (rawManifest != null) {
-                JSONObject json = new JSONObject(rawManifest);
-                if (json.has(PACKAGE_VERSION)) {
-                    int manifestVersion = json.getInt(PACKAGE_VERSION);
-                    switch (manifestVersion) {
-                        case 1:
-                            return parseV1Manifest(json);
-                        case 2:
-                            return parseV2Manifest(context.getContentResolver().openInputStream(archive.getUri()), json, preferredLocale, library);
-                    }
+            return parse(new EntryReader() {
+                @Override
+                public String read(String path) throws IOException {
+                    return Zip.readInputStream(context.getContentResolver().openInputStream(archive.getUri()), path);
                 }
-            }
-            return null;
+            }, preferredLocale, library);
         } else {
             return null;
         }
     }
 
+    /**
+     * Reads the details from the manifests in the archive
+     * @param reader
+     * @param preferredLocale
+     * @param library
+     * @return
+     * @throws Exception
+     */
+    private static ArchiveDetails parse(EntryReader reader, String preferredLocale, Door43Client library) throws Exception {
+        String rawManifest = reader.read(MANIFEST_JSON);
+        if (rawManifest != null) {
+            JSONObject json = new JSONObject(rawManifest);
+            if (json.has(PACKAGE_VERSION)) {
+                int manifestVersion = json.getInt(PACKAGE_VERSION);
+                switch (manifestVersion) {
+                    case 1:
+                        return parseV1Manifest(json);
+                    case 2:
+                        return parseV2Manifest(reader, json, preferredLocale, library);
+                }
+            }
+        }
+        return null;
+    }
+
     private static ArchiveDetails parseV1Manifest(JSONObject json) {
         return null;
     }
 
-    private static ArchiveDetails parseV2Manifest(InputStream ais, JSONObject archiveManifest, String preferredLocale, Door43Client library) throws JSONException, IOException {
+    private static ArchiveDetails parseV2Manifest(EntryReader reader, JSONObject archiveManifest, String preferredLocale, Door43Client library) throws JSONException, IOException {
         List<TargetTranslationDetails> targetDetails = new ArrayList<>();
         long timestamp = archiveManifest.getLong("timestamp");
         JSONArray translationsJson = archiveManifest.getJSONArray("target_translations");
         for(int i = 0; i < translationsJson.length(); i ++) {
             JSONObject translationRecordJson = translationsJson.getJSONObject(i);
             String path = translationRecordJson.getString("path");
-            String rawTranslationManifest = Zip.readInputStream(ais, path.replaceAll("/+$", "") + "/manifest.json");
+            String rawTranslationManifest = reader.read(path.replaceAll("/+$", "") + "/manifest.json");
             if(rawTranslationManifest != null) {
                 JSONObject manifest = new JSONObject(rawTranslationManifest);
 
@@ -192,7 +210,6 @@ public class ArchiveDetails {
                 }
             }
         }
-        ais.close();
         return new ArchiveDetails(timestamp, targetDetails.toArray(new TargetTranslationDetails[targetDetails.size()]));
     }
 
@@ -204,6 +221,18 @@ public class ArchiveDetails {
         return new ArchiveDetails(0, new TargetTranslationDetails[0]);
     }
 
+    /**
+     * Reads files from an archive
+     */
+    private interface EntryReader {
+        /**
+         * @param path the path of the file within the archive
+         * @return the contents of the file or null if it does not exist
+         * @throws IOException
+         */
+        String read(String path) throws IOException;
+    }
+
     /**
      * Contains details about a target translation in the archive
      */
@@ -0,0 +1,164 @@
+package com.door43.translationstudio.core;
+
+import com.door43.util.FileUtilities;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a local record of the last backup made of each target translation.
+ * This allows the backup service to decide if a target translation needs to be backed up
+ * by looking up the commit it was last backed up at instead of opening the existing backups.
+ *
+ * Each entry records the commit hash, the size of the archive and where it was written.
+ * An entry is only trusted while every destination still exists with the recorded size.
+ */
+public class BackupLedger {
+    private static final String TAG = "BackupLedger";
+    private final File file;
+    private Map<String, Entry> entries = null;
+
+    /**
+     * @param file the file in which the ledger is persisted
+     */
+    public BackupLedger(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Checks if the target translation has already been backed up at this commit
+     * @param targetTranslationId
+     * @param commitHash the current commit of the target translation
+     * @param destinations the files the backup should exist in
+     * @return false if a backup is needed
+     */
+    public synchronized boolean isBackedUp(String targetTranslationId, String commitHash, File... destinations) {
+        Entry entry = getEntries().get(targetTranslationId);
+        if(entry == null || commitHash == null || !commitHash.equals(entry.commitHash)) return false;
+        for(File destination:destinations) {
+            if(!entry.destinations.contains(destination.getAbsolutePath())) return false;
+            // TRICKY: the backups are public so they may have been deleted or replaced
+            if(destination.length() != entry.size) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the ledger has a record of the target translation
+     * @param targetTranslationId
+     * @return
+     */
+    public synchronized boolean contains(String targetTranslationId) {
+        return getEntries().containsKey(targetTranslationId);
+    }
+
+    /**
+     * Records a backup of the target translation and saves the ledger
+     * @param targetTranslationId
+     * @param commitHash the commit that was backed up
+     * @param size the size of the backup
+     * @param destinations the files the backup was written to
+     */
+    public synchronized void record(String targetTranslationId, String commitHash, long size, File... destinations) {
+        if(commitHash == null) return;
+        Entry entry = new Entry(commitHash, size);
+        for(File destination:destinations) {
+            entry.destinations.add(destination.getAbsolutePath());
+        }
+        getEntries().put(targetTranslationId, entry);
+        save();
+    }
+
+    /**
+     * Removes the record of a target translation and saves the ledger
+     * @param targetTranslationId
+     */
+    public synchronized void remove(String targetTranslationId) {
+        if(getEntries().remove(targetTranslationId) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Returns the entries, loading them from the disk the first time
+     * @return
+     */
+    private Map<String, Entry> getEntries() {
+        if(entries == null) {
+            entries = new HashMap<>();
+            if(file.exists()) {
+                try {
+                    JSONObject json = new JSONObject(FileUtilities.readFileToString(file));
+                    Iterator<String> keys = json.keys();
+                    while (keys.hasNext()) {
+                        String id = keys.next();
+                        entries.put(id, Entry.fromJSON(json.getJSONObject(id)));
+                    }
+                } catch (Exception e) {
+                    // TRICKY: a lost ledger only means the existing backups will be checked again
+                    Logger.w(TAG, "Failed to read the backup ledger", e);
+                    entries.clear();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void save() {
+        try {
+            JSONObject json = new JSONObject();
+            for(Map.Entry<String, Entry> entry:entries.entrySet()) {
+                json.put(entry.getKey(), entry.getValue().toJSON());
+            }
+            file.getParentFile().mkdirs();
+            FileUtilities.writeStringToFileAtomic(file, json.toString());
+        } catch (JSONException | IOException e) {
+            Logger.w(TAG, "Failed to save the backup ledger", e);
+        }
+    }
+
+    /**
+     * A record of a single backup
+     */
+    private static class Entry {
+        private final String commitHash;
+        private final long size;
+        private final Set<String> destinations = new HashSet<>();
+
+        Entry(String commitHash, long size) {
+            this.commitHash = commitHash;
+            this.size = size;
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("commit_hash", commitHash);
+            json.put("size", size);
+            JSONArray paths = new JSONArray();
+            for(String path:destinations) {
+                paths.put(path);
+            }
+            json.put("destinations", paths);
+            return json;
+        }
+
+        static Entry fromJSON(JSONObject json) throws JSONException {
+            Entry entry = new Entry(json.getString("commit_hash"), json.getLong("size"));
+            JSONArray paths = json.getJSONArray("destinations");
+            for(int i = 0; i < paths.length(); i ++) {
+                entry.destinations.add(paths.getString(i));
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package com.door43.translationstudio.core;
+
+import com.door43.util.FileUtilities;
+import com.door43.util.Security;
+
+import org.eclipse.jgit.api.AddCommand;
+import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.json.JSONObject;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules git commits for target translation repositories.
+ * Commits to the same repository are serialized and bursts of commit requests are coalesced into a single commit.
+ * The paths that have been changed since the last commit are tracked so only those need to be staged.
+ *
+ * Each change to a repository increments its generation. When the committed generation matches
+ * the current generation the repository is known to be clean without scanning the working tree.
+ * A small marker is kept in the git directory so this is remembered when the app restarts.
+ *
+ * Writes that are not reported with {@link #markDirty(File, File)} or {@link #invalidate(File)} are caught by
+ * comparing the modified dates of the folders in the working tree with their dates at the last commit.
+ * Folders that changed are staged in full. Since a file can be edited in place without changing its folder
+ * the whole working tree is still scanned once the tracked changes have been relied on {@link #FULL_SCAN_INTERVAL} times
+ * and after the app is updated.
+ */
+public class CommitScheduler {
+    private static final String TAG = CommitScheduler.class.getSimpleName();
+
+    /**
+     * The default time (in milliseconds) to collect commit requests before committing
+     */
+    public static final long DEFAULT_DELAY = 2000;
+    /**
+     * The number of times the tracked changes may be relied on before the working tree is scanned
+     */
+    public static final int FULL_SCAN_INTERVAL = 50;
+    private static final String CLEAN_MARKER = "tstudio_clean.json";
+
+    private final ScheduledExecutorService executor;
+    private final Map<String, RepoState> repos = new HashMap<>();
+    private long delay = DEFAULT_DELAY;
+    private long trustedSince = 0;
+
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+    private final AtomicLong numRequests = new AtomicLong(0);
+    private final AtomicLong numCommits = new AtomicLong(0);
+    private final AtomicLong totalLatency = new AtomicLong(0);
+    private final AtomicLong lastLatency = new AtomicLong(0);
+
+    private static CommitScheduler sInstance = null;
+
+    static {
+        sInstance = new CommitScheduler();
+    }
+
+    /**
+     * The commit state of a single repository
+     */
+    private static class RepoState {
+        private final Object lock = new Object();
+        private final Set<String> dirtyPaths = new LinkedHashSet<>();
+        private String trustToken = null;
+        private long generation = 0;
+        private long committedGeneration = -1;
+        private String committedManifestStamp = null;
+        private Map<String, Long> committedFolders = null;
+        private Map<String, Long> pendingFolders = null;
+        private int trustedCount = 0;
+        private boolean markerLoaded = false;
+        private boolean scheduled = false;
+        private Callable<Boolean> commit = null;
+        private final List<TargetTranslation.OnCommitListener> listeners = new ArrayList<>();
+    }
+
+    private CommitScheduler() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the state of the repository
+     * @param repoDir
+     * @return
+     */
+    private RepoState getState(File repoDir) {
+        String key = repoDir.getAbsolutePath();
+        synchronized (repos) {
+            RepoState state = repos.get(key);
+            if(state == null) {
+                state = new RepoState();
+                repos.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Sets how long commit requests are collected before committing
+     * @param millis
+     */
+    public static void setDelay(long millis) {
+        synchronized (sInstance.repos) {
+            sInstance.delay = Math.max(0, millis);
+        }
+    }
+
+    /**
+     * Sets when the app was last installed or updated.
+     * Clean markers written before this time are not trusted since an older version may not have tracked every change
+     * @param millis
+     */
+    public static void setTrustedSince(long millis) {
+        synchronized (sInstance.repos) {
+            sInstance.trustedSince = millis;
+        }
+    }
+
+    /**
+     * Returns the lock that must be held while committing to the repository
+     * @param repoDir
+     * @return
+     */
+    public static Object getLock(File repoDir) {
+        return sInstance.getState(repoDir).lock;
+    }
+
+    /**
+     * Records that a file in the repository has changed.
+     * This must be called before the change reaches the disk so the clean marker is never newer than the change.
+     * Anything that writes to a repository without calling this or {@link #invalidate(File)} is only committed
+     * once the working tree is scanned.
+     * The {@link TargetTranslationIndex} is told about the change as well
+     * @param repoDir
+     * @param file
+     */
+    public static void markDirty(File repoDir, File file) {
+        String repoPath = repoDir.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        if(!path.startsWith(repoPath)) return;
+        RepoState state = sInstance.getState(repoDir);
+        synchronized (state.dirtyPaths) {
+            // TRICKY: the marker must be gone before the change reaches the disk
+            if(!state.markerLoaded || state.generation == state.committedGeneration) {
+                state.markerLoaded = true;
+                FileUtilities.deleteQuietly(getMarkerFile(repoDir));
+            }
+            state.generation ++;
+            state.dirtyPaths.add(path.substring(repoPath.length()).replace(File.separatorChar, '/'));
+        }
+        TargetTranslationIndex.markChanged(repoDir);
+    }
+
+    /**
+     * Returns the current generation of the repository and remembers the dates of its folders.
+     * This must be read before the dirty paths are taken for a commit
+     * so changes made while committing are picked up by the next commit.
+     * @param repoDir
+     * @return
+     */
+    public static long getGeneration(File repoDir) {
+        RepoState state = sInstance.getState(repoDir);
+        Map<String, Long> folders = readFolderStamps(repoDir);
+        synchronized (state.dirtyPaths) {
+            state.pendingFolders = folders;
+            return state.generation;
+        }
+    }
+
+    /**
+     * Checks if the repository is clean without scanning the working tree
+     * @param repoDir
+     * @return true if clean, false if dirty, or null if the repository must be scanned
+     */
+    public static Boolean isClean(File repoDir) {
+        RepoState state = sInstance.getState(repoDir);
+        String token = readTrustToken(repoDir);
+        Map<String, Long> folders = readFolderStamps(repoDir);
+        synchronized (state.dirtyPaths) {
+            loadMarker(repoDir, state, token);
+            if(!isTrusted(state, token)) {
+                return null;
+            }
+            if(state.generation != state.committedGeneration) {
+                return false;
+            }
+            if(!findChangedFolders(state.committedFolders, folders).isEmpty()) {
+                // something wrote to the repository without telling us
+                return null;
+            }
+            return readManifestStamp(repoDir).equals(state.committedManifestStamp);
+        }
+    }
+
+    /**
+     * Removes and returns the paths that have changed since the last commit.
+     * Folders that changed without being reported are included so their contents are staged as well.
+     * @param repoDir
+     * @return the changed paths or null if the repository must be scanned for changes
+     */
+    public static Set<String> takeDirtyPaths(File repoDir) {
+        RepoState state = sInstance.getState(repoDir);
+        String trustToken = readTrustToken(repoDir);
+        Map<String, Long> folders = readFolderStamps(repoDir);
+        synchronized (state.dirtyPaths) {
+            loadMarker(repoDir, state, trustToken);
+            Set<String> paths = new LinkedHashSet<>(state.dirtyPaths);
+            state.dirtyPaths.clear();
+            if(!isTrusted(state, trustToken)) {
+                return null;
+            }
+            for(String folder:findChangedFolders(state.committedFolders, folders)) {
+                if(folder.isEmpty()) {
+                    // TRICKY: staging the top of the repository would scan everything so only its files are staged
+                    File[] files = repoDir.listFiles();
+                    if(files == null) continue;
+                    for(File file:files) {
+                        if(file.isFile()) paths.add(file.getName());
+                    }
+                } else {
+                    paths.add(folder);
+                }
+            }
+            return paths;
+        }
+    }
+
+    /**
+     * Checks if the tracked changes of the repository can be trusted.
+     * The trust runs out after a number of checks so the working tree is scanned from time to time
+     * @param state
+     * @param trustToken the current trust token of the repository
+     * @return
+     */
+    private static boolean isTrusted(RepoState state, String trustToken) {
+        if(state.trustToken == null || !state.trustToken.equals(trustToken) || state.committedFolders == null) {
+            return false;
+        }
+        if(state.trustedCount >= FULL_SCAN_INTERVAL) {
+            return false;
+        }
+        state.trustedCount ++;
+        return true;
+    }
+
+    /**
+     * Records that all the changes in the repository up to the generation have been committed.
+     * The dirty paths will be trusted until the repository no longer matches its state after the commit.
+     * This happens if something other than the scheduler changes the repository e.g. a merge or reset.
+     * @param repoDir
+     * @param generation the generation read before the commit started. See {@link #getGeneration(File)}
+     */
+    public static void markCommitted(File repoDir, long generation) {
+        RepoState state = sInstance.getState(repoDir);
+        String trustToken = readTrustToken(repoDir);
+        String manifestStamp = readManifestStamp(repoDir);
+        synchronized (state.dirtyPaths) {
+            Map<String, Long> folders = state.pendingFolders;
+            state.pendingFolders = null;
+            if(folders == null) {
+                folders = readFolderStamps(repoDir);
+            }
+            // TRICKY: a scan was needed if the tracked changes were not trusted
+            if(state.trustToken == null || state.trustedCount >= FULL_SCAN_INTERVAL) {
+                state.trustedCount = 0;
+            }
+            state.markerLoaded = true;
+            state.trustToken = trustToken;
+            state.committedGeneration = generation;
+            state.committedManifestStamp = manifestStamp;
+            state.committedFolders = folders;
+            if(trustToken != null && state.generation == generation) {
+                writeMarker(repoDir, trustToken, manifestStamp, folders);
+            }
+        }
+        // the head of the repository has moved
+        TargetTranslationIndex.markChanged(repoDir);
+    }
+
+    /**
+     * Forces the next commit to scan the entire repository for changes.
+     * This must be called when the repository is changed without {@link #markDirty(File, File)},
+     * e.g. when files are copied in or the history is rewritten.
+     * The {@link TargetTranslationIndex} and {@link SearchIndex} are told as well
+     * @param repoDir
+     */
+    public static void invalidate(File repoDir) {
+        RepoState state = sInstance.getState(repoDir);
+        synchronized (state.dirtyPaths) {
+            state.markerLoaded = true;
+            state.trustToken = null;
+            FileUtilities.deleteQuietly(getMarkerFile(repoDir));
+        }
+        TargetTranslationIndex.markChanged(repoDir);
+        // the changes were not reported chunk by chunk
+        SearchIndex.markAllChanged(repoDir.getName());
+    }
+
+    /**
+     * Restores the clean state that was saved by a previous run of the app
+     * @param repoDir
+     * @param state
+     * @param trustToken the current trust token of the repository
+     */
+    private static void loadMarker(File repoDir, RepoState state, String trustToken) {
+        if(state.markerLoaded) return;
+        state.markerLoaded = true;
+        File markerFile = getMarkerFile(repoDir);
+        if(trustToken == null || !markerFile.exists()) return;
+        synchronized (sInstance.repos) {
+            // TRICKY: the marker may have been written by an older version of the app
+            if(markerFile.lastModified() < sInstance.trustedSince) return;
+        }
+        try {
+            JSONObject json = new JSONObject(FileUtilities.readFileToString(markerFile));
+            if(trustToken.equals(json.getString("token")) && json.has("folders")) {
+                Map<String, Long> folders = new HashMap<>();
+                JSONObject foldersJson = json.getJSONObject("folders");
+                Iterator<String> names = foldersJson.keys();
+                while(names.hasNext()) {
+                    String name = names.next();
+                    folders.put(name, foldersJson.getLong(name));
+                }
+                state.trustToken = trustToken;
+                state.committedGeneration = state.generation;
+                state.committedManifestStamp = json.getString("manifest");
+                state.committedFolders = folders;
+            }
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to read the clean marker of " + repoDir, e);
+        }
+    }
+
+    /**
+     * Saves the clean state of the repository
+     * @param repoDir
+     * @param trustToken
+     * @param manifestStamp
+     * @param folders the dates of the folders in the working tree
+     */
+    private static void writeMarker(File repoDir, String trustToken, String manifestStamp, Map<String, Long> folders) {
+        try {
+            JSONObject foldersJson = new JSONObject();
+            for(Map.Entry<String, Long> entry:folders.entrySet()) {
+                foldersJson.put(entry.getKey(), (long)entry.getValue());
+            }
+            JSONObject json = new JSONObject();
+            json.put("token", trustToken);
+            json.put("manifest", manifestStamp);
+            json.put("folders", foldersJson);
+            FileUtilities.writeStringToFileAtomic(getMarkerFile(repoDir), json.toString());
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to write the clean marker of " + repoDir, e);
+        }
+    }
+
+    /**
+     * Returns the file where the clean state of the repository is saved
+     * @param repoDir
+     * @return
+     */
+    private static File getMarkerFile(File repoDir) {
+        return new File(repoDir, ".git/" + CLEAN_MARKER);
+    }
+
+    /**
+     * Returns a token that changes whenever the repository is changed by something other than a scheduled commit.
+     * Only the head and the git index are inspected so this is cheap to read.
+     * @param repoDir
+     * @return the token or null if the repository does not have any commits yet
+     */
+    private static String readTrustToken(File repoDir) {
+        File gitDir = new File(repoDir, ".git");
+        String head = TargetTranslationIndex.readHeadCommit(gitDir);
+        if(head == null) return null;
+        File index = new File(gitDir, "index");
+        // TRICKY: the path prevents a copied marker from matching a different repository
+        return repoDir.getAbsolutePath() + ":" + head + ":" + index.lastModified() + ":" + index.length();
+    }
+
+    /**
+     * Returns a stamp that changes when the contents of the manifest change.
+     * TRICKY: the manifest is often rewritten with the same length within the resolution of the file dates
+     * so the contents are hashed
+     * @param repoDir
+     * @return
+     */
+    private static String readManifestStamp(File repoDir) {
+        File manifest = new File(repoDir, "manifest.json");
+        if(!manifest.exists()) return "";
+        try {
+            return Security.sha1(FileUtilities.readFileToString(manifest));
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to read the manifest of " + repoDir, e);
+            return "";
+        }
+    }
+
+    /**
+     * Returns the modified dates of the folders in the working tree keyed by their path relative to the repository.
+     * The top of the repository is keyed by an empty path
+     * @param repoDir
+     * @return
+     */
+    private static Map<String, Long> readFolderStamps(File repoDir) {
+        Map<String, Long> folders = new HashMap<>();
+        if(repoDir.isDirectory()) {
+            readFolderStamps(repoDir, "", folders);
+        }
+        return folders;
+    }
+
+    private static void readFolderStamps(File dir, String path, Map<String, Long> folders) {
+        folders.put(path, dir.lastModified());
+        File[] children = dir.listFiles();
+        if(children == null) return;
+        for(File child:children) {
+            if(child.isDirectory() && !child.getName().equals(".git")) {
+                readFolderStamps(child, path.isEmpty() ? child.getName() : path + "/" + child.getName(), folders);
+            }
+        }
+    }
+
+    /**
+     * Returns the folders that were added, removed, or changed
+     * @param committed the folders at the last commit
+     * @param current the folders now
+     * @return
+     */
+    private static Set<String> findChangedFolders(Map<String, Long> committed, Map<String, Long> current) {
+        Set<String> changed = new LinkedHashSet<>();
+        if(committed == null) return changed;
+        for(Map.Entry<String, Long> entry:current.entrySet()) {
+            if(!entry.getValue().equals(committed.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for(String path:committed.keySet()) {
+            if(!current.containsKey(path)) changed.add(path);
+        }
+        return changed;
+    }
+
+    /**
+     * Stages and commits only the given paths.
+     * Folders are staged with all of their contents. Paths that no longer exist are staged as deleted.
+     * @param git
+     * @param repoDir
+     * @param paths the paths relative to the repository
+     * @param author the author of the commit. May be null
+     * @return true if a commit was made or false if there was nothing to commit
+     * @throws Exception
+     */
+    public static boolean commitPaths(Git git, File repoDir, Set<String> paths, PersonIdent author) throws Exception {
+        AddCommand add = null;
+        AddCommand update = null;
+        for(String path:paths) {
+            File file = new File(repoDir, path);
+            if(file.exists()) {
+                if(add == null) add = git.add();
+                add.addFilepattern(path);
+            }
+            if(!file.isFile()) {
+                // TRICKY: update mode stages the deletion of tracked files
+                if(update == null) update = git.add().setUpdate(true);
+                update.addFilepattern(path);
+            }
+        }
+        if(add != null) add.call();
+        if(update != null) update.call();
+
+        // check if anything was staged
+        if(git.diff().setCached(true).call().isEmpty()) {
+            return false;
+        }
+
+        CommitCommand commit = git.commit();
+        if(author != null) {
+            commit.setAuthor(author);
+        }
+        commit.setMessage("auto save");
+        commit.call();
+        return true;
+    }
+
+    /**
+     * Schedules a commit.
+     * If a commit is already scheduled for the repository the request is merged into it.
+     * @param repoDir
+     * @param commit performs the commit and returns true if successful
+     * @param listener the listener to notify when the commit finishes. May be null
+     */
+    public static void schedule(File repoDir, Callable<Boolean> commit, TargetTranslation.OnCommitListener listener) {
+        final RepoState state = sInstance.getState(repoDir);
+        sInstance.numRequests.incrementAndGet();
+        long delay;
+        synchronized (sInstance.repos) {
+            delay = sInstance.delay;
+        }
+        synchronized (state.listeners) {
+            state.commit = commit;
+            if(listener != null) {
+                state.listeners.add(listener);
+            }
+            if(state.scheduled) {
+                return;
+            }
+            state.scheduled = true;
+        }
+        sInstance.queueDepth.incrementAndGet();
+        sInstance.executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                sInstance.runScheduled(state);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a scheduled commit and notifies the listeners
+     * @param state
+     */
+    private void runScheduled(RepoState state) {
+        Callable<Boolean> commit;
+        List<TargetTranslation.OnCommitListener> listeners;
+        synchronized (state.listeners) {
+            commit = state.commit;
+            listeners = new ArrayList<>(state.listeners);
+            state.commit = null;
+            state.listeners.clear();
+            state.scheduled = false;
+        }
+        queueDepth.decrementAndGet();
+
+        boolean result = false;
+        try {
+            result = commit != null && commit.call();
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to commit", e);
+        }
+        for(TargetTranslation.OnCommitListener listener:listeners) {
+            listener.onCommit(result);
+        }
+    }
+
+    /**
+     * Records the time it took to make a commit
+     * @param millis
+     */
+    public static void recordCommit(long millis) {
+        sInstance.numCommits.incrementAndGet();
+        sInstance.totalLatency.addAndGet(millis);
+        sInstance.lastLatency.set(millis);
+    }
+
+    /**
+     * Returns the number of repositories waiting for a scheduled commit
+     * @return
+     */
+    public static int getQueueDepth() {
+        return sInstance.queueDepth.get();
+    }
+
+    /**
+     * Returns the number of commit requests that were received
+     * @return
+     */
+    public static long getRequestCount() {
+        return sInstance.numRequests.get();
+    }
+
+    /**
+     * Returns the number of commits that were made
+     * @return
+     */
+    public static long getCommitCount() {
+        return sInstance.numCommits.get();
+    }
+
+    /**
+     * Returns the average time (in milliseconds) it took to make a commit
+     * @return
+     */
+    public static long getAverageLatency() {
+        long commits = sInstance.numCommits.get();
+        return commits == 0 ? 0 : sInstance.totalLatency.get() / commits;
+    }
+
+    /**
+     * Returns the time (in milliseconds) it took to make the last commit
+     * @return
+     */
+    public static long getLastLatency() {
+        return sInstance.lastLatency.get();
+    }
+}
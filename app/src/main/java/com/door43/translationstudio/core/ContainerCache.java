@@ -9,42 +9,70 @@ import org.unfoldingword.resourcecontainer.ResourceContainer;
 import org.unfoldingword.resourcecontainer.errors.InvalidRCException;
 import org.unfoldingword.tools.logger.Logger;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Provides a cache of resource containers.
  * This should usually only be used to load source containers since they will not change very often.
+ *
+ * The cache is bounded by the number of containers and their approximate size on the disk.
+ * The least recently used containers are evicted first.
  */
 public class ContainerCache {
+    private static final String TAG = "ContainerCache";
+
+    /**
+     * The default maximum number of cached containers
+     */
+    public static final int DEFAULT_MAX_CONTAINERS = 16;
+
     /**
-     * A map of cached containers
+     * The default maximum approximate size (in bytes) of the cached containers
      */
-    private Map<String, ResourceContainer> resourceContainers = new ConcurrentHashMap<>();
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
 
     /**
-     * A base for the synchronized list below
-      */
-    private List<String> inspected_list = new ArrayList<>();
+     * A map of cached containers in least recently used order
+     */
+    private final LinkedHashMap<String, ResourceContainer> resourceContainers = new LinkedHashMap<>(16, 0.75f, true);
 
     /**
-     * A list of container slugs that have already been searched for
+     * The approximate size of each cached container
      */
-    private List<String> inspectedContainers = Collections.synchronizedList(inspected_list);
+    private final Map<String, Long> containerSizes = new HashMap<>();
 
     /**
-     * A base for the synchronized list below
+     * The measured size of each container version that has been loaded.
+     * These are kept after the container is evicted so the container is only measured once per version
      */
-    private List<String> inspecting_list = new ArrayList<>();
+    private final Map<String, MeasuredSize> measuredSizes = new ConcurrentHashMap<>();
 
     /**
-     * A list of container slugs that are currently being inspected
+     * Container slugs that could not be opened. These will not be loaded again until the cache is emptied
      */
-    private List<String> loadingContainers = Collections.synchronizedList(inspecting_list);
+    private final Set<String> failedContainers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Containers that are currently being loaded. Other threads wait on these instead of loading the container again
+     */
+    private final ConcurrentHashMap<String, FutureTask<ResourceContainer>> loadingContainers = new ConcurrentHashMap<>();
+
+    private int maxContainers = DEFAULT_MAX_CONTAINERS;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long cachedBytes = 0;
 
     private static ContainerCache sInstance = null;
 
@@ -56,8 +84,46 @@ public class ContainerCache {
      * Empties the cache
      */
     public static void empty() {
-        sInstance.resourceContainers.clear();
-        sInstance.inspectedContainers.clear();
+        synchronized (sInstance.resourceContainers) {
+            sInstance.resourceContainers.clear();
+            sInstance.containerSizes.clear();
+            sInstance.cachedBytes = 0;
+        }
+        sInstance.failedContainers.clear();
+    }
+
+    /**
+     * Sets the limits of the cache. Containers will be evicted if the cache is over the new limits.
+     * @param maxContainers the maximum number of containers to keep
+     * @param maxBytes the maximum approximate size (in bytes) of the containers to keep
+     */
+    public static void setLimits(int maxContainers, long maxBytes) {
+        synchronized (sInstance.resourceContainers) {
+            sInstance.maxContainers = Math.max(1, maxContainers);
+            sInstance.maxBytes = Math.max(0, maxBytes);
+            sInstance.evict(sInstance.maxContainers, sInstance.maxBytes);
+        }
+    }
+
+    /**
+     * Evicts the least recently used containers until no more than the given number of containers are cached.
+     * This should be used to release memory when the system is running low.
+     * @param maxContainers the number of containers to keep
+     */
+    public static void trim(int maxContainers) {
+        synchronized (sInstance.resourceContainers) {
+            sInstance.evict(Math.max(0, maxContainers), sInstance.maxBytes);
+        }
+    }
+
+    /**
+     * Returns the number of cached containers
+     * @return
+     */
+    public static int size() {
+        synchronized (sInstance.resourceContainers) {
+            return sInstance.resourceContainers.size();
+        }
     }
 
     /**
@@ -68,35 +134,140 @@ public class ContainerCache {
      * @param resourceContainerSlug
      * @return
      */
-    public static ResourceContainer cache(Door43Client client, String resourceContainerSlug) {
-        // wait for other threads
-        waitForLoadingContainers(resourceContainerSlug);
-
+    public static ResourceContainer cache(final Door43Client client, final String resourceContainerSlug) {
         // check cache
-        if (sInstance.resourceContainers.containsKey(resourceContainerSlug)) {
-            return sInstance.resourceContainers.get(resourceContainerSlug);
-        }
+        ResourceContainer cached = sInstance.getCached(resourceContainerSlug);
+        if(cached != null) return cached;
 
         // load from disk once
-        if(!sInstance.inspectedContainers.contains(resourceContainerSlug)) {
-            // flag as loading
-            sInstance.loadingContainers.add(resourceContainerSlug);
-            try {
-                ResourceContainer rc = client.open(resourceContainerSlug);
-                sInstance.resourceContainers.put(rc.slug, rc);
-                return rc;
-            } catch (InvalidRCException e) {
-                Logger.w("ContainerCache", "Deleting corrupt RC " + resourceContainerSlug, e);
-                // delete invalid container
-                client.delete(resourceContainerSlug);
-            } catch (Exception e) {
-                Logger.e("ContainerCache", "Failed to open the RC " + resourceContainerSlug, e);
-            } finally {
-                // fag as inspected
-                sInstance.inspectedContainers.add(resourceContainerSlug);
-                // remove loading flag
-                sInstance.loadingContainers.remove(resourceContainerSlug);
+        if(sInstance.failedContainers.contains(resourceContainerSlug)) return null;
+
+        FutureTask<ResourceContainer> task = new FutureTask<>(new Callable<ResourceContainer>() {
+            @Override
+            public ResourceContainer call() throws Exception {
+                return sInstance.load(client, resourceContainerSlug);
+            }
+        });
+        FutureTask<ResourceContainer> loading = sInstance.loadingContainers.putIfAbsent(resourceContainerSlug, task);
+        if(loading == null) {
+            // this thread does the loading
+            loading = task;
+            task.run();
+        }
+        return waitFor(loading);
+    }
+
+    /**
+     * Loads a container from the disk and adds it to the cache
+     * @param client
+     * @param resourceContainerSlug
+     * @return the container or null if it could not be loaded
+     */
+    private ResourceContainer load(Door43Client client, String resourceContainerSlug) {
+        ResourceContainer rc = null;
+        try {
+            // TRICKY: another thread may have finished loading just before we started
+            rc = getCached(resourceContainerSlug);
+            if(rc != null) return rc;
+
+            rc = client.open(resourceContainerSlug);
+            long size = sizeOf(rc);
+            synchronized (resourceContainers) {
+                Long previous = containerSizes.put(rc.slug, size);
+                if(previous != null) cachedBytes -= previous;
+                cachedBytes += size;
+                resourceContainers.put(rc.slug, rc);
+                evict(maxContainers, maxBytes);
+            }
+            return rc;
+        } catch (InvalidRCException e) {
+            Logger.w(TAG, "Deleting corrupt RC " + resourceContainerSlug, e);
+            // delete invalid container
+            client.delete(resourceContainerSlug);
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to open the RC " + resourceContainerSlug, e);
+        } finally {
+            if(rc == null) {
+                failedContainers.add(resourceContainerSlug);
             }
+            loadingContainers.remove(resourceContainerSlug);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a container from the cache and marks it as recently used
+     * @param resourceContainerSlug
+     * @return
+     */
+    private ResourceContainer getCached(String resourceContainerSlug) {
+        synchronized (resourceContainers) {
+            return resourceContainers.get(resourceContainerSlug);
+        }
+    }
+
+    /**
+     * Evicts the least recently used containers until the cache is within the limits.
+     * TRICKY: must be called while holding the resource containers lock
+     * @param maxContainers
+     * @param maxBytes
+     */
+    private void evict(int maxContainers, long maxBytes) {
+        Iterator<Map.Entry<String, ResourceContainer>> it = resourceContainers.entrySet().iterator();
+        // TRICKY: always keep the most recently used container even if it is larger than the byte limit
+        while(it.hasNext() && (resourceContainers.size() > maxContainers
+                || (cachedBytes > maxBytes && resourceContainers.size() > 1))) {
+            String slug = it.next().getKey();
+            it.remove();
+            Long size = containerSizes.remove(slug);
+            if(size != null) cachedBytes -= size;
+        }
+    }
+
+    /**
+     * Returns the approximate size of a container on the disk.
+     * The container is only measured the first time each version is loaded
+     * @param rc
+     * @return
+     */
+    private long sizeOf(ResourceContainer rc) {
+        MeasuredSize measured = measuredSizes.get(rc.slug);
+        if(measured == null || measured.modifiedAt != rc.modifiedAt) {
+            measured = new MeasuredSize(rc.modifiedAt, estimateSize(rc.path));
+            measuredSizes.put(rc.slug, measured);
+        }
+        return measured.size;
+    }
+
+    /**
+     * Returns the approximate size of a container directory on the disk
+     * @param dir
+     * @return
+     */
+    private static long estimateSize(File dir) {
+        if(dir == null) return 0;
+        File[] files = dir.listFiles();
+        if(files == null) return dir.length();
+        long size = 0;
+        for(File file:files) {
+            size += file.isDirectory() ? estimateSize(file) : file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Blocks until the container has finished loading
+     * @param loading
+     * @return the loaded container or null
+     */
+    private static ResourceContainer waitFor(FutureTask<ResourceContainer> loading) {
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Logger.e(TAG, "Failed to load the RC", e);
         }
         return null;
     }
@@ -131,30 +302,16 @@ public class ContainerCache {
     }
 
     /**
-     * Puts the thread to sleep while the container is loading
-     * @param containerSlug the translation to load
-     */
-    private static void waitForLoadingContainers(String containerSlug) {
-        while (sInstance.loadingContainers.contains(containerSlug)) {
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
-
-    /**
-     * Looks up a resource container from the cache without hitting the disk
+     * Looks up a resource container from the cache without hitting the disk.
+     * If the container is currently being loaded this will wait for it to finish.
      * @return
      */
     public static ResourceContainer get(String containerSlug) {
-        waitForLoadingContainers(containerSlug);
-        if(sInstance.resourceContainers.containsKey(containerSlug)) {
-            return sInstance.resourceContainers.get(containerSlug);
+        FutureTask<ResourceContainer> loading = sInstance.loadingContainers.get(containerSlug);
+        if(loading != null) {
+            waitFor(loading);
         }
-        return null;
+        return sInstance.getCached(containerSlug);
     }
 
     /**
@@ -178,7 +335,7 @@ public class ContainerCache {
                 if(container != null) {
                     links.add(link);
                 } else {
-                    Logger.w("ContainerCache", "RC not found for link " + rawLink);
+                    Logger.w(TAG, "RC not found for link " + rawLink);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -207,7 +364,7 @@ public class ContainerCache {
                 if(container != null) {
                     links.add(link);
                 } else {
-                    Logger.w("ContainerCache", "RC not found for link " + rawLink);
+                    Logger.w(TAG, "RC not found for link " + rawLink);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -221,8 +378,25 @@ public class ContainerCache {
      * @param resourceContainerSlug the slug of the resource container that will be removed
      */
     public static void remove(String resourceContainerSlug) {
-        // TODO: 2/8/17 this could be slow since these are synchronized lists.
-        sInstance.resourceContainers.remove(resourceContainerSlug);
-        sInstance.inspectedContainers.remove(resourceContainerSlug);
+        synchronized (sInstance.resourceContainers) {
+            sInstance.resourceContainers.remove(resourceContainerSlug);
+            Long size = sInstance.containerSizes.remove(resourceContainerSlug);
+            if(size != null) sInstance.cachedBytes -= size;
+        }
+        sInstance.measuredSizes.remove(resourceContainerSlug);
+        sInstance.failedContainers.remove(resourceContainerSlug);
+    }
+
+    /**
+     * The size of a single version of a container
+     */
+    private static class MeasuredSize {
+        private final int modifiedAt;
+        private final long size;
+
+        MeasuredSize(int modifiedAt, long size) {
+            this.modifiedAt = modifiedAt;
+            this.size = size;
+        }
     }
 }
@@ -70,7 +70,8 @@ public class ExportUsfm {
     static private Uri exportAsUSFM(TargetTranslation targetTranslation, Uri destinationFolder, String fileName, boolean outputToDocumentFile) throws IOException {
         File tempDir = new File(App.context().getCacheDir(), System.currentTimeMillis() + "");
         tempDir.mkdirs();
-        ChapterTranslation[] chapters = targetTranslation.getChapterTranslations();
+        TargetTranslationSnapshot snapshot = targetTranslation.loadSnapshot();
+        ChapterTranslation[] chapters = snapshot.getChapterTranslations();
         String outputFileName = null;
         File tempFile = null;
 
@@ -103,7 +104,7 @@ public class ExportUsfm {
 
         for(ChapterTranslation chapter:chapters) {
             // TRICKY: the translation format doesn't matter for exporting
-            FrameTranslation[] frames = targetTranslation.getFrameTranslations(chapter.getId(), TranslationFormat.DEFAULT);
+            FrameTranslation[] frames = snapshot.getFrameTranslations(chapter.getId(), TranslationFormat.DEFAULT);
             if(frames.length == 0) continue;
 
             int chapterInt = Util.strToInt(chapter.getId(),0);
@@ -12,7 +12,7 @@ import org.unfoldingword.tools.logger.Logger;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
-import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.util.FileUtilities;
 import com.door43.util.Zip;
 
@@ -56,7 +56,7 @@ public class ImportUsfm {
     private static final Pattern PATTERN_SECTION_MARKER = Pattern.compile(SECTION_MARKER);
     public static final String CHAPTER_NUMBER_MARKER = "\\\\c\\s(\\d+(-\\d+)?)\\s";
     public static final Pattern PATTERN_CHAPTER_NUMBER_MARKER = Pattern.compile(CHAPTER_NUMBER_MARKER);
-    public static final Pattern PATTERN_USFM_VERSE_SPAN = Pattern.compile(USFMVerseSpan.PATTERN);
+    public static final Pattern PATTERN_USFM_VERSE_SPAN = RenderingPatterns.USFM_VERSE;
     public static final int END_MARKER = 999999;
     public static final String FIRST_VERSE = "first_verse";
     public static final String FILE_NAME = "file_name";
@@ -1543,8 +1543,7 @@ public class ImportUsfm {
      */
     private String removeKnownUsfmTags(CharSequence text) {
         if (text.length() > 0) {
-            final String USFM_TAG = "\\\\([\\w\\d]+)\\s([^\\n\\\\]*)";
-            Pattern regexPattern = Pattern.compile(USFM_TAG);
+            Pattern regexPattern = RenderingPatterns.USFM_TAG;
 
             // find instance
             Matcher matcher = regexPattern.matcher(text);
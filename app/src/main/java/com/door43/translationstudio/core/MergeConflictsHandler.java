@@ -4,6 +4,7 @@ import android.os.Handler;
 import android.os.Looper;
 
 import com.door43.translationstudio.App;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.translationstudio.tasks.MergeConflictsParseTask;
 import com.door43.translationstudio.ui.home.ImportDialog;
 
@@ -12,16 +13,12 @@ import org.unfoldingword.tools.taskmanager.TaskManager;
 
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by blm on 11/22/16.
  */
 
 public class MergeConflictsHandler {
-    public static final String MergeConflictHead = "(?:<<<<<<< HEAD.*\\n)";
-    public static Pattern MergeConflictPatternHead = Pattern.compile(MergeConflictHead);
-
 
     /**
      * Split the merge conflict into a list of the options
@@ -57,7 +54,7 @@ public class MergeConflictsHandler {
      */
     static public boolean isMergeConflicted(CharSequence text) {
         if ((text != null) && (text.length() > 0)) {
-            Matcher matcher = MergeConflictPatternHead.matcher(text);
+            Matcher matcher = RenderingPatterns.MERGE_CONFLICT_HEAD.matcher(text);
             boolean matchFound = matcher.find();
             return matchFound;
         }
@@ -6,6 +6,7 @@ import android.graphics.BitmapFactory;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.translationstudio.tasks.PrintPDFTask;
 import com.door43.translationstudio.ui.spannables.Span;
 import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
@@ -41,6 +42,7 @@ public class PdfPrinter extends PdfPageEventHelper {
     private static final float HORIZONTAL_PADDING = 72.0f; // 1 inch
     public static final float RATIO_OF_SP_TO_PT = 2.5f;
     private final TargetTranslation targetTranslation;
+    private TargetTranslationSnapshot snapshot;
     private final Context context;
     private final Font titleFont;
     private final Font chapterFont;
@@ -124,6 +126,7 @@ public class PdfPrinter extends PdfPageEventHelper {
 
     public File print() throws Exception {
         File tempFile = File.createTempFile(targetTranslation.getId(), ".pdf");
+        snapshot = targetTranslation.loadSnapshot();
 
         Document document = new Document(PageSize.LETTER, HORIZONTAL_PADDING, HORIZONTAL_PADDING, VERTICAL_PADDING, VERTICAL_PADDING);
         writer = PdfWriter.getInstance(document, new FileOutputStream(tempFile));
@@ -153,7 +156,7 @@ public class PdfPrinter extends PdfPageEventHelper {
         table.setWidthPercentage(100);
         table.setHorizontalAlignment(Element.ALIGN_CENTER);
 
-        for(ChapterTranslation c:targetTranslation.getChapterTranslations()) {
+        for(ChapterTranslation c:snapshot.getChapterTranslations()) {
             if(!includeIncomplete && !c.isTitleFinished() && !sourceContainer.readChunk(c.getId(), "title").isEmpty()) {
                 continue;
             }
@@ -210,7 +213,7 @@ public class PdfPrinter extends PdfPageEventHelper {
      * @param document
      */
     private void addMetaData(Document document) {
-        ProjectTranslation projectTranslation = targetTranslation.getProjectTranslation();
+        ProjectTranslation projectTranslation = snapshot.getProjectTranslation();
         document.addTitle(projectTranslation.getTitle());
         document.addSubject(projectTranslation.getDescription());
         for(NativeSpeaker ns:targetTranslation.getContributors()) {
@@ -239,7 +242,7 @@ public class PdfPrinter extends PdfPageEventHelper {
         table.addCell(spacerCell);
 
         // book title
-        ProjectTranslation projectTranslation = targetTranslation.getProjectTranslation();
+        ProjectTranslation projectTranslation = snapshot.getProjectTranslation();
         String title = projectTranslation.getTitle();
         if(title.isEmpty()) {
             Project project = App.getLibrary().index.getProject(targetTranslation.getTargetLanguageId(), targetTranslation.getProjectId(), true);
@@ -313,7 +316,7 @@ public class PdfPrinter extends PdfPageEventHelper {
      * @param document
      */
     private void addContent(Document document) throws DocumentException, IOException {
-        ChapterTranslation[] chapterTranslations = targetTranslation.getChapterTranslations();
+        ChapterTranslation[] chapterTranslations = snapshot.getChapterTranslations();
         int chapterCount = chapterTranslations.length + 1;
         double increments = 1.0/ chapterCount;
         double progress = 0;
@@ -334,7 +337,7 @@ public class PdfPrinter extends PdfPageEventHelper {
             }
 
             // get chapter body
-            FrameTranslation[] frames = targetTranslation.getFrameTranslations(c.getId(), this.format);
+            FrameTranslation[] frames = snapshot.getFrameTranslations(c.getId(), this.format);
             ArrayList<FrameTranslation> frameList = ExportUsfm.sortFrameTranslations(frames);
             for(int i=0; i < frameList.size(); i ++) {
                 FrameTranslation f = frameList.get(i);
@@ -375,7 +378,7 @@ public class PdfPrinter extends PdfPageEventHelper {
     }
 
     private void addUSFM(String usfm, PdfPTable table) {
-        Pattern pattern = Pattern.compile(USFMVerseSpan.PATTERN);
+        Pattern pattern = RenderingPatterns.USFM_VERSE;
         Matcher matcher = pattern.matcher(usfm);
         int lastIndex = 0;
         Paragraph paragraph = new Paragraph(targetLanguageFontSize * 1.6f, "", bodyFont);
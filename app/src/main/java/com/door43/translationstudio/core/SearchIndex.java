@@ -0,0 +1,568 @@
+package com.door43.translationstudio.core;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index of the chunks in a translation.
+ * Chunks are indexed by the words in their displayed text, i.e. without any mark-up,
+ * so searches can find the chunks and the offsets of each match without rendering anything.
+ *
+ * Words are found with the word boundaries of the language and are case-folded.
+ * Query words are looked up in the dictionary of indexed words and the matches are then confirmed
+ * against the text of the candidate chunks, so results are the same as a plain text search.
+ * The dictionary is indexed by the short substrings (n-grams) of each word so query words
+ * that start or end part way through a word are found without scanning every word.
+ *
+ * Target translations report the chunks they write through {@link #markChanged(String, String, String)}
+ * so only those chunks have to be read again to bring the index up to date.
+ */
+public class SearchIndex {
+    private static final int MAX_INDICES = 4;
+    private static final int GRAM_LENGTH = 3;
+    /**
+     * Marks characters of the rendered text that are not part of the indexed text. See {@link #findRenderedMatches(String, CharSequence, CharSequence)}
+     */
+    public static final char MASK = '\u0000';
+    private static final Map<String, SearchIndex> sIndices = new LinkedHashMap<>(MAX_INDICES, 0.75f, true);
+
+    private final Locale locale;
+    private final Map<String, Document> documents = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+    private boolean complete = false;
+    private int resets = 0;
+
+    /**
+     * @param locale the locale used to find words
+     */
+    SearchIndex(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Returns the shared index of a translation.
+     * Only the most recently used indices are kept.
+     *
+     * @param translationId identifies the source or target translation
+     * @param languageSlug the language of the translation
+     * @return
+     */
+    public static SearchIndex getInstance(String translationId, String languageSlug) {
+        synchronized (sIndices) {
+            SearchIndex index = sIndices.get(translationId);
+            if(index == null) {
+                index = new SearchIndex(languageSlug != null ? new Locale(languageSlug) : Locale.getDefault());
+                sIndices.put(translationId, index);
+                Iterator<String> it = sIndices.keySet().iterator();
+                while(sIndices.size() > MAX_INDICES && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the id of the index of a target translation
+     * @param targetTranslationId
+     * @return
+     */
+    public static String targetIndexId(String targetTranslationId) {
+        return "target:" + targetTranslationId;
+    }
+
+    /**
+     * Returns the id of a chunk in the index
+     * @param chapterSlug
+     * @param chunkSlug
+     * @return
+     */
+    public static String chunkId(String chapterSlug, String chunkSlug) {
+        return chapterSlug + "-" + chunkSlug;
+    }
+
+    /**
+     * Records that a chunk of a target translation was written.
+     * The chunk is read again the next time the index is brought up to date.
+     * This does nothing if the target translation is not indexed
+     * @param targetTranslationId
+     * @param chapterSlug
+     * @param chunkSlug
+     */
+    public static void markChanged(String targetTranslationId, String chapterSlug, String chunkSlug) {
+        SearchIndex index = peekInstance(targetIndexId(targetTranslationId));
+        if(index != null) {
+            synchronized (index) {
+                index.changed.add(chunkId(chapterSlug, chunkSlug));
+            }
+        }
+    }
+
+    /**
+     * Records that a target translation was changed without reporting each chunk e.g. by an import or merge.
+     * Every chunk is read again the next time the index is brought up to date
+     * @param targetTranslationId
+     */
+    public static void markAllChanged(String targetTranslationId) {
+        SearchIndex index = peekInstance(targetIndexId(targetTranslationId));
+        if(index != null) {
+            synchronized (index) {
+                index.complete = false;
+                index.resets ++;
+            }
+        }
+    }
+
+    /**
+     * Returns a shared index without creating it
+     * @param translationId
+     * @return the index or null
+     */
+    private static SearchIndex peekInstance(String translationId) {
+        synchronized (sIndices) {
+            return sIndices.get(translationId);
+        }
+    }
+
+    /**
+     * Adds or updates a chunk.
+     * This does nothing if the chunk was already indexed with the same text
+     *
+     * @param id identifies the chunk
+     * @param text the text of the chunk
+     * @param format the format of the text
+     */
+    public synchronized void put(String id, String text, TranslationFormat format) {
+        if(text == null) text = "";
+        Document previous = documents.get(id);
+        if(previous != null && previous.source.equals(text) && previous.format == format) return;
+        if(previous != null) removePostings(id, previous);
+
+        Document document = new Document(text, format, fold(toPlainText(text, format)));
+        for(String word:tokenize(document.text, locale)) {
+            if(document.words.add(word)) {
+                Set<String> ids = postings.get(word);
+                if(ids == null) {
+                    ids = new HashSet<>();
+                    postings.put(word, ids);
+                    addGrams(word);
+                }
+                ids.add(id);
+            }
+        }
+        documents.put(id, document);
+    }
+
+    /**
+     * Removes a chunk
+     * @param id
+     */
+    public synchronized void remove(String id) {
+        Document previous = documents.remove(id);
+        if(previous != null) removePostings(id, previous);
+    }
+
+    /**
+     * Returns the chunks that contain the query
+     * @param query
+     * @return the ids of the matching chunks
+     */
+    public synchronized Set<String> search(CharSequence query) {
+        Set<String> results = new HashSet<>();
+        String folded = fold(query.toString().trim());
+        if(folded.isEmpty()) return results;
+
+        Set<String> candidates = null;
+        for(String word:tokenize(folded, locale)) {
+            // TRICKY: the query may start or end part way through a word
+            Set<String> ids = new HashSet<>();
+            for(String indexed:findWordsContaining(word)) {
+                ids.addAll(postings.get(indexed));
+            }
+            if(candidates == null) {
+                candidates = ids;
+            } else {
+                candidates.retainAll(ids);
+            }
+            if(candidates.isEmpty()) return results;
+        }
+        // the query does not contain any words e.g. punctuation
+        if(candidates == null) candidates = documents.keySet();
+
+        for(String id:candidates) {
+            if(documents.get(id).text.contains(folded)) results.add(id);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the offsets of each match in the displayed text of a chunk
+     * @param id
+     * @param query
+     * @return the offsets or an empty array if the chunk has not been indexed
+     */
+    public synchronized int[] findMatches(String id, CharSequence query) {
+        Document document = documents.get(id);
+        String folded = fold(query.toString().trim());
+        if(document == null || folded.isEmpty()) return new int[0];
+
+        List<Integer> offsets = new ArrayList<>();
+        int pos = document.text.indexOf(folded);
+        while(pos >= 0) {
+            offsets.add(pos);
+            pos = document.text.indexOf(folded, pos + folded.length());
+        }
+        int[] result = new int[offsets.size()];
+        for(int i = 0; i < result.length; i ++) {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offsets of each match in the rendered text of a chunk.
+     * The offsets found in the index are mapped onto the rendered text by walking both texts together
+     * so the rendered text does not have to be searched again.
+     * Anything in the rendered text that is not indexed, such as verse numbers and notes,
+     * should be replaced with {@link #MASK} so it is skipped.
+     *
+     * @param id
+     * @param query
+     * @param rendered the rendered text of the chunk
+     * @return the offsets or null if the chunk has not been indexed
+     */
+    public synchronized int[] findRenderedMatches(String id, CharSequence query, CharSequence rendered) {
+        Document document = documents.get(id);
+        if(document == null) return null;
+        return mapOffsets(document.text, fold(rendered.toString()), findMatches(id, query), fold(query.toString().trim()));
+    }
+
+    /**
+     * Maps offsets in the indexed text onto the displayed text.
+     * Characters of the indexed text are found in order in the displayed text, skipping anything extra.
+     * If a mapped offset does not start the query (e.g. the texts could not be lined up) the next
+     * occurrence of the query is used instead so the offsets are always real matches.
+     *
+     * @param indexed the folded text of the chunk as it was indexed
+     * @param displayed the folded text that is displayed
+     * @param offsets the offsets of the matches in the indexed text
+     * @param query the folded query
+     * @return the offsets of the matches in the displayed text
+     */
+    static int[] mapOffsets(String indexed, String displayed, int[] offsets, String query) {
+        if(offsets.length == 0 || query.isEmpty()) return new int[0];
+        int[] positions = new int[indexed.length()];
+        int j = 0;
+        for(int i = 0; i < indexed.length(); i ++) {
+            char c = indexed.charAt(i);
+            if(Character.isWhitespace(c)) {
+                // TRICKY: white space is not always rendered the same way
+                positions[i] = j;
+                if(j < displayed.length() && Character.isWhitespace(displayed.charAt(j))) j ++;
+                continue;
+            }
+            int k = j < displayed.length() ? displayed.indexOf(c, j) : -1;
+            positions[i] = k;
+            if(k >= 0) j = k + 1;
+        }
+
+        int[] mapped = new int[offsets.length];
+        int count = 0;
+        int end = 0;
+        for(int offset:offsets) {
+            int pos = offset < positions.length ? positions[offset] : -1;
+            if(pos < end || !displayed.startsWith(query, pos)) {
+                pos = displayed.indexOf(query, end);
+            }
+            if(pos < 0) break;
+            mapped[count ++] = pos;
+            end = pos + query.length();
+        }
+        int[] result = new int[count];
+        System.arraycopy(mapped, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Returns the number of matches in a chunk
+     * @param id
+     * @param query
+     * @return
+     */
+    public int countMatches(String id, CharSequence query) {
+        return findMatches(id, query).length;
+    }
+
+    /**
+     * Checks if the chunk has been indexed
+     * @param id
+     * @return
+     */
+    public synchronized boolean contains(String id) {
+        return documents.containsKey(id);
+    }
+
+    /**
+     * Returns the number of indexed chunks
+     * @return
+     */
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * Starts indexing every chunk of the translation.
+     * The changes reported so far are dropped since every chunk will be read
+     * @return the token to give to {@link #finishRebuild(int)}
+     */
+    public synchronized int startRebuild() {
+        changed.clear();
+        return resets;
+    }
+
+    /**
+     * Records that every chunk of the translation has been indexed.
+     * TRICKY: this is ignored if the translation was changed by something that did not report the chunks since the rebuild started
+     * @param token the value returned by {@link #startRebuild()}
+     */
+    public synchronized void finishRebuild(int token) {
+        complete = token == resets;
+    }
+
+    /**
+     * Removes and returns the chunks that were reported as changed
+     * @return
+     */
+    public synchronized Set<String> takeChanged() {
+        Set<String> ids = new HashSet<>(changed);
+        changed.clear();
+        return ids;
+    }
+
+    /**
+     * Checks if every chunk of the translation has been indexed
+     * @return
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    private void removePostings(String id, Document document) {
+        for(String word:document.words) {
+            Set<String> ids = postings.get(word);
+            if(ids != null) {
+                ids.remove(id);
+                if(ids.isEmpty()) {
+                    postings.remove(word);
+                    removeGrams(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indexed words that contain the query word
+     * @param word
+     * @return
+     */
+    private Set<String> findWordsContaining(String word) {
+        if(word.length() <= GRAM_LENGTH) {
+            Set<String> words = grams.get(word);
+            return words != null ? words : new HashSet<String>();
+        }
+        // check the words that share the rarest gram of the query
+        Set<String> smallest = null;
+        for(int i = 0; i + GRAM_LENGTH <= word.length(); i ++) {
+            Set<String> words = grams.get(word.substring(i, i + GRAM_LENGTH));
+            if(words == null) return new HashSet<>();
+            if(smallest == null || words.size() < smallest.size()) smallest = words;
+        }
+        Set<String> matches = new HashSet<>();
+        for(String indexed:smallest) {
+            if(indexed.contains(word)) matches.add(indexed);
+        }
+        return matches;
+    }
+
+    private void addGrams(String word) {
+        for(String gram:gramsOf(word)) {
+            Set<String> words = grams.get(gram);
+            if(words == null) {
+                words = new HashSet<>();
+                grams.put(gram, words);
+            }
+            words.add(word);
+        }
+    }
+
+    private void removeGrams(String word) {
+        for(String gram:gramsOf(word)) {
+            Set<String> words = grams.get(gram);
+            if(words != null) {
+                words.remove(word);
+                if(words.isEmpty()) grams.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Returns every substring of the word up to the gram length
+     * @param word
+     * @return
+     */
+    static Set<String> gramsOf(String word) {
+        Set<String> result = new HashSet<>();
+        for(int length = 1; length <= GRAM_LENGTH; length ++) {
+            for(int i = 0; i + length <= word.length(); i ++) {
+                result.add(word.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits the text into words
+     * @param text
+     * @param locale
+     * @return
+     */
+    static List<String> tokenize(String text, Locale locale) {
+        List<String> words = new ArrayList<>();
+        BreakIterator iterator = BreakIterator.getWordInstance(locale);
+        iterator.setText(text);
+        int start = iterator.first();
+        for(int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            for(int i = start; i < end; i ++) {
+                if(Character.isLetterOrDigit(text.charAt(i))) {
+                    words.add(text.substring(start, end));
+                    break;
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Case-folds the text.
+     * Each character is folded on its own so offsets in the folded text match the original
+     * @param text
+     * @return
+     */
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for(int i = 0; i < chars.length; i ++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Removes the mark-up from the text leaving what would be displayed.
+     * Notes and verse numbers are removed entirely.
+     *
+     * @param text
+     * @param format
+     * @return
+     */
+    static String toPlainText(String text, TranslationFormat format) {
+        if(format == TranslationFormat.USFM) {
+            return stripUSFM(text);
+        } else if(format == TranslationFormat.USX) {
+            return stripUSX(text);
+        }
+        return text;
+    }
+
+    private static String stripUSFM(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        int length = text.length();
+        int i = 0;
+        while(i < length) {
+            char c = text.charAt(i);
+            if(c != '\\') {
+                out.append(c);
+                i ++;
+                continue;
+            }
+            // read the marker
+            int start = ++i;
+            while(i < length && Character.isLetterOrDigit(text.charAt(i))) i ++;
+            String marker = text.substring(start, i);
+            boolean closing = i < length && text.charAt(i) == '*';
+            if(closing) i ++;
+
+            if(!closing && (marker.equals("f") || marker.equals("x"))) {
+                // skip the note
+                int end = text.indexOf("\\" + marker + "*", i);
+                i = end < 0 ? length : end + marker.length() + 2;
+            } else if(!closing && (marker.equals("v") || marker.equals("c"))) {
+                // skip the number
+                while(i < length && Character.isWhitespace(text.charAt(i))) i ++;
+                while(i < length && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != '\\') i ++;
+                if(i < length && text.charAt(i) == ' ') i ++;
+            } else if(!closing && i < length && text.charAt(i) == ' ') {
+                i ++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static String stripUSX(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        int length = text.length();
+        int i = 0;
+        while(i < length) {
+            char c = text.charAt(i);
+            if(c != '<') {
+                out.append(c);
+                i ++;
+                continue;
+            }
+            int end = text.indexOf('>', i);
+            if(end < 0) {
+                out.append(text, i, length);
+                break;
+            }
+            if(text.startsWith("<note", i) && text.charAt(end - 1) != '/') {
+                // skip the note
+                int close = text.indexOf("</note>", end);
+                i = close < 0 ? length : close + "</note>".length();
+            } else {
+                i = end + 1;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * An indexed chunk
+     */
+    private static class Document {
+        private final String source;
+        private final TranslationFormat format;
+        private final String text;
+        private final Set<String> words = new HashSet<>();
+
+        /**
+         * @param source the text as it was given
+         * @param format
+         * @param text the folded text without mark-up
+         */
+        Document(String source, TranslationFormat format, String text) {
+            this.source = source;
+            this.format = format;
+            this.text = text;
+        }
+    }
+}
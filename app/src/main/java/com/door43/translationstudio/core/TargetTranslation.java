@@ -12,6 +12,7 @@ import org.unfoldingword.door43client.models.TargetLanguage;
 import org.unfoldingword.tools.logger.Logger;
 
 import com.door43.translationstudio.git.Repo;
+import com.door43.util.DeferredFileWriter;
 import com.door43.util.NumericStringComparator;
 import com.door43.util.FileUtilities;
 import com.door43.util.Manifest;
@@ -39,13 +40,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 /**
  * Created by joel on 8/29/2015.
+ *
+ * Commits only stage the files that were reported to the {@link CommitScheduler}, so every write to the
+ * repository must either call {@link CommitScheduler#markDirty(File, File)} before the file reaches the disk or
+ * call {@link CommitScheduler#invalidate(File)} once it is done (e.g. after a merge, reset, or import).
+ * The manifest is always staged and does not need to be reported.
+ * Unreported writes are only picked up by the scheduler's periodic scan, which may be many commits later.
  */
 public class TargetTranslation {
     public static final String TAG = TargetTranslation.class.getSimpleName();
@@ -54,6 +65,7 @@ public class TargetTranslation {
     public static final String OBS_LICENSE_FILE = "OBS_LICENSE.md";
 
     private static final String FIELD_PARENT_DRAFT = "parent_draft";
+    private static final int LOOSE_OBJECT_LIMIT = 1024;
     private static final String FIELD_FINISHED_CHUNKS = "finished_chunks";
     private static final String FIELD_TRANSLATORS = "translators";
 
@@ -89,6 +101,22 @@ public class TargetTranslation {
     private PersonIdent author = null;
     private String targetLanguageRegion = "unknown";
 
+    /**
+     * An index of the finished chunk ids in the manifest
+     */
+    private final Set<String> finishedChunkIndex = new LinkedHashSet<>();
+
+    /**
+     * The finished chunk ids grouped by chapter
+     */
+    private final Map<String, Set<String>> finishedChapterIndex = new HashMap<>();
+    private int finishedIndexRevision = -1;
+
+    /**
+     * Incremented every time translated text is saved. Used to detect stale snapshots
+     */
+    private volatile int generation = 0;
+
     /**
      * Creates a new instance of the target translation
      * @param targetTranslationDir
@@ -328,27 +356,32 @@ public class TargetTranslation {
         Manifest manifest = Manifest.generate(targetTranslationDir);
 
         // build new manifest
-        JSONObject projectJson = new JSONObject();
-        projectJson.put(FIELD_MANIFEST_ID, projectId);
-        projectJson.put(FIELD_MANIFEST_NAME, "");
-        manifest.put(FIELD_MANIFEST_PROJECT, projectJson);
-        JSONObject typeJson = new JSONObject();
-        typeJson.put(FIELD_MANIFEST_ID, resourceType);
-        typeJson.put(FIELD_MANIFEST_NAME, resourceType.getName());
-        manifest.put(FIELD_MANIFEST_TRANSLATION_TYPE, typeJson);
-        JSONObject generatorJson = new JSONObject();
-        generatorJson.put(FIELD_MANIFEST_NAME, APPLICATION_NAME);
-        generatorJson.put(FIELD_MANIFEST_BUILD, packageInfo.versionCode);
-        manifest.put(FIELD_MANIFEST_GENERATOR, generatorJson);
-        manifest.put(FIELD_MANIFEST_PACKAGE_VERSION, PACKAGE_VERSION);
-        JSONObject targetLanguageJson = targetLanguage.toJSON();
-        targetLanguageJson.put("id", targetLanguage.slug);
-        targetLanguageJson.remove("slug");
-        manifest.put(FIELD_MANIFEST_TARGET_LANGUAGE, targetLanguageJson);
-        manifest.put(FIELD_MANIFEST_FORMAT, translationFormat);
-        JSONObject resourceJson = new JSONObject();
-        resourceJson.put(FIELD_MANIFEST_ID, resourceSlug);
-        manifest.put(FIELD_MANIFEST_RESOURCE, resourceJson);
+        manifest.beginBatch();
+        try {
+            JSONObject projectJson = new JSONObject();
+            projectJson.put(FIELD_MANIFEST_ID, projectId);
+            projectJson.put(FIELD_MANIFEST_NAME, "");
+            manifest.put(FIELD_MANIFEST_PROJECT, projectJson);
+            JSONObject typeJson = new JSONObject();
+            typeJson.put(FIELD_MANIFEST_ID, resourceType);
+            typeJson.put(FIELD_MANIFEST_NAME, resourceType.getName());
+            manifest.put(FIELD_MANIFEST_TRANSLATION_TYPE, typeJson);
+            JSONObject generatorJson = new JSONObject();
+            generatorJson.put(FIELD_MANIFEST_NAME, APPLICATION_NAME);
+            generatorJson.put(FIELD_MANIFEST_BUILD, packageInfo.versionCode);
+            manifest.put(FIELD_MANIFEST_GENERATOR, generatorJson);
+            manifest.put(FIELD_MANIFEST_PACKAGE_VERSION, PACKAGE_VERSION);
+            JSONObject targetLanguageJson = targetLanguage.toJSON();
+            targetLanguageJson.put("id", targetLanguage.slug);
+            targetLanguageJson.remove("slug");
+            manifest.put(FIELD_MANIFEST_TARGET_LANGUAGE, targetLanguageJson);
+            manifest.put(FIELD_MANIFEST_FORMAT, translationFormat);
+            JSONObject resourceJson = new JSONObject();
+            resourceJson.put(FIELD_MANIFEST_ID, resourceSlug);
+            manifest.put(FIELD_MANIFEST_RESOURCE, resourceJson);
+        } finally {
+            manifest.commitBatch();
+        }
 
         File licenseFile = new File(targetTranslationDir, LICENSE_FILE);
         InputStream is;
@@ -621,13 +654,13 @@ public class TargetTranslation {
      */
     public FrameTranslation getFrameTranslation(String chapterId, String frameId, TranslationFormat format) {
         File frameFile = getFrameFile(chapterId, frameId);
-        if(frameFile.exists()) {
-            try {
-                String body = FileUtilities.readFileToString(frameFile);
+        try {
+            String body = DeferredFileWriter.readFileToString(frameFile);
+            if(body != null) {
                 return new FrameTranslation(frameId, chapterId, body, format, isFrameFinished(chapterId + "-" + frameId));
-            } catch (IOException e) {
-                e.printStackTrace();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         // give empty translation
         return new FrameTranslation(frameId, chapterId, "", format, false);
@@ -643,19 +676,17 @@ public class TargetTranslation {
         File titleFile = getChapterTitleFile(chapterSlug);
         String reference = "";
         String title = "";
-        if(referenceFile.exists()) {
-            try {
-                reference = FileUtilities.readFileToString(referenceFile);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        try {
+            String contents = DeferredFileWriter.readFileToString(referenceFile);
+            if(contents != null) reference = contents;
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        if(titleFile.exists()) {
-            try {
-                title = FileUtilities.readFileToString(titleFile);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        try {
+            String contents = DeferredFileWriter.readFileToString(titleFile);
+            if(contents != null) title = contents;
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         return new ChapterTranslation(title, reference, chapterSlug, isChapterTitleFinished(chapterSlug), isChapterReferenceFinished(chapterSlug), getFormat());
     }
@@ -694,37 +725,41 @@ public class TargetTranslation {
     }
 
     /**
-     * Saves the project title translation
+     * Saves the project title translation.
+     * The file is reported to the commit scheduler before it is written
      * @param translatedText
      */
     public void applyProjectTitleTranslation(String translatedText) throws IOException {
         File titleFile = getProjectTitleFile();
+        generation ++;
+        CommitScheduler.markDirty(targetTranslationDir, titleFile);
         if(translatedText.isEmpty()) {
             titleFile.delete();
         } else {
             titleFile.getParentFile().mkdirs();
             FileUtilities.writeStringToFile(titleFile, translatedText);
         }
+        SearchIndex.markChanged(getId(), "front", "title");
     }
 
     /**
-     * Saves a frame translation to the disk
-     * if the translated text is null the frame will be removed
+     * Queues a frame translation to be saved to the disk.
+     * Repeated saves are coalesced and written in the background. See {@link #flushPendingWrites()}
+     * if the translated text is empty the frame will be removed.
+     * TRICKY: the file is marked dirty when it is queued so a commit that flushes the queue stages it
      * @param frameTranslation
      * @param translatedText
      */
     private void saveFrameTranslation(FrameTranslation frameTranslation, String translatedText) throws IOException {
         File frameFile = getFrameFile(frameTranslation.getChapterId(), frameTranslation.getId());
-        if(translatedText.isEmpty()) {
-            frameFile.delete();
-        } else {
-            frameFile.getParentFile().mkdirs();
-            FileUtilities.writeStringToFile(frameFile, translatedText);
-        }
+        generation ++;
+        CommitScheduler.markDirty(targetTranslationDir, frameFile);
+        DeferredFileWriter.write(frameFile, translatedText);
+        SearchIndex.markChanged(getId(), frameTranslation.getChapterId(), frameTranslation.getId());
     }
 
     /**
-     * Saves a chapter reference translation to the disk
+     * Saves a chapter reference translation to the disk and marks it dirty for the next commit
      * if the translated text is null the reference will be removed
      * @param chapterTranslation
      * @param translatedText
@@ -732,16 +767,14 @@ public class TargetTranslation {
      */
     private void saveChapterReferenceTranslation(ChapterTranslation chapterTranslation, String translatedText) throws IOException {
         File chapterReferenceFile = getChapterReferenceFile(chapterTranslation.getId());
-        if(translatedText.isEmpty()) {
-            chapterReferenceFile.delete();
-        } else {
-            chapterReferenceFile.getParentFile().mkdirs();
-            FileUtilities.writeStringToFile(chapterReferenceFile, translatedText);
-        }
+        generation ++;
+        CommitScheduler.markDirty(targetTranslationDir, chapterReferenceFile);
+        DeferredFileWriter.write(chapterReferenceFile, translatedText);
+        SearchIndex.markChanged(getId(), chapterTranslation.getId(), "reference");
     }
 
     /**
-     * Saves a chapter title translation to the disk
+     * Saves a chapter title translation to the disk and marks it dirty for the next commit
      * if the translated text is null the title will be removed
      * @param chapterTranslation
      * @param translatedText
@@ -749,12 +782,35 @@ public class TargetTranslation {
      */
     private void saveChapterTitleTranslation(ChapterTranslation chapterTranslation, String translatedText) throws IOException {
         File chapterTitleFile = getChapterTitleFile(chapterTranslation.getId());
-        if(translatedText.isEmpty()) {
-            chapterTitleFile.delete();
-        } else {
-            chapterTitleFile.getParentFile().mkdirs();
-            FileUtilities.writeStringToFile(chapterTitleFile, translatedText);
-        }
+        generation ++;
+        CommitScheduler.markDirty(targetTranslationDir, chapterTitleFile);
+        DeferredFileWriter.write(chapterTitleFile, translatedText);
+        SearchIndex.markChanged(getId(), chapterTranslation.getId(), "title");
+    }
+
+    /**
+     * Writes any queued chunk, chapter title, or chapter reference translations to the disk.
+     * This must be called before anything reads the translation files directly from the disk.
+     */
+    public void flushPendingWrites() {
+        DeferredFileWriter.flush(targetTranslationDir);
+    }
+
+    /**
+     * Reads all of the translated text into memory in a single pass.
+     * This is much faster than reading each chunk individually when displaying or exporting an entire project.
+     * @return
+     */
+    public TargetTranslationSnapshot loadSnapshot() {
+        return TargetTranslationSnapshot.load(this);
+    }
+
+    /**
+     * Returns a value that changes whenever the translated text or the finished chunks change
+     * @return
+     */
+    int getModificationCount() {
+        return generation + manifest.getRevision();
     }
 
     /**
@@ -847,7 +903,7 @@ public class TargetTranslation {
      */
     public boolean finishChapterTitle(String chapterSlug) {
         File file = getChapterTitleFile(chapterSlug);
-        if(file.exists()) {
+        if(DeferredFileWriter.exists(file)) {
             return closeChunk(chapterSlug + "-title");
         }
         return false;
@@ -878,7 +934,7 @@ public class TargetTranslation {
      */
     public boolean finishChapterReference(String chapterSlug) {
         File file = getChapterReferenceFile(chapterSlug);
-        if(file.exists()) {
+        if(DeferredFileWriter.exists(file)) {
             return closeChunk(chapterSlug + "-reference");
         }
         return false;
@@ -910,7 +966,7 @@ public class TargetTranslation {
      */
     public boolean finishFrame(String chapterSlug, String chunkSlug) {
         File file = getFrameFile(chapterSlug, chunkSlug);
-        if(file.exists()) {
+        if(DeferredFileWriter.exists(file)) {
             return closeChunk(chapterSlug + "-" + chunkSlug);
         }
         return false;
@@ -926,6 +982,50 @@ public class TargetTranslation {
         return openChunk(chapterSlug + "-" + chunkSlug);
     }
 
+    /**
+     * Marks the translation of several frames in a chapter as complete.
+     * The manifest is only written to the disk once.
+     * @param chapterSlug
+     * @param chunkSlugs
+     * @return the number of frames that were marked as finished
+     */
+    public int finishFrames(String chapterSlug, String[] chunkSlugs) {
+        int count = 0;
+        manifest.beginBatch();
+        try {
+            for(String chunkSlug:chunkSlugs) {
+                if(finishFrame(chapterSlug, chunkSlug)) {
+                    count ++;
+                }
+            }
+        } finally {
+            manifest.commitBatch();
+        }
+        return count;
+    }
+
+    /**
+     * Marks the translation of several frames in a chapter as not complete.
+     * The manifest is only written to the disk once.
+     * @param chapterSlug
+     * @param chunkSlugs
+     * @return the number of frames that were reopened
+     */
+    public int reopenFrames(String chapterSlug, String[] chunkSlugs) {
+        int count = 0;
+        manifest.beginBatch();
+        try {
+            for(String chunkSlug:chunkSlugs) {
+                if(reopenFrame(chapterSlug, chunkSlug)) {
+                    count ++;
+                }
+            }
+        } finally {
+            manifest.commitBatch();
+        }
+        return count;
+    }
+
     /**
      * Checks if the translation of a frame has been marked as done
      * @param frameComplexId
@@ -940,11 +1040,13 @@ public class TargetTranslation {
      * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
      * @return
      */
-    private boolean closeChunk(String complexId) {
+    private synchronized boolean closeChunk(String complexId) {
         if(!isChunkClosed(complexId)) {
             JSONArray finishedChunks = manifest.getJSONArray(FIELD_FINISHED_CHUNKS);
             finishedChunks.put(complexId);
             manifest.put(FIELD_FINISHED_CHUNKS, finishedChunks);
+            indexFinishedChunk(complexId);
+            finishedIndexRevision = manifest.getRevision();
         }
         return true;
     }
@@ -954,22 +1056,24 @@ public class TargetTranslation {
      * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
      * @return
      */
-    private boolean openChunk(String complexId) {
-        JSONArray finishedChunks = manifest.getJSONArray(FIELD_FINISHED_CHUNKS);
-        JSONArray updatedChunks = new JSONArray();
-        try {
-            for (int i = 0; i < finishedChunks.length(); i++) {
-                String currId = finishedChunks.getString(i);
-                if(!currId.equals(complexId)) {
-                    updatedChunks.put(finishedChunks.getString(i));
-                }
-            }
-            manifest.put(FIELD_FINISHED_CHUNKS, updatedChunks);
+    private synchronized boolean openChunk(String complexId) {
+        if(!isChunkClosed(complexId)) {
             return true;
-        } catch (JSONException e) {
-            e.printStackTrace();
         }
-        return false;
+        finishedChunkIndex.remove(complexId);
+        Set<String> chapterChunks = finishedChapterIndex.get(getChapterSlugFromComplexId(complexId));
+        if(chapterChunks != null) {
+            chapterChunks.remove(getChunkSlugFromComplexId(complexId));
+        }
+
+        // TRICKY: the index preserves the original order so we can rebuild the array from it
+        JSONArray updatedChunks = new JSONArray();
+        for(String id:finishedChunkIndex) {
+            updatedChunks.put(id);
+        }
+        manifest.put(FIELD_FINISHED_CHUNKS, updatedChunks);
+        finishedIndexRevision = manifest.getRevision();
+        return true;
     }
 
     /**
@@ -977,18 +1081,100 @@ public class TargetTranslation {
      * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
      * @return
      */
-    private boolean isChunkClosed(String complexId) {
+    private synchronized boolean isChunkClosed(String complexId) {
+        refreshFinishedChunkIndex();
+        return finishedChunkIndex.contains(complexId);
+    }
+
+    /**
+     * Rebuilds the finished chunk index if the manifest has changed since it was last built
+     */
+    private void refreshFinishedChunkIndex() {
+        if(finishedIndexRevision == manifest.getRevision()) {
+            return;
+        }
+        finishedChunkIndex.clear();
+        finishedChapterIndex.clear();
         JSONArray finishedChunks = manifest.getJSONArray(FIELD_FINISHED_CHUNKS);
         try {
             for (int i = 0; i < finishedChunks.length(); i++) {
-                if(finishedChunks.getString(i).equals(complexId)) {
-                    return true;
-                }
+                indexFinishedChunk(finishedChunks.getString(i));
             }
         } catch (JSONException e) {
             e.printStackTrace();
         }
-        return false;
+        finishedIndexRevision = manifest.getRevision();
+    }
+
+    /**
+     * Adds a finished chunk to the index
+     * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
+     */
+    private void indexFinishedChunk(String complexId) {
+        if(finishedChunkIndex.add(complexId)) {
+            String chapterSlug = getChapterSlugFromComplexId(complexId);
+            Set<String> chapterChunks = finishedChapterIndex.get(chapterSlug);
+            if(chapterChunks == null) {
+                chapterChunks = new LinkedHashSet<>();
+                finishedChapterIndex.put(chapterSlug, chapterChunks);
+            }
+            chapterChunks.add(getChunkSlugFromComplexId(complexId));
+        }
+    }
+
+    /**
+     * Returns the chapter portion of a complex chunk id
+     * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
+     * @return
+     */
+    private static String getChapterSlugFromComplexId(String complexId) {
+        int index = complexId.indexOf("-");
+        return index >= 0 ? complexId.substring(0, index) : complexId;
+    }
+
+    /**
+     * Returns the chunk portion of a complex chunk id
+     * @param complexId the chapter + chunk id e.g. `01-05`, or `01-title`
+     * @return
+     */
+    private static String getChunkSlugFromComplexId(String complexId) {
+        int index = complexId.indexOf("-");
+        return index >= 0 ? complexId.substring(index + 1) : "";
+    }
+
+    /**
+     * Returns the ids of all the chunks that have been marked as finished
+     * @return a set of chapter + chunk ids e.g. `01-05`, or `01-title`
+     */
+    public synchronized Set<String> getFinishedChunkIds() {
+        refreshFinishedChunkIndex();
+        return Collections.unmodifiableSet(new LinkedHashSet<>(finishedChunkIndex));
+    }
+
+    /**
+     * Returns the slugs of the chunks within a chapter that have been marked as finished.
+     * This includes the chapter title and reference e.g. `05`, `title`, or `reference`
+     * @param chapterSlug
+     * @return
+     */
+    public synchronized Set<String> getFinishedChunks(String chapterSlug) {
+        refreshFinishedChunkIndex();
+        Set<String> chapterChunks = finishedChapterIndex.get(chapterSlug);
+        if(chapterChunks == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(chapterChunks));
+    }
+
+    /**
+     * Returns the number of chunks within a chapter that have been marked as finished
+     * @param chapterSlug
+     * @return
+     */
+    public synchronized int numFinished(String chapterSlug) {
+        refreshFinishedChunkIndex();
+        Set<String> chapterChunks = finishedChapterIndex.get(chapterSlug);
+        return chapterChunks == null ? 0 : chapterChunks.size();
     }
 
     public boolean commitSync() throws Exception {
@@ -1001,11 +1187,24 @@ public class TargetTranslation {
      * @throws Exception
      */
     public boolean isClean() {
-        try {
-            Git git = getRepo().getGit();
-            return git.status().call().isClean();
-        } catch(Exception e) {
-            e.printStackTrace();
+        flushPendingWrites();
+        Boolean clean = CommitScheduler.isClean(targetTranslationDir);
+        if(clean != null) {
+            return clean;
+        }
+
+        // fall back to scanning the working tree
+        synchronized (CommitScheduler.getLock(targetTranslationDir)) {
+            try {
+                long generation = CommitScheduler.getGeneration(targetTranslationDir);
+                Git git = getRepo().getGit();
+                if(git.status().call().isClean()) {
+                    CommitScheduler.markCommitted(targetTranslationDir, generation);
+                    return true;
+                }
+            } catch(Exception e) {
+                e.printStackTrace();
+            }
         }
         return false;
     }
@@ -1024,6 +1223,51 @@ public class TargetTranslation {
     }
 
     public boolean commitSync(String filePattern, boolean forced) throws Exception {
+        flushPendingWrites();
+        synchronized (CommitScheduler.getLock(targetTranslationDir)) {
+            boolean wholeRepo = filePattern.equals(".");
+            if(wholeRepo && Boolean.TRUE.equals(CommitScheduler.isClean(targetTranslationDir))) {
+                return true;
+            }
+            long start = System.currentTimeMillis();
+
+            // TRICKY: only the whole repository can be committed from the tracked paths
+            long generation = CommitScheduler.getGeneration(targetTranslationDir);
+            Set<String> dirtyPaths = null;
+            if(wholeRepo) {
+                dirtyPaths = CommitScheduler.takeDirtyPaths(targetTranslationDir);
+            }
+
+            boolean result = false;
+            try {
+                if (dirtyPaths != null) {
+                    result = commitPaths(dirtyPaths, forced);
+                } else {
+                    result = commitAll(filePattern, forced);
+                }
+            } finally {
+                // TRICKY: the taken paths are lost if the commit fails so the next commit must scan
+                if(wholeRepo && !result) {
+                    CommitScheduler.invalidate(targetTranslationDir);
+                }
+            }
+
+            if(wholeRepo && result) {
+                CommitScheduler.markCommitted(targetTranslationDir, generation);
+            }
+            CommitScheduler.recordCommit(System.currentTimeMillis() - start);
+            return result;
+        }
+    }
+
+    /**
+     * Stages and commits everything that matches the file pattern
+     * @param filePattern
+     * @param forced if true errors will be logged instead of thrown
+     * @return
+     * @throws Exception
+     */
+    private boolean commitAll(String filePattern, boolean forced) throws Exception {
         Git git = getRepo().getGit();
 
         // check if dirty
@@ -1066,6 +1310,27 @@ public class TargetTranslation {
         return true;
     }
 
+    /**
+     * Stages and commits only the given paths.
+     * This avoids scanning the entire working tree when we already know what has changed.
+     * @param paths the paths relative to the target translation directory
+     * @param forced if true errors will be logged instead of thrown
+     * @return
+     * @throws Exception
+     */
+    private boolean commitPaths(Set<String> paths, boolean forced) throws Exception {
+        // TRICKY: manifest changes are not tracked individually so it is always staged
+        paths.add("manifest.json");
+        try {
+            CommitScheduler.commitPaths(getRepo().getGit(), targetTranslationDir, paths, author);
+        } catch (Exception e) {
+            if(!forced) throw e;
+            Logger.e(TAG, "Failed to commit changes for " + getId(), e);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Stages and commits changes to the repository
      * @throws Exception
@@ -1084,28 +1349,18 @@ public class TargetTranslation {
     }
 
     /**
-     * Stages and commits changes to the repository
+     * Schedules the changes to be staged and committed.
+     * Requests made in quick succession are combined into a single commit. See {@link CommitScheduler}
      * @param filePattern the file pattern that will be used to match files for staging
      * @param listener the listener that will be called when finished
      */
     private void commit(final String filePattern, final OnCommitListener listener) throws Exception {
-
-        Thread thread = new Thread() {
+        CommitScheduler.schedule(targetTranslationDir, new Callable<Boolean>() {
             @Override
-            public void run() {
-                try {
-                    boolean result = commitSync(filePattern);
-                    if(listener != null) {
-                        listener.onCommit(result);
-                    }
-                } catch (Exception e) {
-                    if(listener != null) {
-                        listener.onCommit(false);
-                    }
-                }
+            public Boolean call() throws Exception {
+                return commitSync(filePattern);
             }
-        };
-        thread.start();
+        }, listener);
     }
 
     /**
@@ -1130,12 +1385,14 @@ public class TargetTranslation {
      * @return
      */
     public boolean resetToMasterBackup() {
+        flushPendingWrites();
         try { // restore state before the pull
             Git git = getRepo().getGit();
             ResetCommand resetCommand = git.reset();
             resetCommand.setMode(ResetCommand.ResetType.HARD)
                     .setRef("backup-master")
                     .call();
+            CommitScheduler.invalidate(targetTranslationDir);
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -1193,6 +1450,7 @@ public class TargetTranslation {
         merge.setFastForward(MergeCommand.FastForwardMode.NO_FF);
         merge.include(repo.getGit().getRepository().getRef("new"));
         MergeResult result = merge.call();
+        CommitScheduler.invalidate(targetTranslationDir);
 
         // merge manifests
         mergeManifests(manifest, importedManifest);
@@ -1213,25 +1471,32 @@ public class TargetTranslation {
     public static Manifest mergeManifests(Manifest original, Manifest imported) {
         // merge manifests
         // TODO: 5/25/16 merge notes
-        original.join(imported.getJSONArray(FIELD_TRANSLATORS), FIELD_TRANSLATORS);
-        original.join(imported.getJSONArray(FIELD_FINISHED_CHUNKS), FIELD_FINISHED_CHUNKS);
-        original.join(imported.getJSONArray(FIELD_SOURCE_TRANSLATIONS), FIELD_SOURCE_TRANSLATIONS);
-
-        // add missing parent draft status
-        if((!original.has(FIELD_PARENT_DRAFT) || !Manifest.valueExists(original.getJSONObject(FIELD_PARENT_DRAFT), "resource_id"))
-                && imported.has(FIELD_PARENT_DRAFT)) {
-            original.put(FIELD_PARENT_DRAFT, imported.getJSONObject(FIELD_PARENT_DRAFT));
+        original.beginBatch();
+        try {
+            original.join(imported.getJSONArray(FIELD_TRANSLATORS), FIELD_TRANSLATORS);
+            original.join(imported.getJSONArray(FIELD_FINISHED_CHUNKS), FIELD_FINISHED_CHUNKS);
+            original.join(imported.getJSONArray(FIELD_SOURCE_TRANSLATIONS), FIELD_SOURCE_TRANSLATIONS);
+
+            // add missing parent draft status
+            if ((!original.has(FIELD_PARENT_DRAFT) || !Manifest.valueExists(original.getJSONObject(FIELD_PARENT_DRAFT), "resource_id"))
+                    && imported.has(FIELD_PARENT_DRAFT)) {
+                original.put(FIELD_PARENT_DRAFT, imported.getJSONObject(FIELD_PARENT_DRAFT));
+            }
+        } finally {
+            original.commitBatch();
         }
         return original;
     }
 
     /**
-     * Sets the new language request that represents the temporary language code being used by this target translation
+     * Sets the new language request that represents the temporary language code being used by this target translation.
+     * The request file is tracked by the commit scheduler like the translation files
      * @param request
      * @throws IOException
      */
     public void setNewLanguageRequest(NewLanguageRequest request) throws IOException {
         File requestFile = new File(getPath(), "new_language.json");
+        CommitScheduler.markDirty(targetTranslationDir, requestFile);
         if(request != null) {
             FileUtilities.writeStringToFile(requestFile, request.toJson());
         } else if(requestFile.exists()) {
@@ -1319,6 +1584,34 @@ public class TargetTranslation {
         return cleaned;
     }
 
+    /**
+     * Packs the loose objects in the repository if there are a lot of them.
+     * Every commit adds loose objects which are compressed one at a time,
+     * so over time they take up far more room than a pack and make exports slow.
+     *
+     * The loose objects are counted from a sample in the same way git decides to run gc automatically
+     * @return true if the repository was packed
+     */
+    public boolean packHistory() {
+        File sampleDir = new File(targetTranslationDir, ".git/objects/17");
+        String[] sample = sampleDir.list();
+        // TRICKY: object names are evenly distributed so one of the 256 folders estimates the total
+        if(sample == null || sample.length * 256 < LOOSE_OBJECT_LIMIT) return false;
+
+        synchronized (CommitScheduler.getLock(targetTranslationDir)) {
+            long start = System.currentTimeMillis();
+            try {
+                Git git = getRepo().getGit();
+                git.gc().call();
+                Logger.i(TAG, "Packed the history of " + getId() + " in " + (System.currentTimeMillis() - start) + "ms");
+                return true;
+            } catch (Exception e) {
+                Logger.w(TAG, "Failed to pack the history of " + getId(), e);
+                return false;
+            }
+        }
+    }
+
     /**
      * Returns the commit hash of the repo HEAD
      * @return
@@ -1384,6 +1677,7 @@ public class TargetTranslation {
      * @return
      */
     public int numTranslated() {
+        flushPendingWrites();
         int numFiles = 0;
         File[] chapterDirs = targetTranslationDir.listFiles(new FileFilter() {
             @Override
@@ -1406,13 +1700,9 @@ public class TargetTranslation {
      * Returns the number of items that have been marked as finished
      * @return
      */
-    public int numFinished() {
-        if(manifest.has(FIELD_FINISHED_CHUNKS)) {
-            JSONArray finishedFrames = manifest.getJSONArray(FIELD_FINISHED_CHUNKS);
-            return finishedFrames.length();
-        } else {
-            return 0;
-        }
+    public synchronized int numFinished() {
+        refreshFinishedChunkIndex();
+        return finishedChunkIndex.size();
     }
 
     /**
@@ -1420,6 +1710,7 @@ public class TargetTranslation {
      * @return
      */
     public ChapterTranslation[] getChapterTranslations() {
+        flushPendingWrites();
         String[] chapterSlugs = targetTranslationDir.list(new FilenameFilter() {
             @Override
             public boolean accept(File dir, String filename) {
@@ -1483,6 +1774,7 @@ public class TargetTranslation {
      * @return
      */
     public FrameTranslation[] getFrameTranslations(String chapterSlug, TranslationFormat frameTranslationformat) {
+        flushPendingWrites();
         String[] frameFileNames = new File(targetTranslationDir, chapterSlug).list(new FilenameFilter() {
             @Override
             public boolean accept(File dir, String filename) {
@@ -0,0 +1,473 @@
+package com.door43.translationstudio.core;
+
+import com.door43.util.FileUtilities;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.unfoldingword.door43client.models.TargetLanguage;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides a persistent summary of the target translations on the device.
+ * Listing the target translations normally requires opening and parsing every manifest.
+ * The index stores the summary of each target translation on the disk and trusts it
+ * as long as the date of the translations folder has not changed.
+ * Writers report changes to a target translation through {@link #markChanged(File)}
+ * (the {@link CommitScheduler} does this for every tracked write) so only that target translation is read again.
+ * If the folder date changes, or changes were reported by a run of the app that did not finish indexing them,
+ * every target translation is checked for a changed manifest or git head.
+ */
+public class TargetTranslationIndex {
+    private static final String TAG = TargetTranslationIndex.class.getSimpleName();
+    private static final int INDEX_VERSION = 1;
+    private static final String INDEX_FILE = "target_translations_index.json";
+    private static final String PENDING_FILE = "target_translations_index.pending";
+
+    private static final Map<File, TargetTranslationIndex> sInstances = new HashMap<>();
+
+    private final File rootDir;
+    private final File indexFile;
+    private final File pendingFile;
+    private Map<String, Entry> entries = null;
+    private long rootModifiedAt = 0;
+    private boolean needsScan;
+    private final Set<String> changedDirs = new HashSet<>();
+    private boolean pendingFileWritten = false;
+
+    /**
+     * A summary of a single target translation
+     */
+    public static class Entry {
+        public final String directory;
+        public final String id;
+        public final String targetLanguageSlug;
+        public final String targetLanguageName;
+        public final String targetLanguageDirection;
+        public final String projectSlug;
+        public final String resourceSlug;
+        public final int numFinished;
+        public final String commitHash;
+        private final long manifestModifiedAt;
+        private final long manifestSize;
+        private final long headModifiedAt;
+
+        private Entry(String directory, String id, String targetLanguageSlug, String targetLanguageName, String targetLanguageDirection, String projectSlug, String resourceSlug, int numFinished, String commitHash, long manifestModifiedAt, long manifestSize, long headModifiedAt) {
+            this.directory = directory;
+            this.id = id;
+            this.targetLanguageSlug = targetLanguageSlug;
+            this.targetLanguageName = targetLanguageName;
+            this.targetLanguageDirection = targetLanguageDirection;
+            this.projectSlug = projectSlug;
+            this.resourceSlug = resourceSlug;
+            this.numFinished = numFinished;
+            this.commitHash = commitHash;
+            this.manifestModifiedAt = manifestModifiedAt;
+            this.manifestSize = manifestSize;
+            this.headModifiedAt = headModifiedAt;
+        }
+
+        /**
+         * Checks if this entry describes a valid target translation.
+         * Invalid entries are kept so broken translations are not parsed over and over.
+         * @return
+         */
+        public boolean isValid() {
+            return id != null;
+        }
+
+        /**
+         * Returns the date (in milliseconds) the manifest was last modified
+         * @return
+         */
+        public long getModifiedAt() {
+            return manifestModifiedAt;
+        }
+
+        private JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("directory", directory);
+            if(id != null) {
+                json.put("id", id);
+                json.put("target_language_slug", targetLanguageSlug);
+                json.put("target_language_name", targetLanguageName);
+                json.put("target_language_direction", targetLanguageDirection);
+                json.put("project_slug", projectSlug);
+                json.put("resource_slug", resourceSlug);
+                json.put("num_finished", numFinished);
+                if(commitHash != null) json.put("commit_hash", commitHash);
+            }
+            json.put("manifest_modified_at", manifestModifiedAt);
+            json.put("manifest_size", manifestSize);
+            json.put("head_modified_at", headModifiedAt);
+            return json;
+        }
+
+        private static Entry fromJson(JSONObject json) throws JSONException {
+            return new Entry(json.getString("directory"),
+                    json.has("id") ? json.getString("id") : null,
+                    json.optString("target_language_slug", null),
+                    json.optString("target_language_name", null),
+                    json.optString("target_language_direction", null),
+                    json.optString("project_slug", null),
+                    json.optString("resource_slug", null),
+                    json.optInt("num_finished", 0),
+                    json.has("commit_hash") ? json.getString("commit_hash") : null,
+                    json.getLong("manifest_modified_at"),
+                    json.getLong("manifest_size"),
+                    json.getLong("head_modified_at"));
+        }
+    }
+
+    private TargetTranslationIndex(File rootDir, File indexFile) {
+        this.rootDir = rootDir;
+        this.indexFile = indexFile;
+        this.pendingFile = new File(indexFile.getParentFile(), PENDING_FILE);
+        // changes reported by a previous run of the app were never indexed
+        this.needsScan = pendingFile.exists();
+    }
+
+    /**
+     * Returns the index of the target translations within the directory
+     * @param rootDir the directory containing the target translations
+     * @param cacheDir the directory where the index will be stored
+     * @return
+     */
+    public static TargetTranslationIndex get(File rootDir, File cacheDir) {
+        File key = rootDir.getAbsoluteFile();
+        synchronized (sInstances) {
+            TargetTranslationIndex index = sInstances.get(key);
+            if(index == null) {
+                index = new TargetTranslationIndex(rootDir, new File(cacheDir, INDEX_FILE));
+                sInstances.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns a summary of every valid target translation.
+     * Only target translations that have changed since they were last indexed are read from the disk.
+     * @return
+     */
+    public synchronized List<Entry> getEntries() {
+        refresh();
+        List<Entry> valid = new ArrayList<>();
+        for(Entry entry:entries.values()) {
+            if(entry.isValid()) {
+                valid.add(entry);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the ids of every valid target translation
+     * @return
+     */
+    public synchronized String[] getIds() {
+        List<Entry> valid = getEntries();
+        String[] ids = new String[valid.size()];
+        for(int i = 0; i < ids.length; i ++) {
+            ids[i] = valid.get(i).id;
+        }
+        return ids;
+    }
+
+    /**
+     * Records that a target translation has changed so it is read again the next time the index is used.
+     * This is cheap enough to be called on every write.
+     * Target translations that are not within an indexed folder are ignored.
+     * @param targetTranslationDir the directory of the target translation
+     */
+    public static void markChanged(File targetTranslationDir) {
+        File rootDir = targetTranslationDir.getAbsoluteFile().getParentFile();
+        if(rootDir == null) return;
+        TargetTranslationIndex index;
+        synchronized (sInstances) {
+            index = sInstances.get(rootDir);
+        }
+        if(index != null) {
+            index.addChanged(targetTranslationDir.getName());
+        }
+    }
+
+    /**
+     * Queues a target translation to be read again
+     * @param targetTranslationDirName
+     */
+    private void addChanged(String targetTranslationDirName) {
+        synchronized (changedDirs) {
+            // TRICKY: the pending file tells the next run of the app the queue was lost if we do not get to it
+            if(!pendingFileWritten) {
+                try {
+                    pendingFile.getParentFile().mkdirs();
+                    pendingFile.createNewFile();
+                    pendingFileWritten = true;
+                } catch (IOException e) {
+                    Logger.w(TAG, "Failed to record the pending changes of the target translation index", e);
+                }
+            }
+            changedDirs.add(targetTranslationDirName);
+        }
+    }
+
+    /**
+     * Re-indexes a single target translation.
+     * This should be called after a target translation has been changed.
+     * @param targetTranslationDirName the name of the target translation directory
+     */
+    public synchronized void update(String targetTranslationDirName) {
+        load();
+        File dir = new File(rootDir, targetTranslationDirName);
+        if(dir.isDirectory()) {
+            entries.put(targetTranslationDirName, index(dir));
+        } else {
+            entries.remove(targetTranslationDirName);
+        }
+        save();
+    }
+
+    /**
+     * Removes a target translation from the index
+     * @param targetTranslationDirName the name of the target translation directory
+     */
+    public synchronized void remove(String targetTranslationDirName) {
+        load();
+        if(entries.remove(targetTranslationDirName) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Synchronizes the index with the target translations on the disk.
+     * Only the target translations that were reported as changed are read
+     * unless the translations folder has changed since it was last scanned.
+     */
+    private void refresh() {
+        load();
+        Set<String> reported;
+        synchronized (changedDirs) {
+            reported = new HashSet<>(changedDirs);
+            changedDirs.clear();
+        }
+        long modifiedAt = rootDir.lastModified();
+        if(needsScan || modifiedAt == 0 || modifiedAt != rootModifiedAt) {
+            scan(modifiedAt, reported);
+        } else if(!reported.isEmpty()) {
+            for(String name:reported) {
+                File dir = new File(rootDir, name);
+                if(dir.isDirectory()) {
+                    entries.put(name, index(dir));
+                } else {
+                    entries.remove(name);
+                }
+            }
+            save();
+        }
+        synchronized (changedDirs) {
+            if(changedDirs.isEmpty() && pendingFileWritten) {
+                FileUtilities.deleteQuietly(pendingFile);
+                pendingFileWritten = false;
+            }
+        }
+    }
+
+    /**
+     * Checks every target translation on the disk for changes
+     * @param modifiedAt the date of the translations folder before it was listed
+     * @param reported the target translations that were reported as changed
+     */
+    private void scan(long modifiedAt, Set<String> reported) {
+        boolean changed = modifiedAt != rootModifiedAt;
+        Set<String> found = new HashSet<>();
+        File[] dirs = rootDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !file.getName().equalsIgnoreCase("cache") && file.isDirectory();
+            }
+        });
+        if(dirs != null) {
+            for (File dir : dirs) {
+                found.add(dir.getName());
+                Entry entry = entries.get(dir.getName());
+                if (entry == null || reported.contains(dir.getName()) || isStale(entry, dir)) {
+                    entries.put(dir.getName(), index(dir));
+                    changed = true;
+                }
+            }
+        }
+        if(entries.keySet().retainAll(found)) {
+            changed = true;
+        }
+        rootModifiedAt = modifiedAt;
+        needsScan = false;
+        if(changed) {
+            save();
+        }
+    }
+
+    /**
+     * Checks if the target translation has changed since the entry was created
+     * @param entry
+     * @param dir
+     * @return
+     */
+    private static boolean isStale(Entry entry, File dir) {
+        File manifestFile = new File(dir, "manifest.json");
+        return entry.manifestModifiedAt != manifestFile.lastModified()
+                || entry.manifestSize != manifestFile.length()
+                || entry.headModifiedAt != getHeadFile(dir).lastModified();
+    }
+
+    /**
+     * Reads the summary of a target translation from the disk
+     * @param dir
+     * @return
+     */
+    private static Entry index(File dir) {
+        File manifestFile = new File(dir, "manifest.json");
+        long manifestModifiedAt = manifestFile.lastModified();
+        long manifestSize = manifestFile.length();
+        long headModifiedAt = getHeadFile(dir).lastModified();
+
+        TargetTranslation targetTranslation = TargetTranslation.open(dir);
+        if(targetTranslation == null) {
+            return new Entry(dir.getName(), null, null, null, null, null, null, 0, null, manifestModifiedAt, manifestSize, headModifiedAt);
+        }
+        TargetLanguage language = targetTranslation.getTargetLanguage();
+        return new Entry(dir.getName(),
+                targetTranslation.getId(),
+                language.slug,
+                language.name,
+                language.direction,
+                targetTranslation.getProjectId(),
+                targetTranslation.getResourceSlug(),
+                targetTranslation.numFinished(),
+                readHeadCommit(new File(dir, ".git")),
+                manifestModifiedAt,
+                manifestSize,
+                headModifiedAt);
+    }
+
+    /**
+     * Returns the file that changes when a new commit is made in the target translation
+     * @param dir
+     * @return
+     */
+    private static File getHeadFile(File dir) {
+        File gitDir = new File(dir, ".git");
+        String ref = readHeadRef(gitDir);
+        if(ref != null) {
+            File refFile = new File(gitDir, ref);
+            if(refFile.exists()) return refFile;
+            return new File(gitDir, "packed-refs");
+        }
+        return new File(gitDir, "HEAD");
+    }
+
+    /**
+     * Returns the name of the ref that HEAD points to
+     * @param gitDir
+     * @return the ref e.g. refs/heads/master or null if HEAD is detached
+     */
+    private static String readHeadRef(File gitDir) {
+        File headFile = new File(gitDir, "HEAD");
+        if(!headFile.exists()) return null;
+        try {
+            String head = FileUtilities.readFileToString(headFile).trim();
+            if(head.startsWith("ref:")) {
+                return head.substring(4).trim();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the commit hash of HEAD without opening the repository
+     * @param gitDir
+     * @return
+     */
+    static String readHeadCommit(File gitDir) {
+        try {
+            File headFile = new File(gitDir, "HEAD");
+            if(!headFile.exists()) return null;
+            String ref = readHeadRef(gitDir);
+            if(ref == null) {
+                return FileUtilities.readFileToString(headFile).trim();
+            }
+            File refFile = new File(gitDir, ref);
+            if(refFile.exists()) {
+                return FileUtilities.readFileToString(refFile).trim();
+            }
+            File packedRefs = new File(gitDir, "packed-refs");
+            if(packedRefs.exists()) {
+                for(String line:FileUtilities.readFileToString(packedRefs).split("\n")) {
+                    String[] pieces = line.trim().split(" ");
+                    if(pieces.length == 2 && pieces[1].equals(ref)) {
+                        return pieces[0];
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Loads the index from the disk if it has not been loaded yet
+     */
+    private void load() {
+        if(entries != null) return;
+        entries = new LinkedHashMap<>();
+        if(!indexFile.exists()) return;
+        try {
+            JSONObject json = new JSONObject(FileUtilities.readFileToString(indexFile));
+            if(json.getInt("version") != INDEX_VERSION) return;
+            rootModifiedAt = json.optLong("root_modified_at", 0);
+            JSONArray items = json.getJSONArray("entries");
+            for(int i = 0; i < items.length(); i ++) {
+                Entry entry = Entry.fromJson(items.getJSONObject(i));
+                entries.put(entry.directory, entry);
+            }
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to load the target translation index. It will be rebuilt", e);
+            entries.clear();
+            rootModifiedAt = 0;
+        }
+    }
+
+    /**
+     * Writes the index to the disk
+     */
+    private void save() {
+        try {
+            JSONArray items = new JSONArray();
+            for(Entry entry:entries.values()) {
+                items.put(entry.toJson());
+            }
+            JSONObject json = new JSONObject();
+            json.put("version", INDEX_VERSION);
+            json.put("root_modified_at", rootModifiedAt);
+            json.put("entries", items);
+            indexFile.getParentFile().mkdirs();
+            FileUtilities.writeStringToFileAtomic(indexFile, json.toString());
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to save the target translation index", e);
+        }
+    }
+}
@@ -258,7 +258,7 @@ public class TargetTranslationMigrator {
         }
 
         manifest.put("package_version", 7);
-        FileUtilities.writeStringToFile(manifestFile, manifest.toString(2));
+        FileUtilities.writeStringToFileAtomic(manifestFile, manifest.toString(2));
         return path;
     }
 
@@ -317,7 +317,7 @@ public class TargetTranslationMigrator {
 
         // update package version
         manifest.put("package_version", 6);
-        FileUtilities.writeStringToFile(manifestFile, manifest.toString(2));
+        FileUtilities.writeStringToFileAtomic(manifestFile, manifest.toString(2));
 
         // update target translation dir name
         File newPath = new File(path.getParentFile(), id.toLowerCase());
@@ -530,7 +530,7 @@ public class TargetTranslationMigrator {
         // update package version
         manifest.put("package_version", 5);
 
-        FileUtilities.writeStringToFile(manifestFile, manifest.toString(2));
+        FileUtilities.writeStringToFileAtomic(manifestFile, manifest.toString(2));
 
         // migrate usx to usfm
         String format = manifest.getString("format");
@@ -582,7 +582,7 @@ public class TargetTranslationMigrator {
             }
             manifest.put("translators", translators);
             manifest.put("package_version", 4);
-            FileUtilities.writeStringToFile(manifestFile, manifest.toString(2));
+            FileUtilities.writeStringToFileAtomic(manifestFile, manifest.toString(2));
         }
         String projectSlug = manifest.getString("project_id");
         migrateChunkChanges(path, projectSlug);
@@ -660,7 +660,7 @@ public class TargetTranslationMigrator {
         }
 
         manifest.put("package_version", 3);
-        FileUtilities.writeStringToFile(manifestFile, manifest.toString(2));
+        FileUtilities.writeStringToFileAtomic(manifestFile, manifest.toString(2));
         return path;
     }
 
@@ -0,0 +1,249 @@
+package com.door43.translationstudio.core;
+
+import com.door43.util.FileUtilities;
+import com.door43.util.NumericStringComparator;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An immutable in-memory copy of the translated text within a target translation.
+ * The translation directory is walked once and the files are read in parallel so an entire
+ * book can be displayed or exported without going back to the disk for every chunk.
+ *
+ * A snapshot does not follow later edits. Use {@link #isCurrent()} to check if it may still be used.
+ */
+public class TargetTranslationSnapshot {
+    private static final String TAG = TargetTranslationSnapshot.class.getSimpleName();
+    private static final int MAX_READ_THREADS = 4;
+
+    private final TargetTranslation targetTranslation;
+    private final int modificationCount;
+    private final Set<String> finishedChunks;
+    private final String projectTitle;
+    private final Map<String, ChapterContent> chapters;
+
+    /**
+     * The translated text of a single chapter
+     */
+    private static class ChapterContent {
+        private String title = "";
+        private String reference = "";
+        // TRICKY: a null body means the chunk is listed but could not be read
+        private final Map<String, String> chunks = new LinkedHashMap<>();
+    }
+
+    private TargetTranslationSnapshot(TargetTranslation targetTranslation, int modificationCount, Set<String> finishedChunks, String projectTitle, Map<String, ChapterContent> chapters) {
+        this.targetTranslation = targetTranslation;
+        this.modificationCount = modificationCount;
+        this.finishedChunks = finishedChunks;
+        this.projectTitle = projectTitle;
+        this.chapters = chapters;
+    }
+
+    /**
+     * Reads the entire target translation into memory
+     * @param targetTranslation
+     * @return
+     */
+    static TargetTranslationSnapshot load(TargetTranslation targetTranslation) {
+        targetTranslation.flushPendingWrites();
+        int modificationCount = targetTranslation.getModificationCount();
+        Set<String> finishedChunks = targetTranslation.getFinishedChunkIds();
+
+        // walk the directory once
+        File[] chapterDirs = targetTranslation.getPath().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() && !file.getName().equals(".git");
+            }
+        });
+        if(chapterDirs == null) chapterDirs = new File[0];
+        Arrays.sort(chapterDirs, new java.util.Comparator<File>() {
+            private final NumericStringComparator comparator = new NumericStringComparator();
+            @Override
+            public int compare(File lhs, File rhs) {
+                return comparator.compare(lhs.getName(), rhs.getName());
+            }
+        });
+
+        Map<String, ChapterContent> chapters = new LinkedHashMap<>();
+        List<File> files = new ArrayList<>();
+        for(File dir:chapterDirs) {
+            chapters.put(dir.getName(), new ChapterContent());
+            String[] names = dir.list();
+            if(names == null) continue;
+            Arrays.sort(names, new NumericStringComparator());
+            for(String name:names) {
+                files.add(new File(dir, name));
+            }
+        }
+
+        // read the files in parallel
+        Map<File, String> contents = readFiles(files);
+
+        for(File file:files) {
+            ChapterContent chapter = chapters.get(file.getParentFile().getName());
+            String name = file.getName();
+            if(name.equals("title.txt")) {
+                if(contents.containsKey(file)) chapter.title = contents.get(file);
+            } else if(name.equals("reference.txt")) {
+                if(contents.containsKey(file)) chapter.reference = contents.get(file);
+            } else {
+                // TRICKY: match the naming rules used by TargetTranslation.getFrameTranslations
+                String[] slug = name.split("\\.txt");
+                if(slug.length == 1) {
+                    chapter.chunks.put(slug[0], contents.get(new File(file.getParentFile(), slug[0] + ".txt")));
+                }
+            }
+        }
+
+        ChapterContent front = chapters.get("front");
+        String projectTitle = front != null ? front.title : "";
+
+        return new TargetTranslationSnapshot(targetTranslation, modificationCount, finishedChunks, projectTitle, chapters);
+    }
+
+    /**
+     * Reads a list of files using a small pool of threads
+     * @param files
+     * @return a map of file contents. Files that could not be read are not included
+     */
+    private static Map<File, String> readFiles(List<File> files) {
+        Map<File, String> contents = new HashMap<>();
+        if(files.isEmpty()) return contents;
+
+        int numThreads = Math.max(1, Math.min(MAX_READ_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Map<File, Future<String>> futures = new LinkedHashMap<>();
+            for(final File file:files) {
+                futures.put(file, executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        if(!file.isFile()) return null;
+                        return FileUtilities.readFileToString(file);
+                    }
+                }));
+            }
+            for(Map.Entry<File, Future<String>> entry:futures.entrySet()) {
+                try {
+                    String body = entry.getValue().get();
+                    if(body != null) {
+                        contents.put(entry.getKey(), body);
+                    }
+                } catch (Exception e) {
+                    Logger.w(TAG, "Failed to read " + entry.getKey(), e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return contents;
+    }
+
+    /**
+     * Checks if the target translation has been modified since this snapshot was taken
+     * @return true if the snapshot still matches the target translation
+     */
+    public boolean isCurrent() {
+        return modificationCount == targetTranslation.getModificationCount();
+    }
+
+    /**
+     * Returns the target translation this snapshot was taken from
+     * @return
+     */
+    public TargetTranslation getTargetTranslation() {
+        return targetTranslation;
+    }
+
+    /**
+     * Returns the translation of the project title
+     * @return
+     */
+    public ProjectTranslation getProjectTranslation() {
+        return new ProjectTranslation(projectTitle, finishedChunks.contains("front-title"));
+    }
+
+    /**
+     * Returns the sorted slugs of the chapters that have been translated
+     * @return
+     */
+    public List<String> getChapterSlugs() {
+        return Collections.unmodifiableList(new ArrayList<>(chapters.keySet()));
+    }
+
+    /**
+     * Returns the translation of a chapter
+     * @param chapterSlug
+     * @return
+     */
+    public ChapterTranslation getChapterTranslation(String chapterSlug) {
+        ChapterContent chapter = chapters.get(chapterSlug);
+        String title = chapter != null ? chapter.title : "";
+        String reference = chapter != null ? chapter.reference : "";
+        return new ChapterTranslation(title, reference, chapterSlug,
+                finishedChunks.contains(chapterSlug + "-title"),
+                finishedChunks.contains(chapterSlug + "-reference"),
+                targetTranslation.getFormat());
+    }
+
+    /**
+     * Returns an array of chapter translations
+     * @return
+     */
+    public ChapterTranslation[] getChapterTranslations() {
+        List<ChapterTranslation> chapterTranslations = new ArrayList<>();
+        for(String slug:chapters.keySet()) {
+            chapterTranslations.add(getChapterTranslation(slug));
+        }
+        return chapterTranslations.toArray(new ChapterTranslation[chapterTranslations.size()]);
+    }
+
+    /**
+     * Returns the translation of a frame
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param format
+     * @return an empty translation if the frame has not been translated
+     */
+    public FrameTranslation getFrameTranslation(String chapterSlug, String chunkSlug, TranslationFormat format) {
+        ChapterContent chapter = chapters.get(chapterSlug);
+        String body = chapter != null ? chapter.chunks.get(chunkSlug) : null;
+        if(body == null) {
+            return new FrameTranslation(chunkSlug, chapterSlug, "", format, false);
+        }
+        return new FrameTranslation(chunkSlug, chapterSlug, body, format, finishedChunks.contains(chapterSlug + "-" + chunkSlug));
+    }
+
+    /**
+     * Returns an array of frame translations for the chapter
+     * @param chapterSlug
+     * @param format
+     * @return
+     */
+    public FrameTranslation[] getFrameTranslations(String chapterSlug, TranslationFormat format) {
+        ChapterContent chapter = chapters.get(chapterSlug);
+        if(chapter == null) return new FrameTranslation[0];
+        List<FrameTranslation> frameTranslations = new ArrayList<>();
+        for(String chunkSlug:chapter.chunks.keySet()) {
+            frameTranslations.add(getFrameTranslation(chapterSlug, chunkSlug, format));
+        }
+        return frameTranslations.toArray(new FrameTranslation[frameTranslations.size()]);
+    }
+}
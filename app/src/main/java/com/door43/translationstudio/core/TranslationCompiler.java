@@ -0,0 +1,83 @@
+package com.door43.translationstudio.core;
+
+import android.text.Spanned;
+import android.text.SpannedString;
+
+/**
+ * Compiles rendered text back into source that could be either USX or USFM.
+ * Rendered markers (verses, notes, etc.) carry their mark-up in a span which replaces the displayed text.
+ *
+ * The text is walked once and copied directly into a builder that is reused by each thread,
+ * so compiling a chunk on every keystroke does not produce a copy of the text per marker.
+ */
+public class TranslationCompiler {
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> sBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
+
+    private TranslationCompiler() {}
+
+    /**
+     * Compiles the text by replacing the displayed text of each marker with its mark-up
+     * @param text
+     * @return the trimmed source
+     */
+    public static String compile(Spanned text) {
+        return compile(text, SpannedString.class);
+    }
+
+    /**
+     * Compiles the text by replacing the displayed text of each marker with its mark-up
+     * @param text
+     * @param markerType the type of span that holds the mark-up
+     * @return the trimmed source
+     */
+    static String compile(Spanned text, Class<? extends CharSequence> markerType) {
+        StringBuilder compiled = sBuilder.get();
+        compiled.setLength(0);
+
+        int length = text.length();
+        int lastIndex = 0;
+        int next;
+        for (int i = 0; i < length; i = next) {
+            next = text.nextSpanTransition(i, length, markerType);
+            CharSequence[] markers = text.getSpans(i, next, markerType);
+            for (CharSequence marker : markers) {
+                int start = text.getSpanStart(marker);
+                int end = text.getSpanEnd(marker);
+                // skip markers that were already exploded or are nested within another
+                if (start < lastIndex || end > length) continue;
+                // attach preceding text
+                compiled.append(text, lastIndex, start);
+                // explode span
+                compiled.append(marker);
+                lastIndex = end;
+            }
+        }
+        // grab the last bit of text
+        compiled.append(text, lastIndex, length);
+
+        String result = trim(compiled);
+        if(compiled.capacity() > MAX_RETAINED_CAPACITY) {
+            sBuilder.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contents of the builder without leading or trailing whitespace
+     * @param builder
+     * @return
+     */
+    private static String trim(StringBuilder builder) {
+        int start = 0;
+        int end = builder.length();
+        while (start < end && builder.charAt(start) <= ' ') start ++;
+        while (end > start && builder.charAt(end - 1) <= ' ') end --;
+        return builder.substring(start, end);
+    }
+}
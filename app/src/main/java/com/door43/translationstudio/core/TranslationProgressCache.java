@@ -0,0 +1,238 @@
+package com.door43.translationstudio.core;
+
+import com.door43.translationstudio.App;
+import com.door43.util.DeferredFileWriter;
+
+import org.json.JSONObject;
+import org.unfoldingword.door43client.Door43Client;
+import org.unfoldingword.door43client.models.Translation;
+import org.unfoldingword.resourcecontainer.ResourceContainer;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Provides a persistent cache of the translation progress of target translations.
+ * Calculating the progress requires opening the source container and counting all of its chunks.
+ * The progress is only recalculated when the installed source container or the number of finished chunks change.
+ * The number of chunks in each source container is remembered as well.
+ */
+public class TranslationProgressCache {
+    private static final String TAG = "TranslationProgressCache";
+    private static final String CACHE_FILE = "translation_progress.json";
+
+    /**
+     * Cached progress keyed by target translation id
+     */
+    private final Map<String, ProgressEntry> progress = new HashMap<>();
+
+    /**
+     * Cached chunk totals keyed by source container slug
+     */
+    private final Map<String, ChunkTotal> chunkTotals = new HashMap<>();
+
+    private boolean loaded = false;
+
+    private static TranslationProgressCache sInstance = null;
+
+    static {
+        sInstance = new TranslationProgressCache();
+    }
+
+    private static class ProgressEntry {
+        private final String sourceSlug;
+        private final long sourceVersion;
+        private final int numFinished;
+        private final double progress;
+
+        private ProgressEntry(String sourceSlug, long sourceVersion, int numFinished, double progress) {
+            this.sourceSlug = sourceSlug;
+            this.sourceVersion = sourceVersion;
+            this.numFinished = numFinished;
+            this.progress = progress;
+        }
+    }
+
+    private static class ChunkTotal {
+        private final long sourceVersion;
+        private final int numChunks;
+
+        private ChunkTotal(long sourceVersion, int numChunks) {
+            this.sourceVersion = sourceVersion;
+            this.numChunks = numChunks;
+        }
+    }
+
+    /**
+     * Returns the progress of a target translation.
+     * The cached value is used unless the installed source container or the number of finished chunks has changed.
+     * The installed container is recognized by the modified date of its folder so it is only opened
+     * when its chunks have not been counted yet.
+     * Nothing is cached if the source container cannot be opened.
+     *
+     * @param library
+     * @param targetTranslationId
+     * @param sourceTranslation the source translation to measure progress against
+     * @param numFinished the number of finished chunks in the target translation
+     * @return the progress as a percent value between 0 and 1
+     */
+    public static double getProgress(Door43Client library, String targetTranslationId, Translation sourceTranslation, int numFinished) {
+        String sourceSlug = sourceTranslation.resourceContainerSlug;
+        // TRICKY: the catalog date may be newer than the installed container so use the container's own folder
+        long sourceVersion = App.getResourceContainerDir(sourceSlug).lastModified();
+
+        synchronized (sInstance) {
+            sInstance.load();
+            ProgressEntry entry = sInstance.progress.get(targetTranslationId);
+            if(sourceVersion != 0 && entry != null && entry.sourceSlug.equals(sourceSlug)
+                    && entry.sourceVersion == sourceVersion
+                    && entry.numFinished == numFinished) {
+                return entry.progress;
+            }
+        }
+
+        // TRICKY: count outside of the lock so other translations are not blocked while the chunks are listed
+        int numChunks = countChunks(library, sourceSlug, sourceVersion);
+        if(numChunks < 0) {
+            Logger.w(TAG, "Failed to load container " + sourceSlug);
+            return 0.0;
+        }
+        double value = 0.0;
+        if(numChunks > 0) {
+            value = Math.min(1.0, (double)numFinished / (double)numChunks);
+        }
+
+        synchronized (sInstance) {
+            sInstance.progress.put(targetTranslationId, new ProgressEntry(sourceSlug, sourceVersion, numFinished, value));
+            sInstance.save();
+        }
+        return value;
+    }
+
+    /**
+     * Removes the cached progress of a target translation
+     * @param targetTranslationId
+     */
+    public static void remove(String targetTranslationId) {
+        synchronized (sInstance) {
+            sInstance.load();
+            if(sInstance.progress.remove(targetTranslationId) != null) {
+                sInstance.save();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of chunks in the source container.
+     * The container is only opened if it has not been counted since it was installed.
+     * TRICKY: the container is not added to the {@link ContainerCache} so counting many projects
+     * does not evict the containers that are being translated
+     *
+     * @param library
+     * @param sourceSlug
+     * @param sourceVersion the modified date of the installed container
+     * @return the number of chunks or -1 if the container could not be opened
+     */
+    private static int countChunks(Door43Client library, String sourceSlug, long sourceVersion) {
+        synchronized (sInstance) {
+            ChunkTotal total = sInstance.chunkTotals.get(sourceSlug);
+            if(sourceVersion != 0 && total != null && total.sourceVersion == sourceVersion) {
+                return total.numChunks;
+            }
+        }
+
+        ResourceContainer container = ContainerCache.get(sourceSlug);
+        if(container == null) {
+            try {
+                container = library.open(sourceSlug);
+            } catch (Exception e) {
+                Logger.w(TAG, "Failed to open container " + sourceSlug, e);
+                return -1;
+            }
+        }
+        int count = 0;
+        for(String chapterSlug:container.chapters()) {
+            count += container.chunks(chapterSlug).length;
+        }
+
+        synchronized (sInstance) {
+            sInstance.chunkTotals.put(sourceSlug, new ChunkTotal(sourceVersion, count));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the file where the cache is stored
+     * @return
+     */
+    private static File getCacheFile() {
+        return new File(App.context().getFilesDir(), CACHE_FILE);
+    }
+
+    /**
+     * Loads the cache from the disk if it has not been loaded yet
+     */
+    private void load() {
+        if(loaded) return;
+        loaded = true;
+        try {
+            String contents = DeferredFileWriter.readFileToString(getCacheFile());
+            if(contents == null) return;
+            JSONObject json = new JSONObject(contents);
+
+            JSONObject progressJson = json.getJSONObject("progress");
+            Iterator<String> ids = progressJson.keys();
+            while(ids.hasNext()) {
+                String id = ids.next();
+                JSONObject item = progressJson.getJSONObject(id);
+                progress.put(id, new ProgressEntry(item.getString("source"), item.getLong("source_version"), item.getInt("finished"), item.getDouble("progress")));
+            }
+
+            JSONObject chunksJson = json.getJSONObject("chunks");
+            Iterator<String> slugs = chunksJson.keys();
+            while(slugs.hasNext()) {
+                String slug = slugs.next();
+                JSONObject item = chunksJson.getJSONObject(slug);
+                chunkTotals.put(slug, new ChunkTotal(item.getLong("source_version"), item.getInt("count")));
+            }
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to load the translation progress cache", e);
+            progress.clear();
+            chunkTotals.clear();
+        }
+    }
+
+    /**
+     * Queues the cache to be written to the disk
+     */
+    private void save() {
+        try {
+            JSONObject progressJson = new JSONObject();
+            for(Map.Entry<String, ProgressEntry> entry:progress.entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("source", entry.getValue().sourceSlug);
+                item.put("source_version", entry.getValue().sourceVersion);
+                item.put("finished", entry.getValue().numFinished);
+                item.put("progress", entry.getValue().progress);
+                progressJson.put(entry.getKey(), item);
+            }
+            JSONObject chunksJson = new JSONObject();
+            for(Map.Entry<String, ChunkTotal> entry:chunkTotals.entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("source_version", entry.getValue().sourceVersion);
+                item.put("count", entry.getValue().numChunks);
+                chunksJson.put(entry.getKey(), item);
+            }
+            JSONObject json = new JSONObject();
+            json.put("progress", progressJson);
+            json.put("chunks", chunksJson);
+            // TRICKY: many translations are calculated at once so let the writes coalesce
+            DeferredFileWriter.write(getCacheFile(), json.toString());
+        } catch (Exception e) {
+            Logger.e(TAG, "Failed to save the translation progress cache", e);
+        }
+    }
+}
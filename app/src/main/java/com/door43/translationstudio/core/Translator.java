@@ -2,7 +2,7 @@ package com.door43.translationstudio.core;
 
 import android.content.Context;
 import android.content.pm.PackageInfo;
-import android.text.Editable;
+import android.text.Spanned;
 import android.text.SpannedString;
 
 import org.unfoldingword.door43client.Door43Client;
@@ -12,15 +12,16 @@ import org.unfoldingword.tools.logger.Logger;
 
 import com.door43.translationstudio.rendering.USXtoUSFMConverter;
 import com.door43.translationstudio.tasks.PrintPDFTask;
+import com.door43.util.DeferredFileWriter;
 import com.door43.util.FileUtilities;
 import com.door43.util.Zip;
+import com.door43.util.ZipStreamWriter;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -39,6 +40,7 @@ public class Translator {
     private static final String GENERATOR_NAME = "ts-android";
     public static final String ARCHIVE_EXTENSION = "tstudio";
     public static final String TAG = Translator.class.getName();
+    private static volatile boolean sPackHistoryOnExport = true;
 
     private final File mRootDir;
     private final Context mContext;
@@ -48,6 +50,24 @@ public class Translator {
         mContext = context;
         mRootDir = rootDir;
         this.profile = profile;
+        // TRICKY: the index must exist before anything is written so it hears about the changes
+        getIndex();
+    }
+
+    /**
+     * Turns on or off packing the git history of a target translation before it is exported
+     * @param enable
+     */
+    public static void setPackHistoryOnExport(boolean enable) {
+        sPackHistoryOnExport = enable;
+    }
+
+    /**
+     * Checks if the git history is packed before a target translation is exported
+     * @return
+     */
+    public static boolean isPackHistoryOnExportEnabled() {
+        return sPackHistoryOnExport;
     }
 
     /**
@@ -85,21 +105,25 @@ public class Translator {
      * @return
      */
     public String[] getTargetTranslationIDs() {
-        final List<String> translations = new ArrayList<>();
-        mRootDir.list(new FilenameFilter() {
-            @Override
-            public boolean accept(File dir, String filename) {
-                if(!filename.equalsIgnoreCase("cache") && new File(dir, filename).isDirectory()) {
-                    TargetTranslation translation = getTargetTranslation(filename);
-                    if (translation != null) {
-                        translations.add(translation.getId());
-                    }
-                }
-                return false;
-            }
-        });
+        return getIndex().getIds();
+    }
 
-        return translations.toArray(new String[translations.size()]);
+    /**
+     * Returns a summary of all active translations.
+     * This is much faster than {@link #getTargetTranslations()} because unchanged
+     * translations are read from a persistent index instead of being opened.
+     * @return
+     */
+    public List<TargetTranslationIndex.Entry> getTargetTranslationSummaries() {
+        return getIndex().getEntries();
+    }
+
+    /**
+     * Returns the persistent index of target translations
+     * @return
+     */
+    private TargetTranslationIndex getIndex() {
+        return TargetTranslationIndex.get(mRootDir, getLocalCacheDir());
     }
 
     /**
@@ -196,7 +220,11 @@ public class Translator {
     public void deleteTargetTranslation(String targetTranslationId) {
         if(targetTranslationId != null) {
             File targetTranslationDir = new File(mRootDir, targetTranslationId);
+            DeferredFileWriter.discard(targetTranslationDir);
+            CommitScheduler.invalidate(targetTranslationDir);
             FileUtilities.safeDelete(targetTranslationDir);
+            getIndex().remove(targetTranslationId);
+            TranslationProgressCache.remove(targetTranslationId);
         }
     }
 
@@ -206,29 +234,8 @@ public class Translator {
      * @param text
      * @return
      */
-    public static String compileTranslation(Editable text) {
-        StringBuilder compiledString = new StringBuilder();
-        int next;
-        int lastIndex = 0;
-        for (int i = 0; i < text.length(); i = next) {
-            next = text.nextSpanTransition(i, text.length(), SpannedString.class);
-            SpannedString[] verses = text.getSpans(i, next, SpannedString.class);
-            for (SpannedString s : verses) {
-                int sStart = text.getSpanStart(s);
-                int sEnd = text.getSpanEnd(s);
-                // attach preceeding text
-                if (lastIndex >= text.length() | sStart >= text.length()) {
-                    // out of bounds
-                }
-                compiledString.append(text.toString().substring(lastIndex, sStart));
-                // explode span
-                compiledString.append(s.toString());
-                lastIndex = sEnd;
-            }
-        }
-        // grab the last bit of text
-        compiledString.append(text.toString().substring(lastIndex, text.length()));
-        return compiledString.toString().trim();
+    public static String compileTranslation(Spanned text) {
+        return TranslationCompiler.compile(text);
     }
 
     /**
@@ -238,28 +245,7 @@ public class Translator {
      * @return
      */
     public static String compileTranslationSpanned(SpannedString text) {
-        StringBuilder compiledString = new StringBuilder();
-        int next;
-        int lastIndex = 0;
-        for (int i = 0; i < text.length(); i = next) {
-            next = text.nextSpanTransition(i, text.length(), SpannedString.class);
-            SpannedString[] verses = text.getSpans(i, next, SpannedString.class);
-            for (SpannedString s : verses) {
-                int sStart = text.getSpanStart(s);
-                int sEnd = text.getSpanEnd(s);
-                // attach preceeding text
-                if (lastIndex >= text.length() | sStart >= text.length()) {
-                    // out of bounds
-                }
-                compiledString.append(text.toString().substring(lastIndex, sStart));
-                // explode span
-                compiledString.append(s.toString());
-                lastIndex = sEnd;
-            }
-        }
-        // grab the last bit of text
-        compiledString.append(text.toString().substring(lastIndex, text.length()));
-        return compiledString.toString().trim();
+        return TranslationCompiler.compile(text);
     }
 
     /**
@@ -317,36 +303,90 @@ public class Translator {
      * @param out
      */
     public void exportArchive(TargetTranslation targetTranslation, OutputStream out, String fileName) throws Exception {
+        exportArchive(targetTranslation, out, fileName, null);
+    }
+
+    /**
+     * Exports a single target translation in .tstudio format to OutputStream.
+     * The archive is written directly into the stream so it may be a file, socket or document file
+     * @param targetTranslation
+     * @param out the stream that will receive the archive. This will be closed
+     * @param fileName the name of the archive
+     * @param listener receives the progress of the export by bytes. May be null
+     */
+    public void exportArchive(TargetTranslation targetTranslation, OutputStream out, String fileName, ZipStreamWriter.OnProgressListener listener) throws Exception {
+        byte[] manifest;
+        try {
+            manifest = prepareArchive(targetTranslation, fileName);
+        } catch (Exception e) {
+            FileUtilities.closeQuietly(out);
+            throw e;
+        }
+        writeArchive(targetTranslation, manifest, out, listener);
+    }
+
+    /**
+     * Commits a target translation and builds the manifest of its archive.
+     * This lets the export fail before anything has been written to the stream
+     * @param targetTranslation
+     * @param fileName the name of the archive
+     * @return the manifest to pass to {@link #writeArchive}
+     */
+    public byte[] prepareArchive(TargetTranslation targetTranslation, String fileName) throws Exception {
         if(!FileUtilities.getExtension(fileName).toLowerCase().equals(ARCHIVE_EXTENSION)) {
             throw new Exception("Output file must have '" + ARCHIVE_EXTENSION + "' extension");
         }
-        if(targetTranslation == null) {
+        if(targetTranslation == null || !targetTranslation.getPath().isDirectory()) {
             throw new Exception("Not a valid target translation");
         }
 
+        // TRICKY: make sure queued edits are archived even if the commit fails
+        targetTranslation.flushPendingWrites();
         try {
             targetTranslation.commitSync(".", false);
         } catch (Exception e) {
             // it's not the end of the world if we cannot commit.
             e.printStackTrace();
         }
+        if(sPackHistoryOnExport) {
+            // TRICKY: thousands of small loose objects make the archive large and slow to write
+            targetTranslation.packHistory();
+        }
+        return buildArchiveManifest(targetTranslation).toString().getBytes("UTF-8");
+    }
 
-        JSONObject manifestJson = buildArchiveManifest(targetTranslation);
-        File tempCache = new File(getLocalCacheDir(), System.currentTimeMillis()+"");
+    /**
+     * Writes a prepared target translation in .tstudio format to OutputStream
+     * @param targetTranslation
+     * @param manifest the manifest returned by {@link #prepareArchive}
+     * @param out the stream that will receive the archive. This will be closed
+     * @param listener receives the progress of the export by bytes. May be null
+     */
+    public void writeArchive(TargetTranslation targetTranslation, byte[] manifest, OutputStream out, ZipStreamWriter.OnProgressListener listener) throws Exception {
         try {
-            tempCache.mkdirs();
-            File manifestFile = new File(tempCache, "manifest.json");
-            manifestFile.createNewFile();
-            FileUtilities.writeStringToFile(manifestFile, manifestJson.toString());
-            Zip.zipToStream(new File[]{manifestFile, targetTranslation.getPath()}, out);
-        } catch (Exception e) {
-            throw e;
+            File projectDir = targetTranslation.getPath();
+            ZipStreamWriter writer = new ZipStreamWriter(out, manifest.length + ZipStreamWriter.sizeOf(projectDir), listener);
+            // git packs and objects are already compressed
+            writer.setStoreCompressed(true);
+            // TRICKY: the manifest must be the first entry so readers streaming the archive can stop before the translation
+            writer.putEntry("manifest.json", manifest);
+            writer.putFolder(projectDir, projectDir.getName());
+            writer.close();
         } finally {
             FileUtilities.closeQuietly(out);
-            FileUtilities.deleteQuietly(tempCache);
         }
     }
 
+    /**
+     * Returns the approximate size of the archive of a target translation before compression.
+     * This can be used to report progress while an archive is streamed
+     * @param targetTranslation
+     * @return
+     */
+    public static long estimateArchiveSize(TargetTranslation targetTranslation) {
+        return ZipStreamWriter.sizeOf(targetTranslation.getPath());
+    }
+
     /**
      * Imports a draft translation into a target translation.
      * A new target translation will be created if one does not already exist.
@@ -413,15 +453,16 @@ public class Translator {
     * @return ImportResults object
     */
     public ImportResults importArchive(File file, boolean overwrite) throws Exception {
-        FileInputStream in = null;
+        File archiveDir = new File(getLocalCacheDir(), System.currentTimeMillis()+"");
         try {
-            in = new FileInputStream(file);
-            return importArchive(in, overwrite);
+            archiveDir.mkdirs();
+            // TRICKY: archives on the disk are extracted in parallel from the central directory
+            Zip.unzip(file, archiveDir);
         } catch (Exception e) {
+            FileUtilities.deleteQuietly(archiveDir);
             throw e;
-        } finally {
-            FileUtilities.closeQuietly(in);
         }
+        return importArchiveDir(archiveDir, overwrite);
     }
 
     /**
@@ -441,13 +482,30 @@ public class Translator {
      */
     public ImportResults importArchive(InputStream in, boolean overwrite) throws Exception {
         File archiveDir = new File(getLocalCacheDir(), System.currentTimeMillis()+"");
-        String importedSlug = null;
-        boolean mergeConflict = false;
-        boolean alreadyExists = false;
         try {
             archiveDir.mkdirs();
             Zip.unzipFromStream(in, archiveDir);
+        } catch (Exception e) {
+            FileUtilities.deleteQuietly(archiveDir);
+            throw e;
+        } finally {
+            FileUtilities.closeQuietly(in);
+        }
+        return importArchiveDir(archiveDir, overwrite);
+    }
 
+    /**
+     * Imports the target translations from an extracted tstudio archive.
+     * The extracted archive is deleted afterwards
+     * @param archiveDir
+     * @param overwrite - if true then local changes are clobbered
+     * @return ImportResults object
+     */
+    private ImportResults importArchiveDir(File archiveDir, boolean overwrite) throws Exception {
+        String importedSlug = null;
+        boolean mergeConflict = false;
+        boolean alreadyExists = false;
+        try {
             File[] targetTranslationDirs = ArchiveImporter.importArchive(archiveDir);
             for(File newDir:targetTranslationDirs) {
                 TargetTranslation newTargetTranslation = TargetTranslation.open(newDir);
@@ -475,11 +533,14 @@ public class Translator {
                         }
                     }  else {
                         // import new translation
+                        DeferredFileWriter.discard(localDir);
+                        CommitScheduler.invalidate(localDir);
                         FileUtilities.safeDelete(localDir); // in case local was an invalid target translation
                         FileUtilities.moveOrCopyQuietly(newDir, localDir);
                     }
                     // update the generator info. TRICKY: we re-open to get the updated manifest.
                     TargetTranslation.updateGenerator(mContext, TargetTranslation.open(localDir));
+                    getIndex().update(localDir.getName());
 
                     importedSlug = targetTranslationId;
                 }
@@ -487,7 +548,6 @@ public class Translator {
         } catch (Exception e) {
             throw e;
         } finally {
-            FileUtilities.closeQuietly(in);
             FileUtilities.deleteQuietly(archiveDir);
         }
 
@@ -556,8 +616,11 @@ public class Translator {
     public void restoreTargetTranslation(TargetTranslation tempTargetTranslation) throws IOException {
         if(tempTargetTranslation != null) {
             File destDir = new File(mRootDir, tempTargetTranslation.getId());
+            DeferredFileWriter.discard(destDir);
+            CommitScheduler.invalidate(destDir);
             FileUtilities.safeDelete(destDir);
             FileUtilities.moveOrCopyQuietly(tempTargetTranslation.getPath(), destDir);
+            getIndex().update(destDir.getName());
         }
     }
 
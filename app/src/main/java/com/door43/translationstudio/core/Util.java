@@ -43,7 +43,7 @@ public class Util {
         try {
             FileOutputStream outputStream = new FileOutputStream(output);
             try {
-                byte[] buf = new byte[1024];
+                byte[] buf = new byte[64 * 1024];
                 int len;
                 while ((len = is.read(buf)) > 0) {
                     outputStream.write(buf, 0, len);
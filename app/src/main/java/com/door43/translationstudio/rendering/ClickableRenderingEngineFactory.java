@@ -7,6 +7,24 @@ import com.door43.translationstudio.ui.spannables.Span;
  * ClickableRenderingEngineFactory for creating ClickableRenderingEngine based on format
  */
 public class ClickableRenderingEngineFactory {
+    private static volatile boolean sStreamingUSFM = false;
+
+    /**
+     * Selects the engine used for USFM.
+     * This allows the output of {@link StreamingUSFMRenderer} to be compared against {@link USFMRenderer}
+     * @param enable true to use {@link StreamingUSFMRenderer}
+     */
+    public static void setStreamingUSFMEnabled(boolean enable) {
+        sStreamingUSFM = enable;
+    }
+
+    /**
+     * Checks if USFM is rendered with {@link StreamingUSFMRenderer}
+     * @return
+     */
+    public static boolean isStreamingUSFMEnabled() {
+        return sStreamingUSFM;
+    }
 
     /**
      * create appropriate rendering engine for format and add click listeners
@@ -25,7 +43,11 @@ public class ClickableRenderingEngineFactory {
         }
 
         if(format == TranslationFormat.USFM) {
-            renderer = new USFMRenderer(verseClickListener, noteClickListener);
+            if(sStreamingUSFM) {
+                renderer = new StreamingUSFMRenderer(verseClickListener, noteClickListener);
+            } else {
+                renderer = new USFMRenderer(verseClickListener, noteClickListener);
+            }
         } if(format == TranslationFormat.USX)  {
             renderer = new USXRenderer(verseClickListener, noteClickListener);
         }
@@ -0,0 +1,78 @@
+package com.door43.translationstudio.rendering;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+
+/**
+ * Applies small edits to text that has already been rendered.
+ * Plain text typed between markers renders to itself, so the edit can be spliced into the
+ * existing render instead of rendering the whole chunk again.
+ */
+public class IncrementalRender {
+
+    private IncrementalRender() {}
+
+    /**
+     * Applies an edit reported by a TextWatcher to the rendered text.
+     * The arguments are those given to TextWatcher.onTextChanged()
+     *
+     * @param rendered the rendered text as it was before the edit
+     * @param edited the text after the edit
+     * @param start the position of the edit
+     * @param before the number of characters that were replaced
+     * @param count the number of characters that replaced them
+     * @return the updated render or null if the text must be rendered again
+     */
+    public static CharSequence applyEdit(CharSequence rendered, CharSequence edited, int start, int before, int count) {
+        if(rendered == null || edited == null || start < 0 || before < 0 || count < 0) return null;
+
+        // the render is out of sync with the edited text
+        if(rendered.length() != edited.length() - count + before) return null;
+        if(start + before > rendered.length() || start + count > edited.length()) return null;
+
+        // leading and trailing whitespace is trimmed when the text is compiled
+        if(start == 0 || start + count >= edited.length()) return null;
+
+        // markers were added or removed
+        if(containsMarkup(rendered, start, start + before) || containsMarkup(edited, start, start + count)) return null;
+        if(touchesMarker(rendered, start, start + before) || touchesMarker(edited, start, start + count)) return null;
+
+        SpannableStringBuilder out;
+        if(rendered instanceof SpannableStringBuilder) {
+            out = (SpannableStringBuilder) rendered;
+        } else {
+            out = new SpannableStringBuilder(rendered);
+        }
+        out.replace(start, start + before, edited.subSequence(start, start + count).toString());
+        return out;
+    }
+
+    /**
+     * Checks if the range contains characters that would be interpreted by a renderer
+     * @param text
+     * @param start
+     * @param end
+     * @return
+     */
+    private static boolean containsMarkup(CharSequence text, int start, int end) {
+        for(int i = start; i < end; i ++) {
+            char c = text.charAt(i);
+            if(c == '\\' || c == '<' || c == '>' || c == '\n') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the range overlaps or borders a rendered marker such as a verse or note
+     * @param text
+     * @param start
+     * @param end
+     * @return
+     */
+    private static boolean touchesMarker(CharSequence text, int start, int end) {
+        if(!(text instanceof Spanned)) return false;
+        Spanned spanned = (Spanned) text;
+        return spanned.getSpans(start, end, SpannedString.class).length > 0;
+    }
+}
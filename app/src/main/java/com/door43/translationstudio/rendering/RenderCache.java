@@ -0,0 +1,292 @@
+package com.door43.translationstudio.rendering;
+
+import android.text.Spanned;
+
+import com.door43.translationstudio.ui.spannables.NoteSpan;
+import com.door43.translationstudio.ui.spannables.Span;
+
+import org.unfoldingword.resourcecontainer.ResourceContainer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process wide cache of rendered source text.
+ * Renders are keyed by the chunk of the resource container they came from and the options given to the renderer
+ * so the chunk does not have to be rendered again when the list is rebuilt or the view mode changes.
+ * View modes that render a chunk with the same options share the render.
+ *
+ * Rendered text contains click listeners. These belong to whoever displays the render
+ * so they must be bound with {@link #bindListeners(CharSequence, Span.OnClickListener, Span.OnClickListener)}
+ * each time a render is taken from the cache.
+ */
+public class RenderCache {
+    private static final int MAX_CHARACTERS = 512 * 1024;
+    private static final RenderCache sInstance;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxCharacters;
+    private int numCharacters = 0;
+    private final AtomicLong numHits = new AtomicLong(0);
+    private final AtomicLong numMisses = new AtomicLong(0);
+
+    static {
+        sInstance = new RenderCache(MAX_CHARACTERS);
+    }
+
+    /**
+     * @param maxCharacters the total length of rendered text that may be held before the least recently used entries are dropped
+     */
+    RenderCache(int maxCharacters) {
+        this.maxCharacters = maxCharacters;
+    }
+
+    /**
+     * Returns the shared cache
+     * @return
+     */
+    public static RenderCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Builds the key for the render of a source chunk.
+     * The version of the container and the selected USFM engine are included automatically.
+     *
+     * @param container the container the chunk belongs to
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param flags the renderer options e.g. whether verses are shown
+     * @param searchString the highlighted search string or null
+     * @param highlightColor the color of the highlighted search string
+     * @return
+     */
+    public static Key key(ResourceContainer container, String chapterSlug, String chunkSlug, String flags, CharSequence searchString, int highlightColor) {
+        return key(container.slug + ":" + container.modifiedAt, chapterSlug, chunkSlug, flags, searchString, highlightColor);
+    }
+
+    /**
+     * Builds the key for the render of a chunk
+     *
+     * @param source identifies the source text and its version
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param flags the renderer options e.g. whether verses are shown
+     * @param searchString the highlighted search string or null
+     * @param highlightColor the color of the highlighted search string
+     * @return
+     */
+    static Key key(String source, String chapterSlug, String chunkSlug, String flags, CharSequence searchString, int highlightColor) {
+        String options = flags + ";streaming=" + ClickableRenderingEngineFactory.isStreamingUSFMEnabled();
+        if(searchString != null) {
+            options += ";search=" + searchString + ";color=" + highlightColor;
+        }
+        return new Key(source, chapterSlug, chunkSlug, options);
+    }
+
+    /**
+     * Gives the clickable spans in a render to new click listeners.
+     * TRICKY: renders are shared so the listeners of whoever bound them last are used
+     * @param text the rendered text
+     * @param verseListener the click listener given to verses. May be null
+     * @param noteListener the click listener given to notes. May be null
+     */
+    public static void bindListeners(CharSequence text, Span.OnClickListener verseListener, Span.OnClickListener noteListener) {
+        if(!(text instanceof Spanned)) return;
+        Spanned spanned = (Spanned)text;
+        for(Span.ClickSpan clickSpan:spanned.getSpans(0, spanned.length(), Span.ClickSpan.class)) {
+            Span span = clickSpan.getSpan();
+            span.setOnClickListener(span instanceof NoteSpan ? noteListener : verseListener);
+        }
+    }
+
+    /**
+     * Returns a cached render
+     * @param key
+     * @return the entry or null if the text has not been rendered
+     */
+    public Entry get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if(entry != null) {
+            numHits.incrementAndGet();
+        } else {
+            numMisses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a render to the cache
+     * @param key
+     * @param rendered the rendered text
+     * @param addedMissingVerse true if the renderer inserted missing verses
+     */
+    public void put(Key key, CharSequence rendered, boolean addedMissingVerse) {
+        if(rendered == null || sizeOf(key, rendered) > maxCharacters) return;
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(rendered, addedMissingVerse));
+            if(previous != null) numCharacters -= sizeOf(key, previous.text);
+            numCharacters += sizeOf(key, rendered);
+            evict(maxCharacters);
+        }
+    }
+
+    /**
+     * Drops the least recently used renders until the cache is no larger than the given size.
+     * This should be used to release memory when the system is running low.
+     * @param maxCharacters the total length of rendered text to keep
+     */
+    public void trim(int maxCharacters) {
+        synchronized (entries) {
+            evict(Math.max(0, maxCharacters));
+        }
+    }
+
+    /**
+     * Drops the least recently used renders until the cache is no larger than the given size.
+     * The caller must hold the lock on the entries
+     * @param maxCharacters
+     */
+    private void evict(int maxCharacters) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while(numCharacters > maxCharacters && it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            numCharacters -= sizeOf(e.getKey(), e.getValue().text);
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the number of characters an entry counts against the size of the cache
+     * @param key
+     * @param text
+     * @return
+     */
+    private static int sizeOf(Key key, CharSequence text) {
+        return key.length() + text.length();
+    }
+
+    /**
+     * Drops the click listeners from every render so the screens that displayed them can be collected.
+     * The renders are kept and receive new listeners when they are taken from the cache again
+     */
+    public void releaseListeners() {
+        synchronized (entries) {
+            for(Entry entry:entries.values()) {
+                bindListeners(entry.text, null, null);
+            }
+        }
+    }
+
+    /**
+     * Removes all of the renders
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            numCharacters = 0;
+        }
+    }
+
+    /**
+     * Returns the number of cached renders
+     * @return
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total length of the cached renders and their keys
+     * @return
+     */
+    public int getCharacterCount() {
+        synchronized (entries) {
+            return numCharacters;
+        }
+    }
+
+    /**
+     * Returns the number of times a render was found in the cache
+     * @return
+     */
+    public long getHitCount() {
+        return numHits.get();
+    }
+
+    /**
+     * Returns the number of times a render was not found in the cache
+     * @return
+     */
+    public long getMissCount() {
+        return numMisses.get();
+    }
+
+    /**
+     * Identifies a render
+     */
+    public static class Key {
+        private final String source;
+        private final String chapterSlug;
+        private final String chunkSlug;
+        private final String options;
+        private final int hash;
+
+        private Key(String source, String chapterSlug, String chunkSlug, String options) {
+            this.source = source;
+            this.chapterSlug = chapterSlug == null ? "" : chapterSlug;
+            this.chunkSlug = chunkSlug == null ? "" : chunkSlug;
+            this.options = options;
+            int h = source.hashCode();
+            h = 31 * h + this.chapterSlug.hashCode();
+            h = 31 * h + this.chunkSlug.hashCode();
+            h = 31 * h + options.hashCode();
+            this.hash = h;
+        }
+
+        /**
+         * Returns the number of characters in the key
+         * @return
+         */
+        int length() {
+            return source.length() + chapterSlug.length() + chunkSlug.length() + options.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            Key other = (Key)o;
+            return hash == other.hash
+                    && source.equals(other.source)
+                    && chapterSlug.equals(other.chapterSlug)
+                    && chunkSlug.equals(other.chunkSlug)
+                    && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached render
+     */
+    public static class Entry {
+        public final CharSequence text;
+        public final boolean addedMissingVerse;
+
+        private Entry(CharSequence text, boolean addedMissingVerse) {
+            this.text = text;
+            this.addedMissingVerse = addedMissingVerse;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.door43.translationstudio.rendering;
+
+import com.door43.translationstudio.ui.spannables.USFMChar;
+import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
+import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+import com.door43.translationstudio.ui.spannables.USXNoteSpan;
+import com.door43.translationstudio.ui.spannables.USXVerseSpan;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Provides the regular expressions used to render and parse USFM and USX.
+ * Compiling a pattern is expensive compared to matching it against a single chunk,
+ * so every pattern is compiled once when this class is loaded and shared by all callers.
+ * Patterns are immutable and safe to use from multiple threads.
+ */
+public class RenderingPatterns {
+
+    /**
+     * The para styles used by the renderers
+     */
+    private static final String[] PARA_STYLES = {"ms", "s", "p", "q(\\d+)", "qr", "cl"};
+    private static final String[] PARA_SHORT_STYLES = {"b"};
+    private static final String[] CHAR_STYLES = {
+            USFMChar.STYLE_PASSAGE_TEXT,
+            USFMChar.STYLE_FOOTNOTE_REFERENCE,
+            USFMChar.STYLE_FOOTNOTE_TEXT,
+            USFMChar.STYLE_FOOTNOTE_KEYWORD,
+            USFMChar.STYLE_FOOTNOTE_QUOTATION,
+            USFMChar.STYLE_FOOTNOTE_ALT_QUOTATION,
+            USFMChar.STYLE_FOOTNOTE_LABEL,
+            USFMChar.STYLE_FOOTNOTE_PARAGRAPH,
+            USFMChar.STYLE_FOOTNOTE_VERSE,
+            USFMChar.STYLE_FOOTNOTE_DEUTEROCANONICAL_APOCRYPHA,
+            USFMChar.STYLE_SELAH
+    };
+
+    public static final Pattern SURROUNDING_WHITESPACE = Pattern.compile("(^\\s*|\\s*$)");
+    public static final Pattern WHITESPACE = Pattern.compile("(\\s+)");
+    public static final Pattern LINE_BREAKS = Pattern.compile("(\\s*\\n+\\s*)");
+
+    public static final Pattern USFM_CHAPTER_MARKER = Pattern.compile("\\\\c +\\d+ *", Pattern.DOTALL);
+    public static final Pattern USFM_VERSE = Pattern.compile(USFMVerseSpan.PATTERN);
+    public static final Pattern USFM_NOTE = Pattern.compile(USFMNoteSpan.PATTERN);
+    public static final Pattern USFM_NOTE_CHAR = Pattern.compile(USFMNoteSpan.CHAR_PATTERN);
+    public static final Pattern USFM_TAG = Pattern.compile("\\\\([\\w\\d]+)\\s([^\\n\\\\]*)");
+
+    public static final Pattern USX_VERSE = Pattern.compile(USXVerseSpan.PATTERN);
+    public static final Pattern USX_NOTE = Pattern.compile(USXNoteSpan.PATTERN);
+
+    public static final Pattern MARKDOWN_TITLE = Pattern.compile("#(.*)");
+
+    public static final Pattern MERGE_CONFLICT_HEAD = Pattern.compile("(?:<<<<<<< HEAD.*\\n)");
+    public static final Pattern MERGE_CONFLICT_INNER = Pattern.compile("(?:<<<<<<<\\s+HEAD\\n)([^<>]*)=======\\n([^<>]*)(?:>>>>>>>.*\\n)");
+    public static final Pattern MERGE_CONFLICT_FALLBACK = Pattern.compile("(?:<<<<<<<\\s+HEAD\\n)([^<>]*)(=======\\n)?([^<>]*)(?:>>>>>>>.*\\n)");
+    public static final Pattern MERGE_CONFLICT_MIDDLE = Pattern.compile("(?:=======.*\\n)");
+
+    private static final Map<String, Pattern> sParaPatterns;
+    private static final Map<String, Pattern> sParaShortPatterns;
+    private static final Map<String, Pattern> sUSFMCharPatterns;
+    private static final Map<String, Pattern> sUSXCharPatterns;
+
+    static {
+        Map<String, Pattern> para = new HashMap<>();
+        for(String style:PARA_STYLES) {
+            para.put(style, compilePara(style));
+        }
+        sParaPatterns = Collections.unmodifiableMap(para);
+
+        Map<String, Pattern> paraShort = new HashMap<>();
+        for(String style:PARA_SHORT_STYLES) {
+            paraShort.put(style, compileParaShort(style));
+        }
+        sParaShortPatterns = Collections.unmodifiableMap(paraShort);
+
+        Map<String, Pattern> usfmChars = new HashMap<>();
+        Map<String, Pattern> usxChars = new HashMap<>();
+        for(String style:CHAR_STYLES) {
+            usfmChars.put(style, compileUSFMChar(style));
+            usxChars.put(style, compileUSXChar(style));
+        }
+        sUSFMCharPatterns = Collections.unmodifiableMap(usfmChars);
+        sUSXCharPatterns = Collections.unmodifiableMap(usxChars);
+    }
+
+    private RenderingPatterns() {}
+
+    /**
+     * Returns a pattern that matches a para tag pair e.g. <para style=""></para>
+     * @param style a string or regular expression to identify the style
+     * @return
+     */
+    public static Pattern para(String style) {
+        Pattern pattern = sParaPatterns.get(style);
+        return pattern != null ? pattern : compilePara(style);
+    }
+
+    /**
+     * Returns a pattern that matches a single para tag e.g. <para style=""/>
+     * @param style a string or regular expression to identify the style
+     * @return
+     */
+    public static Pattern paraShort(String style) {
+        Pattern pattern = sParaShortPatterns.get(style);
+        return pattern != null ? pattern : compileParaShort(style);
+    }
+
+    /**
+     * Returns a pattern that matches a USFM char e.g. \fqs Selah
+     * @param style
+     * @return
+     */
+    public static Pattern usfmChar(String style) {
+        Pattern pattern = sUSFMCharPatterns.get(style);
+        return pattern != null ? pattern : compileUSFMChar(style);
+    }
+
+    /**
+     * Returns a pattern that matches a USX char e.g. <char style="qs">Selah</char>
+     * @param style
+     * @return
+     */
+    public static Pattern usxChar(String style) {
+        Pattern pattern = sUSXCharPatterns.get(style);
+        return pattern != null ? pattern : compileUSXChar(style);
+    }
+
+    private static Pattern compilePara(String style) {
+        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*>\\s*(((?!</para>).)*)</para>", Pattern.DOTALL);
+    }
+
+    private static Pattern compileParaShort(String style) {
+        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*/>", Pattern.DOTALL);
+    }
+
+    private static Pattern compileUSFMChar(String style) {
+        return Pattern.compile("\\\\f"+style+"+\\s([^\\\\]+)", Pattern.DOTALL);
+    }
+
+    private static Pattern compileUSXChar(String style) {
+        return Pattern.compile("<char\\s+style=\"" + style + "\"\\s*>\\s*(((?!</char>).)*)</char>", Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,183 @@
+package com.door43.translationstudio.rendering;
+
+import com.door43.translationstudio.ui.spannables.Span;
+import com.door43.util.FileUtilities;
+
+import org.unfoldingword.resourcecontainer.ResourceContainer;
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An optional on-disk cache of rendered source chunks.
+ * Each render is stored with {@link SpanCodec} in a folder next to the resource container
+ * so source cards can be decoded from tokens instead of being parsed by the renderers again.
+ *
+ * Entries record the modified date of the container, the source text and the render options
+ * and are ignored if any of these change. Whatever downloads, imports or deletes a container
+ * must delete the folder with {@link #clear(File)}. If that is missed the folder is deleted
+ * the first time an entry from an older version of the container is read.
+ */
+public class SourceTokenCache {
+    private static final String TAG = "SourceTokenCache";
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".tokens";
+    private static volatile boolean sEnabled = true;
+
+    private SourceTokenCache() {}
+
+    /**
+     * Turns the cache on or off
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        sEnabled = enable;
+    }
+
+    /**
+     * Checks if the cache is in use
+     * @return
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Builds the options that identify a render.
+     * The selected USFM engine is included automatically.
+     *
+     * @param flags the renderer options e.g. whether verses are shown
+     * @return
+     */
+    public static String options(String flags) {
+        return flags + ";streaming=" + ClickableRenderingEngineFactory.isStreamingUSFMEnabled();
+    }
+
+    /**
+     * Reads a cached render of a source chunk
+     * @param container the container the chunk belongs to
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param options the render options from {@link #options(String)}
+     * @param sourceText the text that was rendered
+     * @param verseListener the click listener given to verses
+     * @param noteListener the click listener given to notes
+     * @return the render or null if it is not cached
+     */
+    public static CharSequence read(ResourceContainer container, String chapterSlug, String chunkSlug, String options, String sourceText, Span.OnClickListener verseListener, Span.OnClickListener noteListener) {
+        if(!sEnabled || container == null || sourceText == null) return null;
+        File file = getFile(container, chapterSlug, chunkSlug, options);
+        if(!file.exists()) return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if(in.readInt() != VERSION) return null;
+            if(in.readInt() != container.modifiedAt) {
+                // the container was updated
+                in.close();
+                in = null;
+                clear(container);
+                return null;
+            }
+            if(!in.readUTF().equals(options)) return null;
+            if(in.readInt() != sourceText.length() || in.readInt() != sourceText.hashCode()) return null;
+            return SpanCodec.decode(in, verseListener, noteListener);
+        } catch (IOException e) {
+            Logger.w(TAG, "Failed to read the cached render " + file.getName(), e);
+            file.delete();
+            return null;
+        } finally {
+            FileUtilities.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Stores the render of a source chunk.
+     * Renders that cannot be encoded are skipped
+     *
+     * @param container the container the chunk belongs to
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param options the render options from {@link #options(String)}
+     * @param sourceText the text that was rendered
+     * @param rendered the rendered text
+     */
+    public static void write(ResourceContainer container, String chapterSlug, String chunkSlug, String options, String sourceText, CharSequence rendered) {
+        if(!sEnabled || container == null || sourceText == null || rendered == null) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(rendered.length() * 2);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(VERSION);
+            out.writeInt(container.modifiedAt);
+            out.writeUTF(options);
+            out.writeInt(sourceText.length());
+            out.writeInt(sourceText.hashCode());
+            if(!SpanCodec.encode(rendered, out)) return;
+            out.flush();
+
+            File file = getFile(container, chapterSlug, chunkSlug, options);
+            file.getParentFile().mkdirs();
+            // TRICKY: write to a temporary file so readers never see a partial entry
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(temp));
+            try {
+                bytes.writeTo(fileOut);
+            } finally {
+                fileOut.close();
+            }
+            if(!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Logger.w(TAG, "Failed to cache the render of " + chapterSlug + "-" + chunkSlug, e);
+        }
+    }
+
+    /**
+     * Deletes all of the cached renders of a container
+     * @param container
+     */
+    public static void clear(ResourceContainer container) {
+        FileUtilities.deleteQuietly(getDir(container));
+    }
+
+    /**
+     * Deletes all of the cached renders of a container.
+     * This can be used after the container has been deleted
+     * @param containerDir the directory of the container
+     */
+    public static void clear(File containerDir) {
+        FileUtilities.deleteQuietly(new File(containerDir.getParentFile(), containerDir.getName() + EXTENSION));
+    }
+
+    /**
+     * Returns the folder that holds the cached renders of a container
+     * @param container
+     * @return
+     */
+    private static File getDir(ResourceContainer container) {
+        return new File(container.path.getParentFile(), container.slug + EXTENSION);
+    }
+
+    /**
+     * Returns the file that holds a cached render
+     * @param container
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param options
+     * @return
+     */
+    private static File getFile(ResourceContainer container, String chapterSlug, String chunkSlug, String options) {
+        return new File(getDir(container), chapterSlug + "-" + chunkSlug + "-" + Integer.toHexString(options.hashCode()));
+    }
+}
@@ -0,0 +1,341 @@
+package com.door43.translationstudio.rendering;
+
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.style.AlignmentSpan;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+
+import com.door43.translationstudio.ui.spannables.Span;
+import com.door43.translationstudio.ui.spannables.USFMChar;
+import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
+import com.door43.translationstudio.ui.spannables.USFMVersePinSpan;
+import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+import com.door43.translationstudio.ui.spannables.USXChar;
+import com.door43.translationstudio.ui.spannables.USXNoteSpan;
+import com.door43.translationstudio.ui.spannables.USXVersePinSpan;
+import com.door43.translationstudio.ui.spannables.USXVerseSpan;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rendered text to a compact binary token stream and reads it back.
+ *
+ * The stream holds the displayed text followed by two lists of tokens.
+ * Clickable tokens are the verses and notes. They are stored as the values they were created from
+ * and are rebuilt with the click listeners of the reader, which also restores the styles they render with.
+ * Style tokens are the remaining spans (bold, alignment, colors etc.) which are stored by value.
+ *
+ * Text containing a span this codec does not know about cannot be encoded.
+ */
+public class SpanCodec {
+
+    private static final byte CLICKABLE_USFM_VERSE = 1;
+    private static final byte CLICKABLE_USFM_VERSE_PIN = 2;
+    private static final byte CLICKABLE_USX_VERSE = 3;
+    private static final byte CLICKABLE_USX_VERSE_PIN = 4;
+    private static final byte CLICKABLE_USFM_NOTE = 5;
+    private static final byte CLICKABLE_USX_NOTE = 6;
+
+    private static final byte STYLE_STYLE = 1;
+    private static final byte STYLE_ALIGNMENT = 2;
+    private static final byte STYLE_FOREGROUND = 3;
+    private static final byte STYLE_BACKGROUND = 4;
+    private static final byte STYLE_RELATIVE_SIZE = 5;
+    private static final byte STYLE_MARKUP = 6;
+
+    private SpanCodec() {}
+
+    /**
+     * Writes the rendered text to the stream
+     * @param rendered
+     * @param out
+     * @return false if the text contains a span that cannot be encoded. The stream should then be discarded
+     * @throws IOException
+     */
+    public static boolean encode(CharSequence rendered, DataOutputStream out) throws IOException {
+        writeString(out, rendered.toString());
+        if(!(rendered instanceof Spanned)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            return true;
+        }
+        Spanned text = (Spanned) rendered;
+        Object[] spans = text.getSpans(0, text.length(), Object.class);
+
+        // clickables
+        List<Span.ClickSpan> clickables = new ArrayList<>();
+        for(Object span:spans) {
+            if(span instanceof Span.ClickSpan) clickables.add((Span.ClickSpan) span);
+        }
+        out.writeInt(clickables.size());
+        for(Span.ClickSpan click:clickables) {
+            Span span = click.getSpan();
+            byte kind = clickableKind(span);
+            if(kind == 0) return false;
+            out.writeByte(kind);
+            out.writeInt(text.getSpanStart(click));
+            out.writeInt(text.getSpanEnd(click));
+            if(span instanceof USFMNoteSpan) {
+                USFMNoteSpan note = (USFMNoteSpan) span;
+                writeString(out, note.getStyle());
+                writeString(out, note.getCaller());
+                out.writeInt(note.getChars().size());
+                for(USFMChar c:note.getChars()) {
+                    writeString(out, c.style);
+                    writeString(out, toString(c.value));
+                }
+            } else if(span instanceof USXNoteSpan) {
+                USXNoteSpan note = (USXNoteSpan) span;
+                writeString(out, note.getStyle());
+                writeString(out, note.getCaller());
+                out.writeInt(note.getChars().size());
+                for(USXChar c:note.getChars()) {
+                    writeString(out, c.style);
+                    writeString(out, toString(c.value));
+                }
+            } else {
+                writeString(out, toString(span.getHumanReadable()));
+            }
+        }
+
+        // styles
+        List<Object> styles = new ArrayList<>();
+        for(Object span:spans) {
+            if(span instanceof Span.ClickSpan) continue;
+            // spans within a clickable are restored when the clickable is rebuilt
+            if(isWithinClickable(text, span, clickables)) continue;
+            styles.add(span);
+        }
+        out.writeInt(styles.size());
+        for(Object span:styles) {
+            byte kind = styleKind(span);
+            if(kind == 0) return false;
+            out.writeByte(kind);
+            out.writeInt(text.getSpanStart(span));
+            out.writeInt(text.getSpanEnd(span));
+            out.writeInt(text.getSpanFlags(span));
+            switch (kind) {
+                case STYLE_STYLE:
+                    out.writeInt(((StyleSpan) span).getStyle());
+                    break;
+                case STYLE_ALIGNMENT:
+                    out.writeInt(((AlignmentSpan.Standard) span).getAlignment().ordinal());
+                    break;
+                case STYLE_FOREGROUND:
+                    out.writeInt(((ForegroundColorSpan) span).getForegroundColor());
+                    break;
+                case STYLE_BACKGROUND:
+                    out.writeInt(((BackgroundColorSpan) span).getBackgroundColor());
+                    break;
+                case STYLE_RELATIVE_SIZE:
+                    out.writeFloat(((RelativeSizeSpan) span).getSizeChange());
+                    break;
+                case STYLE_MARKUP:
+                    writeString(out, span.toString());
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads rendered text from the stream.
+     * The stream must report the bytes that are left through {@link DataInputStream#available()}
+     * (e.g. a file or byte array stream) so corrupt lengths can be rejected
+     * @param in
+     * @param verseListener the click listener given to verses
+     * @param noteListener the click listener given to notes
+     * @return the rendered text or null if a token could not be rebuilt
+     * @throws IOException
+     */
+    public static CharSequence decode(DataInputStream in, Span.OnClickListener verseListener, Span.OnClickListener noteListener) throws IOException {
+        SpannableStringBuilder out = new SpannableStringBuilder(readString(in));
+
+        // clickables are spliced in first so the styles set afterwards are not disturbed
+        int numClickables = in.readInt();
+        for(int i = 0; i < numClickables; i ++) {
+            byte kind = in.readByte();
+            int start = in.readInt();
+            int end = in.readInt();
+            Span span = readClickable(kind, in);
+            if(span == null || start < 0 || end > out.length()) return null;
+            span.setOnClickListener(span instanceof USFMNoteSpan || span instanceof USXNoteSpan ? noteListener : verseListener);
+            CharSequence rendered = span.toCharSequence();
+            if(rendered.length() != end - start) return null;
+            out.replace(start, end, rendered);
+        }
+
+        int numStyles = in.readInt();
+        for(int i = 0; i < numStyles; i ++) {
+            byte kind = in.readByte();
+            int start = in.readInt();
+            int end = in.readInt();
+            int flags = in.readInt();
+            Object span;
+            switch (kind) {
+                case STYLE_STYLE:
+                    span = new StyleSpan(in.readInt());
+                    break;
+                case STYLE_ALIGNMENT:
+                    int alignment = in.readInt();
+                    Layout.Alignment[] values = Layout.Alignment.values();
+                    if(alignment < 0 || alignment >= values.length) return null;
+                    span = new AlignmentSpan.Standard(values[alignment]);
+                    break;
+                case STYLE_FOREGROUND:
+                    span = new ForegroundColorSpan(in.readInt());
+                    break;
+                case STYLE_BACKGROUND:
+                    span = new BackgroundColorSpan(in.readInt());
+                    break;
+                case STYLE_RELATIVE_SIZE:
+                    span = new RelativeSizeSpan(in.readFloat());
+                    break;
+                case STYLE_MARKUP:
+                    span = new SpannedString(readString(in));
+                    break;
+                default:
+                    return null;
+            }
+            if(start < 0 || end > out.length() || start > end) return null;
+            out.setSpan(span, start, end, flags);
+        }
+        return out;
+    }
+
+    /**
+     * Identifies the kind of clickable span
+     * @param span
+     * @return the kind or 0 if the span is not supported
+     */
+    private static byte clickableKind(Span span) {
+        // TRICKY: check the pins first because they extend the verse spans
+        if(span instanceof USFMVersePinSpan) return CLICKABLE_USFM_VERSE_PIN;
+        if(span instanceof USFMVerseSpan) return CLICKABLE_USFM_VERSE;
+        if(span instanceof USXVersePinSpan) return CLICKABLE_USX_VERSE_PIN;
+        if(span instanceof USXVerseSpan) return CLICKABLE_USX_VERSE;
+        if(span instanceof USFMNoteSpan) return CLICKABLE_USFM_NOTE;
+        if(span instanceof USXNoteSpan) return CLICKABLE_USX_NOTE;
+        return 0;
+    }
+
+    /**
+     * Reads a clickable span from the stream
+     * @param kind
+     * @param in
+     * @return the span or null if it could not be rebuilt
+     * @throws IOException
+     */
+    private static Span readClickable(byte kind, DataInputStream in) throws IOException {
+        switch (kind) {
+            case CLICKABLE_USFM_NOTE: {
+                String style = readString(in);
+                String caller = readString(in);
+                int numChars = in.readInt();
+                List<USFMChar> chars = new ArrayList<>();
+                for(int i = 0; i < numChars; i ++) {
+                    chars.add(new USFMChar(readString(in), readString(in)));
+                }
+                return new USFMNoteSpan(style, caller, chars);
+            }
+            case CLICKABLE_USX_NOTE: {
+                String style = readString(in);
+                String caller = readString(in);
+                int numChars = in.readInt();
+                List<USXChar> chars = new ArrayList<>();
+                for(int i = 0; i < numChars; i ++) {
+                    chars.add(new USXChar(readString(in), readString(in)));
+                }
+                return new USXNoteSpan(style, caller, chars);
+            }
+        }
+        String verse = readString(in);
+        try {
+            switch (kind) {
+                case CLICKABLE_USFM_VERSE:
+                    return new USFMVerseSpan(verse);
+                case CLICKABLE_USFM_VERSE_PIN:
+                    return new USFMVersePinSpan(verse);
+                case CLICKABLE_USX_VERSE:
+                    return new USXVerseSpan(verse);
+                case CLICKABLE_USX_VERSE_PIN:
+                    return new USXVersePinSpan(verse);
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the span lies within one of the clickables
+     * @param text
+     * @param span
+     * @param clickables
+     * @return
+     */
+    private static boolean isWithinClickable(Spanned text, Object span, List<Span.ClickSpan> clickables) {
+        int start = text.getSpanStart(span);
+        int end = text.getSpanEnd(span);
+        for(Span.ClickSpan click:clickables) {
+            if(start >= text.getSpanStart(click) && end <= text.getSpanEnd(click)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Identifies the kind of style span
+     * @param span
+     * @return the kind or 0 if the span is not supported
+     */
+    private static byte styleKind(Object span) {
+        if(span instanceof StyleSpan) return STYLE_STYLE;
+        if(span instanceof AlignmentSpan.Standard) return STYLE_ALIGNMENT;
+        if(span instanceof ForegroundColorSpan) return STYLE_FOREGROUND;
+        if(span instanceof BackgroundColorSpan) return STYLE_BACKGROUND;
+        if(span instanceof RelativeSizeSpan) return STYLE_RELATIVE_SIZE;
+        if(span instanceof SpannedString) return STYLE_MARKUP;
+        return 0;
+    }
+
+    private static String toString(CharSequence value) {
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Writes a string without the 64K limit of {@link DataOutputStream#writeUTF(String)}
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}
+     * @param in
+     * @return
+     * @throws IOException if the length is not valid
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // TRICKY: a corrupt length must not allocate more than is left to read
+        if(length < 0 || length > in.available()) throw new IOException("Invalid string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
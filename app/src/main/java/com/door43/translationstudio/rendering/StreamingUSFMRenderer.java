@@ -0,0 +1,575 @@
+package com.door43.translationstudio.rendering;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.TextUtils;
+import android.text.style.AlignmentSpan;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
+
+import com.door43.translationstudio.ui.spannables.Span;
+import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
+import com.door43.translationstudio.ui.spannables.USFMVersePinSpan;
+import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A USFM rendering engine that produces the same kind of output as {@link USFMRenderer} in a single pass.
+ * The input is scanned once and each marker is turned into spans as soon as it is found,
+ * so the text is only copied into one {@link SpannableStringBuilder} instead of once for every kind of marker.
+ *
+ * Known differences from {@link USFMRenderer}:
+ * a footnote ends at the first closing marker rather than the last one on the line,
+ * and the line break after a poetic line only looks at the raw text that follows.
+ */
+public class StreamingUSFMRenderer extends ClickableRenderingEngine {
+
+    private static final Pattern PARA_TAG = Pattern.compile("<para\\s+style=\"([^\"]*)\"\\s*(/?)>");
+    private static final String PARA_CLOSE = "</para>";
+    private static final String NOTE_CLOSE = "\\f*";
+
+    private Span.OnClickListener mNoteListener;
+    private Span.OnClickListener mVerseListener;
+    private boolean mRenderLinebreaks = false;
+    private boolean mRenderVerses = true;
+    private String mSearch;
+    private int mHighlightColor = 0;
+    private int[] mExpectedVerseRange = new int[0];
+    private boolean mSuppressLeadingMajorSectionHeadings = false;
+    private boolean mAddedMissingVerse = false;
+
+    /**
+     * The state of a single render
+     */
+    private static class Pass {
+        private final CharSequence in;
+        private final SpannableStringBuilder out = new SpannableStringBuilder();
+        private final Matcher paraMatcher;
+        private final BitSet foundVerses = new BitSet();
+        private final List<int[]> noteRanges = new ArrayList<>();
+        private final boolean versesOnly;
+
+        private Pass(CharSequence in, boolean versesOnly) {
+            this.in = in;
+            this.paraMatcher = PARA_TAG.matcher(in);
+            this.versesOnly = versesOnly;
+        }
+    }
+
+    /**
+     * Creates a new USFM rendering engine without any listeners
+     */
+    public StreamingUSFMRenderer() {
+
+    }
+
+    /**
+     * Creates a new USFM rendering engine with some custom click listeners
+     * @param verseListener
+     * @param noteListener
+     */
+    public StreamingUSFMRenderer(Span.OnClickListener verseListener, Span.OnClickListener noteListener) {
+        mVerseListener = verseListener;
+        mNoteListener = noteListener;
+    }
+
+    @Override
+    public void setVersesEnabled(boolean enable) {
+        mRenderVerses = enable;
+    }
+
+    @Override
+    public void setLinebreaksEnabled(boolean enable) {
+        mRenderLinebreaks = enable;
+    }
+
+    @Override
+    public void setSearchString(CharSequence searchString, int highlightColor) {
+        mHighlightColor = highlightColor;
+        if((searchString != null) && (searchString.length() > 0)) {
+            mSearch = searchString.toString().toLowerCase();
+        } else {
+            mSearch = null;
+        }
+    }
+
+    @Override
+    public void setPopulateVerseMarkers(int[] verseRange) {
+        mExpectedVerseRange = verseRange;
+    }
+
+    @Override
+    public void setSuppressLeadingMajorSectionHeadings(boolean suppressLeadingMajorSectionHeadings) {
+        mSuppressLeadingMajorSectionHeadings = suppressLeadingMajorSectionHeadings;
+    }
+
+    @Override
+    public boolean isAddedMissingVerse() {
+        return mAddedMissingVerse;
+    }
+
+    /**
+     * Renders the USFM input into a readable form
+     * @param in the raw input string
+     * @return
+     */
+    @Override
+    public CharSequence render(CharSequence in) {
+        mAddedMissingVerse = false;
+        Pass pass = new Pass(in, false);
+
+        // trim surrounding whitespace
+        int start = 0;
+        int end = in.length();
+        while(start < end && Character.isWhitespace(in.charAt(start))) start ++;
+        while(end > start && Character.isWhitespace(in.charAt(end - 1))) end --;
+
+        if(!renderRange(pass, start, end, false)) return in;
+        int offset = populateMissingVerses(pass);
+        highlightSearch(pass, offset);
+        return pass.out;
+    }
+
+    /**
+     * Renders all verse tags
+     * @param in
+     * @return
+     */
+    @Override
+    public CharSequence renderVerse(CharSequence in) {
+        mAddedMissingVerse = false;
+        Pass pass = new Pass(in, true);
+        if(!renderRange(pass, 0, in.length(), false)) return in;
+        populateMissingVerses(pass);
+        return pass.out;
+    }
+
+    /**
+     * Return the leading major section heading, if any.
+     *
+     * @param in The string to examine for a leading major section heading.
+     * @return The leading major section heading; or the empty string if there is none.
+     */
+    @Override
+    public CharSequence getLeadingMajorSectionHeading(CharSequence in) {
+        Matcher matcher = PARA_TAG.matcher(in);
+        if(matcher.lookingAt() && matcher.group(1).equals("ms") && matcher.group(2).isEmpty()) {
+            int contentStart = skipWhitespace(in, matcher.end(), in.length(), true);
+            int close = TextUtils.indexOf(in, PARA_CLOSE, contentStart);
+            if(close >= 0) {
+                return in.subSequence(contentStart, close).toString();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Renders a section of the input into the output
+     * @param pass
+     * @param start the start of the section in the input
+     * @param end the end of the section in the input
+     * @param upperCase true if the plain text should be converted to upper case
+     * @return false if the rendering was stopped
+     */
+    private boolean renderRange(Pass pass, int start, int end, boolean upperCase) {
+        CharSequence in = pass.in;
+        int textStart = start;
+        int i = start;
+        while(i < end) {
+            if(isStopped()) return false;
+            char c = in.charAt(i);
+            int next = -1;
+            if(c == '\\') {
+                appendText(pass, textStart, i, upperCase);
+                textStart = i;
+                next = renderMarker(pass, i, end);
+            } else if(c == '<' && !pass.versesOnly) {
+                appendText(pass, textStart, i, upperCase);
+                textStart = i;
+                next = renderPara(pass, i, end);
+                if(next == -2) return false;
+            } else if(c == '\r') {
+                appendText(pass, textStart, i, upperCase);
+                next = i + 1;
+            } else if(c == '\n' && !mRenderLinebreaks && !pass.versesOnly) {
+                // TRICKY: collapse the whitespace surrounding line breaks into a single space
+                int textEnd = i;
+                while(textEnd > textStart && Character.isWhitespace(in.charAt(textEnd - 1))) textEnd --;
+                appendText(pass, textStart, textEnd, upperCase);
+                next = skipWhitespace(in, i, end, true);
+                pass.out.append(' ');
+            }
+            if(next >= 0) {
+                i = next;
+                textStart = next;
+            } else {
+                i ++;
+            }
+        }
+        appendText(pass, textStart, end, upperCase);
+        return true;
+    }
+
+    /**
+     * Copies plain text from the input to the output
+     * @param pass
+     * @param start
+     * @param end
+     * @param upperCase
+     */
+    private static void appendText(Pass pass, int start, int end, boolean upperCase) {
+        if(end <= start) return;
+        if(upperCase) {
+            pass.out.append(pass.in.subSequence(start, end).toString().toUpperCase());
+        } else {
+            pass.out.append(pass.in, start, end);
+        }
+    }
+
+    /**
+     * Renders the USFM marker at the index
+     * @param pass
+     * @param index the index of the backslash
+     * @param end
+     * @return the index after the marker or -1 if the marker is not rendered
+     */
+    private int renderMarker(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        if(index + 1 >= end) return -1;
+        char type = in.charAt(index + 1);
+        if(type == 'v') {
+            return renderVerseMarker(pass, index, end);
+        }
+        if(pass.versesOnly) return -1;
+        if(type == 'c') {
+            return renderChapterMarker(pass, index, end);
+        } else if(type == 'f') {
+            int next = renderSelah(pass, index, end);
+            if(next < 0) {
+                next = renderNote(pass, index, end);
+            }
+            return next;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a chapter marker e.g. \c 1
+     * @param pass
+     * @param index
+     * @param end
+     * @return
+     */
+    private int renderChapterMarker(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        int i = index + 2;
+        int spaces = i;
+        while(i < end && in.charAt(i) == ' ') i ++;
+        if(i == spaces) return -1;
+        int digits = i;
+        while(i < end && Character.isDigit(in.charAt(i))) i ++;
+        if(i == digits) return -1;
+        // TRICKY: line breaks would have been collapsed into the trailing space
+        while(i < end && (in.charAt(i) == ' ' || (!mRenderLinebreaks && Character.isWhitespace(in.charAt(i))))) i ++;
+        return i;
+    }
+
+    /**
+     * Renders a verse marker e.g. \v 1 or \v 1-3
+     * @param pass
+     * @param index
+     * @param end
+     * @return
+     */
+    private int renderVerseMarker(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        int i = index + 2;
+        if(i >= end || !Character.isWhitespace(in.charAt(i))) return -1;
+        i ++;
+        int numberStart = i;
+        while(i < end && Character.isDigit(in.charAt(i))) i ++;
+        if(i == numberStart) return -1;
+        if(i + 1 < end && in.charAt(i) == '-' && Character.isDigit(in.charAt(i + 1))) {
+            i ++;
+            while(i < end && Character.isDigit(in.charAt(i))) i ++;
+        }
+        String number = in.subSequence(numberStart, i).toString();
+        if(i < end && Character.isWhitespace(in.charAt(i))) i ++;
+
+        if(!mRenderVerses) {
+            // just display USFM for verse
+            pass.out.append(in, index, i);
+            return i;
+        }
+
+        USFMVerseSpan verse;
+        if(mVerseListener == null) {
+            verse = new USFMVerseSpan(number);
+        } else {
+            verse = new USFMVersePinSpan(number);
+        }
+        int startVerse = verse.getStartVerseNumber();
+        int endVerse = verse.getEndVerseNumber();
+        if(endVerse > startVerse) {
+            for(int v = startVerse; v <= endVerse; v ++) {
+                pass.foundVerses.set(v);
+            }
+        } else {
+            pass.foundVerses.set(startVerse);
+        }
+
+        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN) {
+            pass.out.append("\n"); // see USFMRenderer.renderVerse
+        }
+        verse.setOnClickListener(mVerseListener);
+        pass.out.append(verse.toCharSequence());
+        return i;
+    }
+
+    /**
+     * Renders a footnote e.g. \f + \ft note \f*
+     * @param pass
+     * @param index
+     * @param end
+     * @return
+     */
+    private int renderNote(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        int i = index + 2;
+        if(i + 2 >= end || !Character.isWhitespace(in.charAt(i))
+                || Character.isWhitespace(in.charAt(i + 1))
+                || !Character.isWhitespace(in.charAt(i + 2))) {
+            return -1;
+        }
+        CharSequence caller = in.subSequence(i + 1, i + 2);
+        int textStart = i + 3;
+        int close = TextUtils.indexOf(in, NOTE_CLOSE, textStart, end);
+        if(close <= textStart) return -1;
+        int lineBreak = TextUtils.indexOf(in, '\n', textStart, close);
+        if(lineBreak >= 0) return -1;
+
+        String noteText = in.subSequence(textStart, close).toString();
+        USFMNoteSpan note = USFMNoteSpan.parseNote(caller, noteText);
+        if(note == null) {
+            // failed to parse the note
+            pass.out.append(in, index, close + NOTE_CLOSE.length());
+        } else {
+            note.setOnClickListener(mNoteListener);
+            if(mSearch != null) {
+                note.setHighlight(noteText.toLowerCase().contains(mSearch));
+            }
+            int noteStart = pass.out.length();
+            pass.out.append(note.toCharSequence());
+            pass.noteRanges.add(new int[]{noteStart, pass.out.length()});
+        }
+        return close + NOTE_CLOSE.length();
+    }
+
+    /**
+     * Renders a selah e.g. \fqs Selah
+     * @param pass
+     * @param index
+     * @param end
+     * @return
+     */
+    private int renderSelah(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        int i = index + 2;
+        if(i + 1 >= end || in.charAt(i) != 'q' || in.charAt(i + 1) != 's') return -1;
+        i += 2;
+        while(i < end && in.charAt(i) == 's') i ++;
+        if(i >= end || !Character.isWhitespace(in.charAt(i))) return -1;
+        i ++;
+        int textStart = i;
+        while(i < end && in.charAt(i) != '\\') i ++;
+        if(i == textStart) return -1;
+
+        pass.out.append("\n");
+        int spanStart = pass.out.length();
+        pass.out.append(in, textStart, i);
+        pass.out.setSpan(new StyleSpan(Typeface.ITALIC), spanStart, pass.out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        pass.out.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_OPPOSITE), spanStart, pass.out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        return i;
+    }
+
+    /**
+     * Renders a para tag e.g. <para style="p">text</para>
+     * @param pass
+     * @param index
+     * @param end
+     * @return the index after the tag, -1 if the tag is not rendered, or -2 if the rendering was stopped
+     */
+    private int renderPara(Pass pass, int index, int end) {
+        CharSequence in = pass.in;
+        Matcher matcher = pass.paraMatcher;
+        matcher.region(index, end);
+        if(!matcher.lookingAt()) return -1;
+        String style = matcher.group(1);
+        SpannableStringBuilder out = pass.out;
+
+        if(!matcher.group(2).isEmpty()) {
+            // single tag
+            if(style.equals("b")) {
+                out.append("\n\n");
+                return matcher.end();
+            }
+            return -1;
+        }
+
+        int contentStart = skipWhitespace(in, matcher.end(), end, true);
+        int contentEnd = TextUtils.indexOf(in, PARA_CLOSE, contentStart, end);
+        if(contentEnd < 0) return -1;
+        int next = contentEnd + PARA_CLOSE.length();
+        int spanStart = out.length();
+
+        if(style.equals("ms")) {
+            if(mSuppressLeadingMajorSectionHeadings && out.length() == 0) {
+                return next;
+            }
+            if(!renderRange(pass, contentStart, contentEnd, true)) return -2;
+            setParagraphSpans(out, spanStart, Typeface.BOLD, Layout.Alignment.ALIGN_CENTER);
+            out.append("\n");
+        } else if(style.equals("s")) {
+            if(!renderRange(pass, contentStart, contentEnd, false)) return -2;
+            setParagraphSpans(out, spanStart, Typeface.BOLD, Layout.Alignment.ALIGN_CENTER);
+            out.append("\n");
+        } else if(style.equals("p")) {
+            if(out.length() > 0) out.append("\n");
+            out.append("    ");
+            if(!renderRange(pass, contentStart, contentEnd, false)) return -2;
+            out.append("\n");
+        } else if(style.equals("qr")) {
+            out.append("\n");
+            spanStart = out.length();
+            if(!renderRange(pass, contentStart, contentEnd, false)) return -2;
+            setParagraphSpans(out, spanStart, Typeface.ITALIC, Layout.Alignment.ALIGN_OPPOSITE);
+        } else if(style.equals("cl")) {
+            if(!renderRange(pass, contentStart, contentEnd, false)) return -2;
+            out.setSpan(new StyleSpan(Typeface.BOLD), spanStart, out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        } else if(style.length() > 1 && style.charAt(0) == 'q' && TextUtils.isDigitsOnly(style.substring(1))) {
+            int level = Integer.parseInt(style.substring(1));
+
+            // don't stack new lines
+            int last = out.length() - 1;
+            while(last >= 0 && out.charAt(last) == ' ') last --;
+            if(last >= 0 && out.charAt(last) != '\n') {
+                out.append("\n");
+            }
+            for(int i = 0; i < level; i ++) {
+                out.append("    ");
+            }
+            spanStart = out.length();
+            if(!renderRange(pass, contentStart, contentEnd, false)) return -2;
+            out.setSpan(new StyleSpan(Typeface.NORMAL), spanStart, out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            if(isFollowedByPara(in, next, end)) {
+                out.append("\n");
+            }
+        } else {
+            return -1;
+        }
+        return next;
+    }
+
+    /**
+     * Applies the style and alignment to everything written since the start
+     * @param out
+     * @param start
+     * @param style
+     * @param alignment
+     */
+    private static void setParagraphSpans(SpannableStringBuilder out, int start, int style, Layout.Alignment alignment) {
+        out.setSpan(new StyleSpan(style), start, out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        out.setSpan(new AlignmentSpan.Standard(alignment), start, out.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /**
+     * Checks if more text and then another para tag follow the index
+     * @param in
+     * @param index
+     * @param end
+     * @return
+     */
+    private static boolean isFollowedByPara(CharSequence in, int index, int end) {
+        int text = skipWhitespace(in, index, end, false);
+        if(text >= end || in.charAt(text) == '<') return false;
+        return TextUtils.indexOf(in, "<para", text, end) > text;
+    }
+
+    /**
+     * Returns the index of the first character that is not whitespace
+     * @param in
+     * @param index
+     * @param end
+     * @param newLines true if new lines should be skipped as well
+     * @return
+     */
+    private static int skipWhitespace(CharSequence in, int index, int end, boolean newLines) {
+        while(index < end) {
+            char c = in.charAt(index);
+            if(!Character.isWhitespace(c) || (!newLines && c == '\n')) break;
+            index ++;
+        }
+        return index;
+    }
+
+    /**
+     * Inserts verses that were expected but not found at the front of the output
+     * @param pass
+     * @return the number of characters that were inserted
+     */
+    private int populateMissingVerses(Pass pass) {
+        if(!mRenderVerses || mExpectedVerseRange.length == 0 || mExpectedVerseRange.length > 2) return 0;
+        int length = pass.out.length();
+        int first = mExpectedVerseRange[0];
+        int last = mExpectedVerseRange.length == 2 ? mExpectedVerseRange[1] : first;
+        for (int i = last; i >= first; i--) {
+            if (!pass.foundVerses.get(i)) {
+                // generate missing verse
+                Span verse;
+                if (mVerseListener == null) {
+                    verse = new USFMVerseSpan(i);
+                } else {
+                    verse = new USFMVersePinSpan(i);
+                }
+                verse.setOnClickListener(mVerseListener);
+                pass.out.insert(0, verse.toCharSequence());
+                mAddedMissingVerse = true;
+            }
+        }
+        return pass.out.length() - length;
+    }
+
+    /**
+     * Highlights the search string in the output.
+     * Notes are skipped because they are highlighted as a whole when rendered.
+     * @param pass
+     * @param offset how far the notes have moved since they were rendered
+     */
+    private void highlightSearch(Pass pass, int offset) {
+        if(mSearch == null) return;
+        String text = pass.out.toString().toLowerCase();
+        int index = text.indexOf(mSearch);
+        while(index >= 0) {
+            int matchEnd = index + mSearch.length();
+            boolean inNote = false;
+            for(int[] range:pass.noteRanges) {
+                if(index < range[1] + offset && matchEnd > range[0] + offset) {
+                    inNote = true;
+                    break;
+                }
+            }
+            if(!inNote) {
+                pass.out.setSpan(new BackgroundColorSpan(mHighlightColor), index, matchEnd, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            index = text.indexOf(mSearch, matchEnd);
+        }
+    }
+}
@@ -17,8 +17,7 @@ import com.door43.translationstudio.ui.spannables.Span;
 import com.door43.translationstudio.ui.spannables.USFMVersePinSpan;
 import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -159,8 +158,8 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     private CharSequence renderSelah(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = USFMChar.getPattern(USFMChar.STYLE_SELAH);
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.usfmChar(USFMChar.STYLE_SELAH);
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
@@ -168,10 +167,10 @@ public class USFMRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.ITALIC), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_OPPOSITE), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n", span);
+            out.append(in, lastIndex, matcher.start()).append("\n").append(span);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -181,16 +180,16 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence trimWhitespace(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(^\\s*|\\s*$)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.SURROUNDING_WHITESPACE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "");
+            out.append(in, lastIndex, matcher.start());
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return stripCarriageReturns(out);
     }
 
@@ -200,7 +199,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderSectionHeading(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("s");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -210,11 +209,11 @@ public class USFMRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_CENTER), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), span, "\n");
+            out.append(in, lastIndex, matcher.start()).append(span).append("\n");
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -228,7 +227,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
             return in;
         }
 
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder(in);
         String lowerCaseText = in.toString().toLowerCase();
         int lastIndex = 0;
 
@@ -240,15 +239,10 @@ public class USFMRenderer extends ClickableRenderingEngine {
                 break;
             }
 
-            SpannableStringBuilder span = new SpannableStringBuilder(in.subSequence(pos, pos + mSearch.length()));
-            span.setSpan(new BackgroundColorSpan(mHighlightColor), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-            out = TextUtils.concat(out, in.subSequence(lastIndex, pos), span);
+            out.setSpan(new BackgroundColorSpan(mHighlightColor), pos, pos + mSearch.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
             lastIndex = pos + mSearch.length();
         }
-
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
         return out;
     }
 
@@ -258,7 +252,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderMajorSectionHeading(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("ms");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -267,17 +261,17 @@ public class USFMRenderer extends ClickableRenderingEngine {
             if(isStopped()) return in;
 
             if (mSuppressLeadingMajorSectionHeadings && 0 == matcher.start()) {
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+                out.append(in, lastIndex, matcher.start());
             } else {
                 SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1).toUpperCase());
                 span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
                 span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_CENTER), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), span, "\n");
+                out.append(in, lastIndex, matcher.start()).append(span).append("\n");
             }
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -287,16 +281,16 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderWhiteSpace(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(\\s+)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.WHITESPACE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), " ");
+            out.append(in, lastIndex, matcher.start()).append(" ");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -306,16 +300,16 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderLineBreaks(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(\\s*\\n+\\s*)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.LINE_BREAKS;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), " ");
+            out.append(in, lastIndex, matcher.start()).append(" ");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -345,8 +339,8 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderNote(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile(USFMNoteSpan.PATTERN);
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.USFM_NOTE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
@@ -359,15 +353,15 @@ public class USFMRenderer extends ClickableRenderingEngine {
                     boolean foundSearch = noteText.toLowerCase().contains(mSearch);
                     note.setHighlight(foundSearch);
                 }
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), note.toCharSequence());
+                out.append(in, lastIndex, matcher.start()).append(note.toCharSequence());
             } else {
                 // failed to parse the note
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.end()));
+                out.append(in, lastIndex, matcher.end());
             }
 
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -378,7 +372,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      */
     public CharSequence renderVerse(CharSequence in) {
         mAddedMissingVerse = false;
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
 
         CharSequence insert = "";
         if (Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN) {
@@ -387,10 +381,10 @@ public class USFMRenderer extends ClickableRenderingEngine {
             // but at least JellyBean becomes usable and doesn't crash.
         }
 
-        Pattern pattern = Pattern.compile(USFMVerseSpan.PATTERN);
+        Pattern pattern = RenderingPatterns.USFM_VERSE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
-        List<Integer> foundVerses = new ArrayList<>();
+        BitSet foundVerses = new BitSet();
         while(matcher.find()) {
             if(isStopped()) return in;
             if(mRenderVerses) {
@@ -409,15 +403,15 @@ public class USFMRenderer extends ClickableRenderingEngine {
                     if(endVerse > startVerse) {
                         // range of verses
                         for(int i = startVerse; i <= endVerse; i ++) {
-                            if(!foundVerses.contains(i)) {
-                                foundVerses.add(i);
+                            if(!foundVerses.get(i)) {
+                                foundVerses.set(i);
                             } else {
                                 alreadyRendered = true;
                             }
                         }
                     } else {
-                        if(!foundVerses.contains(startVerse)) {
-                            foundVerses.add(startVerse);
+                        if(!foundVerses.get(startVerse)) {
+                            foundVerses.set(startVerse);
                         } else {
                             alreadyRendered = true;
                         }
@@ -438,33 +432,33 @@ public class USFMRenderer extends ClickableRenderingEngine {
                         }
                         if(!invalidVerse) {
                             verse.setOnClickListener(mVerseListener);
-                            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), insert, verse.toCharSequence());
+                            out.append(in, lastIndex, matcher.start()).append(insert).append(verse.toCharSequence());
                         } else {
                             // for now we go ahead and render invalid verse
                             verse.setOnClickListener(mVerseListener);
-                            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), insert, verse.toCharSequence());
+                            out.append(in, lastIndex, matcher.start()).append(insert).append(verse.toCharSequence());
                         }
                     } else {
                         // for now we go ahead and render duplicate verse
                         verse.setOnClickListener(mVerseListener);
-                        out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), insert, verse.toCharSequence());
+                        out.append(in, lastIndex, matcher.start()).append(insert).append(verse.toCharSequence());
                     }
                 } else {
                     // failed to parse the verse
-                    out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.end()));
+                    out.append(in, lastIndex, matcher.end());
                 }
             } else {
                 // just display USFM for verse
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.end()));
+                out.append(in, lastIndex, matcher.end());
             }
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
 
         if(mRenderVerses) {
             // populate missing verses
             if (mExpectedVerseRange.length == 1) {
-                if (!foundVerses.contains(mExpectedVerseRange[0])) {
+                if (!foundVerses.get(mExpectedVerseRange[0])) {
                     // generate missing verse
                     Span verse;
                     if (mVerseListener == null) {
@@ -473,12 +467,12 @@ public class USFMRenderer extends ClickableRenderingEngine {
                         verse = new USFMVersePinSpan(mExpectedVerseRange[0]);
                     }
                     verse.setOnClickListener(mVerseListener);
-                    out = TextUtils.concat(verse.toCharSequence(), out);
+                    out.insert(0, verse.toCharSequence());
                     mAddedMissingVerse = true;
                 }
             } else if (mExpectedVerseRange.length == 2) {
                 for (int i = mExpectedVerseRange[1]; i >= mExpectedVerseRange[0]; i--) {
-                    if (!foundVerses.contains(i)) {
+                    if (!foundVerses.get(i)) {
                         // generate missing verse
                         Span verse;
                         if (mVerseListener == null) {
@@ -487,7 +481,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
                             verse = new USFMVersePinSpan(i);
                         }
                         verse.setOnClickListener(mVerseListener);
-                        out = TextUtils.concat(verse.toCharSequence(), out);
+                        out.insert(0, verse.toCharSequence());
                         mAddedMissingVerse = true;
                     }
                 }
@@ -502,7 +496,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderParagraph(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("p");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -512,10 +506,10 @@ public class USFMRenderer extends ClickableRenderingEngine {
             if(matcher.start() > 0) {
                 lineBreak = "\n";
             }
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), lineBreak, "    ", in.subSequence(matcher.start(1), matcher.end(1)), "\n");
+            out.append(in, lastIndex, matcher.start()).append(lineBreak).append("    ").append(in, matcher.start(1), matcher.end(1)).append("\n");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -525,16 +519,16 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderBlankLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraShortPattern("b");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n\n");
+            out.append(in, lastIndex, matcher.start()).append("\n\n");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -544,17 +538,17 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderChapterMarker(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("\\\\c +\\d+ *", Pattern.DOTALL);
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.USFM_CHAPTER_MARKER;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
 
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "");
+            out.append(in, lastIndex, matcher.start());
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -564,7 +558,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderChapterLabel(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("cl");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -574,10 +568,10 @@ public class USFMRenderer extends ClickableRenderingEngine {
             SpannableString span = new SpannableString(in.subSequence(matcher.start(1), matcher.end(1)));
             span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
-            out = TextUtils.concat(out,  in.subSequence(lastIndex, matcher.start()), span);
+            out.append(in, lastIndex, matcher.start()).append(span);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -587,7 +581,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderPoeticLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("q(\\d+)");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -611,28 +605,25 @@ public class USFMRenderer extends ClickableRenderingEngine {
             String trailingLineBreak = "";
 
             // leading
-            if(in.subSequence(0, matcher.start()) != null) {
-                String previous = in.subSequence(0, matcher.start()).toString().replace(" ", "");
-                int lastLineBreak = previous.lastIndexOf("\n");
-                if (lastLineBreak < previous.length() - 1) {
-                    leadingLineBreak = "\n";
-                }
+            int previous = matcher.start() - 1;
+            while(previous >= 0 && in.charAt(previous) == ' ') previous --;
+            if (previous >= 0 && in.charAt(previous) != '\n') {
+                leadingLineBreak = "\n";
             }
 
             // trailing
-            if(in.subSequence(matcher.end(), in.length()) != null) {
-                String next = in.subSequence(matcher.end(), in.length()).toString().replace(" ", "");
-                int nextLineBreak = next.indexOf("\n");
-                int nextParagraph = next.indexOf("<para");
-                if (nextLineBreak > 0 && nextParagraph > 0) {
-                    trailingLineBreak = "\n";
-                }
+            int next = matcher.end();
+            while(next < in.length() && in.charAt(next) == ' ') next ++;
+            int nextLineBreak = TextUtils.indexOf(in, '\n', matcher.end());
+            int nextParagraph = TextUtils.indexOf(in, "<para", matcher.end());
+            if (nextLineBreak > next && nextParagraph > next) {
+                trailingLineBreak = "\n";
             }
 
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), leadingLineBreak, padding, span, trailingLineBreak);
+            out.append(in, lastIndex, matcher.start()).append(leadingLineBreak).append(padding).append(span).append(trailingLineBreak);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -642,7 +633,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderRightAlignedPoeticLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("qr");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -652,11 +643,11 @@ public class USFMRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.ITALIC), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_OPPOSITE), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n", span);
+            out.append(in, lastIndex, matcher.start()).append("\n").append(span);
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -685,7 +676,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     private static Pattern paraPattern(String style) {
-        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*>\\s*(((?!</para>).)*)</para>", Pattern.DOTALL);  // TODO: 3/1/16 need to upgrade to USFM
+        return RenderingPatterns.para(style);  // TODO: 3/1/16 need to upgrade to USFM
     }
 
     /**
@@ -694,7 +685,7 @@ public class USFMRenderer extends ClickableRenderingEngine {
      * @return
      */
     private static Pattern paraShortPattern(String style) {
-        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*/>", Pattern.DOTALL); // TODO: 3/1/16 need to upgrade to USFM
+        return RenderingPatterns.paraShort(style); // TODO: 3/1/16 need to upgrade to USFM
     }
 
     /**
@@ -17,8 +17,7 @@ import com.door43.translationstudio.ui.spannables.Span;
 import com.door43.translationstudio.ui.spannables.USXVersePinSpan;
 import com.door43.translationstudio.ui.spannables.USXVerseSpan;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -163,8 +162,8 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     private CharSequence renderSelah(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = USXChar.getPattern(USXChar.STYLE_SELAH);
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.usxChar(USXChar.STYLE_SELAH);
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
@@ -172,10 +171,10 @@ public class USXRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.ITALIC), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_OPPOSITE), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n", span);
+            out.append(in, lastIndex, matcher.start()).append("\n").append(span);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -185,16 +184,16 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence trimWhitespace(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(^\\s*|\\s*$)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.SURROUNDING_WHITESPACE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "");
+            out.append(in, lastIndex, matcher.start());
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -204,7 +203,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderSectionHeading(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("s");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -214,11 +213,11 @@ public class USXRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_CENTER), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), span, "\n");
+            out.append(in, lastIndex, matcher.start()).append(span).append("\n");
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -232,7 +231,7 @@ public class USXRenderer extends ClickableRenderingEngine {
             return in;
         }
 
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder(in);
         String lowerCaseText = in.toString().toLowerCase();
         int lastIndex = 0;
 
@@ -244,15 +243,10 @@ public class USXRenderer extends ClickableRenderingEngine {
                 break;
             }
 
-            SpannableStringBuilder span = new SpannableStringBuilder(in.subSequence(pos, pos + mSearch.length()));
-            span.setSpan(new BackgroundColorSpan(mHighlightColor), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-            out = TextUtils.concat(out, in.subSequence(lastIndex, pos), span);
+            out.setSpan(new BackgroundColorSpan(mHighlightColor), pos, pos + mSearch.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
             lastIndex = pos + mSearch.length();
         }
-
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
         return out;
     }
 
@@ -262,7 +256,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderMajorSectionHeading(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("ms");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -271,17 +265,17 @@ public class USXRenderer extends ClickableRenderingEngine {
             if(isStopped()) return in;
 
             if (mSuppressLeadingMajorSectionHeadings && 0 == matcher.start()) {
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+                out.append(in, lastIndex, matcher.start());
             } else {
                 SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1).toUpperCase());
                 span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
                 span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_CENTER), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), span, "\n");
+                out.append(in, lastIndex, matcher.start()).append(span).append("\n");
             }
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -291,16 +285,16 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderWhiteSpace(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(\\s+)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.WHITESPACE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), " ");
+            out.append(in, lastIndex, matcher.start()).append(" ");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -310,16 +304,16 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderLineBreaks(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile("(\\s*\\n+\\s*)");
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.LINE_BREAKS;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), " ");
+            out.append(in, lastIndex, matcher.start()).append(" ");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -329,8 +323,8 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderNote(CharSequence in) {
-        CharSequence out = "";
-        Pattern pattern = Pattern.compile(USXNoteSpan.PATTERN);
+        SpannableStringBuilder out = new SpannableStringBuilder();
+        Pattern pattern = RenderingPatterns.USX_NOTE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
@@ -343,15 +337,15 @@ public class USXRenderer extends ClickableRenderingEngine {
                     boolean foundSearch = noteText.toLowerCase().contains(mSearch);
                     note.setHighlight(foundSearch);
                 }
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), note.toCharSequence());
+                out.append(in, lastIndex, matcher.start()).append(note.toCharSequence());
             } else {
                 // failed to parse the note
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.end()));
+                out.append(in, lastIndex, matcher.end());
             }
 
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -362,7 +356,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      */
     public CharSequence renderVerse(CharSequence in) {
         mAddedMissingVerse = false;
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
 
         CharSequence insert = "";
         if (Build.VERSION.SDK_INT == Build.VERSION_CODES.JELLY_BEAN) {
@@ -371,10 +365,10 @@ public class USXRenderer extends ClickableRenderingEngine {
                             // but at least JellyBean becomes usable and doesn't crash.
         }
 
-        Pattern pattern = Pattern.compile(USXVerseSpan.PATTERN);
+        Pattern pattern = RenderingPatterns.USX_VERSE;
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
-        List<Integer> foundVerses = new ArrayList<>();
+        BitSet foundVerses = new BitSet();
         while(matcher.find()) {
             if(isStopped()) return in;
             if(mRenderVerses) {
@@ -393,15 +387,15 @@ public class USXRenderer extends ClickableRenderingEngine {
                     if(endVerse > startVerse) {
                         // range of verses
                         for(int i = startVerse; i <= endVerse; i ++) {
-                            if(!foundVerses.contains(i)) {
-                                foundVerses.add(i);
+                            if(!foundVerses.get(i)) {
+                                foundVerses.set(i);
                             } else {
                                 alreadyRendered = true;
                             }
                         }
                     } else {
-                        if(!foundVerses.contains(startVerse)) {
-                            foundVerses.add(startVerse);
+                        if(!foundVerses.get(startVerse)) {
+                            foundVerses.set(startVerse);
                         } else {
                             alreadyRendered = true;
                         }
@@ -422,31 +416,31 @@ public class USXRenderer extends ClickableRenderingEngine {
                         }
                         if(!invalidVerse) {
                             verse.setOnClickListener(mVerseListener);
-                            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), insert, verse.toCharSequence());
+                            out.append(in, lastIndex, matcher.start()).append(insert).append(verse.toCharSequence());
                         } else {
                             // exclude invalid verse
-                            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+                            out.append(in, lastIndex, matcher.start());
                         }
                     } else {
                         // exclude duplicate verse
-                        out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+                        out.append(in, lastIndex, matcher.start());
                     }
                 } else {
                     // failed to parse the verse
-                    out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.end()));
+                    out.append(in, lastIndex, matcher.end());
                 }
             } else {
                 // exclude verse from display
-                out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+                out.append(in, lastIndex, matcher.start());
             }
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
 
         if(mRenderVerses) {
             // populate missing verses
             if (mExpectedVerseRange.length == 1) {
-                if (!foundVerses.contains(mExpectedVerseRange[0])) {
+                if (!foundVerses.get(mExpectedVerseRange[0])) {
                     // generate missing verse
                     Span verse;
                     if (mVerseListener == null) {
@@ -455,12 +449,12 @@ public class USXRenderer extends ClickableRenderingEngine {
                         verse = new USXVersePinSpan(mExpectedVerseRange[0]);
                     }
                     verse.setOnClickListener(mVerseListener);
-                    out = TextUtils.concat(verse.toCharSequence(), out);
+                    out.insert(0, verse.toCharSequence());
                     mAddedMissingVerse = true;
                 }
             } else if (mExpectedVerseRange.length == 2) {
                 for (int i = mExpectedVerseRange[1]; i >= mExpectedVerseRange[0]; i--) {
-                    if (!foundVerses.contains(i)) {
+                    if (!foundVerses.get(i)) {
                         // generate missing verse
                         Span verse;
                         if (mVerseListener == null) {
@@ -469,7 +463,7 @@ public class USXRenderer extends ClickableRenderingEngine {
                             verse = new USXVersePinSpan(i);
                         }
                         verse.setOnClickListener(mVerseListener);
-                        out = TextUtils.concat(verse.toCharSequence(), out);
+                        out.insert(0, verse.toCharSequence());
                         mAddedMissingVerse = true;
                     }
                 }
@@ -484,8 +478,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderBrokenMarkers(CharSequence in) {
-        CharSequence out = "";
-        out = removePattern( in, beginParagraphPattern);
+        CharSequence out = removePattern( in, beginParagraphPattern);
         out = removePattern( out, endParagraphPattern);
         return out;
     }
@@ -497,15 +490,15 @@ public class USXRenderer extends ClickableRenderingEngine {
      */
     public CharSequence removePattern(CharSequence in, Pattern pattern) {
         Matcher matcher = pattern.matcher(in);
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
 
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()));
+            out.append(in, lastIndex, matcher.start());
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -515,7 +508,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderParagraph(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("p");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -525,10 +518,10 @@ public class USXRenderer extends ClickableRenderingEngine {
             if(matcher.start() > 0) {
                 lineBreak = "\n";
             }
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), lineBreak, "    ", in.subSequence(matcher.start(1), matcher.end(1)), "\n");
+            out.append(in, lastIndex, matcher.start()).append(lineBreak).append("    ").append(in, matcher.start(1), matcher.end(1)).append("\n");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -538,16 +531,16 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderBlankLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraShortPattern("b");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
         while(matcher.find()) {
             if(isStopped()) return in;
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n\n");
+            out.append(in, lastIndex, matcher.start()).append("\n\n");
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -557,7 +550,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderChapterLabel(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("cl");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -567,10 +560,10 @@ public class USXRenderer extends ClickableRenderingEngine {
             SpannableString span = new SpannableString(in.subSequence(matcher.start(1), matcher.end(1)));
             span.setSpan(new StyleSpan(Typeface.BOLD), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
 
-            out = TextUtils.concat(out,  in.subSequence(lastIndex, matcher.start()), span);
+            out.append(in, lastIndex, matcher.start()).append(span);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -580,7 +573,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderPoeticLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("q(\\d+)");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -604,28 +597,25 @@ public class USXRenderer extends ClickableRenderingEngine {
             String trailingLineBreak = "";
 
             // leading
-            if(in.subSequence(0, matcher.start()) != null) {
-                String previous = in.subSequence(0, matcher.start()).toString().replace(" ", "");
-                int lastLineBreak = previous.lastIndexOf("\n");
-                if (lastLineBreak < previous.length() - 1) {
-                    leadingLineBreak = "\n";
-                }
+            int previous = matcher.start() - 1;
+            while(previous >= 0 && in.charAt(previous) == ' ') previous --;
+            if (previous >= 0 && in.charAt(previous) != '\n') {
+                leadingLineBreak = "\n";
             }
 
             // trailing
-            if(in.subSequence(matcher.end(), in.length()) != null) {
-                String next = in.subSequence(matcher.end(), in.length()).toString().replace(" ", "");
-                int nextLineBreak = next.indexOf("\n");
-                int nextParagraph = next.indexOf("<para");
-                if (nextLineBreak > 0 && nextParagraph > 0) {
-                    trailingLineBreak = "\n";
-                }
+            int next = matcher.end();
+            while(next < in.length() && in.charAt(next) == ' ') next ++;
+            int nextLineBreak = TextUtils.indexOf(in, '\n', matcher.end());
+            int nextParagraph = TextUtils.indexOf(in, "<para", matcher.end());
+            if (nextLineBreak > next && nextParagraph > next) {
+                trailingLineBreak = "\n";
             }
 
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), leadingLineBreak, padding, span, trailingLineBreak);
+            out.append(in, lastIndex, matcher.start()).append(leadingLineBreak).append(padding).append(span).append(trailingLineBreak);
             lastIndex = matcher.end();
         }
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -635,7 +625,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     public CharSequence renderRightAlignedPoeticLine(CharSequence in) {
-        CharSequence out = "";
+        SpannableStringBuilder out = new SpannableStringBuilder();
         Pattern pattern = paraPattern("qr");
         Matcher matcher = pattern.matcher(in);
         int lastIndex = 0;
@@ -645,11 +635,11 @@ public class USXRenderer extends ClickableRenderingEngine {
             SpannableStringBuilder span = new SpannableStringBuilder(matcher.group(1));
             span.setSpan(new StyleSpan(Typeface.ITALIC), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
             span.setSpan(new AlignmentSpan.Standard(Layout.Alignment.ALIGN_OPPOSITE), 0, span.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            out = TextUtils.concat(out, in.subSequence(lastIndex, matcher.start()), "\n", span);
+            out.append(in, lastIndex, matcher.start()).append("\n").append(span);
             lastIndex = matcher.end();
         }
 
-        out = TextUtils.concat(out, in.subSequence(lastIndex, in.length()));
+        out.append(in, lastIndex, in.length());
         return out;
     }
 
@@ -678,7 +668,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     private static Pattern paraPattern(String style) {
-        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*>\\s*(((?!</para>).)*)</para>", Pattern.DOTALL);
+        return RenderingPatterns.para(style);
     }
 
     /**
@@ -687,7 +677,7 @@ public class USXRenderer extends ClickableRenderingEngine {
      * @return
      */
     private static Pattern paraShortPattern(String style) {
-        return Pattern.compile("<para\\s+style=\""+style+"\"\\s*/>", Pattern.DOTALL);
+        return RenderingPatterns.paraShort(style);
     }
 
     /**
@@ -20,12 +20,9 @@ import com.door43.util.RSAEncryption;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -285,48 +282,49 @@ public class ServerService extends NetworkService {
                     Logger.e(this.getClass().getName(), "invalid context", e);
                     break;
                 }
-                final File exportFile;
-                try {
-                    exportFile = File.createTempFile(targetTranslationSlug, "." + Translator.ARCHIVE_EXTENSION);
-                } catch (IOException e) {
-                    Logger.e(this.getClass().getName(), "Could not create a temp file", e);
-                    break;
-                }
-
                 Translator translator = App.getTranslator();
-                TargetTranslation targetTranslation = translator.getTargetTranslation(targetTranslationSlug);
+                final TargetTranslation targetTranslation = translator.getTargetTranslation(targetTranslationSlug);
                 if(targetTranslation != null) {
                     try {
                         targetTranslation.setDefaultContributor(App.getProfile().getNativeSpeaker());
-                        translator.exportArchive(targetTranslation, exportFile);
-                        if(exportFile.exists()) {
-                            ServerSocket fileSocket = openWriteSocket(new OnSocketEventListener() {
-                                @Override
-                                public void onOpen(Connection connection) {
-                                    try {
-                                        DataOutputStream out = new DataOutputStream(connection.getSocket().getOutputStream());
-                                        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(exportFile)));
-                                        byte[] buffer = new byte[8 * 1024];
-                                        int count;
-                                        while ((count = in.read(buffer)) > 0) {
-                                            out.write(buffer, 0, count);
+                        final String name = targetTranslationSlug + "." + Translator.ARCHIVE_EXTENSION;
+                        // commit and check the translation before the client is told where to download it
+                        final byte[] manifest = translator.prepareArchive(targetTranslation, name);
+                        ServerSocket fileSocket = openWriteSocket(new OnSocketEventListener() {
+                            @Override
+                            public void onOpen(Connection connection) {
+                                Socket socket = connection.getSocket();
+                                try {
+                                    // TRICKY: the archive is streamed straight into the socket instead of a temp file.
+                                    // The socket is only closed once the archive is complete so a failure can reset it
+                                    OutputStream out = new FilterOutputStream(socket.getOutputStream()) {
+                                        @Override
+                                        public void write(byte[] buffer, int offset, int length) throws IOException {
+                                            this.out.write(buffer, offset, length);
                                         }
-                                        out.close();
-                                        in.close();
-                                    } catch (IOException e) {
-                                        Logger.e(ServerService.class.getName(), "Failed to send the target translation", e);
-                                    }
+
+                                        @Override
+                                        public void close() throws IOException {
+                                            flush();
+                                        }
+                                    };
+                                    App.getTranslator().writeArchive(targetTranslation, manifest, out, null);
+                                    socket.close();
+                                } catch (Exception e) {
+                                    Logger.e(ServerService.class.getName(), "Failed to send the target translation", e);
+                                    abortSocket(socket);
                                 }
-                            });
-
-                            // send file details
-                            JSONObject targetTranslationContext = new JSONObject();
-                            targetTranslationContext.put("port", fileSocket.getLocalPort());
-                            targetTranslationContext.put("name", exportFile.getName());
-                            targetTranslationContext.put("size", exportFile.length());
-                            Request reply = request.makeReply(targetTranslationContext);
-                            sendRequest(client, reply);
-                        }
+                            }
+                        });
+
+                        // send file details
+                        JSONObject targetTranslationContext = new JSONObject();
+                        targetTranslationContext.put("port", fileSocket.getLocalPort());
+                        targetTranslationContext.put("name", name);
+                        // TRICKY: the archive has not been created yet so the client is given the expected size for its progress
+                        targetTranslationContext.put("size", Math.max(1, Translator.estimateArchiveSize(targetTranslation)));
+                        Request reply = request.makeReply(targetTranslationContext);
+                        sendRequest(client, reply);
                     } catch (Exception e) {
                         // export failed
                         Logger.e(this.getClass().getName(), "Failed to export the archive", e);
@@ -397,6 +395,19 @@ public class ServerService extends NetworkService {
         }
     }
 
+    /**
+     * Resets a socket so the client reports an error instead of reading a truncated stream
+     * @param socket
+     */
+    private static void abortSocket(Socket socket) {
+        try {
+            socket.setSoLinger(true, 0);
+            socket.close();
+        } catch (IOException e) {
+            Logger.e(ServerService.class.getName(), "Failed to reset the socket", e);
+        }
+    }
+
     /**
      * Class to retrieve instance of service
      */
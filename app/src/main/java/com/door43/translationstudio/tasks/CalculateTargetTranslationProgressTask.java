@@ -2,9 +2,10 @@ package com.door43.translationstudio.tasks;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TranslationProgressCache;
 
 import org.unfoldingword.door43client.Door43Client;
-import org.unfoldingword.resourcecontainer.ResourceContainer;
+import org.unfoldingword.door43client.models.Translation;
 import org.unfoldingword.tools.logger.Logger;
 import org.unfoldingword.tools.taskmanager.ManagedTask;
 
@@ -24,24 +25,17 @@ public class CalculateTargetTranslationProgressTask extends ManagedTask {
     public void start() {
         String[] sourceTranslationIds = App.getOpenSourceTranslations(targetTranslation.getId());
         if(sourceTranslationIds.length > 0 && library.exists(sourceTranslationIds[0])) {
-            ResourceContainer container;
-            try {
-                container = library.open(sourceTranslationIds[0]);
-            } catch (Exception e) {
-                Logger.e("CalculateTranslationProgressTask", "Failed to load container " + sourceTranslationIds[0], e);
+            Translation sourceTranslation = library.index.getTranslation(sourceTranslationIds[0]);
+            if(sourceTranslation == null) {
+                Logger.w("CalculateTranslationProgressTask", "Unknown source translation " + sourceTranslationIds[0]);
                 return;
             }
 
-            // count translatable items
-            int numAvailable = 0;
-            for(String chapterSlug:container.chapters()) {
-                numAvailable += container.chunks(chapterSlug).length;
-            }
-
             // count translated items
             int numFinished = targetTranslation.numFinished();
 
-            translationProgress = Math.round((float)numAvailable / (float)numFinished * 100);
+            double progress = TranslationProgressCache.getProgress(library, targetTranslation.getId(), sourceTranslation, numFinished);
+            translationProgress = (int)Math.round(progress * 100);
             if(translationProgress > 100) translationProgress = 100;
             if(translationProgress < 0) translationProgress = 0;
         }
@@ -1,6 +1,7 @@
 package com.door43.translationstudio.tasks;
 
 import com.door43.translationstudio.App;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 
 import org.unfoldingword.door43client.models.Translation;
 import org.unfoldingword.resourcecontainer.ResourceContainer;
@@ -71,6 +72,10 @@ public class DownloadResourceContainerTask extends ManagedTask {
                 }
             }
         }
+        // renders of the previous version are no longer valid
+        for(ResourceContainer rc:downloadedContainers) {
+            SourceTokenCache.clear(rc);
+        }
     }
 
     /**
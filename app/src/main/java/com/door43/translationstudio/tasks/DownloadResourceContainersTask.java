@@ -1,6 +1,7 @@
 package com.door43.translationstudio.tasks;
 
 import com.door43.translationstudio.App;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 
 import org.unfoldingword.door43client.Door43Client;
 import org.unfoldingword.door43client.models.Translation;
@@ -68,6 +69,7 @@ public class DownloadResourceContainersTask extends ManagedTask {
                 }
                 ResourceContainer rc = library.download(translation.language.slug, translation.project.slug, translation.resource.slug);
                 downloadedContainers.add(rc);
+                SourceTokenCache.clear(rc);
                 Logger.i(TAG, "download Success: " + translation.resourceContainerSlug);
                 passSuccess = true;
             } catch (Exception e) {
@@ -174,6 +176,7 @@ public class DownloadResourceContainersTask extends ManagedTask {
                 publishProgress(progress, help.resourceContainerSlug);
                 ResourceContainer rc = library.download(help.language.slug, help.project.slug, help.resource.slug);
                 downloadedContainers.add(rc);
+                SourceTokenCache.clear(rc);
                 Logger.i(TAG, name + " download Success: " + rc.slug);
             }
         } catch (Exception e) {
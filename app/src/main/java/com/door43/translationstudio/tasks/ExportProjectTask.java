@@ -10,12 +10,14 @@ import com.door43.translationstudio.R;
 import com.door43.translationstudio.core.TargetTranslation;
 import com.door43.util.FileUtilities;
 import com.door43.util.SdUtils;
+import com.door43.util.ZipStreamWriter;
 
 import org.eclipse.jgit.api.errors.NoHeadException;
 import org.unfoldingword.tools.logger.Logger;
 import org.unfoldingword.tools.taskmanager.ManagedTask;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.OutputStream;
 
 /**
@@ -55,19 +57,19 @@ public class ExportProjectTask extends ManagedTask {
                 filePath = SdUtils.getPathString(sdCardFile);
                 out = SdUtils.createOutputStream(sdCardFile);
                 try {
-                    App.getTranslator().exportArchive(targetTranslation, out, filename);
+                    App.getTranslator().exportArchive(targetTranslation, out, filename, progressListener);
                     success = true;
                 } catch (NoHeadException e) {
                     // fix corrupt repo and try again
                     App.recoverRepo(targetTranslation);
-                    App.getTranslator().exportArchive(targetTranslation, out, filename);
+                    App.getTranslator().exportArchive(targetTranslation, out, filename, progressListener);
                     success = true;
                 }
 
             } else {
                 File exportFile = new File(path.getPath(), filename);
                 filePath = exportFile.toString();
-                App.getTranslator().exportArchive(targetTranslation, exportFile);
+                App.getTranslator().exportArchive(targetTranslation, new FileOutputStream(exportFile), filename, progressListener);
                 success = exportFile.exists();
             }
         } catch (Exception e) {
@@ -88,6 +90,23 @@ public class ExportProjectTask extends ManagedTask {
         setResult(new ExportResults(filePath, success));
     }
 
+    /**
+     * Reports the progress of the export as the archive is written
+     */
+    private final ZipStreamWriter.OnProgressListener progressListener = new ZipStreamWriter.OnProgressListener() {
+        private int lastPercent = -1;
+
+        @Override
+        public void onProgress(long bytesWritten, long totalBytes) {
+            if(totalBytes <= 0) return;
+            int percent = (int)(bytesWritten * 100 / totalBytes);
+            if(percent != lastPercent) {
+                lastPercent = percent;
+                publishProgress(percent / 100f, message);
+            }
+        }
+    };
+
     /**
      * returns the import results which includes:
      *   the human readable filePath
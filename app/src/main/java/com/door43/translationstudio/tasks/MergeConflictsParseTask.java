@@ -4,6 +4,7 @@ import android.os.Process;
 import android.text.TextUtils;
 
 import com.door43.translationstudio.core.MergeConflictsHandler;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 
 import org.unfoldingword.tools.logger.Logger;
 import org.unfoldingword.tools.taskmanager.ManagedTask;
@@ -11,7 +12,6 @@ import org.unfoldingword.tools.taskmanager.ManagedTask;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static android.os.Process.setThreadPriority;
 
@@ -22,13 +22,6 @@ import static android.os.Process.setThreadPriority;
 public class MergeConflictsParseTask extends ManagedTask {
     public static final String TASK_ID = "parse_merge_conflicts_task";
 
-    public static final String MergeConflictInner = "(?:<<<<<<<\\s+HEAD\\n)([^<>]*)=======\\n([^<>]*)(?:>>>>>>>.*\\n)";
-    public static Pattern MergeConflictPatternInner = Pattern.compile(MergeConflictInner);
-    public static final String MergeConflictFallback = "(?:<<<<<<<\\s+HEAD\\n)([^<>]*)(=======\\n)?([^<>]*)(?:>>>>>>>.*\\n)";
-    public static Pattern MergeConflictPatternFallback = Pattern.compile(MergeConflictFallback);
-    public static final String MergeConflictMiddle = "(?:=======.*\\n)";
-    public static Pattern MergeConflictPatternMiddle = Pattern.compile(MergeConflictMiddle);
-
     final private String mSearchText;
     private List<CharSequence> mMergeConflictItems = null;
 
@@ -101,10 +94,10 @@ public class MergeConflictsParseTask extends ManagedTask {
         int startPos = 0;
         boolean haveFirstPartOnly = false;
         boolean fullMergeConflict = false;
-        mMatcher = MergeConflictPatternInner.matcher(searchText);
+        mMatcher = RenderingPatterns.MERGE_CONFLICT_INNER.matcher(searchText);
         boolean found = mMatcher.find();
         if (!found) {
-            mMatcher = MergeConflictPatternFallback.matcher(searchText);
+            mMatcher = RenderingPatterns.MERGE_CONFLICT_FALLBACK.matcher(searchText);
             found = mMatcher.find();
         }
         if (!found) {
@@ -209,7 +202,7 @@ public class MergeConflictsParseTask extends ManagedTask {
             return middles;
         }
 
-        Matcher mMatcher = MergeConflictPatternMiddle.matcher(searchText);
+        Matcher mMatcher = RenderingPatterns.MERGE_CONFLICT_MIDDLE.matcher(searchText);
         int startPos = 0;
         CharSequence text = null;
         while (mMatcher.find(startPos)) {
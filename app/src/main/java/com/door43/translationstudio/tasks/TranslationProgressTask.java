@@ -2,11 +2,12 @@ package com.door43.translationstudio.tasks;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationIndex;
+import com.door43.translationstudio.core.TranslationProgressCache;
 
 import org.unfoldingword.door43client.Door43Client;
 import org.unfoldingword.door43client.Index;
 import org.unfoldingword.door43client.models.Translation;
-import org.unfoldingword.resourcecontainer.ResourceContainer;
 import org.unfoldingword.tools.taskmanager.ManagedTask;
 
 import java.util.List;
@@ -19,9 +20,26 @@ public class TranslationProgressTask extends ManagedTask {
     private double progress = 0.0;
 
     public final TargetTranslation targetTranslation;
+    public final String targetTranslationId;
+    private final String projectSlug;
+    private final int numFinished;
 
     public TranslationProgressTask(TargetTranslation targetTranslation) {
         this.targetTranslation = targetTranslation;
+        this.targetTranslationId = targetTranslation.getId();
+        this.projectSlug = targetTranslation.getProjectId();
+        this.numFinished = -1;
+    }
+
+    /**
+     * Calculates the progress from an indexed summary so the target translation does not need to be opened
+     * @param summary
+     */
+    public TranslationProgressTask(TargetTranslationIndex.Entry summary) {
+        this.targetTranslation = null;
+        this.targetTranslationId = summary.id;
+        this.projectSlug = summary.projectSlug;
+        this.numFinished = summary.numFinished;
     }
 
     @Override
@@ -30,30 +48,12 @@ public class TranslationProgressTask extends ManagedTask {
         if(library == null) return;
 
         // find matching source
-        Translation sourceTranslation = getSourceTranslation(library.index, this.targetTranslation);
+        Translation sourceTranslation = getSourceTranslation(library.index, this.projectSlug);
         if(sourceTranslation == null) return;
 
-        // load source
-        ResourceContainer container;
-        try {
-            container = library.open(sourceTranslation.resourceContainerSlug);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return;
-        }
-
-        // count chunks
-        int numSourceChunks = countChunks(container);
-        int numTargetChunks = countChunks(targetTranslation);
-
-        if(numSourceChunks == 0) {
-            this.progress = 0.0;
-        } else {
-            this.progress = (double)numTargetChunks / (double)numSourceChunks;
-        }
-
-        // correct invalid values
-        if(this.progress > 1) this.progress = 1.0;
+        // TRICKY: the cache only opens the source container when something has changed
+        int numTargetChunks = this.targetTranslation != null ? countChunks(this.targetTranslation) : this.numFinished;
+        this.progress = TranslationProgressCache.getProgress(library, this.targetTranslationId, sourceTranslation, numTargetChunks);
     }
 
     /**
@@ -66,7 +66,7 @@ public class TranslationProgressTask extends ManagedTask {
 
     /**
      * Counts the number of chunks in a target translation.
-     * TODO: once target translations become resource containers we can use the method below instead.
+     * TODO: once target translations become resource containers this can be counted like a source container.
      * @param targetTranslation the target translation to count
      * @return the number of completed chunks in the target translation
      */
@@ -74,27 +74,14 @@ public class TranslationProgressTask extends ManagedTask {
         return targetTranslation.numFinished();
     }
 
-    /**
-     * Counts how many chunks are in a resource container
-     * @param container the resource container to be counted
-     * @return the number of chunks in the resource container
-     */
-    private int countChunks(ResourceContainer container) {
-        int count = 0;
-        for(String chapterSlug:container.chapters()) {
-            count += container.chunks(chapterSlug).length;
-        }
-        return count;
-    }
-
     /**
      * Returns a single source translation that corresponds to the target translation
      * @param index the source index
-     * @param targetTranslation the target translation to match against
+     * @param projectSlug the project of the target translation to match against
      * @return a matching source translation or null
      */
-    private Translation getSourceTranslation(Index index, TargetTranslation targetTranslation) {
-        List<Translation> sourceTranslations = index.findTranslations(null, targetTranslation.getProjectId(), null, "book", null, App.MIN_CHECKING_LEVEL, -1);
+    private Translation getSourceTranslation(Index index, String projectSlug) {
+        List<Translation> sourceTranslations = index.findTranslations(null, projectSlug, null, "book", null, App.MIN_CHECKING_LEVEL, -1);
         if(sourceTranslations.size() > 0) {
             return sourceTranslations.get(0);
         }
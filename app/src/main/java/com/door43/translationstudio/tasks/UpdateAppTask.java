@@ -14,6 +14,7 @@ import org.unfoldingword.tools.logger.Logger;
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
 import com.door43.translationstudio.ui.SettingsActivity;
+import com.door43.translationstudio.core.CommitScheduler;
 import com.door43.translationstudio.core.TargetTranslation;
 import com.door43.translationstudio.core.TargetTranslationMigrator;
 import com.door43.util.FileUtilities;
@@ -173,6 +174,7 @@ public class UpdateAppTask extends ManagedTask {
         if(dirs != null) {
             for (File tt : dirs) {
                 Logger.i(this.getClass().getSimpleName(),"Migrating: "+ tt);
+                CommitScheduler.invalidate(tt);
                 if (TargetTranslationMigrator.migrate(tt) == null) {
                     Logger.w(this.getClass().getName(), "Failed to migrate the target translation " + tt.getName());
                 }
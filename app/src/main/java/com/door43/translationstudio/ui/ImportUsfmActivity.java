@@ -21,6 +21,7 @@ import org.unfoldingword.tools.logger.Logger;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
+import com.door43.translationstudio.core.CommitScheduler;
 import com.door43.translationstudio.core.ImportUsfm;
 import com.door43.translationstudio.core.MissingNameItem;
 import com.door43.translationstudio.core.TargetTranslation;
@@ -29,6 +30,7 @@ import com.door43.translationstudio.core.Translator;
 import com.door43.translationstudio.ui.newtranslation.ProjectListFragment;
 import com.door43.translationstudio.ui.newtranslation.TargetLanguageListFragment;
 import com.door43.translationstudio.ui.translate.TargetTranslationActivity;
+import com.door43.util.DeferredFileWriter;
 import com.door43.util.FileUtilities;
 
 import java.io.File;
@@ -473,6 +475,9 @@ public class ImportUsfmActivity extends BaseActivity implements TargetLanguageLi
                                 }
                             } else {
                                 // import new translation
+                                // TRICKY: queued writes and tracked changes belong to the translation being replaced
+                                DeferredFileWriter.discard(mDestinationTargetTranslationDir);
+                                CommitScheduler.invalidate(mDestinationTargetTranslationDir);
                                 FileUtilities.safeDelete(mDestinationTargetTranslationDir); // in case local was an invalid target translation
                                 FileUtilities.moveOrCopyQuietly(newDir, mDestinationTargetTranslationDir);
                             }
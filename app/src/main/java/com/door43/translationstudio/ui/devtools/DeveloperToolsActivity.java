@@ -27,6 +27,10 @@ import org.unfoldingword.tools.logger.Logger;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
+import com.door43.translationstudio.core.Translator;
+import com.door43.translationstudio.rendering.ClickableRenderingEngineFactory;
+import com.door43.translationstudio.rendering.RenderCache;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 import com.door43.translationstudio.ui.dialogs.ErrorLogDialog;
 import com.door43.translationstudio.ui.BaseActivity;
 import com.door43.util.SdUtils;
@@ -232,6 +236,80 @@ public class DeveloperToolsActivity extends BaseActivity implements ManagedTask.
             }
         }));
 
+        mDeveloperTools.add(new ToolItem("Toggle USFM renderer", "Switches between the original and the single pass USFM renderer so their output can be compared", R.drawable.ic_description_black_24dp, new ToolItem.ToolAction() {
+            @Override
+            public void run() {
+                boolean enable = !ClickableRenderingEngineFactory.isStreamingUSFMEnabled();
+                ClickableRenderingEngineFactory.setStreamingUSFMEnabled(enable);
+                String message = enable ? "Using the single pass USFM renderer" : "Using the original USFM renderer";
+                Snackbar snack = Snackbar.make(findViewById(android.R.id.content), message, Snackbar.LENGTH_LONG);
+                ViewUtil.setSnackBarTextColor(snack, getResources().getColor(R.color.light_primary_text));
+                snack.show();
+            }
+        }));
+
+        mDeveloperTools.add(new ToolItem("Toggle source token cache", "Switches between decoding source chunks from the token files stored next to each resource container and rendering them every time", R.drawable.ic_description_black_24dp, new ToolItem.ToolAction() {
+            @Override
+            public void run() {
+                boolean enable = !SourceTokenCache.isEnabled();
+                SourceTokenCache.setEnabled(enable);
+                RenderCache.getInstance().clear();
+                String message = enable ? "Source chunks are decoded from tokens" : "Source chunks are always rendered";
+                Snackbar snack = Snackbar.make(findViewById(android.R.id.content), message, Snackbar.LENGTH_LONG);
+                ViewUtil.setSnackBarTextColor(snack, getResources().getColor(R.color.light_primary_text));
+                snack.show();
+            }
+        }));
+
+        mDeveloperTools.add(new ToolItem("Toggle history packing", "Switches between packing the loose git objects of a target translation before it is exported and archiving them as they are", R.drawable.ic_description_black_24dp, new ToolItem.ToolAction() {
+            @Override
+            public void run() {
+                boolean enable = !Translator.isPackHistoryOnExportEnabled();
+                Translator.setPackHistoryOnExport(enable);
+                String message = enable ? "History is packed before exporting" : "History is exported as it is";
+                Snackbar snack = Snackbar.make(findViewById(android.R.id.content), message, Snackbar.LENGTH_LONG);
+                ViewUtil.setSnackBarTextColor(snack, getResources().getColor(R.color.light_primary_text));
+                snack.show();
+            }
+        }));
+
+        mDeveloperTools.add(new ToolItem("Render cache statistics", "Shows how often rendered text was reused from the render cache", R.drawable.ic_description_black_24dp, new ToolItem.ToolAction() {
+            @Override
+            public void run() {
+                RenderCache cache = RenderCache.getInstance();
+                long hits = cache.getHitCount();
+                long misses = cache.getMissCount();
+                long lookups = hits + misses;
+                String message = "Cached renders: " + cache.size() + "\n";
+                message += "Hits: " + hits + "\n";
+                message += "Misses: " + misses + "\n";
+                message += "Hit rate: " + (lookups > 0 ? (hits * 100 / lookups) : 0) + "%\n";
+
+                Logger.i(TAG, "render cache statistics:\n" + message);
+
+                new AlertDialog.Builder(DeveloperToolsActivity.this, R.style.AppTheme_Dialog)
+                        .setTitle("Render Cache")
+                        .setMessage(message)
+                        .setNegativeButton(R.string.label_close, null)
+                        .show();
+            }
+        }));
+
+        mDeveloperTools.add(new ToolItem("Library statistics", "Shows how often the shared door43 client was reused", R.drawable.ic_description_black_24dp, new ToolItem.ToolAction() {
+            @Override
+            public void run() {
+                String message = "Library opens avoided: " + App.getLibraryOpensAvoided() + "\n";
+
+                Logger.i(TAG, "library statistics:\n" + message);
+
+                new AlertDialog.Builder(DeveloperToolsActivity.this, R.style.AppTheme_Dialog)
+                        .setTitle("Library")
+                        .setMessage(message)
+                        .setNegativeButton(R.string.label_close, null)
+                        .show();
+            }
+        }));
+
         // connect to existing tasks
         ManagedTask task = TaskManager.getTask(TASK_INDEX_CHUNK_MARKERS);
         if(task != null) {
@@ -37,6 +37,7 @@ import com.door43.translationstudio.ui.ImportUsfmActivity;
 import com.door43.translationstudio.ui.dialogs.Door43LoginDialog;
 import com.door43.translationstudio.ui.dialogs.ShareWithPeerDialog;
 import com.door43.translationstudio.ui.translate.TargetTranslationActivity;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 import com.door43.util.SdUtils;
 import com.door43.widget.ViewUtil;
 
@@ -366,6 +367,7 @@ public class ImportDialog extends DialogFragment implements SimpleTaskWatcher.On
     private void importResourceContainer(File dir) {
         try {
             ResourceContainer container = App.getLibrary().importResourceContainer(dir);
+            SourceTokenCache.clear(container);
             new AlertDialog.Builder(getActivity(), R.style.AppTheme_Dialog)
                     .setTitle(R.string.success)
                     .setMessage(R.string.title_import_success)
@@ -17,12 +17,11 @@ import android.widget.TextView;
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
 import com.door43.translationstudio.core.BibleCodes;
-import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationIndex;
 import com.door43.translationstudio.core.TranslationType;
 import com.door43.translationstudio.core.Typography;
 
 import org.unfoldingword.door43client.Door43Client;
-import org.unfoldingword.door43client.models.TargetLanguage;
 import org.unfoldingword.resourcecontainer.Project;
 import org.unfoldingword.tools.logger.Logger;
 import org.unfoldingword.tools.taskmanager.ManagedTask;
@@ -47,7 +46,7 @@ import org.unfoldingword.resourcecontainer.Resource;
  */
 public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask.OnFinishedListener {
     private final Context mContext;
-    private List<TargetTranslation> mTranslations;
+    private List<TargetTranslationIndex.Entry> mTranslations;
     private OnInfoClickListener mInfoClickListener = null;
     private Map<String, Integer> mTranslationProgress = new HashMap<>();
     private List<String> mTranslationProgressCalculated = new ArrayList<>();
@@ -87,19 +86,19 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
     public void sort(final SortByColumnType sortByColumn, final SortProjectColumnType sortProjectColumn) {
         mSortByColumn = sortByColumn;
         mSortProjectColumn = sortProjectColumn;
-        Collections.sort(mTranslations, new Comparator<TargetTranslation>() {
+        Collections.sort(mTranslations, new Comparator<TargetTranslationIndex.Entry>() {
             @Override
-            public int compare(TargetTranslation lhs, TargetTranslation rhs) {
+            public int compare(TargetTranslationIndex.Entry lhs, TargetTranslationIndex.Entry rhs) {
                 int compare;
                 switch (sortByColumn) {
                     case projectThenLanguage:
                         compare = compareProject(lhs, rhs, sortProjectColumn);
                         if(compare == 0) {
-                            compare = lhs.getTargetLanguageName().compareToIgnoreCase(rhs.getTargetLanguageName());
+                            compare = lhs.targetLanguageName.compareToIgnoreCase(rhs.targetLanguageName);
                         }
                         return compare;
                     case languageThenProject:
-                        compare = lhs.getTargetLanguageName().compareToIgnoreCase(rhs.getTargetLanguageName());
+                        compare = lhs.targetLanguageName.compareToIgnoreCase(rhs.targetLanguageName);
                         if(compare == 0) {
                             compare = compareProject(lhs, rhs, sortProjectColumn);
                         }
@@ -130,10 +129,10 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
      * @param rhs
      * @return
      */
-    private int compareProject(TargetTranslation lhs, TargetTranslation rhs, SortProjectColumnType sortProjectColumn) {
+    private int compareProject(TargetTranslationIndex.Entry lhs, TargetTranslationIndex.Entry rhs, SortProjectColumnType sortProjectColumn) {
         if(sortProjectColumn == SortProjectColumnType.bibleOrder) {
-            int lhsIndex = bookList.indexOf(lhs.getProjectId());
-            int rhsIndex = bookList.indexOf(rhs.getProjectId());
+            int lhsIndex = bookList.indexOf(lhs.projectSlug);
+            int rhsIndex = bookList.indexOf(rhs.projectSlug);
             if((lhsIndex == rhsIndex) && (lhsIndex < 0)) { // if not bible books, then compare by name
                 return getProjectName(lhs).compareToIgnoreCase(getProjectName(rhs));
             }
@@ -145,7 +144,7 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
     }
 
     @Override
-    public TargetTranslation getItem(int position) {
+    public TargetTranslationIndex.Entry getItem(int position) {
         return mTranslations.get(position);
     }
 
@@ -167,14 +166,14 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
             holder = (ViewHolder)v.getTag();
         }
 
-        final TargetTranslation targetTranslation = getItem(position);
+        final TargetTranslationIndex.Entry targetTranslation = getItem(position);
         final Door43Client library = App.getLibrary();
         holder.currentTargetTranslation = targetTranslation;
         holder.mProgressView.setVisibility(View.INVISIBLE);
 
         // calculate translation progress
-        if(!mTranslationProgressCalculated.contains(targetTranslation.getId())) {
-            String taskId = TranslationProgressTask.TASK_ID + targetTranslation.getId();
+        if(!mTranslationProgressCalculated.contains(targetTranslation.id)) {
+            String taskId = TranslationProgressTask.TASK_ID + targetTranslation.id;
             TranslationProgressTask progressTask = (TranslationProgressTask) TaskManager.getTask(taskId);
             if(progressTask != null) {
                 // attach listener
@@ -183,7 +182,7 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
             } else {
                 progressTask = new TranslationProgressTask(targetTranslation);
                 progressTask.addOnFinishedListener(this);
-                TaskManager.addTask(progressTask, TranslationProgressTask.TASK_ID + targetTranslation.getId());
+                TaskManager.addTask(progressTask, TranslationProgressTask.TASK_ID + targetTranslation.id);
                 TaskManager.groupTask(progressTask, "calc-translation-progress");
             }
         } else {
@@ -192,11 +191,10 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
 
         // render view
         holder.mTitleView.setText(getProjectName(targetTranslation));
-        holder.mLanguageView.setText(targetTranslation.getTargetLanguageName());
+        holder.mLanguageView.setText(targetTranslation.targetLanguageName);
 
         // set typeface for language
-        TargetLanguage targetLanguage = targetTranslation.getTargetLanguage();
-        Typeface typeface = Typography.getBestFontForLanguage(mContext, TranslationType.SOURCE, targetLanguage.slug, targetLanguage.direction);
+        Typeface typeface = Typography.getBestFontForLanguage(mContext, TranslationType.SOURCE, targetTranslation.targetLanguageSlug, targetTranslation.targetLanguageDirection);
         holder.mLanguageView.setTypeface(typeface, 0);
 
         // TODO: finish rendering project icon
@@ -204,7 +202,7 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
             @Override
             public void onClick(View v) {
                 if(mInfoClickListener != null) {
-                    mInfoClickListener.onClick(getItem(position).getId());
+                    mInfoClickListener.onClick(getItem(position).id);
                 }
             }
         });
@@ -216,19 +214,19 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
      * @param targetTranslation
      * @return
      */
-    private String getProjectName(TargetTranslation targetTranslation) {
+    private String getProjectName(TargetTranslationIndex.Entry targetTranslation) {
         String projectName = "";
-        Project project = App.getLibrary().index.getProject(App.getDeviceLanguageCode(), targetTranslation.getProjectId(), true);
+        Project project = App.getLibrary().index.getProject(App.getDeviceLanguageCode(), targetTranslation.projectSlug, true);
         if(project != null) {
-            if(!targetTranslation.getResourceSlug().equals(Resource.REGULAR_SLUG) && !targetTranslation.getResourceSlug().equals("obs")) {
+            if(!targetTranslation.resourceSlug.equals(Resource.REGULAR_SLUG) && !targetTranslation.resourceSlug.equals("obs")) {
                 // display the resource type if not a regular resource e.g. this is for a gateway language
-                projectName = project.name + " (" + targetTranslation.getResourceSlug() + ")";
+                projectName = project.name + " (" + targetTranslation.resourceSlug + ")";
             } else {
                 projectName = project.name;
             }
         } else {
-            Logger.w(this.getClass().getName(), "Could not find a source translation for " + targetTranslation.getId());
-            projectName = targetTranslation.getProjectId();
+            Logger.w(this.getClass().getName(), "Could not find a source translation for " + targetTranslation.id);
+            projectName = targetTranslation.projectSlug;
         }
         return projectName;
     }
@@ -238,16 +236,16 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
      * @param targetTranslation
      * @return
      */
-    private Integer getProgress(TargetTranslation targetTranslation) {
-        if(mTranslationProgressCalculated.contains(targetTranslation.getId())) {
-            Integer value =  mTranslationProgress.get(targetTranslation.getId());
+    private Integer getProgress(TargetTranslationIndex.Entry targetTranslation) {
+        if(mTranslationProgressCalculated.contains(targetTranslation.id)) {
+            Integer value =  mTranslationProgress.get(targetTranslation.id);
             if(value != null) return value;
         }
         return -1;
     }
 
-    public void changeData(TargetTranslation[] targetTranslations) {
-        mTranslations = Arrays.asList(targetTranslations);
+    public void changeData(List<TargetTranslationIndex.Entry> targetTranslations) {
+        mTranslations = new ArrayList<>(targetTranslations);
         mTranslationProgress = new HashMap<>();
         mTranslationProgressCalculated = new ArrayList<>();
         sort();
@@ -261,9 +259,9 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
             // save progress
             double progressLong = ((TranslationProgressTask) task).getProgress();
             final int progress = Math.round((float)progressLong * 100);
-            final TargetTranslation targetTranslation = ((TranslationProgressTask) task).targetTranslation;
-            mTranslationProgress.put(targetTranslation.getId(), progress);
-            mTranslationProgressCalculated.add(targetTranslation.getId());
+            final String targetTranslationId = ((TranslationProgressTask) task).targetTranslationId;
+            mTranslationProgress.put(targetTranslationId, progress);
+            mTranslationProgressCalculated.add(targetTranslationId);
 
             Handler hand = new Handler(Looper.getMainLooper());
             hand.post(new Runnable() {
@@ -285,7 +283,7 @@ public class TargetTranslationAdapter extends BaseAdapter implements ManagedTask
         public TextView mLanguageView;
         public ProgressPieView mProgressView;
         public ImageButton mInfoButton;
-        public TargetTranslation currentTargetTranslation;
+        public TargetTranslationIndex.Entry currentTargetTranslation;
 
         public ViewHolder(View view, Context context) {
             mIconView = (ImageView) view.findViewById(R.id.projectIcon);
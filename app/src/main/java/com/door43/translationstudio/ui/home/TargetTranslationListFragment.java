@@ -72,7 +72,12 @@ public class TargetTranslationListFragment extends BaseFragment implements Targe
         list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                mListener.onItemClick(mAdapter.getItem(position));
+                TargetTranslation targetTranslation = App.getTranslator().getTargetTranslation(mAdapter.getItem(position).id);
+                if(targetTranslation != null) {
+                    mListener.onItemClick(targetTranslation);
+                } else {
+                    reloadList();
+                }
             }
         });
 
@@ -163,7 +168,7 @@ public class TargetTranslationListFragment extends BaseFragment implements Targe
      * Reloads the list of target translations
      */
     public void reloadList() {
-        mAdapter.changeData(App.getTranslator().getTargetTranslations());
+        mAdapter.changeData(App.getTranslator().getTargetTranslationSummaries());
     }
 
     @Override
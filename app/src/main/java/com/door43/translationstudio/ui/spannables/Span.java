@@ -81,29 +81,7 @@ public abstract class Span {
         }
         if (spannable.length() > 0) {
             spannable.setSpan(new SpannedString(mMachineReadable), 0, spannable.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            LongClickableSpan clickSpan = new LongClickableSpan() {
-                @Override
-                public void onLongClick(View view) {
-                    if(mClickListener != null) {
-                        TextView tv = (TextView)view;
-                        Spanned s = (Spanned)tv.getText();
-                        int start = s.getSpanStart(this);
-                        int end = s.getSpanEnd(this);
-                        mClickListener.onLongClick(view, Span.this, start, end);
-                    }
-                }
-
-                @Override
-                public void onClick(View view) {
-                    if (mClickListener != null) {
-                        TextView tv = (TextView)view;
-                        Spanned s = (Spanned)tv.getText();
-                        int start = s.getSpanStart(this);
-                        int end = s.getSpanEnd(this);
-                        mClickListener.onClick(view, Span.this, start, end);
-                    }
-                }
-            };
+            ClickSpan clickSpan = new ClickSpan();
             spannable.setSpan(clickSpan, 0, spannable.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
         return spannable;
@@ -133,6 +111,43 @@ public abstract class Span {
         return render();
     }
 
+    /**
+     * The clickable part of a rendered span.
+     * This allows the span to be looked up from the rendered text
+     */
+    public class ClickSpan extends LongClickableSpan {
+
+        /**
+         * Returns the span that was rendered
+         * @return
+         */
+        public Span getSpan() {
+            return Span.this;
+        }
+
+        @Override
+        public void onLongClick(View view) {
+            if(mClickListener != null) {
+                TextView tv = (TextView)view;
+                Spanned s = (Spanned)tv.getText();
+                int start = s.getSpanStart(this);
+                int end = s.getSpanEnd(this);
+                mClickListener.onLongClick(view, Span.this, start, end);
+            }
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (mClickListener != null) {
+                TextView tv = (TextView)view;
+                Spanned s = (Spanned)tv.getText();
+                int start = s.getSpanStart(this);
+                int end = s.getSpanEnd(this);
+                mClickListener.onClick(view, Span.this, start, end);
+            }
+        }
+    }
+
     /**
      * Custom click listener when span is clicked
      */
@@ -15,6 +15,7 @@ import android.text.style.StyleSpan;
 
 import com.door43.translationstudio.R;
 import com.door43.translationstudio.App;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +31,7 @@ public class USFMNoteSpan extends NoteSpan {
     private final String mCaller;
     private static final String DEFAULT_CALLER = "+";
     private String mStyle;
+    private final List<USFMChar> mChars;
     private boolean mHighlight = false;
     private SpannableStringBuilder mSpannable;
     public static final String PATTERN = "\\\\f\\s(\\S)\\s(.+)\\\\f\\*";
@@ -67,6 +69,7 @@ public class USFMNoteSpan extends NoteSpan {
             spanTitle = quotation;
         }
 
+        mChars = chars;
         init(spanTitle, generateTag(style, caller, spanTitle, chars));
 
         mCaller = caller;
@@ -184,7 +187,7 @@ public class USFMNoteSpan extends NoteSpan {
     public static USFMNoteSpan parseNote(CharSequence caller, CharSequence noteText) {
         List<USFMChar> chars = new ArrayList<>();
 
-        Pattern pattern = Pattern.compile(CHAR_PATTERN);
+        Pattern pattern = RenderingPatterns.USFM_NOTE_CHAR;
         Matcher matcher = pattern.matcher(noteText);
         int lastIndex = 0;
         CharSequence note = "";
@@ -207,6 +210,10 @@ public class USFMNoteSpan extends NoteSpan {
         return new USFMNoteSpan("f", caller.toString(), chars);
     }
 
+    public List<USFMChar> getChars() {
+        return mChars;
+    }
+
     public void setHighlight(boolean highlight) {
         this.mHighlight = highlight;
     }
@@ -7,6 +7,7 @@ import android.text.style.RelativeSizeSpan;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -97,7 +98,7 @@ public class USFMVerseSpan extends VerseSpan {
      * @return
      */
     public static USFMVerseSpan parseVerse(String usfm) {
-        Pattern pattern = Pattern.compile(PATTERN);
+        Pattern pattern = RenderingPatterns.USFM_VERSE;
         Matcher matcher = pattern.matcher(usfm);
         while(matcher.find()) {
             return new USFMVerseSpan(matcher.group(1));
@@ -113,7 +114,7 @@ public class USFMVerseSpan extends VerseSpan {
      */
     public static int[] getVerseRange(CharSequence text) {
         // locate verse range
-        Pattern pattern = Pattern.compile(PATTERN);
+        Pattern pattern = RenderingPatterns.USFM_VERSE;
         Matcher matcher = pattern.matcher(text);
         int numVerses = 0;
         int startVerse = 0;
@@ -7,6 +7,7 @@ import android.text.style.RelativeSizeSpan;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.R;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -97,7 +98,7 @@ public class USXVerseSpan extends VerseSpan {
      * @return
      */
     public static USXVerseSpan parseVerse(String usx) {
-        Pattern pattern = Pattern.compile(PATTERN);
+        Pattern pattern = RenderingPatterns.USX_VERSE;
         Matcher matcher = pattern.matcher(usx);
         while(matcher.find()) {
             return new USXVerseSpan(matcher.group(1));
@@ -113,7 +114,7 @@ public class USXVerseSpan extends VerseSpan {
      */
     public static int[] getVerseRange(CharSequence text) {
         // locate verse range
-        Pattern pattern = Pattern.compile(USXVerseSpan.PATTERN);
+        Pattern pattern = RenderingPatterns.USX_VERSE;
         Matcher matcher = pattern.matcher(text);
         int numVerses = 0;
         int startVerse = 0;
@@ -29,6 +29,7 @@ import com.door43.translationstudio.core.ContainerCache;
 import com.door43.translationstudio.core.TargetTranslation;
 import com.door43.translationstudio.core.Translator;
 import com.door43.translationstudio.tasks.DownloadResourceContainerTask;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 import com.door43.widget.ViewUtil;
 
 import org.unfoldingword.door43client.Door43Client;
@@ -168,6 +169,7 @@ public class ChooseSourceTranslationDialog extends DialogFragment implements Man
                                 @Override
                                 public void onClick(DialogInterface dialog, int which) {
                                     mLibrary.delete(item.containerSlug);
+                                    SourceTokenCache.clear(App.getResourceContainerDir(item.containerSlug));
                                     mAdapter.markItemDeleted(position);
                                 }
                             })
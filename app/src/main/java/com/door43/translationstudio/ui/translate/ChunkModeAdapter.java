@@ -42,13 +42,16 @@ import com.door43.widget.LinedEditText;
 import com.door43.translationstudio.core.TranslationFormat;
 import com.door43.translationstudio.core.Frame;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationSnapshot;
 import com.door43.translationstudio.core.TranslationViewMode;
 import com.door43.translationstudio.core.Translator;
 import com.door43.translationstudio.core.Typography;
 import com.door43.translationstudio.rendering.ClickableRenderingEngine;
 import com.door43.translationstudio.rendering.Clickables;
 import com.door43.translationstudio.rendering.DefaultRenderer;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.rendering.RenderingGroup;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 import com.door43.translationstudio.ui.spannables.NoteSpan;
 import com.door43.translationstudio.ui.spannables.Span;
 import com.door43.widget.ViewUtil;
@@ -72,6 +75,7 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
     private static final int TOP_ELEVATION = 3;
     private final TargetTranslation mTargetTranslation;
     private ResourceContainer mSourceContainer;
+    private final TargetSnapshotLoader mTargetSnapshot;
     private final Door43Client mLibrary;
     private final Translator mTranslator;
     private List<ListItem> mItems = new ArrayList<>();
@@ -87,16 +91,22 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
         this.startingChapterSlug = startingChapterSlug;
         this.startingChunkSlug = startingChunkSlug;
 
+        RenderScheduler.getInstance().setPrefetch(RenderScheduler.DEFAULT_PREFETCH);
+        RenderScheduler.getInstance().setMaxInFlight(RenderScheduler.DEFAULT_MAX_IN_FLIGHT);
+
         mLibrary = App.getLibrary();
         mTranslator = App.getTranslator();
         mContext = context;
         mTargetTranslation = mTranslator.getTargetTranslation(targetTranslationId);
+        mTargetSnapshot = new TargetSnapshotLoader(mTargetTranslation);
         mTargetLanguage = App.languageFromTargetTranslation(mTargetTranslation);
     }
 
     @Override
     public void setSourceContainer(ResourceContainer sourceContainer) {
+        RenderScheduler.getInstance().cancelAll();
         mSourceContainer = sourceContainer;
+        mTargetSnapshot.get(); // start loading the snapshot while the source is prepared
         mLayoutBuildNumber++; // force resetting of fonts
 
         mChapters = new ArrayList();
@@ -363,7 +373,7 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
             }
         });
 
-         item.load(mSourceContainer, mTargetTranslation);
+         item.load(mSourceContainer, mTargetTranslation, getTargetSnapshot());
 
          renderChunk(holder, position);
 
@@ -500,10 +510,7 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
         final ListItem item = mFilteredItems.get(position);
 
         // render source text
-        if(item.renderedSourceText == null) {
-            boolean enableSearch = filterConstraint != null && filterSubject != null && filterSubject == SearchSubject.SOURCE;
-            item.renderedSourceText = renderText(item.sourceText, item.sourceTranslationFormat, enableSearch);
-        }
+        requestSourceRender(position, item);
         holder.mSourceBody.setText(item.renderedSourceText);
 
         // render target text
@@ -576,6 +583,87 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
         holder.mTargetBody.addTextChangedListener(holder.mTextWatcher);
     }
 
+    /**
+     * Reuses an earlier render of the source text or schedules a new one
+     * @param position
+     * @param item
+     */
+    private void requestSourceRender(int position, ListItem item) {
+        if(item.renderedSourceText != null) return;
+        if(mSourceContainer == null) return;
+        boolean enableSearch = filterConstraint != null && filterSubject != null && filterSubject == SearchSubject.SOURCE;
+        // TRICKY: verses are hidden in this mode so renders can only be shared with other renders without verses
+        RenderCache.Key key = RenderCache.key(mSourceContainer, item.chapterSlug, item.chunkSlug, "no_verses", enableSearch ? filterConstraint : null, HIGHLIGHT_COLOR);
+        RenderCache.Entry cached = RenderCache.getInstance().get(key);
+        if(cached != null) {
+            RenderCache.bindListeners(cached.text, null, makeNoteClickListener());
+            item.renderedSourceText = cached.text;
+        } else {
+            scheduleSourceRender(item, position, key, enableSearch);
+        }
+    }
+
+    @Override
+    protected void onPrefetch(int position) {
+        if(mSourceContainer == null || position >= mFilteredItems.size()) return;
+        ListItem item = mFilteredItems.get(position);
+        item.load(mSourceContainer, mTargetTranslation, getTargetSnapshot());
+        requestSourceRender(position, item);
+    }
+
+    /**
+     * Renders the source text of a card in the background.
+     * The rendered tokens are read from and written to the disk on the render thread
+     * @param item
+     * @param position
+     * @param key the key used to cache the render in memory
+     * @param enableSearch
+     */
+    private void scheduleSourceRender(final ListItem item, int position, final RenderCache.Key key, final boolean enableSearch) {
+        String tag = makeSourceRenderTag(item.chapterSlug, item.chunkSlug);
+        if(RenderScheduler.getInstance().isScheduled(tag)) return;
+
+        final ResourceContainer sourceContainer = mSourceContainer;
+        RenderScheduler.getInstance().schedule(tag, position, new RenderScheduler.Job() {
+            @Override
+            public CharSequence render() {
+                // search highlights are not stored on disk
+                boolean useTokens = !enableSearch && Clickables.isClickableFormat(item.sourceTranslationFormat);
+                String options = SourceTokenCache.options("chunk");
+                CharSequence text = null;
+                if(useTokens) {
+                    text = SourceTokenCache.read(sourceContainer, item.chapterSlug, item.chunkSlug, options, item.sourceText, null, makeNoteClickListener());
+                }
+                if(text == null) {
+                    text = renderText(item.sourceText, item.sourceTranslationFormat, enableSearch);
+                    if(isCanceled()) return null;
+                    if(useTokens) {
+                        SourceTokenCache.write(sourceContainer, item.chapterSlug, item.chunkSlug, options, item.sourceText, text);
+                    }
+                }
+                RenderCache.getInstance().put(key, text, false);
+                return text;
+            }
+
+            @Override
+            public void onRendered(CharSequence rendered) {
+                item.renderedSourceText = rendered;
+                int position = mFilteredItems.indexOf(item);
+                if(position >= 0) notifyItemChanged(position);
+            }
+        });
+    }
+
+    /**
+     * Generates the tag used to schedule rendering of a source chunk
+     * @param chapterSlug
+     * @param chunkSlug
+     * @return
+     */
+    private static String makeSourceRenderTag(String chapterSlug, String chunkSlug) {
+        return "chunk_source_" + chapterSlug + "_" + chunkSlug;
+    }
+
     private void indicateCardCompleted(boolean finished, ViewHolder holder) {
         if(finished) {
             holder.mTargetBody.setEnabled(false);
@@ -588,27 +676,35 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
         }
     }
 
-    private CharSequence renderText(String text, TranslationFormat format, boolean enableSearch) {
-        RenderingGroup renderingGroup = new RenderingGroup();
-        if (Clickables.isClickableFormat(format)) {
-            // TODO: add click listeners for verses and notes
-            Span.OnClickListener noteClickListener = new Span.OnClickListener() {
-                @Override
-                public void onClick(View view, Span span, int start, int end) {
-                    if(span instanceof NoteSpan) {
-                        new AlertDialog.Builder(mContext, R.style.AppTheme_Dialog)
-                                .setTitle(R.string.title_footnote)
-                                .setMessage(((NoteSpan)span).getNotes())
-                                .setPositiveButton(R.string.dismiss, null)
-                                .show();
-                    }
+    /**
+     * Creates the click listener for notes which shows the footnote in a dialog
+     * @return
+     */
+    private Span.OnClickListener makeNoteClickListener() {
+        return new Span.OnClickListener() {
+            @Override
+            public void onClick(View view, Span span, int start, int end) {
+                if(span instanceof NoteSpan) {
+                    new AlertDialog.Builder(mContext, R.style.AppTheme_Dialog)
+                            .setTitle(R.string.title_footnote)
+                            .setMessage(((NoteSpan)span).getNotes())
+                            .setPositiveButton(R.string.dismiss, null)
+                            .show();
                 }
+            }
 
-                @Override
-                public void onLongClick(View view, Span span, int start, int end) {
+            @Override
+            public void onLongClick(View view, Span span, int start, int end) {
 
-                }
-            };
+            }
+        };
+    }
+
+    private CharSequence renderText(String text, TranslationFormat format, boolean enableSearch) {
+        RenderingGroup renderingGroup = new RenderingGroup();
+        if (Clickables.isClickableFormat(format)) {
+            // TODO: add click listeners for verses
+            Span.OnClickListener noteClickListener = makeNoteClickListener();
             ClickableRenderingEngine renderer = Clickables.setupRenderingGroup(format, renderingGroup, null, noteClickListener, true);
             renderer.setVersesEnabled(false);
             if( enableSearch ) {
@@ -821,4 +917,13 @@ public class ChunkModeAdapter extends ViewModeAdapter<ChunkModeAdapter.ViewHolde
             super(chapterSlug, chunkSlug);
         }
     }
+
+    /**
+     * Returns a snapshot of the target translation so the cards don't have to read each chunk from the disk.
+     * The snapshot is loaded in the background and reloaded after the translation is edited.
+     * @return the snapshot or null if it is not ready yet
+     */
+    private TargetTranslationSnapshot getTargetSnapshot() {
+        return mTargetSnapshot.get();
+    }
 }
@@ -9,6 +9,7 @@ import com.door43.translationstudio.core.FrameTranslation;
 import com.door43.translationstudio.core.MergeConflictsHandler;
 import com.door43.translationstudio.core.ProjectTranslation;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationSnapshot;
 import com.door43.translationstudio.core.TranslationFormat;
 
 import org.unfoldingword.door43client.models.TargetLanguage;
@@ -172,6 +173,18 @@ public abstract class ListItem {
      * @param targetTranslation TODO: this will become a resource container eventually
      */
     public void load(ResourceContainer sourceContainer, TargetTranslation targetTranslation) {
+        load(sourceContainer, targetTranslation, null);
+    }
+
+    /**
+     * Loads the translation text using a preloaded snapshot of the target translation.
+     * This will not do anything if the sourceText is already loaded
+     *
+     * @param sourceContainer
+     * @param targetTranslation
+     * @param snapshot the preloaded target translation. If null or out of date the text is read from the disk
+     */
+    public void load(ResourceContainer sourceContainer, TargetTranslation targetTranslation, TargetTranslationSnapshot snapshot) {
         if(this.sourceText == null) {
             this.sourceContainer = sourceContainer;
             this.targetLanguage = targetTranslation.getTargetLanguage();
@@ -182,7 +195,7 @@ public abstract class ListItem {
             }
             this.sourceTranslationFormat = TranslationFormat.parse(sourceContainer.contentMimeType);
             this.targetTranslationFormat = targetTranslation.getFormat();
-            loadTarget(targetTranslation);
+            loadTarget(targetTranslation, snapshot);
         }
     }
 
@@ -191,9 +204,21 @@ public abstract class ListItem {
      * @param targetTranslation
      */
     public void loadTarget(TargetTranslation targetTranslation) {
+        loadTarget(targetTranslation, null);
+    }
+
+    /**
+     * used for reloading target translation using a preloaded snapshot
+     * @param targetTranslation
+     * @param snapshot the preloaded target translation. If null or out of date the text is read from the disk
+     */
+    public void loadTarget(TargetTranslation targetTranslation, TargetTranslationSnapshot snapshot) {
         // TODO: 10/1/16 this will be simplified once we migrate target translations to resource containers
         this.targetTranslation = targetTranslation;
-        this.pt = targetTranslation.getProjectTranslation();
+        if(snapshot != null && (snapshot.getTargetTranslation() != targetTranslation || !snapshot.isCurrent())) {
+            snapshot = null;
+        }
+        this.pt = snapshot != null ? snapshot.getProjectTranslation() : targetTranslation.getProjectTranslation();
         if (chapterSlug.equals("front")) {
             // project stuff
             if (chunkSlug.equals("title")) {
@@ -205,7 +230,7 @@ public abstract class ListItem {
 
         } else {
             // chapter stuff
-            this.ct = targetTranslation.getChapterTranslation(chapterSlug);
+            this.ct = snapshot != null ? snapshot.getChapterTranslation(chapterSlug) : targetTranslation.getChapterTranslation(chapterSlug);
             if (chunkSlug.equals("title")) {
                 this.targetText = ct.title;
                 this.isComplete = ct.isTitleFinished();
@@ -213,7 +238,11 @@ public abstract class ListItem {
                 this.targetText = ct.reference;
                 this.isComplete = ct.isReferenceFinished();
             } else {
-                this.ft = targetTranslation.getFrameTranslation(chapterSlug, chunkSlug, this.targetTranslationFormat);
+                if(snapshot != null) {
+                    this.ft = snapshot.getFrameTranslation(chapterSlug, chunkSlug, this.targetTranslationFormat);
+                } else {
+                    this.ft = targetTranslation.getFrameTranslation(chapterSlug, chunkSlug, this.targetTranslationFormat);
+                }
                 this.targetText = ft.body;
                 this.isComplete = ft.isFinished();
             }
@@ -221,6 +250,38 @@ public abstract class ListItem {
         this.hasMergeConflicts = MergeConflictsHandler.isMergeConflicted(this.targetText);
     }
 
+    /**
+     * Reads the target text of this item without loading it into the item.
+     * This is safe to call from a background thread while the item is being bound
+     *
+     * @param targetTranslation
+     * @param snapshot the preloaded target translation. If null or out of date the text is read from the disk
+     * @return the text or null if the item has no target text
+     */
+    public String readTargetText(TargetTranslation targetTranslation, TargetTranslationSnapshot snapshot) {
+        if(snapshot != null && (snapshot.getTargetTranslation() != targetTranslation || !snapshot.isCurrent())) {
+            snapshot = null;
+        }
+        if (chapterSlug.equals("front")) {
+            if (chunkSlug.equals("title")) {
+                ProjectTranslation projectTranslation = snapshot != null ? snapshot.getProjectTranslation() : targetTranslation.getProjectTranslation();
+                return projectTranslation.getTitle();
+            }
+            return null;
+        } else if (chapterSlug.equals("back")) {
+            return null;
+        }
+        if (chunkSlug.equals("title") || chunkSlug.equals("reference")) {
+            ChapterTranslation chapterTranslation = snapshot != null ? snapshot.getChapterTranslation(chapterSlug) : targetTranslation.getChapterTranslation(chapterSlug);
+            return chunkSlug.equals("title") ? chapterTranslation.title : chapterTranslation.reference;
+        }
+        TranslationFormat format = targetTranslation.getFormat();
+        FrameTranslation frameTranslation = snapshot != null
+                ? snapshot.getFrameTranslation(chapterSlug, chunkSlug, format)
+                : targetTranslation.getFrameTranslation(chapterSlug, chunkSlug, format);
+        return frameTranslation.body;
+    }
+
     public ResourceContainer getSource() {
         return sourceContainer;
     }
@@ -6,6 +6,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.SpannableStringBuilder;
 import com.google.android.material.tabs.TabLayout;
 import androidx.appcompat.app.AlertDialog;
 import androidx.cardview.widget.CardView;
@@ -28,6 +29,7 @@ import com.door43.translationstudio.core.ProjectTranslation;
 import com.door43.translationstudio.core.SlugSorter;
 import com.door43.translationstudio.core.TranslationFormat;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationSnapshot;
 import com.door43.translationstudio.core.TranslationType;
 import com.door43.translationstudio.core.TranslationViewMode;
 import com.door43.translationstudio.core.Translator;
@@ -35,6 +37,7 @@ import com.door43.translationstudio.core.Typography;
 import com.door43.translationstudio.rendering.ClickableRenderingEngine;
 import com.door43.translationstudio.rendering.Clickables;
 import com.door43.translationstudio.rendering.DefaultRenderer;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.rendering.RenderingGroup;
 import com.door43.translationstudio.tasks.CheckForMergeConflictsTask;
 import com.door43.translationstudio.ui.spannables.NoteSpan;
@@ -72,20 +75,44 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
     private static final int TOP_ELEVATION = 3;
     private final TargetTranslation mTargetTranslation;
     private ResourceContainer mSourceContainer;
+    private final TargetSnapshotLoader mTargetSnapshot;
     private final Door43Client mLibrary;
     private final Translator mTranslator;
     private List<String> chapters = new ArrayList<>();
     private int mLayoutBuildNumber = 0;
     private ContentValues[] mTabs = new ContentValues[0];
     private Map<String, List<String>> chunks = new HashMap<>();
+    private static final int FIRST_SCREEN_LENGTH = 1500;
+    private final Span.OnClickListener mNoteClickListener = new Span.OnClickListener() {
+        @Override
+        public void onClick(View view, Span span, int start, int end) {
+            if(span instanceof NoteSpan) {
+                new AlertDialog.Builder(mContext,R.style.AppTheme_Dialog)
+                        .setTitle(R.string.title_footnote)
+                        .setMessage(((NoteSpan)span).getNotes())
+                        .setPositiveButton(R.string.dismiss, null)
+                        .show();
+            }
+        }
+
+        @Override
+        public void onLongClick(View view, Span span, int start, int end) {
+
+        }
+    };
 
     public ReadModeAdapter(Activity context, String targetTranslationId, String startingChapterSlug, String startingChunkSlug) {
         this.startingChapterSlug = startingChapterSlug;
 
+        // TRICKY: whole chapters are rendered so keep only one render going and little ahead of the screen
+        RenderScheduler.getInstance().setPrefetch(1);
+        RenderScheduler.getInstance().setMaxInFlight(1);
+
         mLibrary = App.getLibrary();
         mTranslator = App.getTranslator();
         mContext = context;
         mTargetTranslation = mTranslator.getTargetTranslation(targetTranslationId);
+        mTargetSnapshot = new TargetSnapshotLoader(mTargetTranslation);
         mTargetLanguage = App.languageFromTargetTranslation(mTargetTranslation);
     }
 
@@ -94,7 +121,9 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
      * @param sourceContainer
      */
     public void setSourceContainer(ResourceContainer sourceContainer) {
+        RenderScheduler.getInstance().cancelAll();
         mSourceContainer = sourceContainer;
+        mTargetSnapshot.get(); // start loading the snapshot while the source is prepared
         this.chapters = new ArrayList<>();
         this.chunks = new HashMap<>();
         mLayoutBuildNumber++; // force resetting of fonts
@@ -128,6 +157,165 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
         updateMergeConflict();
     }
 
+    /**
+     * Renders the source chapter chunk by chunk.
+     * The chunks that fill the first screen are rendered immediately and the rest of the chapter
+     * is rendered in the background and appended once it is ready.
+     *
+     * @param holder
+     * @param position
+     * @param chapterSlug
+     */
+    private void renderSourceChapter(ViewHolder holder, final int position, final String chapterSlug) {
+        final ResourceContainer container = mSourceContainer;
+        final TranslationFormat bodyFormat = TranslationFormat.parse(container.contentMimeType);
+        final List<String> chunkSlugs = new ArrayList<>();
+        List<String> slugs = chunks.get(chapterSlug);
+        if(slugs != null) {
+            for (String chunk : slugs) {
+                if (!chunk.equals("title")) chunkSlugs.add(chunk);
+            }
+        }
+
+        SpannableStringBuilder firstScreen = new SpannableStringBuilder();
+        int next = 0;
+        while(next < chunkSlugs.size() && (next == 0 || firstScreen.length() < FIRST_SCREEN_LENGTH)) {
+            appendChunk(firstScreen, renderSourceChunk(container, chapterSlug, chunkSlugs.get(next), bodyFormat, next == 0 ? holder : null));
+            next ++;
+        }
+        if(chunkSlugs.isEmpty()) {
+            showLeadingHeading("", bodyFormat, holder);
+        }
+        mRenderedSourceBody[position] = firstScreen;
+        if(next >= chunkSlugs.size()) return;
+
+        // render the rest of the chapter
+        final int remaining = next;
+        final CharSequence[] renderedBodies = mRenderedSourceBody;
+        final CharSequence rendered = firstScreen;
+        RenderScheduler.getInstance().schedule(makeSourceRenderTag(chapterSlug), position, new RenderScheduler.Job() {
+            @Override
+            public CharSequence render() {
+                SpannableStringBuilder rest = new SpannableStringBuilder();
+                for(int i = remaining; i < chunkSlugs.size(); i ++) {
+                    if(isCanceled()) return null;
+                    appendChunk(rest, renderSourceChunk(container, chapterSlug, chunkSlugs.get(i), bodyFormat, null));
+                }
+                return rest;
+            }
+
+            @Override
+            public void onRendered(CharSequence rest) {
+                // the list has been rebuilt
+                if(renderedBodies != mRenderedSourceBody) return;
+
+                SpannableStringBuilder chapter = new SpannableStringBuilder(rendered);
+                appendChunk(chapter, rest);
+                mRenderedSourceBody[position] = chapter;
+                if(getListener() != null) {
+                    RecyclerView.ViewHolder holder = getListener().getVisibleViewHolder(position);
+                    if(holder instanceof ViewHolder) {
+                        ((ViewHolder) holder).mSourceBody.setText(chapter);
+                    }
+                }
+            }
+
+            @Override
+            protected void onCancel() {
+                // TRICKY: forget the first screen so the whole chapter is rendered again the next time it is bound
+                if(renderedBodies == mRenderedSourceBody && mRenderedSourceBody[position] == rendered) {
+                    mRenderedSourceBody[position] = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Appends a rendered chunk to the chapter.
+     * TRICKY: each chunk is trimmed when it is rendered so the space between them is put back
+     * @param chapter
+     * @param chunk
+     */
+    private static void appendChunk(SpannableStringBuilder chapter, CharSequence chunk) {
+        if(chapter.length() > 0 && chunk.length() > 0
+                && !Character.isWhitespace(chapter.charAt(chapter.length() - 1))
+                && !Character.isWhitespace(chunk.charAt(0))) {
+            chapter.append(" ");
+        }
+        chapter.append(chunk);
+    }
+
+    /**
+     * Renders a single chunk of the source chapter.
+     * Chunks are shared through the {@link RenderCache} with the other view modes that show verses
+     * @param container
+     * @param chapterSlug
+     * @param chunkSlug
+     * @param format
+     * @param headingHolder if not null leading major section headings are pulled out of the chunk
+     *                      and displayed above the chapter heading in this holder
+     * @return
+     */
+    private CharSequence renderSourceChunk(ResourceContainer container, String chapterSlug, String chunkSlug, TranslationFormat format, ViewHolder headingHolder) {
+        boolean clickable = Clickables.isClickableFormat(format);
+        boolean suppressHeadings = headingHolder != null && clickable;
+        RenderCache.Key key = RenderCache.key(container, chapterSlug, chunkSlug, suppressHeadings ? "verses;no_leading_headings" : "verses", null, 0);
+        RenderCache.Entry cached = RenderCache.getInstance().get(key);
+        if(cached != null && headingHolder == null) {
+            RenderCache.bindListeners(cached.text, null, mNoteClickListener);
+            return cached.text;
+        }
+
+        String body = container.readChunk(chapterSlug, chunkSlug);
+        if(headingHolder != null) {
+            showLeadingHeading(body, format, headingHolder);
+        }
+        if(cached != null) {
+            RenderCache.bindListeners(cached.text, null, mNoteClickListener);
+            return cached.text;
+        }
+
+        RenderingGroup sourceRendering = new RenderingGroup();
+        if (clickable) {
+            // TODO: add click listeners
+            ClickableRenderingEngine renderer = Clickables.setupRenderingGroup(format, sourceRendering, null, mNoteClickListener, true);
+            renderer.setSuppressLeadingMajorSectionHeadings(suppressHeadings);
+        } else {
+            sourceRendering.addEngine(new DefaultRenderer());
+        }
+        sourceRendering.init(body);
+        CharSequence rendered = sourceRendering.start();
+        RenderCache.getInstance().put(key, rendered, sourceRendering.isAddedMissingVerse());
+        return rendered;
+    }
+
+    /**
+     * Pulls the leading major section headings out of the first chunk of a chapter
+     * and displays them above the chapter heading.
+     * This is only done in read mode
+     * @param body the text of the first chunk
+     * @param format
+     * @param holder
+     */
+    private void showLeadingHeading(String body, TranslationFormat format, ViewHolder holder) {
+        CharSequence heading = "";
+        if (Clickables.isClickableFormat(format)) {
+            ClickableRenderingEngine renderer = Clickables.setupRenderingGroup(format, new RenderingGroup(), null, mNoteClickListener, true);
+            heading = renderer.getLeadingMajorSectionHeading(body);
+        }
+        holder.mSourceHeading.setText(heading);
+        holder.mSourceHeading.setVisibility(heading.length() > 0 ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Generates the tag used to schedule rendering of a source chapter
+     * @param chapterSlug
+     * @return
+     */
+    private static String makeSourceRenderTag(String chapterSlug) {
+        return "read_source_" + chapterSlug;
+    }
+
     @Override
     public ListItem createListItem(String chapterSlug, String chunkSlug) {
         return new ReadListItem(chapterSlug, chunkSlug);
@@ -325,47 +513,7 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
 
         // render the source chapter body
         if(mRenderedSourceBody[position] == null) {
-            String chapterBody = "";
-            for(String chunk:chunks.get(chapterSlug)) {
-                if(!chunk.equals("title")) {
-                    chapterBody += mSourceContainer.readChunk(chapterSlug, chunk);
-                }
-            }
-            TranslationFormat bodyFormat = TranslationFormat.parse(mSourceContainer.contentMimeType);
-            RenderingGroup sourceRendering = new RenderingGroup();
-            if (Clickables.isClickableFormat(bodyFormat)) {
-                // TODO: add click listeners
-                Span.OnClickListener noteClickListener = new Span.OnClickListener() {
-                    @Override
-                    public void onClick(View view, Span span, int start, int end) {
-                        if(span instanceof NoteSpan) {
-                            new AlertDialog.Builder(mContext,R.style.AppTheme_Dialog)
-                                    .setTitle(R.string.title_footnote)
-                                    .setMessage(((NoteSpan)span).getNotes())
-                                    .setPositiveButton(R.string.dismiss, null)
-                                    .show();
-                        }
-                    }
-
-                    @Override
-                    public void onLongClick(View view, Span span, int start, int end) {
-
-                    }
-                };
-                ClickableRenderingEngine renderer = Clickables.setupRenderingGroup(bodyFormat, sourceRendering, null, noteClickListener, true);
-
-                // In read mode (and only in read mode), pull leading major section headings out for
-                // display above chapter headings.
-                renderer.setSuppressLeadingMajorSectionHeadings(true);
-                CharSequence heading = renderer.getLeadingMajorSectionHeading(chapterBody);
-                holder.mSourceHeading.setText(heading);
-                holder.mSourceHeading.setVisibility(
-                        heading.length() > 0 ? View.VISIBLE : View.GONE);
-            } else {
-                sourceRendering.addEngine(new DefaultRenderer());
-            }
-            sourceRendering.init(chapterBody);
-            mRenderedSourceBody[position] = sourceRendering.start();
+            renderSourceChapter(holder, position, chapterSlug);
         }
 
         holder.mSourceBody.setText(mRenderedSourceBody[position]);
@@ -381,13 +529,17 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
         // render the target chapter body
         if(mRenderedTargetBody[position] == null) {
             TranslationFormat bodyFormat = mTargetTranslation.getFormat();
-            String chapterBody = "";
-            SlugSorter sorter = new SlugSorter();
-            List<String> frameSlugs = sorter.sort(mSourceContainer.chunks(chapterSlug));
+            TargetTranslationSnapshot snapshot = getTargetSnapshot();
+            StringBuilder chapterBuilder = new StringBuilder();
+            List<String> frameSlugs = chunks.get(chapterSlug);
+            if(frameSlugs == null) frameSlugs = new ArrayList<>();
             for (String frameSlug : frameSlugs) {
-                FrameTranslation frameTranslation = mTargetTranslation.getFrameTranslation(chapterSlug, frameSlug, bodyFormat);
-                chapterBody += " " + frameTranslation.body;
+                FrameTranslation frameTranslation = snapshot != null
+                        ? snapshot.getFrameTranslation(chapterSlug, frameSlug, bodyFormat)
+                        : mTargetTranslation.getFrameTranslation(chapterSlug, frameSlug, bodyFormat);
+                chapterBuilder.append(" ").append(frameTranslation.body);
             }
+            String chapterBody = chapterBuilder.toString();
             RenderingGroup targetRendering = new RenderingGroup();
             if(Clickables.isClickableFormat(bodyFormat)) {
                 // TODO: add click listeners
@@ -437,7 +589,10 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
         String targetCardTitle = "";
 
         // look for translated chapter title first
-        final ChapterTranslation chapterTranslation = mTargetTranslation.getChapterTranslation(chapterSlug);
+        TargetTranslationSnapshot snapshot = getTargetSnapshot();
+        final ChapterTranslation chapterTranslation = snapshot != null
+                ? snapshot.getChapterTranslation(chapterSlug)
+                : mTargetTranslation.getChapterTranslation(chapterSlug);
         if(null != chapterTranslation) {
             targetCardTitle = chapterTranslation.title.trim();
         }
@@ -447,7 +602,7 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
         }
 
         if (targetCardTitle.isEmpty()) { // if no chapter titles, fall back to project title, try translated title first
-            ProjectTranslation projTrans = mTargetTranslation.getProjectTranslation();
+            ProjectTranslation projTrans = snapshot != null ? snapshot.getProjectTranslation() : mTargetTranslation.getProjectTranslation();
             if(!projTrans.getTitle().trim().isEmpty()) {
                 targetCardTitle = projTrans.getTitle().trim() + " " + Integer.parseInt(chapterSlug);
             }
@@ -667,4 +822,13 @@ public class ReadModeAdapter extends ViewModeAdapter<ReadModeAdapter.ViewHolder>
             mBeginButton = (Button) v.findViewById(R.id.begin_translating_button);
         }
     }
+
+    /**
+     * Returns a snapshot of the target translation so chapters can be assembled without
+     * reading each chunk from the disk. The snapshot is loaded in the background and reloaded if the translation has changed.
+     * @return the snapshot or null if it is not ready yet
+     */
+    private TargetTranslationSnapshot getTargetSnapshot() {
+        return mTargetSnapshot.get();
+    }
 }
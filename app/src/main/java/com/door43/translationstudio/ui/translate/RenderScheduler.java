@@ -0,0 +1,351 @@
+package com.door43.translationstudio.ui.translate;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the rendering of cards in the view mode adapters.
+ * Cards closest to the visible range are rendered first and only a few renders run at once.
+ * Cards a little way ahead in the scroll direction are rendered before they are shown,
+ * while requests for cards that have scrolled well out of view are dropped.
+ *
+ * Only one view mode adapter is shown at a time so the scheduler is shared.
+ */
+public class RenderScheduler {
+    private static final String TAG = RenderScheduler.class.getSimpleName();
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+    public static final int DEFAULT_PREFETCH = 3;
+
+    private final ExecutorService executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Job> pending = new HashMap<>();
+    private final Map<String, Job> running = new HashMap<>();
+    private int inFlight = 0;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int prefetch = DEFAULT_PREFETCH;
+    private int firstVisible = 0;
+    private int lastVisible = 0;
+    private int direction = 0;
+
+    private static RenderScheduler sInstance = null;
+
+    static {
+        sInstance = new RenderScheduler();
+    }
+
+    private RenderScheduler() {
+        final AtomicInteger count = new AtomicInteger(0);
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "RenderScheduler-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the shared scheduler
+     * @return
+     */
+    public static RenderScheduler getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Sets how many renders may run at once
+     * @param max
+     */
+    public void setMaxInFlight(int max) {
+        synchronized (pending) {
+            maxInFlight = Math.max(1, max);
+        }
+        dispatch();
+    }
+
+    /**
+     * Sets how many cards ahead of the visible range are rendered in the scroll direction
+     * @param count
+     */
+    public void setPrefetch(int count) {
+        synchronized (pending) {
+            prefetch = Math.max(0, count);
+        }
+    }
+
+    /**
+     * Updates the range of visible positions.
+     * Pending requests that are now too far away are dropped and the rest are re-prioritized.
+     * The prefetcher is then asked to request renders for the cards just ahead of the visible range in the scroll direction.
+     *
+     * @param first the first visible position
+     * @param last the last visible position
+     * @param direction positive when scrolling down, negative when scrolling up, or 0 if unknown
+     * @param prefetcher requests renders for positions that are not visible yet. May be null
+     */
+    public void setVisibleRange(int first, int last, int direction, Prefetcher prefetcher) {
+        List<Job> stale = new ArrayList<>();
+        int ahead;
+        synchronized (pending) {
+            firstVisible = Math.min(first, last);
+            lastVisible = Math.max(first, last);
+            this.direction = direction;
+            ahead = prefetch;
+            for(Job job:new ArrayList<>(pending.values())) {
+                if(isStale(job.position)) {
+                    pending.remove(job.tag);
+                    stale.add(job);
+                }
+            }
+        }
+        for(Job job:stale) {
+            job.cancel();
+        }
+        if(prefetcher != null && direction != 0) {
+            for(int i = 1; i <= ahead; i ++) {
+                int position = direction > 0 ? Math.max(first, last) + i : Math.min(first, last) - i;
+                if(position < 0) break;
+                prefetcher.onPrefetch(position);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Schedules a render.
+     * Any earlier request with the same tag is canceled.
+     *
+     * @param tag identifies the card being rendered
+     * @param position the position of the card in the list
+     * @param job the render
+     */
+    public void schedule(String tag, int position, Job job) {
+        Job previous;
+        Job previousRunning;
+        synchronized (pending) {
+            job.tag = tag;
+            job.position = position;
+            previous = pending.put(tag, job);
+            previousRunning = running.get(tag);
+        }
+        if(previous != null) previous.cancel();
+        if(previousRunning != null) previousRunning.cancel();
+        dispatch();
+    }
+
+    /**
+     * Checks if a render with this tag is waiting or running.
+     * Renders that have been canceled but have not stopped yet are ignored
+     * @param tag
+     * @return
+     */
+    public boolean isScheduled(String tag) {
+        synchronized (pending) {
+            Job runningJob = running.get(tag);
+            return pending.containsKey(tag) || (runningJob != null && !runningJob.isCanceled());
+        }
+    }
+
+    /**
+     * Cancels the render with this tag
+     * @param tag
+     */
+    public void cancel(String tag) {
+        Job pendingJob;
+        Job runningJob;
+        synchronized (pending) {
+            pendingJob = pending.remove(tag);
+            runningJob = running.get(tag);
+        }
+        if(pendingJob != null) pendingJob.cancel();
+        if(runningJob != null) runningJob.cancel();
+    }
+
+    /**
+     * Cancels all of the renders
+     */
+    public void cancelAll() {
+        List<Job> jobs;
+        synchronized (pending) {
+            jobs = new ArrayList<>(pending.values());
+            jobs.addAll(running.values());
+            pending.clear();
+        }
+        for(Job job:jobs) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Starts the most important pending renders while there is room.
+     * TRICKY: canceled renders count against the limit until they have actually stopped
+     */
+    private void dispatch() {
+        while(true) {
+            final Job job;
+            synchronized (pending) {
+                if(inFlight >= maxInFlight || pending.isEmpty()) return;
+                job = nextJob();
+                pending.remove(job.tag);
+                running.put(job.tag, job);
+                inFlight ++;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(job);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the render and delivers the result on the main thread
+     * @param job
+     */
+    private void execute(final Job job) {
+        CharSequence result = null;
+        try {
+            if(!job.isCanceled()) {
+                result = job.render();
+            }
+        } catch (Exception e) {
+            // TRICKY: a failed render is dropped so it does not take down the worker or the app
+            Logger.e(TAG, "Failed to render " + job.tag, e);
+            result = null;
+        } finally {
+            synchronized (pending) {
+                if(running.get(job.tag) == job) running.remove(job.tag);
+                inFlight --;
+            }
+            dispatch();
+        }
+
+        if(!job.isCanceled() && result != null) {
+            final CharSequence rendered = result;
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if(!job.isCanceled()) job.onRendered(rendered);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the pending job closest to the visible range.
+     * Must be called while holding the lock
+     * @return
+     */
+    private Job nextJob() {
+        Job best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for(Job job:pending.values()) {
+            int distance = distance(job.position);
+            if(best == null || distance < bestDistance) {
+                best = job;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the priority of a position. Lower values are rendered first.
+     * Cards behind the scroll direction are rendered after those ahead of it.
+     * @param position
+     * @return
+     */
+    private int distance(int position) {
+        if(position >= firstVisible && position <= lastVisible) return 0;
+        if(position > lastVisible) {
+            int distance = position - lastVisible;
+            return direction < 0 ? distance * 2 : distance;
+        } else {
+            int distance = firstVisible - position;
+            return direction > 0 ? distance * 2 : distance;
+        }
+    }
+
+    /**
+     * Checks if a position is too far from the visible range to be worth rendering.
+     * Must be called while holding the lock
+     * @param position
+     * @return
+     */
+    private boolean isStale(int position) {
+        int ahead = prefetch;
+        int behind = direction == 0 ? prefetch : 1;
+        if(direction >= 0) {
+            return position > lastVisible + ahead || position < firstVisible - behind;
+        } else {
+            return position < firstVisible - ahead || position > lastVisible + behind;
+        }
+    }
+
+    /**
+     * Requests renders for cards that are about to become visible
+     */
+    public interface Prefetcher {
+        /**
+         * Called on the calling thread of {@link #setVisibleRange(int, int, int, Prefetcher)}.
+         * The position may be past the end of the list
+         * @param position the position of a card just ahead of the visible range
+         */
+        void onPrefetch(int position);
+    }
+
+    /**
+     * A render performed by the scheduler
+     */
+    public static abstract class Job {
+        private volatile boolean canceled = false;
+        private String tag;
+        private int position;
+
+        /**
+         * Renders the card. This is called on a background thread
+         * @return the rendered text or null
+         */
+        public abstract CharSequence render();
+
+        /**
+         * Receives the rendered text on the main thread.
+         * This is not called if the job was canceled
+         * @param rendered
+         */
+        public abstract void onRendered(CharSequence rendered);
+
+        /**
+         * Called when the job is canceled so a render in progress can be stopped
+         */
+        protected void onCancel() {
+        }
+
+        /**
+         * Checks if the job has been canceled
+         * @return
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        private void cancel() {
+            canceled = true;
+            onCancel();
+        }
+    }
+}
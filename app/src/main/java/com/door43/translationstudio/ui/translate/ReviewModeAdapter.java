@@ -11,10 +11,12 @@ import android.os.Handler;
 import android.os.Looper;
 import com.google.android.material.snackbar.Snackbar;
 import androidx.appcompat.app.AlertDialog;
+import androidx.recyclerview.widget.RecyclerView;
 import android.text.Editable;
 import android.text.Html;
 import android.text.Layout;
 import android.text.Selection;
+import android.text.Spanned;
 import android.text.SpannedString;
 import android.text.TextUtils;
 import android.text.TextWatcher;
@@ -43,6 +45,7 @@ import com.door43.translationstudio.core.FileHistory;
 import com.door43.translationstudio.core.Frame;
 import com.door43.translationstudio.core.FrameTranslation;
 import com.door43.translationstudio.core.MergeConflictsHandler;
+import com.door43.translationstudio.core.SearchIndex;
 import com.door43.translationstudio.core.TranslationType;
 import com.door43.translationstudio.core.Util;
 import com.door43.translationstudio.tasks.MergeConflictsParseTask;
@@ -53,17 +56,20 @@ import com.door43.translationstudio.ui.translate.review.RenderHelpsTask;
 import com.door43.translationstudio.ui.translate.review.RenderSourceTask;
 import com.door43.translationstudio.ui.translate.review.ReviewHolder;
 import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationSnapshot;
 import com.door43.translationstudio.core.TranslationFormat;
 import com.door43.translationstudio.core.Translator;
 import com.door43.translationstudio.core.Typography;
 import com.door43.translationstudio.rendering.Clickables;
 import com.door43.translationstudio.rendering.DefaultRenderer;
+import com.door43.translationstudio.rendering.IncrementalRender;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.rendering.RenderingGroup;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.translationstudio.rendering.ClickableRenderingEngine;
 import com.door43.translationstudio.ui.spannables.NoteSpan;
 import com.door43.translationstudio.ui.spannables.USFMNoteSpan;
 import com.door43.translationstudio.ui.spannables.Span;
-import com.door43.translationstudio.ui.spannables.USFMVerseSpan;
 import com.door43.translationstudio.ui.spannables.VerseSpan;
 
 import org.unfoldingword.tools.taskmanager.ManagedTask;
@@ -84,6 +90,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -104,6 +111,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
     private final Activity mContext;
     private final TargetTranslation mTargetTranslation;
     private ResourceContainer mSourceContainer;
+    private final TargetSnapshotLoader mTargetSnapshot;
     private final TargetLanguage mTargetLanguage;
     private List<ListItem> mItems = new ArrayList<>();
     private List<ListItem> mFilteredItems = new ArrayList<>();
@@ -200,11 +208,15 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         this.startingChunkSlug = startingChunkSlug;
 
         TaskManager.killGroup(RENDER_GROUP);
+        RenderScheduler.getInstance().cancelAll();
+        RenderScheduler.getInstance().setPrefetch(RenderScheduler.DEFAULT_PREFETCH);
+        RenderScheduler.getInstance().setMaxInFlight(RenderScheduler.DEFAULT_MAX_IN_FLIGHT);
 
         mLibrary = App.getLibrary();
         mTranslator = App.getTranslator();
         mContext = context;
         mTargetTranslation = mTranslator.getTargetTranslation(targetTranslationSlug);
+        mTargetSnapshot = new TargetSnapshotLoader(mTargetTranslation);
         mTargetLanguage = App.languageFromTargetTranslation(mTargetTranslation);
         mResourcesOpened = openResources;
     }
@@ -215,8 +227,10 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         if(sourceContainer == null && mSourceContainer == null) return;
 
         TaskManager.killGroup(RENDER_GROUP);
+        RenderScheduler.getInstance().cancelAll();
 
         mSourceContainer = sourceContainer;
+        mTargetSnapshot.get(); // start loading the snapshot while the source is prepared
         mLayoutBuildNumber++; // force resetting of fonts
 
         mChapters = new ArrayList<>();
@@ -321,7 +335,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         ListItem item = getItem( position );
         if(item != null) {
             // fetch translation from disk
-            item.load(mSourceContainer, mTargetTranslation);
+            item.load(mSourceContainer, mTargetTranslation, getTargetSnapshot());
             boolean conflicted = item.hasMergeConflicts;
             if(conflicted) {
                 showMergeConflictIcon(true, mMergeConflictFilterEnabled);
@@ -371,6 +385,15 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         this.visiblePositions = visible;
     }
 
+    /**
+     * Generates the tag used to schedule rendering of the target card
+     * @param item
+     * @return
+     */
+    private static String makeTargetRenderTag(ListItem item) {
+        return "render_target_" + item.chapterSlug + "_" + item.chunkSlug;
+    }
+
     /**
      * Performs garbage collection on tasks performed from the position.
      * @param position the position that will be garbage collected
@@ -380,14 +403,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
             ListItem item = mFilteredItems.get(position);
 
             // source
-            String sourceTag = RenderSourceTask.makeTag(item.chapterSlug, item.chunkSlug);
-            ManagedTask sourceTask = TaskManager.getTask(sourceTag);
-            if (sourceTask != null) {
-//                Logger.i(TAG, "Garbage collecting task: " + sourceTag);
-                TaskManager.cancelTask(sourceTask);
-                sourceTask.destroy();
-                TaskManager.clearTask(sourceTask);
-            }
+            RenderScheduler.getInstance().cancel(RenderSourceTask.makeTag(item.chapterSlug, item.chunkSlug));
 
             // helps
             String helpsTag = RenderHelpsTask.makeTag(item.chapterSlug, item.chunkSlug);
@@ -408,12 +424,12 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
          holder.showResourceCard(mResourcesOpened);
 
         // fetch translation from disk
-        item.load(mSourceContainer, mTargetTranslation);
+        item.load(mSourceContainer, mTargetTranslation, getTargetSnapshot());
 
         ViewUtil.makeLinksClickable(holder.mSourceBody);
 
         // render the cards
-        renderSourceCard(item, holder);
+        renderSourceCard(position, item, holder);
          if(getItemViewType(position) == VIEW_TYPE_CONFLICT) {
              renderConflictingTargetCard(position, item, holder);
          } else {
@@ -435,34 +451,54 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         }
     }
 
-    private void renderSourceCard(final ReviewListItem item, final ReviewHolder holder) {
-        String tag = RenderSourceTask.makeTag(item.chapterSlug, item.chunkSlug);
-        RenderSourceTask task = (RenderSourceTask) TaskManager.getTask(tag);
-
-        if(item.renderedSourceText == null) {
+    private void renderSourceCard(final int position, final ReviewListItem item, final ReviewHolder holder) {
+        if(requestSourceRender(position, item)) {
+            // show cached render
+            holder.setSource(item.renderedSourceText);
+        } else {
             holder.showLoadingSource();
         }
 
-        // re-purpose task
-        if(task != null && task.interrupted()) {
-            task.destroy();
-            TaskManager.clearTask(task);
-//            Logger.i(TAG, "Re-starting task: " + task.getTaskId());
-            task = null;
+        holder.renderSourceTabs(mTabs);
+    }
+
+    /**
+     * Reuses an earlier render of the source text or schedules a new one
+     * @param position
+     * @param item
+     * @return true if the source text has already been rendered
+     */
+    private boolean requestSourceRender(int position, final ReviewListItem item) {
+        if(item.renderedSourceText == null) {
+            // reuse an earlier render of the same text
+            RenderCache.Entry cached = RenderCache.getInstance().get(RenderSourceTask.makeCacheKey(mSourceContainer, item, mSearchText, searchSubject));
+            if(cached != null) {
+                RenderSourceTask.bindListeners(cached.text, this);
+                item.renderedSourceText = cached.text;
+                item.hasMissingVerses = cached.addedMissingVerse;
+            }
         }
+        if(item.renderedSourceText != null) return true;
 
         // schedule rendering
-        if(task == null && item.renderedSourceText == null) {
-            task = new RenderSourceTask(item, this, mSearchText, searchSubject);
-            task.addOnFinishedListener(this);
-            TaskManager.addTask(task, tag);
-            TaskManager.groupTask(task, RENDER_GROUP);
-        } else if(item.renderedSourceText != null) {
-            // show cached render
-            holder.setSource(item.renderedSourceText);
+        String tag = RenderSourceTask.makeTag(item.chapterSlug, item.chunkSlug);
+        if(!RenderScheduler.getInstance().isScheduled(tag)) {
+            RenderScheduler.getInstance().schedule(tag, position, new RenderSourceTask(item, mSourceContainer, this, mSearchText, searchSubject) {
+                @Override
+                public void onRendered(CharSequence rendered) {
+                    onSourceRendered(item, rendered);
+                }
+            });
         }
+        return false;
+    }
 
-        holder.renderSourceTabs(mTabs);
+    @Override
+    protected void onPrefetch(int position) {
+        if(mSourceContainer == null || position >= mFilteredItems.size()) return;
+        ReviewListItem item = (ReviewListItem) mFilteredItems.get(position);
+        item.load(mSourceContainer, mTargetTranslation, getTargetSnapshot());
+        requestSourceRender(position, item);
     }
 
     /**
@@ -588,7 +624,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                String translation = applyChangedText(s, holder, item);
+                String translation = applyEditedText(s, start, before, count, holder, item);
 
                 // commit immediately if editing history
                 FileHistory history = item.getFileHistory();
@@ -605,93 +641,55 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         };
 
         // render target body
-        ManagedTask oldtask = TaskManager.getTask(item.currentTargetTaskId);
-//        Log.i(TAG, "renderTargetCard(): Position " + position + ": Cancelling ID: " + item.currentTargetTaskId);
-        TaskManager.cancelTask(oldtask);
-        TaskManager.clearTask(oldtask);
+        String targetTag = makeTargetRenderTag(item);
+        RenderScheduler.getInstance().cancel(targetTag);
         if(item.renderedTargetText == null) {
             holder.mTargetEditableBody.setText(item.targetText);
             holder.mTargetEditableBody.setVisibility(View.INVISIBLE);
             holder.mTargetBody.setText(item.targetText);
             holder.mTargetBody.setVisibility(View.INVISIBLE);
-            ManagedTask task = new ManagedTask() {
+            RenderScheduler.getInstance().schedule(targetTag, position, new RenderScheduler.Job() {
                 @Override
-                public void start() {
-                    setThreadPriority(Thread.MIN_PRIORITY);
-                    if(isCanceled()) {
-//                        Log.i(TAG, "renderTargetCard(): Position " + position + ": Render cancelled ID: " + item.currentTargetTaskId);
-                        return;
-                    }
-//                    Log.i(TAG, "renderTargetCard(): Position " + position + ": Render started ID: " + item.currentTargetTaskId);
-                    CharSequence text;
+                public CharSequence render() {
+                    if(isCanceled()) return null;
                     if(item.isComplete || item.isEditing) {
-                        text = renderSourceText(item.targetText, item.targetTranslationFormat, holder, item, true);
+                        return renderSourceText(item.targetText, item.targetTranslationFormat, holder, item, true);
                     } else {
-                        text = renderTargetText(item.targetText, item.targetTranslationFormat, item.ft, holder, item);
+                        return renderTargetText(item.targetText, item.targetTranslationFormat, item.ft, holder, item);
                     }
-                    setResult(text);
                 }
-            };
-            task.addOnFinishedListener(new ManagedTask.OnFinishedListener() {
-                @Override
-                public void onTaskFinished(final ManagedTask task) {
-                    TaskManager.clearTask(task);
-                    final CharSequence data = (CharSequence)task.getResult();
-                    if(!task.isCanceled() && data != null && item == holder.currentItem) {
 
-                        Handler hand = new Handler(Looper.getMainLooper());
-                        hand.post(new Runnable() {
+                @Override
+                public void onRendered(CharSequence data) {
+                    if (item != holder.currentItem) return;
+                    item.renderedTargetText = data;
+
+                    int selectPosition = checkForSelectedSearchItem(item, position, true);
+                    if (item.isEditing) {
+                        // edit mode
+                        holder.mTargetEditableBody.setText(item.renderedTargetText);
+                        selectCurrentSearchItem(position, selectPosition, holder.mTargetEditableBody);
+                        holder.mTargetEditableBody.setVisibility(View.VISIBLE);
+                        holder.mTargetEditableBody.addTextChangedListener(holder.mEditableTextWatcher);
+                    } else {
+                        // verse marker mode
+                        holder.mTargetBody.setText(item.renderedTargetText);
+                        selectCurrentSearchItem(position, selectPosition, holder.mTargetBody);
+                        holder.mTargetBody.setVisibility(View.VISIBLE);
+                        holder.mTargetBody.setOnTouchListener(new View.OnTouchListener() {
                             @Override
-                            public void run() {
-//                                Log.i(TAG, "renderTargetCard(): Position " + position + ": Render finished ID: " + item.currentTargetTaskId);
-                                if (!task.isCanceled() && data != null && item == holder.currentItem) {
-                                    item.renderedTargetText = data;
-
-                                    int selectPosition = checkForSelectedSearchItem(item, position, true);
-                                    if (item.isEditing) {
-                                        // edit mode
-                                        holder.mTargetEditableBody.setText(item.renderedTargetText);
-                                        selectCurrentSearchItem(position, selectPosition, holder.mTargetEditableBody);
-                                        holder.mTargetEditableBody.setVisibility(View.VISIBLE);
-                                        holder.mTargetEditableBody.addTextChangedListener(holder.mEditableTextWatcher);
-                                    } else {
-                                        // verse marker mode
-                                        holder.mTargetBody.setText(item.renderedTargetText);
-                                        selectCurrentSearchItem(position, selectPosition, holder.mTargetBody);
-                                        holder.mTargetBody.setVisibility(View.VISIBLE);
-                                        holder.mTargetBody.setOnTouchListener(new View.OnTouchListener() {
-                                            @Override
-                                            public boolean onTouch(View v, MotionEvent event) {
-                                                v.onTouchEvent(event);
-                                                v.clearFocus();
-                                                return true;
-                                            }
-                                        });
-                                        setFinishedMode(item, holder);
-                                        ViewUtil.makeLinksClickable(holder.mTargetBody);
-                                    }
-                                    addMissingVerses(item, holder);
-                                } else {
-//                                    Log.i(TAG, "renderTargetCard(): Position " + position + ": ID: " + item.currentTargetTaskId + ": Render failed after delay: task.isCanceled()=" + task.isCanceled() + ", (data==null)=" + (data == null) + ", (item!=holder.currentItem)=" + (item != holder.currentItem));
-                                }
+                            public boolean onTouch(View v, MotionEvent event) {
+                                v.onTouchEvent(event);
+                                v.clearFocus();
+                                return true;
                             }
                         });
-                    }  else {
-//                        Log.i(TAG, "renderTargetCard(): Position " + position + ": ID: " + item.currentTargetTaskId + ": Render failed  no delay: task.isCanceled()=" + task.isCanceled() + ", (data==null)=" + (data == null) + ", (item!=holder.currentItem)=" + (item != holder.currentItem));
+                        setFinishedMode(item, holder);
+                        ViewUtil.makeLinksClickable(holder.mTargetBody);
                     }
+                    addMissingVerses(item, holder);
                 }
             });
-            item.currentTargetTaskId = TaskManager.addTask(task);
-//            Log.i(TAG, "renderTargetCard(): Position " + position + ": Adding task ID: " + item.currentTargetTaskId);
-
-            ManagedTask verifiedTask = TaskManager.getTask(item.currentTargetTaskId); // verify task in queue
-            if((verifiedTask == null) || (verifiedTask != task) || (verifiedTask.interrupted())) {
-                if(verifiedTask == null) {
-//                    Logger.e(TAG, "renderTargetCard(): Position " + position + ": Add task failed, verify task null,  ID: " + item.currentTargetTaskId);
-                } else {
-//                    Logger.e(TAG, "renderTargetCard(): Position " + position + ": Add task failed ID: " + item.currentTargetTaskId + ": (verifiedTask != task)=" + (verifiedTask != task) + ", verifiedTask.interrupted()=" + verifiedTask.interrupted());
-                }
-            }
         } else if(item.isEditing) {
             // editing mode
             holder.mTargetEditableBody.setText(item.renderedTargetText);
@@ -1127,6 +1125,32 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         return translation;
     }
 
+    /**
+     * save text edited by the user to item.
+     * Only the edited region is re-rendered unless markers were added or removed
+     * @param s the edited text
+     * @param start
+     * @param before
+     * @param count
+     * @param holder
+     * @param item
+     * @return
+     */
+    private String applyEditedText(CharSequence s, int start, int before, int count, ReviewHolder holder, ReviewListItem item) {
+        if(!(s instanceof Editable)) {
+            return applyChangedText(s, holder, item);
+        }
+        CharSequence rendered = IncrementalRender.applyEdit(item.renderedTargetText, s, start, before, count);
+        if(rendered == null) {
+            return applyChangedText(s, holder, item);
+        }
+
+        String translation = Translator.compileTranslation((Editable) s);
+        saveCompiledText(translation, item);
+        item.renderedTargetText = rendered;
+        return translation;
+    }
+
     /**
      *  save new text to item
      * @param translation
@@ -1134,6 +1158,16 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
      * @param item
      */
     private void applyNewCompiledText(String translation, ReviewHolder holder, ListItem item) {
+        saveCompiledText(translation, item);
+        item.renderedTargetText = renderSourceText(translation, item.targetTranslationFormat, holder, (ReviewListItem) item, true);
+    }
+
+    /**
+     * save compiled text to the target translation
+     * @param translation
+     * @param item
+     */
+    private void saveCompiledText(String translation, ListItem item) {
         item.targetText = translation;
         if (item.isChapterReference()) {
             mTargetTranslation.applyChapterReferenceTranslation(item.ct, translation);
@@ -1148,8 +1182,6 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         } else if (item.isChunk()) {
             mTargetTranslation.applyFrameTranslation(item.ft, translation);
         }
-
-        item.renderedTargetText = renderSourceText(translation, item.targetTranslationFormat, holder, (ReviewListItem) item, true);
     }
 
     /**
@@ -1306,7 +1338,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
             Pattern.compile("\\\\v\\s(\\d+(-\\d+)?)\\s*\\\\v\\s(\\d+(-\\d+)?)");
 
     private static final Pattern USFM_VERSE_MARKER =
-            Pattern.compile(USFMVerseSpan.PATTERN);
+            RenderingPatterns.USFM_VERSE;
 
     private static final Pattern CONSECUTIVE_VERSE_MARKERS =
             Pattern.compile("(<verse [^>]+/>\\s*){2}");
@@ -1973,12 +2005,14 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
     }
 
     @Override
-    public void onSourceFootnoteClick(ReviewListItem item, NoteSpan span, int start, int end) {
-        int position = mFilteredItems.indexOf(item);
+    public void onSourceFootnoteClick(View view, NoteSpan span, int start, int end) {
         if(getListener() == null) return;
-        ReviewHolder holder = (ReviewHolder) getListener().getVisibleViewHolder(position);
-        if(holder == null) return;
-        showFootnote(holder, item, span, start, end, false);
+        // TRICKY: the holder knows which item it is currently bound to
+        RecyclerView.ViewHolder holder = getListener().getContainingViewHolder(view);
+        if(!(holder instanceof ReviewHolder)) return;
+        ReviewHolder reviewHolder = (ReviewHolder) holder;
+        if(reviewHolder.currentItem == null) return;
+        showFootnote(reviewHolder, reviewHolder.currentItem, span, start, end, false);
     }
 
     /**
@@ -2108,6 +2142,13 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         int searchSubPosition = 0;
         if(results.needRender) {
             mSearchSubPositionItems = -1; // this will flag to get count after render completes
+            // the index can count the matches without waiting for the render
+            SearchIndex index = getSearchIndex(target);
+            String id = makeSearchIndexId(item);
+            if(index != null && index.contains(id)) {
+                int count = index.countMatches(id, mSearchText);
+                if(count > 0) mSearchSubPositionItems = count;
+            }
         } else {
             if(results.numberFound <= 0) {
                 item.hasSearchText = false;
@@ -2144,7 +2185,6 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
      */
     private MatchResults getMatchItemN(ReviewListItem item, CharSequence match, int matchNumb, boolean target) {
         String matcher = match.toString();
-        int length = matcher.length();
 
         CharSequence text = mSearchingTarget ? item.renderedTargetText : item.renderedSourceText;
         boolean needRender = (text == null);
@@ -2155,26 +2195,71 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
             return new MatchResults(-1, -1, needRender);
         }
 
-        Log.i(TAG, "getMatchItemN() Search started: " + matcher);
-
-        int searchStartLocation = 0;
-        int count = 0;
-        int pos = -1;
-        String textLowerCase = text.toString().toLowerCase();
+        int[] offsets = getRenderedMatches(item, text, matcher, target);
+        if(matchNumb < offsets.length) {
+            return new MatchResults(offsets[matchNumb], offsets.length, needRender);
+        }
+        return new MatchResults(-1, offsets.length, needRender); // failed, return number of items actually found
+    }
 
-        while (count <= matchNumb) {
-            pos = textLowerCase.indexOf(matcher, searchStartLocation);
-            if(pos < 0) { // not found
-                break;
+    /**
+     * Returns the offsets of the matches in the rendered text of an item.
+     * The offsets are looked up in the search index and mapped onto the rendered text
+     * the first time they are needed for each render so navigating the matches does not search the text again.
+     * @param item
+     * @param text the rendered text
+     * @param matcher
+     * @param target - if true searching target card
+     * @return
+     */
+    private int[] getRenderedMatches(ReviewListItem item, CharSequence text, String matcher, boolean target) {
+        if(item.searchMatchOffsets != null && item.searchMatchText == text && matcher.equals(item.searchMatchQuery)) {
+            return item.searchMatchOffsets;
+        }
+        int[] offsets = null;
+        SearchIndex index = getSearchIndex(target);
+        if(index != null) {
+            offsets = index.findRenderedMatches(makeSearchIndexId(item), matcher, maskUnindexedText(text));
+        }
+        if(offsets == null) {
+            // the chunk has not been indexed
+            Log.i(TAG, "getRenderedMatches() Search started: " + matcher);
+            List<Integer> found = new ArrayList<>();
+            String textLowerCase = text.toString().toLowerCase();
+            int pos = textLowerCase.indexOf(matcher);
+            while(pos >= 0) {
+                found.add(pos);
+                pos = textLowerCase.indexOf(matcher, pos + matcher.length());
             }
-
-            searchStartLocation = pos + length;
-            if(++count > matchNumb) {
-                return new MatchResults(pos, count, needRender);
+            offsets = new int[found.size()];
+            for(int i = 0; i < offsets.length; i ++) {
+                offsets[i] = found.get(i);
             }
         }
+        item.searchMatchText = text;
+        item.searchMatchQuery = matcher;
+        item.searchMatchOffsets = offsets;
+        return offsets;
+    }
 
-        return new MatchResults(-1, count, needRender); // failed, return number of items actually found
+    /**
+     * Replaces the verses and notes in the rendered text with {@link SearchIndex#MASK}
+     * since they are left out of the search index
+     * @param text
+     * @return
+     */
+    private static CharSequence maskUnindexedText(CharSequence text) {
+        if(!(text instanceof Spanned)) return text;
+        Spanned spanned = (Spanned)text;
+        char[] chars = spanned.toString().toCharArray();
+        for(Span.ClickSpan span:spanned.getSpans(0, spanned.length(), Span.ClickSpan.class)) {
+            int start = Math.max(0, spanned.getSpanStart(span));
+            int end = Math.min(chars.length, spanned.getSpanEnd(span));
+            for(int i = start; i < end; i ++) {
+                chars[i] = SearchIndex.MASK;
+            }
+        }
+        return new String(chars);
     }
 
     @Override
@@ -2205,6 +2290,18 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
 
                 Log.i(TAG, "filter(): Search started: " + matcher);
 
+                // look up the matching chunks in the index instead of rendering them.
+                // TRICKY: the index is built on the first search so browsing does not pay for it
+                Set<String> matches = new HashSet<>();
+                SearchIndex index = getSearchIndex(mSearchingTarget);
+                if(!matcherEmpty && index != null) {
+                    indexItems(mFilteredItems, index, mSearchingTarget, this);
+                    if(isCanceled()) {
+                        return;
+                    }
+                    matches = index.search(matcher);
+                }
+
                 mChunkSearchMatchesCounter = 0;
                 for (int i = 0; i < mFilteredItems.size(); i++) {
                     if(isCanceled()) {
@@ -2216,37 +2313,7 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
                         return;
                     }
 
-                    boolean match = false;
-
-                    if(!matcherEmpty) {
-                        if (mSearchingTarget) {
-                            boolean foundMatch = false;
-
-                            if (item.targetText != null) {
-                                foundMatch = item.targetText.toString().toLowerCase().contains(matcher);
-                                if(foundMatch) { // if match, it could be in markup, so we double check by rendering and searching that
-                                    CharSequence text = renderTargetText(item.targetText, item.targetTranslationFormat, item.ft, null, item);
-                                    foundMatch = text.toString().toLowerCase().contains(matcher);
-                                }
-                            }
-                            match = foundMatch || match;
-                        }
-                        if (!mSearchingTarget) {
-                            boolean foundMatch = false;
-
-                            if (item.renderedSourceText != null) {
-                                foundMatch = item.renderedSourceText.toString().toLowerCase().contains(matcher);
-                            } else
-                            if (item.sourceText != null) {
-                                foundMatch = item.sourceText.toString().toLowerCase().contains(matcher);
-                                if(foundMatch) { // if match, it could be in markup, so we double check by rendering and searching that
-                                    CharSequence text = renderSourceText(item.sourceText, item.sourceTranslationFormat, null, item, false);
-                                    foundMatch = text.toString().toLowerCase().contains(matcher);
-                                }
-                            }
-                            match = foundMatch || match;
-                        }
-                    }
+                    boolean match = matches.contains(makeSearchIndexId(item));
 
                     if(item.hasSearchText && !match) { // check for search match cleared
                         item.renderedTargetText = null;  // re-render target
@@ -2296,6 +2363,76 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
         mStringSearchTaskID = TaskManager.addTask(task);
     }
 
+    /**
+     * Brings the search index up to date with the items.
+     * The text is read from the target snapshot or the source container so the items are not loaded.
+     * The source is only indexed once since it does not change, while the target is compared
+     * with the snapshot so chunks that have not changed since they were indexed are skipped.
+     * This must not be called on the ui thread
+     *
+     * @param items
+     * @param index
+     * @param target true if indexing the target text
+     * @param task the task doing the indexing
+     */
+    private void indexItems(List<ListItem> items, SearchIndex index, boolean target, ManagedTask task) {
+        ResourceContainer sourceContainer = mSourceContainer;
+        if(sourceContainer == null) return;
+        if(target) {
+            TargetTranslationSnapshot snapshot = mTargetSnapshot.getNow();
+            TranslationFormat format = mTargetTranslation.getFormat();
+            if(index.isComplete()) {
+                // only the chunks written since the last search
+                Set<String> changed = index.takeChanged();
+                for(ListItem item:items) {
+                    if(task.isCanceled()) return;
+                    if(changed.contains(makeSearchIndexId(item))) {
+                        index.put(makeSearchIndexId(item), item.readTargetText(mTargetTranslation, snapshot), format);
+                    }
+                }
+            } else {
+                int token = index.startRebuild();
+                for(ListItem item:items) {
+                    if(task.isCanceled()) return;
+                    index.put(makeSearchIndexId(item), item.readTargetText(mTargetTranslation, snapshot), format);
+                }
+                index.finishRebuild(token);
+            }
+        } else if(!index.isComplete()) {
+            TranslationFormat format = TranslationFormat.parse(sourceContainer.contentMimeType);
+            int token = index.startRebuild();
+            for(ListItem item:items) {
+                if(task.isCanceled()) return;
+                index.put(makeSearchIndexId(item), sourceContainer.readChunk(item.chapterSlug, item.chunkSlug), format);
+            }
+            index.finishRebuild(token);
+        }
+    }
+
+    /**
+     * Returns the search index of the source or target translation
+     * @param target
+     * @return the index or null if there is no source
+     */
+    private SearchIndex getSearchIndex(boolean target) {
+        if(target) {
+            return SearchIndex.getInstance(SearchIndex.targetIndexId(mTargetTranslation.getId()), mTargetTranslation.getTargetLanguageId());
+        } else if(mSourceContainer != null) {
+            // TRICKY: the version keeps an updated source from matching the old text
+            return SearchIndex.getInstance("source:" + mSourceContainer.slug + ":" + mSourceContainer.modifiedAt, mSourceContainer.language.slug);
+        }
+        return null;
+    }
+
+    /**
+     * Identifies the item in the search index
+     * @param item
+     * @return
+     */
+    private static String makeSearchIndexId(ListItem item) {
+        return SearchIndex.chunkId(item.chapterSlug, item.chunkSlug);
+    }
+
     /**
      * notify listener of search state changes
      * @param doingSearch - search is currently processing
@@ -2443,35 +2580,29 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
                     }
                 }
             });
-        } else if(task instanceof RenderSourceTask) {
-            final CharSequence data = (CharSequence)task.getResult();
-            if(data == null) {
-//                Logger.i(TAG, "Task Data Missing: " + task.getTaskId());
-                return;
-            }
-            final ReviewListItem item = ((RenderSourceTask)task).getItem();
-            item.renderedSourceText = data;
-            final int position = mFilteredItems.indexOf(item);
-            Handler hand = new Handler(Looper.getMainLooper());
-            hand.post(new Runnable() {
-                @Override
-                public void run() {
-                    if(getListener() != null) {
-                        ReviewHolder holder = (ReviewHolder) getListener().getVisibleViewHolder(position);
-                        if(holder != null) {
-                            holder.setSource(data);
+        }
+    }
 
-                            // update the search
-                            item.refreshSearchHighlightSource = false;
-                            int selectPosition = checkForSelectedSearchItem(item, position, false);
-                            selectCurrentSearchItem(position, selectPosition, holder.mSourceBody);
-                        } else {
-//                            Logger.i(TAG, "UI Miss: " + task.getTaskId());
-                            notifyItemChanged(position);
-                        }
-                    }
-                }
-            });
+    /**
+     * Displays the rendered source text
+     * @param item
+     * @param data
+     */
+    private void onSourceRendered(final ReviewListItem item, final CharSequence data) {
+        item.renderedSourceText = data;
+        final int position = mFilteredItems.indexOf(item);
+        if(position >= 0 && getListener() != null) {
+            ReviewHolder holder = (ReviewHolder) getListener().getVisibleViewHolder(position);
+            if(holder != null) {
+                holder.setSource(data);
+
+                // update the search
+                item.refreshSearchHighlightSource = false;
+                int selectPosition = checkForSelectedSearchItem(item, position, false);
+                selectCurrentSearchItem(position, selectPosition, holder.mSourceBody);
+            } else {
+                notifyItemChanged(position);
+            }
         }
     }
 
@@ -2517,4 +2648,13 @@ public class ReviewModeAdapter extends ViewModeAdapter<ReviewHolder> implements
     public boolean ismMergeConflictSummaryDisplayed() {
         return mMergeConflictSummaryDisplayed;
     }
+
+    /**
+     * Returns a snapshot of the target translation so the cards don't have to read each chunk from the disk.
+     * The snapshot is loaded in the background and reloaded after the translation is edited.
+     * @return the snapshot or null if it is not ready yet
+     */
+    private TargetTranslationSnapshot getTargetSnapshot() {
+        return mTargetSnapshot.get();
+    }
 }
\ No newline at end of file
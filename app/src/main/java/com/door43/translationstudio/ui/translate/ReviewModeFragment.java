@@ -32,6 +32,7 @@ import com.door43.translationstudio.core.TranslationType;
 import com.door43.translationstudio.core.Typography;
 import com.door43.translationstudio.rendering.HtmlRenderer;
 import com.door43.translationstudio.rendering.LinkToHtmlRenderer;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.translationstudio.ui.spannables.ArticleLinkSpan;
 import com.door43.translationstudio.ui.spannables.LinkSpan;
 import com.door43.translationstudio.ui.spannables.PassageLinkSpan;
@@ -230,7 +231,7 @@ public class ReviewModeFragment extends ViewModeFragment {
                 String[] chapters = rc.chapters();
                 final List<String> words = Arrays.asList(chapters);
                 Collections.sort(words);
-                Pattern titlePattern = Pattern.compile("#(.*)");
+                Pattern titlePattern = RenderingPatterns.MARKDOWN_TITLE;
                 for(String slug:words) {
                     // get title and add to adapter
                     Matcher match = titlePattern.matcher(rc.readChunk(slug, "01"));
@@ -429,7 +430,7 @@ public class ReviewModeFragment extends ViewModeFragment {
                         return !chunk.isEmpty();
                     } else if(span instanceof TranslationWordLinkSpan) {
                         ResourceContainer currentRC = getSelectedResourceContainer();
-                        Pattern titlePattern = Pattern.compile("#(.*)");
+                        Pattern titlePattern = RenderingPatterns.MARKDOWN_TITLE;
                         ResourceContainer rc = ContainerCache.cacheClosest(App.getLibrary(), currentRC.language.slug, "bible", "tw");
 
                         String word = rc.readChunk(span.getMachineReadable().toString(), "01");
@@ -501,7 +502,7 @@ public class ReviewModeFragment extends ViewModeFragment {
             if(rc.config != null && rc.config.containsKey(chapterSlug)) {
                 Map chapterConfig = (Map<String, List<String>> )rc.config.get(chapterSlug);
                 if(chapterConfig.containsKey("see_also")) {
-                    Pattern titlePattern = Pattern.compile("#(.*)");
+                    Pattern titlePattern = RenderingPatterns.MARKDOWN_TITLE;
                     List<String> relatedSlugs = (List<String>)chapterConfig.get("see_also");
                     for(final String relatedSlug:relatedSlugs) {
                         // TODO: 10/12/16 the words need to have their title placed into a "title" file instead of being inline in the chunk
@@ -618,7 +619,7 @@ public class ReviewModeFragment extends ViewModeFragment {
                         }
                     } else if(span instanceof TranslationWordLinkSpan) {
                         ResourceContainer currentRC = getSelectedResourceContainer();
-                        Pattern titlePattern = Pattern.compile("#(.*)");
+                        Pattern titlePattern = RenderingPatterns.MARKDOWN_TITLE;
                         ResourceContainer rc = ContainerCache.cacheClosest(library, currentRC.language.slug, "bible", "tw");
 
                         String word = rc.readChunk(span.getMachineReadable().toString(), "01");
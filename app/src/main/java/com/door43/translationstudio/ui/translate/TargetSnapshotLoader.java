@@ -0,0 +1,104 @@
+package com.door43.translationstudio.ui.translate;
+
+import com.door43.translationstudio.core.TargetTranslation;
+import com.door43.translationstudio.core.TargetTranslationSnapshot;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a snapshot of a target translation up to date for a view mode adapter.
+ * Snapshots are loaded on a background thread and replaced once the translation has been edited,
+ * so cards can bind from memory without reading the whole book on the ui thread.
+ *
+ * Until a current snapshot is ready the cards read their text from the disk.
+ */
+class TargetSnapshotLoader {
+    private static final String TAG = TargetSnapshotLoader.class.getSimpleName();
+
+    /**
+     * The minimum time (in milliseconds) between loads so a snapshot is not reloaded on every edit
+     */
+    private static final long RELOAD_DELAY = 2000;
+
+    private static final ScheduledExecutorService sExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, TAG);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    private final TargetTranslation targetTranslation;
+    private volatile TargetTranslationSnapshot snapshot = null;
+    private boolean loading = false;
+    private long loadedAt = 0;
+
+    /**
+     * @param targetTranslation the translation to keep a snapshot of
+     */
+    TargetSnapshotLoader(TargetTranslation targetTranslation) {
+        this.targetTranslation = targetTranslation;
+    }
+
+    /**
+     * Returns the current snapshot.
+     * If there is none or the translation has changed a new snapshot is loaded in the background
+     * @return the snapshot or null if it is not ready
+     */
+    TargetTranslationSnapshot get() {
+        TargetTranslationSnapshot current = snapshot;
+        if(current != null && current.isCurrent()) return current;
+        requestLoad();
+        return null;
+    }
+
+    /**
+     * Returns a current snapshot, loading it on the calling thread if needed.
+     * This must not be called on the ui thread
+     * @return the snapshot or null if it could not be loaded
+     */
+    TargetTranslationSnapshot getNow() {
+        TargetTranslationSnapshot current = snapshot;
+        if(current != null && current.isCurrent()) return current;
+        try {
+            current = targetTranslation.loadSnapshot();
+        } catch (Exception e) {
+            Logger.w(TAG, "Failed to load a snapshot of " + targetTranslation.getId(), e);
+            return null;
+        }
+        synchronized (this) {
+            snapshot = current;
+            loadedAt = System.currentTimeMillis();
+        }
+        return current;
+    }
+
+    private synchronized void requestLoad() {
+        if(loading) return;
+        loading = true;
+        long delay = Math.max(0, loadedAt + RELOAD_DELAY - System.currentTimeMillis());
+        sExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                TargetTranslationSnapshot loaded = null;
+                try {
+                    loaded = targetTranslation.loadSnapshot();
+                } catch (Exception e) {
+                    Logger.w(TAG, "Failed to load a snapshot of " + targetTranslation.getId(), e);
+                }
+                synchronized (TargetSnapshotLoader.this) {
+                    loading = false;
+                    loadedAt = System.currentTimeMillis();
+                    if(loaded != null) snapshot = loaded;
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
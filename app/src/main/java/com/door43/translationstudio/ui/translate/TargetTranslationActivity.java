@@ -39,6 +39,7 @@ import com.door43.translationstudio.ui.SettingsActivity;
 import com.door43.translationstudio.core.TargetTranslation;
 import com.door43.translationstudio.core.TranslationViewMode;
 import com.door43.translationstudio.core.Translator;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.ui.dialogs.BackupDialog;
 import com.door43.translationstudio.ui.dialogs.FeedbackDialog;
 import com.door43.translationstudio.ui.dialogs.PrintDialog;
@@ -838,6 +839,11 @@ public class TargetTranslationActivity extends BaseActivity implements ViewModeF
     public void onPause() {
         super.onPause();
 
+        // make sure queued edits are on the disk before we lose focus
+        if(mTargetTranslation != null) {
+            mTargetTranslation.flushPendingWrites();
+        }
+
         if(mFragment instanceof ViewModeFragment) {
             mShowConflictSummary = ((ViewModeFragment) mFragment).ismMergeConflictSummaryDisplayed(); // update current state
         }
@@ -1209,6 +1215,8 @@ public class TargetTranslationActivity extends BaseActivity implements ViewModeF
             Logger.e(this.getClass().getName(), "Failed to commit changes before closing translation", e);
         }
         App.closeKeyboard(TargetTranslationActivity.this);
+        // cached renders outlive the activity so let go of the listeners that refer to it
+        RenderCache.getInstance().releaseListeners();
         super.onDestroy();
     }
 
@@ -38,6 +38,12 @@ public abstract class ViewModeAdapter<VH extends RecyclerView.ViewHolder> extend
     protected String startingChunkSlug;
     private int currentPosition = -1;
     private MovementDirection currentMovementDirection = MovementDirection.UNKNOWN;
+    private final RenderScheduler.Prefetcher mPrefetcher = new RenderScheduler.Prefetcher() {
+        @Override
+        public void onPrefetch(int position) {
+            if(position < getItemCount()) ViewModeAdapter.this.onPrefetch(position);
+        }
+    };
     protected boolean mShowMergeSummary = false;
 
     private enum MovementDirection {
@@ -72,9 +78,19 @@ public abstract class ViewModeAdapter<VH extends RecyclerView.ViewHolder> extend
     public final void onBindViewHolder(VH holder, int position) {
         onBindManagedViewHolder(holder, position);
         int[] range = calculateVisibleItems(position);
+        int direction = currentMovementDirection == MovementDirection.DOWN ? 1 : currentMovementDirection == MovementDirection.UP ? -1 : 0;
+        RenderScheduler.getInstance().setVisibleRange(range[0], range[1], direction, mPrefetcher);
         onVisiblePositionsChanged(range);
     }
 
+    /**
+     * Called when a position is about to scroll into view so its card can be rendered ahead of time
+     * @param position a valid position that has not been bound yet
+     */
+    protected void onPrefetch(int position) {
+        // stub
+    }
+
     /**
      * Calculates a theoretical range of visible positions.
      * You should validate the upper bound.
@@ -110,7 +126,11 @@ public abstract class ViewModeAdapter<VH extends RecyclerView.ViewHolder> extend
         } else {
             max = nextPosition + mViewHolders.size() - 1;
             min = nextPosition - (mViewHolders.size() - 1);
+            if(this.currentPosition >= 0 && nextPosition != this.currentPosition) {
+                currentMovementDirection = nextPosition > this.currentPosition ? MovementDirection.DOWN : MovementDirection.UP;
+            }
         }
+        this.currentPosition = nextPosition;
 
         // constrain bounds
         if(min < 0) {
@@ -438,5 +458,6 @@ public abstract class ViewModeAdapter<VH extends RecyclerView.ViewHolder> extend
         void onEnableMergeConflict(boolean showConflicted, boolean active);
         void onSetSelectedPosition(int position, int offset);
         RecyclerView.ViewHolder getVisibleViewHolder(int position);
+        RecyclerView.ViewHolder getContainingViewHolder(View view);
     }
 }
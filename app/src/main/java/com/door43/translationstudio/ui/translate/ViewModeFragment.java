@@ -337,6 +337,14 @@ public abstract class ViewModeFragment extends BaseFragment implements ViewModeA
         return null;
     }
 
+    @Override
+    public RecyclerView.ViewHolder getContainingViewHolder(View view) {
+        if(mRecyclerView != null) {
+            return mRecyclerView.findContainingViewHolder(view);
+        }
+        return null;
+    }
+
     /**
      * gets item count of adapter
      * @return
@@ -1,5 +1,7 @@
 package com.door43.translationstudio.ui.translate.review;
 
+import android.view.View;
+
 import com.door43.translationstudio.ui.spannables.NoteSpan;
 
 /**
@@ -7,5 +9,13 @@ import com.door43.translationstudio.ui.spannables.NoteSpan;
  */
 
 public interface OnSourceClickListener {
-    void onSourceFootnoteClick(ReviewListItem item, NoteSpan span, int start, int end);
+    /**
+     * Called when a footnote in the source text is clicked.
+     * The rendered source text is shared between list items so the item is looked up from the view
+     * @param view the view displaying the source text
+     * @param span
+     * @param start
+     * @param end
+     */
+    void onSourceFootnoteClick(View view, NoteSpan span, int start, int end);
 }
@@ -2,6 +2,7 @@ package com.door43.translationstudio.ui.translate.review;
 
 import com.door43.translationstudio.App;
 import com.door43.translationstudio.core.ContainerCache;
+import com.door43.translationstudio.rendering.RenderingPatterns;
 import com.door43.translationstudio.ui.translate.ReviewModeAdapter;
 import com.door43.translationstudio.ui.translate.TranslationHelp;
 
@@ -54,7 +55,7 @@ public class RenderHelpsTask extends ManagedTask {
         if (config.containsKey("words")) {
             Language sourceLanguage = item.getSource().language;
             List<Link> links = ContainerCache.cacheFromLinks(library, config.get("words"), sourceLanguage);
-            Pattern titlePattern = Pattern.compile("#(.*)");
+            Pattern titlePattern = RenderingPatterns.MARKDOWN_TITLE;
             for (Link link : links) {
                 if (interrupted()) return;
                 try {
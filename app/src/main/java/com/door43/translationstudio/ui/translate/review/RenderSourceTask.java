@@ -6,38 +6,94 @@ import android.view.View;
 import com.door43.translationstudio.core.TranslationFormat;
 import com.door43.translationstudio.rendering.Clickables;
 import com.door43.translationstudio.rendering.DefaultRenderer;
+import com.door43.translationstudio.rendering.RenderCache;
 import com.door43.translationstudio.rendering.RenderingGroup;
+import com.door43.translationstudio.rendering.SourceTokenCache;
 import com.door43.translationstudio.ui.spannables.NoteSpan;
 import com.door43.translationstudio.ui.spannables.Span;
+import com.door43.translationstudio.ui.translate.RenderScheduler;
 
-import org.unfoldingword.door43client.Door43Client;
-import org.unfoldingword.tools.taskmanager.ManagedTask;
+import org.unfoldingword.resourcecontainer.ResourceContainer;
 
 /**
- * Renders the source text
+ * Renders the source text.
+ * Callers receive the result by implementing {@link #onRendered(CharSequence)}
  */
-public class RenderSourceTask extends ManagedTask {
+public abstract class RenderSourceTask extends RenderScheduler.Job {
 
     private static final int HIGHLIGHT_COLOR = Color.YELLOW;
+    private static final String TOKEN_OPTIONS = "review_source";
     private final ReviewListItem item;
+    private final ResourceContainer sourceContainer;
     private OnSourceClickListener listener;
     private final CharSequence searchQuery;
     private final SearchSubject searchSubject;
-    RenderingGroup renderingGroup = null;
+    private volatile RenderingGroup renderingGroup = null;
 
-    public RenderSourceTask(ReviewListItem item, OnSourceClickListener listener, CharSequence searchQuery, SearchSubject searchSubject) {
+    /**
+     * @param item
+     * @param sourceContainer the container of the source text. Renders are cached on disk next to it
+     * @param listener
+     * @param searchQuery
+     * @param searchSubject
+     */
+    public RenderSourceTask(ReviewListItem item, ResourceContainer sourceContainer, OnSourceClickListener listener, CharSequence searchQuery, SearchSubject searchSubject) {
         this.item = item;
+        this.sourceContainer = sourceContainer;
         this.listener = listener;
         this.searchQuery = searchQuery;
         this.searchSubject = searchSubject;
     }
 
     @Override
-    public void start() {
-        setThreadPriority(Thread.MAX_PRIORITY);
-        if(isCanceled()) return;
-        CharSequence text = renderSourceText(item.sourceText, item.sourceTranslationFormat, item);
-        setResult(text);
+    public CharSequence render() {
+        if(isCanceled()) return null;
+        boolean enableSearch = searchQuery != null && searchSubject == SearchSubject.SOURCE;
+        // search highlights are not stored on disk
+        boolean useTokens = !enableSearch && Clickables.isClickableFormat(item.sourceTranslationFormat);
+        String options = SourceTokenCache.options(TOKEN_OPTIONS);
+
+        CharSequence text = null;
+        if(useTokens) {
+            text = SourceTokenCache.read(sourceContainer, item.chapterSlug, item.chunkSlug, options, item.sourceText, null, makeNoteClickListener());
+            if(text != null) item.hasMissingVerses = false;
+        }
+        if(text == null) {
+            text = renderSourceText(item.sourceText, item.sourceTranslationFormat, item);
+            if(isCanceled()) return null;
+            // renders that inserted missing verses are not stored so decoded renders never have any
+            if(useTokens && !item.hasMissingVerses) {
+                SourceTokenCache.write(sourceContainer, item.chapterSlug, item.chunkSlug, options, item.sourceText, text);
+            }
+        }
+        if(isCanceled()) return null;
+        RenderCache.getInstance().put(makeCacheKey(sourceContainer, item, searchQuery, searchSubject), text, item.hasMissingVerses);
+        return text;
+    }
+
+    /**
+     * Generates the key used to cache the rendered source text.
+     * The render shows verses so it is shared with the other view modes that show verses
+     *
+     * @param sourceContainer
+     * @param item
+     * @param searchQuery
+     * @param searchSubject
+     * @return
+     */
+    public static RenderCache.Key makeCacheKey(ResourceContainer sourceContainer, ReviewListItem item, CharSequence searchQuery, SearchSubject searchSubject) {
+        boolean enableSearch = searchQuery != null && searchSubject == SearchSubject.SOURCE;
+        return RenderCache.key(sourceContainer, item.chapterSlug, item.chunkSlug, "verses", enableSearch ? searchQuery : null, HIGHLIGHT_COLOR);
+    }
+
+    /**
+     * Gives a cached render the click listeners of the adapter that displays it.
+     * The item is looked up when a note is clicked so the render can be shared between items
+     * @param rendered
+     * @param listener
+     */
+    public static void bindListeners(CharSequence rendered, OnSourceClickListener listener) {
+        RenderCache.bindListeners(rendered, null, makeNoteClickListener(listener));
     }
 
     /**
@@ -49,23 +105,12 @@ public class RenderSourceTask extends ManagedTask {
      */
     private CharSequence renderSourceText(String text, TranslationFormat format, final ReviewListItem item) {
         RenderingGroup renderingGroup = new RenderingGroup();
+        this.renderingGroup = renderingGroup;
         boolean enableSearch = this.searchQuery != null
                 && searchSubject == SearchSubject.SOURCE;
         if (Clickables.isClickableFormat(format)) {
             // TODO: add click listeners for verses
-            Span.OnClickListener noteClickListener = new Span.OnClickListener() {
-                @Override
-                public void onClick(View view, Span span, int start, int end) {
-                    if(span instanceof NoteSpan) {
-                        if(listener != null) listener.onSourceFootnoteClick(item, (NoteSpan)span, start, end);
-                    }
-                }
-
-                @Override
-                public void onLongClick(View view, Span span, int start, int end) {
-
-                }
-            };
+            Span.OnClickListener noteClickListener = makeNoteClickListener();
 
             Clickables.setupRenderingGroup(format, renderingGroup, null, noteClickListener, false);
             if( enableSearch ) {
@@ -84,9 +129,39 @@ public class RenderSourceTask extends ManagedTask {
         return results;
     }
 
+    /**
+     * Creates the click listener for notes in the source text
+     * @return
+     */
+    private Span.OnClickListener makeNoteClickListener() {
+        return makeNoteClickListener(this.listener);
+    }
+
+    /**
+     * Creates the click listener for notes in the source text
+     * @param listener receives the note clicks
+     * @return
+     */
+    private static Span.OnClickListener makeNoteClickListener(final OnSourceClickListener listener) {
+        return new Span.OnClickListener() {
+            @Override
+            public void onClick(View view, Span span, int start, int end) {
+                if(span instanceof NoteSpan) {
+                    if(listener != null) listener.onSourceFootnoteClick(view, (NoteSpan)span, start, end);
+                }
+            }
+
+            @Override
+            public void onLongClick(View view, Span span, int start, int end) {
+
+            }
+        };
+    }
+
     @Override
-    protected void onStop() {
-        if(renderingGroup != null) renderingGroup.stop();
+    protected void onCancel() {
+        RenderingGroup group = renderingGroup;
+        if(group != null) group.stop();
     }
 
     /**
@@ -14,9 +14,11 @@ public class ReviewListItem extends ListItem {
     public int selectItemNum = -1;
     public boolean refreshSearchHighlightSource = false;
     public boolean refreshSearchHighlightTarget = false;
-    public int currentTargetTaskId = -1;
     public int currentSourceTaskId = -1;
     public boolean hasMissingVerses = false;
+    public int[] searchMatchOffsets = null;
+    public CharSequence searchMatchText = null;
+    public String searchMatchQuery = null;
 
     public ReviewListItem(String chapterSlug, String chunkSlug) {
         super(chapterSlug, chunkSlug);
@@ -0,0 +1,302 @@
+package com.door43.util;
+
+import org.unfoldingword.tools.logger.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides write-behind persistence of small text files.
+ * Repeated writes to the same file are coalesced in memory and flushed to the disk
+ * on a background thread once the writes have settled for the debounce period.
+ *
+ * Callers that need the data on the disk (commits, exports, pausing the ui) must call {@link #flush(File)}.
+ */
+public class DeferredFileWriter {
+    private static final String TAG = DeferredFileWriter.class.getSimpleName();
+
+    /**
+     * The default time (in milliseconds) to wait for writes to settle before flushing
+     */
+    public static final long DEFAULT_DEBOUNCE = 1000;
+
+    /**
+     * Pending writes are never held back longer than this multiple of the debounce period
+     */
+    private static final int MAX_DEBOUNCE_MULTIPLIER = 5;
+
+    /**
+     * A map of pending file contents. An empty string indicates the file should be deleted.
+     */
+    private final Map<File, String> pendingWrites = new LinkedHashMap<>();
+
+    /**
+     * Serializes disk writes so a flush always waits for any write already in progress
+     */
+    private final Object ioLock = new Object();
+
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduledFlush = null;
+    private long debounce = DEFAULT_DEBOUNCE;
+    private long firstPendingAt = 0;
+
+    private static DeferredFileWriter sInstance = null;
+
+    static {
+        sInstance = new DeferredFileWriter();
+    }
+
+    private DeferredFileWriter() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Sets how long to wait for writes to settle before they are flushed to the disk
+     * @param millis the debounce period. A value of 0 will flush on the next background cycle
+     */
+    public static void setDebounce(long millis) {
+        synchronized (sInstance.pendingWrites) {
+            sInstance.debounce = Math.max(0, millis);
+        }
+    }
+
+    /**
+     * Returns the current debounce period in milliseconds
+     * @return
+     */
+    public static long getDebounce() {
+        synchronized (sInstance.pendingWrites) {
+            return sInstance.debounce;
+        }
+    }
+
+    /**
+     * Queues the contents to be written to the file.
+     * If the contents are empty the file will be deleted instead.
+     * @param file
+     * @param contents
+     */
+    public static void write(File file, String contents) {
+        if(file == null) return;
+        synchronized (sInstance.pendingWrites) {
+            if(sInstance.pendingWrites.isEmpty()) {
+                sInstance.firstPendingAt = System.currentTimeMillis();
+            }
+            sInstance.pendingWrites.put(file.getAbsoluteFile(), contents == null ? "" : contents);
+            sInstance.scheduleFlush();
+        }
+    }
+
+    /**
+     * Checks if the file exists on the disk or is waiting to be written
+     * @param file
+     * @return
+     */
+    public static boolean exists(File file) {
+        synchronized (sInstance.pendingWrites) {
+            String pending = sInstance.pendingWrites.get(file.getAbsoluteFile());
+            if(pending != null) {
+                return !pending.isEmpty();
+            }
+        }
+        return file.exists();
+    }
+
+    /**
+     * Returns the contents of the file taking any pending writes into account.
+     * The result is identical to what {@link FileUtilities#readFileToString(File)} will return once flushed.
+     * @param file
+     * @return the file contents or null if the file does not exist
+     * @throws IOException
+     */
+    public static String readFileToString(File file) throws IOException {
+        String pending;
+        synchronized (sInstance.pendingWrites) {
+            pending = sInstance.pendingWrites.get(file.getAbsoluteFile());
+        }
+        if(pending != null) {
+            if(pending.isEmpty()) {
+                return null;
+            }
+            return FileUtilities.readStreamToString(new ByteArrayInputStream(pending.getBytes()));
+        }
+        if(file.exists()) {
+            return FileUtilities.readFileToString(file);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if there are any pending writes within the directory
+     * @param dir
+     * @return
+     */
+    public static boolean hasPendingWrites(File dir) {
+        String prefix = dir.getAbsolutePath() + File.separator;
+        synchronized (sInstance.pendingWrites) {
+            for(File file:sInstance.pendingWrites.keySet()) {
+                if(file.getPath().startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Synchronously writes all of the pending files within the directory to the disk
+     * @param dir the directory to flush. If null every pending file will be flushed
+     */
+    public static void flush(File dir) {
+        synchronized (sInstance.ioLock) {
+            sInstance.persist(sInstance.peek(dir));
+        }
+    }
+
+    /**
+     * Synchronously writes all of the pending files to the disk
+     */
+    public static void flush() {
+        flush(null);
+    }
+
+    /**
+     * Throws away all of the pending writes within the directory.
+     * This should be used when the directory is about to be deleted or replaced.
+     * @param dir
+     */
+    public static void discard(File dir) {
+        synchronized (sInstance.ioLock) {
+            sInstance.drain(dir);
+        }
+    }
+
+    /**
+     * Schedules the background flush.
+     * TRICKY: must be called while holding the pending writes lock
+     */
+    private void scheduleFlush() {
+        if(scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        long maxDelay = firstPendingAt + debounce * MAX_DEBOUNCE_MULTIPLIER - System.currentTimeMillis();
+        long delay = Math.max(0, Math.min(debounce, maxDelay));
+        scheduledFlush = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush(null);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a copy of the pending writes within the directory.
+     * TRICKY: the writes stay queued so reads see them until they are on the disk
+     * @param dir the directory to copy. If null the entire queue is copied
+     * @return the pending writes
+     */
+    private Map<File, String> peek(File dir) {
+        Map<File, String> pending = new LinkedHashMap<>();
+        String prefix = dir == null ? null : dir.getAbsolutePath() + File.separator;
+        synchronized (pendingWrites) {
+            for(Map.Entry<File, String> entry:pendingWrites.entrySet()) {
+                if(prefix == null || entry.getKey().getPath().startsWith(prefix)) {
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Removes the pending writes within the directory from the queue
+     * @param dir the directory to drain. If null the entire queue is drained
+     * @return the drained writes
+     */
+    private Map<File, String> drain(File dir) {
+        Map<File, String> drained = new LinkedHashMap<>();
+        String prefix = dir == null ? null : dir.getAbsolutePath() + File.separator;
+        synchronized (pendingWrites) {
+            Iterator<Map.Entry<File, String>> it = pendingWrites.entrySet().iterator();
+            while(it.hasNext()) {
+                Map.Entry<File, String> entry = it.next();
+                if(prefix == null || entry.getKey().getPath().startsWith(prefix)) {
+                    drained.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+            onQueueChanged();
+        }
+        return drained;
+    }
+
+    /**
+     * Cancels the background flush once the queue is empty.
+     * TRICKY: must be called while holding the pending writes lock
+     */
+    private void onQueueChanged() {
+        if(pendingWrites.isEmpty() && scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        } else if(!pendingWrites.isEmpty()) {
+            firstPendingAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Writes the files to the disk.
+     * Each write is removed from the queue once it is on the disk
+     * unless it has been replaced in the mean time.
+     * @param writes
+     */
+    private void persist(Map<File, String> writes) {
+        boolean failed = false;
+        for(Map.Entry<File, String> entry:writes.entrySet()) {
+            File file = entry.getKey();
+            String contents = entry.getValue();
+            try {
+                if(contents.isEmpty()) {
+                    file.delete();
+                } else {
+                    file.getParentFile().mkdirs();
+                    FileUtilities.writeStringToFile(file, contents);
+                }
+            } catch (IOException e) {
+                Logger.e(TAG, "Failed to write " + file, e);
+                failed = true;
+                continue;
+            }
+            synchronized (pendingWrites) {
+                if(contents.equals(pendingWrites.get(file))) {
+                    pendingWrites.remove(file);
+                }
+            }
+        }
+
+        synchronized (pendingWrites) {
+            onQueueChanged();
+            // TRICKY: failed writes stay queued so try them again after the debounce period
+            if(failed && !pendingWrites.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.door43.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes a single stream to several files at once.
+ * Each destination is written by its own thread so a slow device (e.g. an sd card) does not hold up the others.
+ *
+ * The data is written to a temporary file beside each destination.
+ * Nothing is replaced until {@link #commit()} is called after the stream has been closed,
+ * so a failed or abandoned write leaves the existing files untouched.
+ */
+public class FanOutOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_QUEUED_CHUNKS = 8;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final Writer[] writers;
+    private byte[] buffer = new byte[CHUNK_SIZE];
+    private int count = 0;
+    private long size = 0;
+    private boolean closed = false;
+    private boolean committed = false;
+
+    /**
+     * @param destinations the files that will receive the stream
+     * @throws IOException
+     */
+    public FanOutOutputStream(File... destinations) throws IOException {
+        writers = new Writer[destinations.length];
+        try {
+            for (int i = 0; i < destinations.length; i++) {
+                writers[i] = new Writer(destinations[i]);
+            }
+        } catch (IOException e) {
+            for(Writer writer:writers) {
+                if(writer != null) writer.abandon();
+            }
+            throw e;
+        }
+        for(Writer writer:writers) {
+            writer.start();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if(count == buffer.length) dispatch();
+        buffer[count++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while(len > 0) {
+            if(count == buffer.length) dispatch();
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if(count > 0) dispatch();
+    }
+
+    /**
+     * Finishes writing the temporary files.
+     * Call {@link #commit()} afterwards to move them into place
+     * @throws IOException if any of the destinations could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) return;
+        IOException error = null;
+        try {
+            if(count > 0) dispatch();
+        } catch (IOException e) {
+            error = e;
+        }
+        closed = true;
+        for(Writer writer:writers) {
+            writer.finish();
+        }
+        for(Writer writer:writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if(error == null) error = new IOException("Interrupted while writing " + writer.destination, e);
+            }
+            if(error == null && writer.error != null) error = writer.error;
+        }
+        if(error != null) throw error;
+    }
+
+    /**
+     * Replaces the destinations with the written files.
+     * The stream will be closed if it is not already
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        close();
+        for(Writer writer:writers) {
+            File destination = writer.destination;
+            if(!writer.temp.renameTo(destination)) {
+                // TRICKY: some file systems (e.g. FAT32) will not rename over an existing file
+                destination.delete();
+                if(!writer.temp.renameTo(destination)) {
+                    throw new IOException("Could not move the backup into " + destination);
+                }
+            }
+        }
+        committed = true;
+    }
+
+    /**
+     * Deletes any temporary files that were not committed.
+     * This does nothing after a successful commit
+     */
+    public void discard() {
+        if(committed) return;
+        try {
+            close();
+        } catch (IOException e) {
+            // the files are being thrown away
+        }
+        for(Writer writer:writers) {
+            writer.temp.delete();
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to each destination
+     * @return
+     */
+    public long getSize() {
+        return size;
+    }
+
+    private void ensureOpen() throws IOException {
+        if(closed) throw new IOException("Stream closed");
+    }
+
+    /**
+     * Hands the buffered chunk to each of the writers.
+     * The chunk is shared so the writers must not modify it
+     * @throws IOException if one of the writers has failed
+     */
+    private void dispatch() throws IOException {
+        byte[] chunk = count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+        for(Writer writer:writers) {
+            if(writer.error != null) throw writer.error;
+            writer.put(chunk);
+        }
+        buffer = new byte[CHUNK_SIZE];
+        count = 0;
+    }
+
+    /**
+     * Writes the chunks to a single destination
+     */
+    private static class Writer extends Thread {
+        private final File destination;
+        private final File temp;
+        private final OutputStream out;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(MAX_QUEUED_CHUNKS);
+        private volatile IOException error = null;
+
+        Writer(File destination) throws IOException {
+            super("FanOutOutputStream " + destination.getName());
+            this.destination = destination;
+            destination.getAbsoluteFile().getParentFile().mkdirs();
+            this.temp = new File(destination.getAbsoluteFile().getParentFile(), destination.getName() + ".part");
+            this.out = new FileOutputStream(temp);
+        }
+
+        void put(byte[] chunk) throws IOException {
+            try {
+                queue.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing " + destination, e);
+            }
+        }
+
+        /**
+         * Deletes the temporary file of a writer that was never started
+         */
+        void abandon() {
+            FileUtilities.closeQuietly(out);
+            temp.delete();
+        }
+
+        void finish() {
+            try {
+                queue.put(END_OF_STREAM);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                byte[] chunk;
+                while((chunk = queue.take()) != END_OF_STREAM) {
+                    // TRICKY: keep draining after a failure so the producer is never blocked
+                    if(error == null) {
+                        try {
+                            out.write(chunk);
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                if(error == null) error = new IOException("Interrupted while writing " + destination, e);
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    if(error == null) error = e;
+                }
+            }
+        }
+    }
+}
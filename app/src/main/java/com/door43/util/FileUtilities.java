@@ -78,6 +78,36 @@ public class FileUtilities {
         }
     }
 
+    /**
+     * Writes a string to a file atomically.
+     * The contents are first written to a temporary file beside the destination and then renamed into place
+     * so readers will never see a partially written file.
+     * @param file
+     * @param contents
+     * @throws IOException
+     */
+    public static void writeStringToFileAtomic(File file, String contents) throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(temp);
+            fos.write(contents.getBytes());
+            fos.getFD().sync();
+        } finally {
+            if(fos != null) {
+                fos.close();
+            }
+        }
+        if(!temp.renameTo(file)) {
+            // TRICKY: some file systems (e.g. FAT32) will not rename over an existing file
+            try {
+                writeStringToFile(file, contents);
+            } finally {
+                temp.delete();
+            }
+        }
+    }
+
     public static void copyInputStreamToFile(InputStream source, File destination) throws IOException {
         try {
             FileOutputStream output = openOutputStream(destination);
@@ -11,10 +11,16 @@ import java.util.Iterator;
 /**
  * This class handles the management of a manifest file.
  *
+ * Every mutation is written to the disk immediately unless a batch has been started
+ * with {@link #beginBatch()}, in which case the mutations are applied in memory and
+ * written once when the batch is committed with {@link #commitBatch()}.
  */
 public class Manifest {
     private final File mManifestFile;
     private JSONObject mManifest = new JSONObject();
+    private int mBatchDepth = 0;
+    private boolean mDirty = false;
+    private int mRevision = 0;
     public static final String MANIFEST_JSON = "manifest.json";
 
     /**
@@ -190,16 +196,62 @@ public class Manifest {
     }
 
     /**
-     * Saves the manifest to the disk
+     * Saves the manifest to the disk.
+     * If a batch is in progress the save is deferred until the batch is committed.
      */
-    public void save() {
+    public synchronized void save() {
+        mRevision ++;
+        if(mBatchDepth > 0) {
+            mDirty = true;
+            return;
+        }
         try {
-            FileUtilities.writeStringToFile(mManifestFile, mManifest.toString());
+            FileUtilities.writeStringToFileAtomic(mManifestFile, mManifest.toString());
+            mDirty = false;
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Begins a batch of mutations.
+     * Changes are applied in memory and will not be written to the disk until the batch is committed.
+     * Batches may be nested, in which case the manifest is written when the outermost batch is committed.
+     */
+    public synchronized void beginBatch() {
+        mBatchDepth ++;
+    }
+
+    /**
+     * Commits a batch of mutations.
+     * The manifest is written to the disk once if anything changed during the batch.
+     */
+    public synchronized void commitBatch() {
+        if(mBatchDepth > 0) {
+            mBatchDepth --;
+        }
+        if(mBatchDepth == 0 && mDirty) {
+            save();
+        }
+    }
+
+    /**
+     * Returns a counter that changes every time the manifest is modified or reloaded.
+     * This can be used to tell if values derived from the manifest are stale.
+     * @return
+     */
+    public synchronized int getRevision() {
+        return mRevision;
+    }
+
+    /**
+     * Checks if a batch of mutations is in progress
+     * @return
+     */
+    public synchronized boolean isBatching() {
+        return mBatchDepth > 0;
+    }
+
 
     /**
      * Deletes the manifest file
@@ -211,8 +263,9 @@ public class Manifest {
 
     /**
      * Reads the manifest file from the disk
+     * TRICKY: this will discard any uncommitted changes within a batch
      */
-    public void load() {
+    public synchronized void load() {
         String contents = "";
         try {
             contents = FileUtilities.readFileToString(mManifestFile);
@@ -229,6 +282,8 @@ public class Manifest {
                 mManifest = new JSONObject();
             }
         }
+        mDirty = false;
+        mRevision ++;
     }
 
     /**
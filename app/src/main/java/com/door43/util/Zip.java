@@ -13,10 +13,19 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -24,6 +33,9 @@ import java.util.zip.ZipOutputStream;
  * This class handles zipping and un-zipping files and directories
  */
 public class Zip {
+    private static final int UNZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_UNZIP_WORKERS = 4;
+
     /**
      * Creates a zip archive
      * http://stackoverflow.com/questions/6683600/zip-compress-a-folder-full-of-files-on-android
@@ -138,31 +150,15 @@ public class Zip {
      * @param dest - destination output stream
      */
     public static void zipToStream(File[] files, OutputStream dest) throws IOException {
-        final int BUFFER = 2048;
-        BufferedInputStream origin = null;
-        ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(
-                dest));
-
+        ZipStreamWriter writer = new ZipStreamWriter(dest);
         for(File f:files) {
             if (f.isDirectory()) {
-                // TRICKY: we add 1 to the base path length to exclude the leading path separator
-                zipSubFolder(out, f, f.getParent().length() + 1);
+                writer.putFolder(f, f.getName());
             } else {
-                byte data[] = new byte[BUFFER];
-                FileInputStream fi = new FileInputStream(f);
-                origin = new BufferedInputStream(fi, BUFFER);
-                String[] segments = f.getAbsolutePath().split("/");
-                String lastPathComponent = segments[segments.length - 1];
-                ZipEntry entry = new ZipEntry(lastPathComponent);
-                out.putNextEntry(entry);
-                int count;
-                while ((count = origin.read(data, 0, BUFFER)) != -1) {
-                    out.write(data, 0, count);
-                }
+                writer.putFile(f, f.getName());
             }
         }
-
-        out.close();
+        writer.close();
     }
 
     /**
@@ -215,6 +211,7 @@ public class Zip {
         File[] fileList = folder.listFiles();
         BufferedInputStream origin = null;
         if(fileList == null) return; // skip empty folders
+        sortForStreaming(fileList);
         for (File file : fileList) {
             if (file.isDirectory()) {
                 zipSubFolder(out, file, basePathLength);
@@ -235,6 +232,26 @@ public class Zip {
         }
     }
 
+    /**
+     * Orders the files so the manifest of each folder is written first and sub folders are written last.
+     * This allows readers that stream through the archive to find the manifests without
+     * decompressing everything else e.g. the git history
+     * @param files
+     */
+    static void sortForStreaming(File[] files) {
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return rank(a) - rank(b);
+            }
+
+            private int rank(File file) {
+                if(file.isDirectory()) return 2;
+                return file.getName().equals("manifest.json") ? 0 : 1;
+            }
+        });
+    }
+
     /**
      * Zips up a sub folder
      * @param out
@@ -270,51 +287,77 @@ public class Zip {
      * @throws IOException
      */
     public static void unzip(String zipPath, String destPath) throws IOException {
-        InputStream is;
-        ZipInputStream zis;
-        String filename;
-        ZipEntry ze;
-        int count;
-        byte[] buffer = new byte[1024];
-        is = new FileInputStream(zipPath);
-        zis = new ZipInputStream(new BufferedInputStream(is));
-
-        File destDir = new File(destPath);
-        destDir.mkdirs();
-
-        while ((ze = zis.getNextEntry()) != null) {
-            filename = ze.getName();
-            File f = new File(destPath, filename);
-            if (ze.isDirectory()) {
-                f.mkdirs();
-                continue;
-            }
-            f.getParentFile().mkdirs();
-            f.createNewFile();
-            FileOutputStream fout = new FileOutputStream(f.getAbsolutePath());
-            while ((count = zis.read(buffer)) != -1) {
-                fout.write(buffer, 0, count);
-            }
-            fout.close();
-            zis.closeEntry();
-        }
-        zis.close();
+        unzip(new File(zipPath), new File(destPath));
     }
 
     /**
-     * Extracts a zip archive
+     * Extracts a zip archive.
+     * The entries are found in the central directory and inflated across a pool of workers.
+     * Archives without a readable central directory are extracted from a stream instead
      * @param zipArchive
      * @param destDir - place to store unzipped file
      * @throws IOException
      */
     public static void unzip(File zipArchive, File destDir) throws IOException {
-        InputStream is;
-        ZipInputStream zis;
-        String filename;
-        ZipEntry ze;
-        int count;
-        is = new FileInputStream(zipArchive);
-        unzipFromStream(is, destDir);
+        List<ZipEntry> entries = new ArrayList<>();
+        try {
+            ZipFile zip = new ZipFile(zipArchive);
+            try {
+                Enumeration<? extends ZipEntry> e = zip.entries();
+                while(e.hasMoreElements()) {
+                    entries.add(e.nextElement());
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (ZipException e) {
+            // TRICKY: the central directory is missing from truncated archives so we fall back to reading the entries in order
+            unzipFromStream(new FileInputStream(zipArchive), destDir);
+            return;
+        }
+
+        // create the directory tree up front so the workers do not race to create it
+        destDir.mkdirs();
+        String destPath = destDir.getCanonicalPath() + File.separator;
+        Set<File> dirs = new HashSet<>();
+        for(ZipEntry entry:entries) {
+            File f = new File(destDir, entry.getName());
+            if(!f.getCanonicalPath().startsWith(destPath)) {
+                throw new IOException("Entry is outside of the target directory: " + entry.getName());
+            }
+            File dir = entry.isDirectory() ? f : f.getParentFile();
+            if(dirs.add(dir)) dir.mkdirs();
+        }
+
+        // large entries are started first so they do not hold up the end of the extraction
+        Collections.sort(entries, new Comparator<ZipEntry>() {
+            @Override
+            public int compare(ZipEntry a, ZipEntry b) {
+                // TRICKY: Long.compare is not available on older devices
+                return b.getSize() < a.getSize() ? -1 : (b.getSize() == a.getSize() ? 0 : 1);
+            }
+        });
+
+        int numWorkers = Math.max(1, Math.min(MAX_UNZIP_WORKERS, Math.min(Runtime.getRuntime().availableProcessors(), entries.size())));
+        UnzipWorker[] workers = new UnzipWorker[numWorkers];
+        AtomicInteger next = new AtomicInteger(0);
+        for(int i = 0; i < numWorkers; i ++) {
+            workers[i] = new UnzipWorker(zipArchive, destDir, entries, next);
+            if(i > 0) workers[i].start();
+        }
+        // the calling thread does its share of the work
+        workers[0].run();
+        IOException error = workers[0].error;
+        for(int i = 1; i < numWorkers; i ++) {
+            try {
+                workers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while extracting " + zipArchive, e);
+            }
+            if(error == null) error = workers[i].error;
+        }
+        if(error != null) throw error;
     }
 
     /**
@@ -324,12 +367,12 @@ public class Zip {
      * @throws IOException
      */
     public static void unzipFromStream(InputStream is, File destDir) throws IOException {
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[UNZIP_BUFFER_SIZE];
         ZipInputStream zis;
         ZipEntry ze;
         String filename;
         int count;
-        zis = new ZipInputStream(new BufferedInputStream(is));
+        zis = new ZipInputStream(new BufferedInputStream(is, UNZIP_BUFFER_SIZE));
 
         destDir.mkdirs();
 
@@ -352,6 +395,63 @@ public class Zip {
         zis.close();
     }
 
+    /**
+     * Extracts entries from an archive until there are none left.
+     * Each worker opens the archive itself so entries are inflated independently
+     */
+    private static class UnzipWorker extends Thread {
+        private final File zipArchive;
+        private final File destDir;
+        private final List<ZipEntry> entries;
+        private final AtomicInteger next;
+        private volatile IOException error = null;
+
+        UnzipWorker(File zipArchive, File destDir, List<ZipEntry> entries, AtomicInteger next) {
+            super("UnzipWorker");
+            this.zipArchive = zipArchive;
+            this.destDir = destDir;
+            this.entries = entries;
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[UNZIP_BUFFER_SIZE];
+            ZipFile zip = null;
+            try {
+                zip = new ZipFile(zipArchive);
+                int i;
+                while((i = next.getAndIncrement()) < entries.size()) {
+                    ZipEntry entry = entries.get(i);
+                    if(entry.isDirectory()) continue;
+                    InputStream in = zip.getInputStream(entry);
+                    OutputStream out = new FileOutputStream(new File(destDir, entry.getName()));
+                    try {
+                        int count;
+                        while ((count = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, count);
+                        }
+                    } finally {
+                        out.close();
+                        in.close();
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+                // stop the other workers
+                next.set(entries.size());
+            } finally {
+                if(zip != null) {
+                    try {
+                        zip.close();
+                    } catch (IOException e) {
+                        // the entries have already been read
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Lists the contents of the zip file
      * @param zipArchive
@@ -378,23 +478,67 @@ public class Zip {
     }
 
     /**
-     * Reads the contents of a file from the zip archive
+     * Reads the contents of a file from the zip archive.
+     * The file is looked up in the central directory so the rest of the archive is not decompressed
      * @param zipArchive
      * @param path
      * @return
      */
+    @Nullable
     public static String read(File zipArchive, String path) throws IOException {
-        InputStream is;
-        is = new FileInputStream(zipArchive);
-        return readInputStream(is, path);
+        ZipFile zip;
+        try {
+            zip = new ZipFile(zipArchive);
+        } catch (ZipException e) {
+            // TRICKY: the central directory is missing from truncated archives so we fall back to reading the entries in order
+            return readInputStream(new FileInputStream(zipArchive), path);
+        }
+        try {
+            return read(zip, path);
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * Reads the contents of a file from an open zip archive.
+     * This allows several files to be read without opening the archive each time
+     * @param zip
+     * @param path
+     * @return
+     */
+    @Nullable
+    public static String read(ZipFile zip, String path) throws IOException {
+        ZipEntry ze = zip.getEntry(path);
+        if(ze == null || ze.isDirectory()) {
+            // look for the entry ignoring case
+            ze = null;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while(entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if(!entry.isDirectory() && entry.getName().equalsIgnoreCase(path)) {
+                    ze = entry;
+                    break;
+                }
+            }
+        }
+        if(ze == null) return null;
+        InputStream is = zip.getInputStream(ze);
+        try {
+            return readContents(is);
+        } finally {
+            is.close();
+        }
     }
 
     /**
-     * Reads the contents of a file from the zip archive
+     * Reads the contents of a file from the zip archive.
+     * The entries are read in order so this should only be used when the archive is not a file
      * @param zipStream
      * @param path
      * @return
-     */    @Nullable
+     */
+    @Nullable
     public static String readInputStream(InputStream zipStream, String path) throws IOException {
         String contents = null;
         ZipInputStream zis;
@@ -406,14 +550,7 @@ public class Zip {
                 continue;
             }
             if(ze.getName().equalsIgnoreCase(path)) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(zis));
-                StringBuilder sb = new StringBuilder();
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line).append('\n');
-                }
-                contents = sb.toString();
+                contents = readContents(zis);
             }
             zis.closeEntry();
             if(contents != null) {
@@ -423,4 +560,21 @@ public class Zip {
         zis.close();
         return contents;
     }
+
+    /**
+     * Reads the text of a single entry
+     * @param is
+     * @return
+     * @throws IOException
+     */
+    private static String readContents(InputStream is) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+        StringBuilder sb = new StringBuilder();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
 }
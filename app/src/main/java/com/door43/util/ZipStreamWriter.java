@@ -0,0 +1,226 @@
+package com.door43.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a zip archive directly into an output stream e.g. a file, socket or document file.
+ * Files are copied with large pooled buffers and no intermediate files are created.
+ *
+ * Files that are already compressed (e.g. git packs) can optionally be stored as they are
+ * instead of being deflated a second time.
+ */
+public class ZipStreamWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final ArrayDeque<byte[]> sBuffers = new ArrayDeque<>();
+
+    private final ZipOutputStream out;
+    private final long totalBytes;
+    private final OnProgressListener listener;
+    private boolean storeCompressed = false;
+    private long bytesWritten = 0;
+
+    /**
+     * @param dest the stream that will receive the archive
+     * @param totalBytes the expected number of bytes to be read from the entries. See {@link #sizeOf(File)}
+     * @param listener receives progress updates. May be null
+     */
+    public ZipStreamWriter(OutputStream dest, long totalBytes, OnProgressListener listener) {
+        this.out = new ZipOutputStream(new BufferedOutputStream(dest, BUFFER_SIZE));
+        this.totalBytes = totalBytes;
+        this.listener = listener;
+    }
+
+    /**
+     * @param dest the stream that will receive the archive
+     */
+    public ZipStreamWriter(OutputStream dest) {
+        this(dest, 0, null);
+    }
+
+    /**
+     * Stores files that are already compressed without deflating them again.
+     * This costs an extra read of each of those files to calculate the checksum
+     * @param store
+     */
+    public void setStoreCompressed(boolean store) {
+        this.storeCompressed = store;
+    }
+
+    /**
+     * Adds an entry from memory
+     * @param name the path of the entry in the archive
+     * @param data
+     * @throws IOException
+     */
+    public void putEntry(String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+        onWritten(data.length);
+    }
+
+    /**
+     * Adds a file
+     * @param file
+     * @param name the path of the entry in the archive
+     * @throws IOException
+     */
+    public void putFile(File file, String name) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if(storeCompressed && isCompressed(name)) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(file.length());
+            entry.setCompressedSize(file.length());
+            entry.setCrc(checksum(file));
+        }
+        out.putNextEntry(entry);
+        byte[] buffer = obtainBuffer();
+        InputStream in = new FileInputStream(file);
+        try {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+                onWritten(count);
+            }
+        } finally {
+            in.close();
+            recycleBuffer(buffer);
+        }
+        out.closeEntry();
+    }
+
+    /**
+     * Adds the contents of a folder.
+     * Manifests are written before the other files in each folder and sub folders are written last.
+     * Empty folders are skipped
+     *
+     * @param folder
+     * @param name the path of the folder in the archive
+     * @throws IOException
+     */
+    public void putFolder(File folder, String name) throws IOException {
+        File[] files = folder.listFiles();
+        if(files == null) return;
+        Zip.sortForStreaming(files);
+        for(File file:files) {
+            String path = name + "/" + file.getName();
+            if(file.isDirectory()) {
+                putFolder(file, path);
+            } else {
+                putFile(file, path);
+            }
+        }
+    }
+
+    /**
+     * Finishes the archive and closes the stream
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Returns the number of bytes that have been read from the entries
+     * @return
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the total size of the files in a folder.
+     * This can be given as the expected size of the archive
+     * @param file a file or folder
+     * @return
+     */
+    public static long sizeOf(File file) {
+        if(!file.isDirectory()) return file.length();
+        long size = 0;
+        File[] files = file.listFiles();
+        if(files != null) {
+            for(File f:files) {
+                size += sizeOf(f);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Checks if the file is already compressed and would not benefit from being deflated
+     * @param name
+     * @return
+     */
+    static boolean isCompressed(String name) {
+        String lower = name.toLowerCase(Locale.US);
+        if(lower.endsWith(".pack") || lower.endsWith(".zip") || lower.endsWith(".tstudio")
+                || lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg")
+                || lower.endsWith(".mp3") || lower.endsWith(".mp4")) {
+            return true;
+        }
+        // TRICKY: loose git objects are zlib compressed and stored as .git/objects/xx/yyyy
+        int objects = lower.lastIndexOf(".git/objects/");
+        if(objects >= 0) {
+            String object = lower.substring(objects + ".git/objects/".length());
+            int slash = object.indexOf('/');
+            return slash == 2 && object.indexOf('/', slash + 1) < 0;
+        }
+        return false;
+    }
+
+    private void onWritten(long count) {
+        bytesWritten += count;
+        if(listener != null) {
+            listener.onProgress(bytesWritten, Math.max(bytesWritten, totalBytes));
+        }
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = obtainBuffer();
+        InputStream in = new FileInputStream(file);
+        try {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+            recycleBuffer(buffer);
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] obtainBuffer() {
+        synchronized (sBuffers) {
+            byte[] buffer = sBuffers.poll();
+            return buffer != null ? buffer : new byte[BUFFER_SIZE];
+        }
+    }
+
+    private static void recycleBuffer(byte[] buffer) {
+        synchronized (sBuffers) {
+            if(sBuffers.size() < MAX_POOLED_BUFFERS) sBuffers.push(buffer);
+        }
+    }
+
+    public interface OnProgressListener {
+        /**
+         * Called as data is added to the archive
+         * @param bytesWritten the number of bytes read from the entries so far
+         * @param totalBytes the expected number of bytes
+         */
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+}
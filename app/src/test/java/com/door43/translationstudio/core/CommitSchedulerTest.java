@@ -0,0 +1,150 @@
+package com.door43.translationstudio.core;
+
+import com.door43.util.FileUtilities;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the scheduler only reports a repository as clean when every change has been committed
+ */
+public class CommitSchedulerTest {
+    private File repoDir;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        repoDir = File.createTempFile("repo", "");
+        repoDir.delete();
+        new File(repoDir, "01").mkdirs();
+        FileUtilities.writeStringToFile(new File(repoDir, "manifest.json"), "{}");
+        FileUtilities.writeStringToFile(new File(repoDir, "01/01.txt"), "In the beginning");
+        git = Git.init().setDirectory(repoDir).call();
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("initial").call();
+        commitTracked();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        git.close();
+        FileUtilities.deleteQuietly(repoDir);
+    }
+
+    @Test
+    public void markDirty() throws Exception {
+        assertEquals(Boolean.TRUE, CommitScheduler.isClean(repoDir));
+
+        File file = new File(repoDir, "01/01.txt");
+        CommitScheduler.markDirty(repoDir, file);
+        FileUtilities.writeStringToFile(file, "In the beginning God");
+        assertEquals(Boolean.FALSE, CommitScheduler.isClean(repoDir));
+
+        Set<String> paths = commitTracked();
+        assertTrue(paths.contains("01/01.txt"));
+        assertTrue(git.status().call().isClean());
+        assertEquals(Boolean.TRUE, CommitScheduler.isClean(repoDir));
+    }
+
+    @Test
+    public void invalidate() throws Exception {
+        CommitScheduler.invalidate(repoDir);
+        assertNull(CommitScheduler.isClean(repoDir));
+        assertNull(CommitScheduler.takeDirtyPaths(repoDir));
+        assertFalse(new File(repoDir, ".git/tstudio_clean.json").exists());
+    }
+
+    @Test
+    public void manifestEditedInPlace() throws Exception {
+        File manifest = new File(repoDir, "manifest.json");
+        long modified = manifest.lastModified();
+        FileUtilities.writeStringToFile(manifest, "[]");
+        // TRICKY: file systems with coarse dates may not see the edit
+        manifest.setLastModified(modified);
+        assertEquals(Boolean.FALSE, CommitScheduler.isClean(repoDir));
+    }
+
+    @Test
+    public void stagesUntrackedWrites() throws Exception {
+        assertTrue(new File(repoDir, ".git/tstudio_clean.json").exists());
+
+        // written without telling the scheduler
+        File folder = new File(repoDir, "01");
+        File file = new File(folder, "02.txt");
+        FileUtilities.writeStringToFile(file, "And the earth");
+        folder.setLastModified(folder.lastModified() + 2000);
+        assertNull(CommitScheduler.isClean(repoDir));
+
+        Set<String> paths = commitTracked();
+        assertTrue(paths.contains("01"));
+        assertTrue(git.status().call().isClean());
+
+        // deleted without telling the scheduler
+        file.delete();
+        folder.setLastModified(folder.lastModified() + 2000);
+        commitTracked();
+        assertTrue(git.status().call().isClean());
+        assertEquals(Boolean.TRUE, CommitScheduler.isClean(repoDir));
+    }
+
+    @Test
+    public void commitPaths() throws Exception {
+        new File(repoDir, "02").mkdirs();
+        FileUtilities.writeStringToFile(new File(repoDir, "02/01.txt"), "And God said");
+        new File(repoDir, "01/01.txt").delete();
+        Set<String> paths = new HashSet<>();
+        paths.add("02");
+        paths.add("01/01.txt");
+        assertTrue(CommitScheduler.commitPaths(git, repoDir, paths, null));
+        assertTrue(git.status().call().isClean());
+
+        // nothing left to commit
+        assertFalse(CommitScheduler.commitPaths(git, repoDir, paths, null));
+    }
+
+    @Test
+    public void scansFromTimeToTime() throws Exception {
+        boolean scanned = false;
+        for(int i = 0; i <= CommitScheduler.FULL_SCAN_INTERVAL; i ++) {
+            if(CommitScheduler.isClean(repoDir) == null) {
+                scanned = true;
+                break;
+            }
+        }
+        assertTrue(scanned);
+        assertNull(CommitScheduler.takeDirtyPaths(repoDir));
+
+        // a full commit renews the trust
+        commitTracked();
+        assertEquals(Boolean.TRUE, CommitScheduler.isClean(repoDir));
+    }
+
+    /**
+     * Commits the tracked changes the same way a target translation does
+     * @return the paths that were staged or null if the repository was scanned
+     */
+    private Set<String> commitTracked() throws Exception {
+        long generation = CommitScheduler.getGeneration(repoDir);
+        Set<String> paths = CommitScheduler.takeDirtyPaths(repoDir);
+        if(paths != null) {
+            paths.add("manifest.json");
+            CommitScheduler.commitPaths(git, repoDir, paths, null);
+        } else {
+            git.add().addFilepattern(".").call();
+            git.add().setUpdate(true).addFilepattern(".").call();
+            if(!git.status().call().isClean()) {
+                git.commit().setMessage("scan").call();
+            }
+        }
+        CommitScheduler.markCommitted(repoDir, generation);
+        return paths;
+    }
+}
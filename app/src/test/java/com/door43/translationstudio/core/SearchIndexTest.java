@@ -0,0 +1,123 @@
+package com.door43.translationstudio.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the index finds the same chunks as a plain text search of the displayed text
+ */
+public class SearchIndexTest {
+
+    @Test
+    public void stripsUSFM() throws Exception {
+        String text = "\\v 1 In the \\f + \\ft a note \\f*beginning \\v 2 God";
+        assertEquals("In the beginning God", SearchIndex.toPlainText(text, TranslationFormat.USFM));
+    }
+
+    @Test
+    public void stripsUSX() throws Exception {
+        String text = "<verse number=\"1\" style=\"v\" />In the <note caller=\"+\" style=\"f\"><char style=\"ft\">a note</char></note>beginning";
+        assertEquals("In the beginning", SearchIndex.toPlainText(text, TranslationFormat.USX));
+    }
+
+    @Test
+    public void findsChunks() throws Exception {
+        SearchIndex index = new SearchIndex(Locale.ENGLISH);
+        index.put("01-01", "\\v 1 In the beginning God created the heavens", TranslationFormat.USFM);
+        index.put("01-02", "\\v 2 And the earth was without form", TranslationFormat.USFM);
+        index.put("01-03", "\\v 3 \\f + \\ft beginning \\f*And God said", TranslationFormat.USFM);
+
+        Set<String> results = index.search("Beginning");
+        assertEquals(1, results.size());
+        assertTrue(results.contains("01-01"));
+
+        // part way through words
+        results = index.search("ginning god cre");
+        assertEquals(1, results.size());
+        assertTrue(results.contains("01-01"));
+
+        // mark-up is not searched
+        assertTrue(index.search("ft").isEmpty());
+        assertTrue(index.search("v 2").isEmpty());
+
+        results = index.search("god");
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    public void updatesChunks() throws Exception {
+        SearchIndex index = new SearchIndex(Locale.ENGLISH);
+        index.put("01-01", "In the beginning", TranslationFormat.DEFAULT);
+        assertEquals(1, index.search("beginning").size());
+
+        index.put("01-01", "In the end", TranslationFormat.DEFAULT);
+        assertTrue(index.search("beginning").isEmpty());
+        assertEquals(1, index.search("end").size());
+
+        index.remove("01-01");
+        assertTrue(index.search("end").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void findsWordsContainingQuery() throws Exception {
+        SearchIndex index = new SearchIndex(Locale.ENGLISH);
+        index.put("01-01", "In the beginning", TranslationFormat.DEFAULT);
+        index.put("01-02", "God divided the waters", TranslationFormat.DEFAULT);
+
+        // shorter and longer than the grams of the dictionary
+        assertEquals(2, index.search("g").size());
+        assertEquals(1, index.search("nn").size());
+        assertEquals(1, index.search("ivid").size());
+        assertEquals(1, index.search("inning").size());
+        assertTrue(index.search("ginz").isEmpty());
+
+        index.remove("01-02");
+        assertTrue(index.search("ivid").isEmpty());
+        assertEquals(1, index.search("g").size());
+    }
+
+    @Test
+    public void findsMatchOffsets() throws Exception {
+        SearchIndex index = new SearchIndex(Locale.ENGLISH);
+        index.put("01-01", "\\v 1 the THE the", TranslationFormat.USFM);
+        assertArrayEquals(new int[]{0, 4, 8}, index.findMatches("01-01", "the"));
+        assertEquals(0, index.countMatches("01-02", "the"));
+    }
+
+    @Test
+    public void mapsMatchesOntoRenderedText() throws Exception {
+        SearchIndex index = new SearchIndex(Locale.ENGLISH);
+        index.put("01-01", "\\v 1 the \\f + \\ft note \\f*THE \\v 2 the", TranslationFormat.USFM);
+        // verse numbers and notes are masked
+        String m = String.valueOf(SearchIndex.MASK);
+        String rendered = m + " the " + m + m + m + "THE " + m + " the";
+        assertArrayEquals(new int[]{2, 9, 15}, index.findRenderedMatches("01-01", "the", rendered));
+        assertNull(index.findRenderedMatches("01-02", "the", rendered));
+
+        // text that does not line up falls back to the next match
+        assertArrayEquals(new int[]{0, 4}, SearchIndex.mapOffsets("ab ab", "ab\nxab", new int[]{0, 3}, "ab"));
+        assertArrayEquals(new int[]{0}, SearchIndex.mapOffsets("ab ab", "ab", new int[]{0, 3}, "ab"));
+    }
+
+    @Test
+    public void tracksChangedChunks() throws Exception {
+        SearchIndex index = SearchIndex.getInstance(SearchIndex.targetIndexId("tracked"), "en");
+        int token = index.startRebuild();
+        SearchIndex.markChanged("tracked", "01", "02");
+        assertTrue(index.takeChanged().contains(SearchIndex.chunkId("01", "02")));
+        assertTrue(index.takeChanged().isEmpty());
+        index.finishRebuild(token);
+        assertTrue(index.isComplete());
+
+        // a change that was not reported chunk by chunk while rebuilding
+        token = index.startRebuild();
+        SearchIndex.markAllChanged("tracked");
+        index.finishRebuild(token);
+        assertFalse(index.isComplete());
+    }
+}
@@ -0,0 +1,210 @@
+package com.door43.translationstudio.core;
+
+import android.text.Spanned;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the compiler against synthetic spanned text so it can be measured without a device
+ */
+public class TranslationCompilerTest {
+    private static final int NUM_VERSES = 500;
+    private static final int ITERATIONS = 50;
+    private static final String VERSE_TEXT = "Blessed are those whose ways are blameless, who walk according to the law of the LORD. ";
+
+    @Test
+    public void compilesMarkers() throws Exception {
+        FakeSpanned text = new FakeSpanned();
+        text.appendText("  ");
+        text.appendMarker("1", "\\v 1 ");
+        text.appendText("In the beginning ");
+        text.appendMarker("*", "\\f + \\ft note \\f*");
+        text.appendText("God. ");
+        text.appendMarker("2", "\\v 2 ");
+        text.appendText("And the earth  ");
+
+        assertEquals("\\v 1 In the beginning \\f + \\ft note \\f*God. \\v 2 And the earth", TranslationCompiler.compile(text, Marker.class));
+    }
+
+    @Test
+    public void compilesPlainText() throws Exception {
+        FakeSpanned text = new FakeSpanned();
+        text.appendText(" plain text\n");
+
+        assertEquals("plain text", TranslationCompiler.compile(text, Marker.class));
+    }
+
+    /**
+     * Checks the compiler gives the same output as before and reports how long each takes
+     * @throws Exception
+     */
+    @Test
+    public void benchmark() throws Exception {
+        FakeSpanned text = new FakeSpanned();
+        for(int v = 1; v <= NUM_VERSES; v ++) {
+            text.appendMarker(Integer.toString(v), "\\v " + v + " ");
+            text.appendText(VERSE_TEXT);
+        }
+
+        String expected = compileLegacy(text);
+        assertEquals(expected, TranslationCompiler.compile(text, Marker.class));
+
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i ++) {
+            compileLegacy(text);
+        }
+        long legacy = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i ++) {
+            TranslationCompiler.compile(text, Marker.class);
+        }
+        long single = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        // TRICKY: timings depend on the machine so they are reported rather than asserted
+        System.out.println("TranslationCompiler: single pass " + single + "us, toString per span " + legacy + "us");
+    }
+
+    /**
+     * The compiler as it was before it appended directly from the text
+     * @param text
+     * @return
+     */
+    private static String compileLegacy(Spanned text) {
+        StringBuilder compiledString = new StringBuilder();
+        int next;
+        int lastIndex = 0;
+        for (int i = 0; i < text.length(); i = next) {
+            next = text.nextSpanTransition(i, text.length(), Marker.class);
+            Marker[] verses = text.getSpans(i, next, Marker.class);
+            for (Marker s : verses) {
+                int sStart = text.getSpanStart(s);
+                int sEnd = text.getSpanEnd(s);
+                compiledString.append(text.toString().substring(lastIndex, sStart));
+                compiledString.append(s.toString());
+                lastIndex = sEnd;
+            }
+        }
+        compiledString.append(text.toString().substring(lastIndex, text.length()));
+        return compiledString.toString().trim();
+    }
+
+    /**
+     * Holds the mark-up of a marker like SpannedString does in the app
+     */
+    private static class Marker implements CharSequence {
+        private final String markup;
+
+        Marker(String markup) {
+            this.markup = markup;
+        }
+
+        @Override
+        public int length() {
+            return markup.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return markup.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return markup.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return markup;
+        }
+    }
+
+    /**
+     * A minimal Spanned that only supports markers
+     */
+    private static class FakeSpanned implements Spanned {
+        private final StringBuilder text = new StringBuilder();
+        private final List<Marker> markers = new ArrayList<>();
+        private final List<int[]> ranges = new ArrayList<>();
+
+        void appendText(String value) {
+            text.append(value);
+        }
+
+        void appendMarker(String display, String markup) {
+            int start = text.length();
+            text.append(display);
+            markers.add(new Marker(markup));
+            ranges.add(new int[]{start, text.length()});
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] getSpans(int start, int end, Class<T> type) {
+            List<Marker> found = new ArrayList<>();
+            for(int i = 0; i < markers.size(); i ++) {
+                int[] range = ranges.get(i);
+                if(range[0] < end && range[1] > start) {
+                    found.add(markers.get(i));
+                }
+            }
+            T[] result = (T[]) java.lang.reflect.Array.newInstance(type, found.size());
+            for(int i = 0; i < found.size(); i ++) {
+                result[i] = (T) found.get(i);
+            }
+            return result;
+        }
+
+        @Override
+        public int getSpanStart(Object tag) {
+            int i = markers.indexOf(tag);
+            return i >= 0 ? ranges.get(i)[0] : -1;
+        }
+
+        @Override
+        public int getSpanEnd(Object tag) {
+            int i = markers.indexOf(tag);
+            return i >= 0 ? ranges.get(i)[1] : -1;
+        }
+
+        @Override
+        public int getSpanFlags(Object tag) {
+            return Spanned.SPAN_EXCLUSIVE_EXCLUSIVE;
+        }
+
+        @Override
+        public int nextSpanTransition(int start, int limit, Class type) {
+            for(int[] range:ranges) {
+                if(range[0] > start && range[0] < limit) limit = range[0];
+                if(range[1] > start && range[1] < limit) limit = range[1];
+            }
+            return limit;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.door43.translationstudio.rendering;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderCacheTest {
+
+    @Test
+    public void hitsAndMisses() throws Exception {
+        RenderCache cache = new RenderCache(1024);
+
+        RenderCache.Key key = RenderCache.key("en_gen_ulb:1", "01", "01", "verses", null, 0);
+        assertNull(cache.get(key));
+        cache.put(key, "1 text", true);
+
+        RenderCache.Entry entry = cache.get(RenderCache.key("en_gen_ulb:1", "01", "01", "verses", null, 0));
+        assertNotNull(entry);
+        assertEquals("1 text", entry.text);
+        assertTrue(entry.addedMissingVerse);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void keyIncludesOptions() throws Exception {
+        RenderCache cache = new RenderCache(1024);
+        cache.put(RenderCache.key("en_gen_ulb:1", "01", "01", "verses", null, 0), "text", false);
+
+        assertNull(cache.get(RenderCache.key("en_gen_ulb:2", "01", "01", "verses", null, 0)));
+        assertNull(cache.get(RenderCache.key("en_gen_ulb:1", "01", "02", "verses", null, 0)));
+        assertNull(cache.get(RenderCache.key("en_gen_ulb:1", "02", "01", "verses", null, 0)));
+        assertNull(cache.get(RenderCache.key("en_gen_ulb:1", "01", "01", "no_verses", null, 0)));
+        assertNull(cache.get(RenderCache.key("en_gen_ulb:1", "01", "01", "verses", "te", 0)));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        RenderCache.Key first = RenderCache.key("a", "01", "01", "", null, 0);
+        RenderCache.Key second = RenderCache.key("a", "01", "02", "", null, 0);
+        RenderCache.Key third = RenderCache.key("a", "01", "03", "", null, 0);
+        // the keys count against the size of the cache as well
+        int entrySize = first.length() + 4;
+        RenderCache cache = new RenderCache(entrySize * 2);
+
+        cache.put(first, "aaaa", false);
+        cache.put(second, "bbbb", false);
+        assertNotNull(cache.get(first));
+        cache.put(third, "cccc", false);
+
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void trimsLeastRecentlyUsed() throws Exception {
+        RenderCache cache = new RenderCache(1024);
+        RenderCache.Key first = RenderCache.key("a", "01", "01", "", null, 0);
+        RenderCache.Key second = RenderCache.key("a", "01", "02", "", null, 0);
+        cache.put(first, "aaaa", false);
+        cache.put(second, "bbbb", false);
+
+        cache.trim(cache.getCharacterCount() / 2);
+        assertNull(cache.get(first));
+        assertNotNull(cache.get(second));
+
+        cache.trim(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getCharacterCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.door43.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class DeferredFileWriterTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("deferred", "");
+        dir.delete();
+        dir.mkdirs();
+        DeferredFileWriter.setDebounce(60000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DeferredFileWriter.discard(dir);
+        DeferredFileWriter.setDebounce(DeferredFileWriter.DEFAULT_DEBOUNCE);
+        FileUtilities.deleteQuietly(dir);
+    }
+
+    @Test
+    public void coalescesWrites() throws Exception {
+        File file = new File(dir, "01/01.txt");
+        DeferredFileWriter.write(file, "first");
+        DeferredFileWriter.write(file, "second");
+
+        assertFalse(file.exists());
+        assertTrue(DeferredFileWriter.exists(file));
+        assertTrue(DeferredFileWriter.hasPendingWrites(dir));
+        assertEquals("second\n", DeferredFileWriter.readFileToString(file));
+
+        DeferredFileWriter.flush(dir);
+        assertFalse(DeferredFileWriter.hasPendingWrites(dir));
+        assertEquals("second\n", FileUtilities.readFileToString(file));
+    }
+
+    @Test
+    public void emptyWriteDeletes() throws Exception {
+        File file = new File(dir, "01/01.txt");
+        file.getParentFile().mkdirs();
+        FileUtilities.writeStringToFile(file, "text");
+
+        DeferredFileWriter.write(file, "");
+        assertFalse(DeferredFileWriter.exists(file));
+        assertNull(DeferredFileWriter.readFileToString(file));
+
+        DeferredFileWriter.flush(dir);
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void discardDropsWrites() throws Exception {
+        File file = new File(dir, "01/01.txt");
+        DeferredFileWriter.write(file, "text");
+        DeferredFileWriter.discard(dir);
+        DeferredFileWriter.flush(dir);
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void keepsFailedWrites() throws Exception {
+        // a file where the folder should be makes the write fail
+        File blocker = new File(dir, "01");
+        FileUtilities.writeStringToFile(blocker, "blocker");
+        File file = new File(blocker, "01.txt");
+        DeferredFileWriter.write(file, "text");
+
+        DeferredFileWriter.flush(dir);
+        assertTrue(DeferredFileWriter.hasPendingWrites(dir));
+        assertEquals("text\n", DeferredFileWriter.readFileToString(file));
+
+        blocker.delete();
+        DeferredFileWriter.flush(dir);
+        assertFalse(DeferredFileWriter.hasPendingWrites(dir));
+        assertEquals("text\n", FileUtilities.readFileToString(file));
+    }
+}